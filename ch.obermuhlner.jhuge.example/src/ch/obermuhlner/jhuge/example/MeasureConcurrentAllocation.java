@@ -0,0 +1,112 @@
+package ch.obermuhlner.jhuge.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ch.obermuhlner.jhuge.memory.AbstractMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * Application to measure the allocation throughput of a {@link StripedMemoryManager} with 1 to N concurrent threads,
+ * compared with a single {@link MemoryMappedFileManager} protected by one global lock.
+ */
+public class MeasureConcurrentAllocation {
+
+	private static final int OPERATION_COUNT = 200000;
+	private static final int BATCH_SIZE = 100;
+
+	/**
+	 * Starts the concurrent allocation measurement application.
+	 * 
+	 * @param args the arguments
+	 * @throws Exception if the measurement fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int maxThreadCount = Runtime.getRuntime().availableProcessors() * 2;
+
+		System.out.printf("%8s %20s %20s\n", "threads", "global lock [ops/ms]", "striped [ops/ms]");
+
+		for (int threadCount = 1; threadCount <= maxThreadCount; threadCount *= 2) {
+			double globalLockThroughput = measure(new SynchronizedMemoryManager(new MemoryMappedFileManager(10 * MemoryMappedFileManager.MEGABYTES)), threadCount);
+			double stripedThroughput = measure(new StripedMemoryManager(threadCount, 10 * MemoryMappedFileManager.MEGABYTES, MemoryMappedFileManager.NO_BLOCK_SIZE), threadCount);
+			System.out.printf("%8d %20.1f %20.1f\n", threadCount, globalLockThroughput, stripedThroughput);
+		}
+	}
+
+	private static double measure(final MemoryManager memoryManager, int threadCount) throws Exception {
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threadCount; i++) {
+			final Random random = new Random(i);
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					long[] addresses = new long[BATCH_SIZE];
+					for (int j = 0; j < OPERATION_COUNT; j += BATCH_SIZE * 2) {
+						for (int k = 0; k < BATCH_SIZE; k++) {
+							addresses[k] = memoryManager.allocate(8 + random.nextInt(120));
+						}
+						for (int k = 0; k < BATCH_SIZE; k++) {
+							memoryManager.free(addresses[k]);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			long startTime = System.nanoTime();
+			for (Future<Void> future : executor.invokeAll(workers)) {
+				future.get();
+			}
+			long endTime = System.nanoTime();
+			
+			double elapsedMilliseconds = (endTime - startTime) / 1000000.0;
+			return (double) OPERATION_COUNT * threadCount / elapsedMilliseconds;
+		} finally {
+			executor.shutdown();
+			memoryManager.reset();
+		}
+	}
+
+	private static class SynchronizedMemoryManager extends AbstractMemoryManager {
+		private final MemoryManager memoryManager;
+
+		public SynchronizedMemoryManager(MemoryManager memoryManager) {
+			this.memoryManager = memoryManager;
+		}
+
+		@Override
+		public synchronized long allocate(int length) {
+			return memoryManager.allocate(length);
+		}
+
+		@Override
+		public synchronized byte[] read(long address) {
+			return memoryManager.read(address);
+		}
+
+		@Override
+		public synchronized void write(long address, byte[] data) {
+			memoryManager.write(address, data);
+		}
+
+		@Override
+		public synchronized void free(long address) {
+			memoryManager.free(address);
+		}
+
+		@Override
+		public synchronized void reset() {
+			memoryManager.reset();
+		}
+	}
+}
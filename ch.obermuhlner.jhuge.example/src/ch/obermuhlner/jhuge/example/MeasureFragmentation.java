@@ -0,0 +1,81 @@
+package ch.obermuhlner.jhuge.example;
+
+import java.util.Random;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Application to measure the allocation latency of a {@link MemoryMappedFileManager} depending on the number of free blocks.
+ * 
+ * <p>The memory is fragmented by allocating many blocks and freeing every other block,
+ * so that the free blocks cannot be compacted into larger blocks.</p>
+ */
+public class MeasureFragmentation {
+
+	private static final int MEASURE_COUNT = 100000;
+
+	/**
+	 * Starts the fragmentation measurement application.
+	 * 
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		System.out.printf("%12s %12s %15s\n", "free blocks", "allocations", "ns/allocation");
+
+		for (int fragmentCount = 1000; fragmentCount <= 1000000; fragmentCount *= 10) {
+			measureAllocate(fragmentCount);
+		}
+	}
+
+	private static void measureAllocate(int fragmentCount) {
+		Random random = new Random(1234);
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(10 * MemoryMappedFileManager.MEGABYTES);
+		
+		fragment(memoryManager, fragmentCount, random);
+		int freeBlocks = memoryManager.getFreeBlocks();
+		
+		long[] addresses = new long[MEASURE_COUNT];
+		StopWatch stopWatch = new StopWatch();
+		for (int i = 0; i < MEASURE_COUNT; i++) {
+			addresses[i] = memoryManager.allocate(randomLength(random));
+		}
+		double elapsedNanoseconds = stopWatch.getElapsedNanoseconds();
+		
+		for (int i = 0; i < MEASURE_COUNT; i++) {
+			memoryManager.free(addresses[i]);
+		}
+		
+		System.out.printf("%12d %12d %15.1f\n", freeBlocks, MEASURE_COUNT, elapsedNanoseconds / MEASURE_COUNT);
+		memoryManager.reset();
+	}
+
+	private static void fragment(MemoryManager memoryManager, int fragmentCount, Random random) {
+		long[] addresses = new long[fragmentCount * 2];
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = memoryManager.allocate(randomLength(random));
+		}
+		for (int i = 0; i < addresses.length; i += 2) {
+			memoryManager.free(addresses[i]);
+		}
+	}
+	
+	private static int randomLength(Random random) {
+		return 8 + random.nextInt(120);
+	}
+
+	private static class StopWatch {
+		private long startTime = System.nanoTime();
+
+		double getElapsedNanoseconds() {
+			long endTime = System.nanoTime();
+			
+			return endTime - startTime;
+		}
+
+		@Override
+		public String toString() {
+			return getElapsedNanoseconds() / 1000000.0 + " ms";
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package ch.obermuhlner.jhuge.example;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.obermuhlner.jhuge.collection.HugeHashMap;
+
+/**
+ * Application to measure the lookup performance of a {@link HugeHashMap} with many keys that have the same hash code.
+ *
+ * <p>Colliding {@link String} keys have a canonical serialized form, so the fingerprints stored with the entries reject non-matching candidates.
+ * Keys of a custom {@link Serializable} class with a constant hash code must be deserialized for every candidate.</p>
+ */
+public class MeasureHashCodeCollisions {
+
+	private static final int LOOKUP_COUNT = 20000;
+
+	/**
+	 * Starts the hash code collision measurement application.
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		System.out.printf("%8s %24s %24s %24s %24s\n", "keys", "string hit [ops/ms]", "string miss [ops/ms]", "serializable hit [ops/ms]", "serializable miss [ops/ms]");
+
+		for (int bits = 2; bits <= 8; bits += 2) {
+			List<String> keys = createCollidingStrings(bits);
+			List<String> missingKeys = new ArrayList<String>();
+			List<HashCodeCollision> collisionKeys = new ArrayList<HashCodeCollision>();
+			List<HashCodeCollision> missingCollisionKeys = new ArrayList<HashCodeCollision>();
+			for (String key : keys) {
+				missingKeys.add(key + "AaBB");
+				collisionKeys.add(new HashCodeCollision(key));
+				missingCollisionKeys.add(new HashCodeCollision(key + "AaBB"));
+			}
+
+			HugeHashMap<String, Integer> stringMap = new HugeHashMap.Builder<String, Integer>().build();
+			HugeHashMap<HashCodeCollision, Integer> collisionMap = new HugeHashMap.Builder<HashCodeCollision, Integer>().build();
+			for (int i = 0; i < keys.size(); i++) {
+				stringMap.put(keys.get(i), i);
+				collisionMap.put(collisionKeys.get(i), i);
+			}
+
+			double stringHit = measureGet(stringMap, keys);
+			double stringMiss = measureGet(stringMap, missingKeys);
+			double collisionHit = measureGet(collisionMap, collisionKeys);
+			double collisionMiss = measureGet(collisionMap, missingCollisionKeys);
+			System.out.printf("%8d %24.1f %24.1f %24.1f %24.1f\n", keys.size(), stringHit, stringMiss, collisionHit, collisionMiss);
+
+			stringMap.clear();
+			collisionMap.clear();
+		}
+	}
+
+	/**
+	 * Creates all strings that are combinations of the specified number of "Aa" and "BB", which all have the same hash code.
+	 *
+	 * @param bits the number of "Aa" or "BB" in every string
+	 * @return the created strings
+	 */
+	private static List<String> createCollidingStrings(int bits) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < (1 << bits); i++) {
+			StringBuilder key = new StringBuilder();
+			for (int bit = 0; bit < bits; bit++) {
+				key.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+			}
+			result.add(key.toString());
+		}
+		return result;
+	}
+
+	private static <K> double measureGet(HugeHashMap<K, Integer> map, List<K> keys) {
+		// warm up
+		for (int i = 0; i < LOOKUP_COUNT; i++) {
+			map.get(keys.get(i % keys.size()));
+		}
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < LOOKUP_COUNT; i++) {
+			map.get(keys.get(i % keys.size()));
+		}
+		long endTime = System.nanoTime();
+
+		double elapsedMilliseconds = (endTime - startTime) / 1000000.0;
+		return LOOKUP_COUNT / elapsedMilliseconds;
+	}
+
+	/**
+	 * A key with a constant hash code, like <code>HashCodeCollision</code> in the tests.
+	 */
+	private static class HashCodeCollision implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String data;
+
+		HashCodeCollision(String data) {
+			this.data = data;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof HashCodeCollision)) {
+				return false;
+			}
+
+			return data.equals(((HashCodeCollision) obj).data);
+		}
+
+		@Override
+		public int hashCode() {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package ch.obermuhlner.jhuge.example;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.obermuhlner.jhuge.collection.HugeHashMap;
+
+/**
+ * Application to measure the latency percentiles of {@link Map#put(Object, Object)} while a map grows,
+ * which shows whether resizing the hash table causes long pauses.
+ */
+public class MeasurePutLatency {
+
+	private static final int ENTRY_COUNT = 2000000;
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99, 100 };
+
+	/**
+	 * Starts the put latency measurement application.
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		System.out.printf("%-20s", "map");
+		for (double percentile : PERCENTILES) {
+			System.out.printf(" %12s", "p" + percentile + " [us]");
+		}
+		System.out.println();
+
+		printLatencies("HashMap", measure(new HashMap<Integer, Integer>()));
+		printLatencies("HugeHashMap", measure(new HugeHashMap.Builder<Integer, Integer>().key(Integer.class).value(Integer.class).build()));
+		printLatencies("HugeHashMap faster", measure(new HugeHashMap.Builder<Integer, Integer>().key(Integer.class).value(Integer.class).faster().build()));
+	}
+
+	private static long[] measure(Map<Integer, Integer> map) {
+		long[] latencies = new long[ENTRY_COUNT];
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			long startTime = System.nanoTime();
+			map.put(i, i);
+			long endTime = System.nanoTime();
+			latencies[i] = endTime - startTime;
+		}
+		map.clear();
+		return latencies;
+	}
+
+	private static void printLatencies(String name, long[] latencies) {
+		Arrays.sort(latencies);
+
+		System.out.printf("%-20s", name);
+		for (double percentile : PERCENTILES) {
+			int index = Math.min(latencies.length - 1, (int) (latencies.length * percentile / 100));
+			System.out.printf(" %12.1f", latencies[index] / 1000.0);
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,304 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.collection.ConcurrentHugeHashMap.Builder;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * Abstract base class to test {@link ConcurrentHugeHashMap}.
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractConcurrentHugeHashMapTest extends AbstractMutableMapTest {
+
+	@Override
+	protected <K, V> Map<K, V> createEmptyMap() {
+		return createConcurrentMap();
+	}
+
+	private <K, V> ConcurrentHugeHashMap<K, V> createConcurrentMap() {
+		Builder<K, V> builder = new ConcurrentHugeHashMap.Builder<K, V>();
+		builder.memoryManager(createMemoryManager());
+		builder.concurrencyLevel(4);
+		if (isFaster()) {
+			builder.faster();
+		}
+		return builder.build();
+	}
+
+	protected abstract boolean isFaster();
+
+	protected abstract MemoryManager createMemoryManager();
+
+	@Override
+	protected boolean supportsNullKeys() {
+		return false;
+	}
+
+	@Override
+	protected boolean supportsNullValues() {
+		return false;
+	}
+
+	@Test
+	public void testBuilder_default() {
+		ConcurrentHugeHashMap<Integer, Long> map = new ConcurrentHugeHashMap.Builder<Integer, Long>().build();
+		assertEquals(true, map.getMemoryManager() instanceof StripedMemoryManager);
+		assertEquals(ConcurrentHugeHashMap.DEFAULT_CONCURRENCY_LEVEL, map.getSegmentCount());
+	}
+
+	@Test
+	public void testBuilder_concurrencyLevel() {
+		assertEquals(1, new ConcurrentHugeHashMap.Builder<Integer, Long>().memoryManager(createMemoryManager()).concurrencyLevel(1).build().getSegmentCount());
+		assertEquals(8, new ConcurrentHugeHashMap.Builder<Integer, Long>().memoryManager(createMemoryManager()).concurrencyLevel(5).build().getSegmentCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilder_concurrencyLevel_zero() {
+		new ConcurrentHugeHashMap.Builder<Integer, Long>().concurrencyLevel(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_concurrencyLevel_prepared() {
+		Builder<Integer, Long> builder = new ConcurrentHugeHashMap.Builder<Integer, Long>().memoryManager(createMemoryManager());
+		builder.put(1, 2L);
+		builder.concurrencyLevel(2);
+	}
+
+	@Test
+	public void testBuilder_put() {
+		ConcurrentHugeHashMap<Integer, Long> map = new ConcurrentHugeHashMap.Builder<Integer, Long>().memoryManager(createMemoryManager()).put(1, 10L).put(2, 20L).build();
+		assertEquals(2, map.size());
+		assertEquals(Long.valueOf(20L), map.get(2));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testPut_nullKey() {
+		createConcurrentMap().put(null, "a");
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testPut_nullValue() {
+		createConcurrentMap().put("a", null);
+	}
+
+	@Test
+	public void testPutIfAbsent() {
+		ConcurrentHugeHashMap<String, String> map = createConcurrentMap();
+		assertEquals(null, map.putIfAbsent("a", "1"));
+		assertEquals("1", map.putIfAbsent("a", "2"));
+		assertEquals("1", map.get("a"));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testReplace() {
+		ConcurrentHugeHashMap<String, String> map = createConcurrentMap();
+		assertEquals(null, map.replace("a", "1"));
+		assertEquals(false, map.containsKey("a"));
+
+		map.put("a", "1");
+		assertEquals("1", map.replace("a", "2"));
+		assertEquals("2", map.get("a"));
+
+		assertEquals(false, map.replace("a", "1", "3"));
+		assertEquals("2", map.get("a"));
+		assertEquals(true, map.replace("a", "2", "3"));
+		assertEquals("3", map.get("a"));
+		assertEquals(false, map.replace("b", "2", "3"));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testRemove_keyValue() {
+		ConcurrentHugeHashMap<String, String> map = createConcurrentMap();
+		map.put("a", "1");
+		assertEquals(false, map.remove("a", "2"));
+		assertEquals(false, map.remove("a", null));
+		assertEquals(false, map.remove("b", "1"));
+		assertEquals(1, map.size());
+		assertEquals(true, map.remove("a", "1"));
+		assertEquals(0, map.size());
+		assertEquals(true, map.isEmpty());
+	}
+
+	@Test
+	public void testIterator_weaklyConsistent() {
+		ConcurrentHugeHashMap<Integer, String> map = createConcurrentMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(i, "v" + i);
+		}
+
+		Map<Integer, String> seen = new HashMap<Integer, String>();
+		Iterator<Entry<Integer, String>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<Integer, String> entry = iterator.next();
+			if (entry.getKey() >= 1000) {
+				// entries added during the iteration may or may not be returned
+				continue;
+			}
+			seen.put(entry.getKey(), entry.getValue());
+
+			// modifying the map while iterating never fails
+			map.put(1000 + entry.getKey(), "new");
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue("changed" + entry.getKey());
+			}
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals("v" + i, seen.get(i));
+			assertEquals(i % 2 == 0 ? null : "changed" + i, map.get(i));
+			assertEquals("new", map.get(1000 + i));
+		}
+		assertEquals(150, map.size());
+	}
+
+	@Test
+	public void testIterator_manySlots() {
+		// every segment is copied in several batches of slots
+		ConcurrentHugeHashMap<Integer, String> map = createConcurrentMap();
+		for (int i = 0; i < 5000; i++) {
+			map.put(i, "v" + i);
+		}
+
+		Map<Integer, String> seen = new HashMap<Integer, String>();
+		Iterator<Entry<Integer, String>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<Integer, String> entry = iterator.next();
+			assertEquals(null, seen.put(entry.getKey(), entry.getValue()));
+
+			// removing and changing entries does not move other entries to other slots
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue("changed value " + entry.getKey());
+			}
+		}
+
+		assertEquals(5000, seen.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals("v" + i, seen.get(i));
+			assertEquals(i % 2 == 0 ? null : "changed value " + i, map.get(i));
+		}
+		assertEquals(2500, map.size());
+	}
+
+	@Test
+	public void testIterator_resizeDuringIteration() {
+		ConcurrentHugeHashMap<Integer, String> map = createConcurrentMap();
+		for (int i = 0; i < 5000; i++) {
+			map.put(i, "v" + i);
+		}
+
+		// the new keys make every segment grow several times while the iterator is inside it
+		int nextKey = 100000;
+		Map<Integer, Integer> keyCounts = new HashMap<Integer, Integer>();
+		Iterator<Entry<Integer, String>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<Integer, String> entry = iterator.next();
+			Integer count = keyCounts.get(entry.getKey());
+			keyCounts.put(entry.getKey(), count == null ? 1 : count + 1);
+
+			if (entry.getKey() < 5000) {
+				for (int i = 0; i < 10; i++) {
+					map.put(nextKey++, "new");
+				}
+			}
+		}
+
+		for (int i = 0; i < 5000; i++) {
+			assertEquals("key " + i, Integer.valueOf(1), keyCounts.get(i));
+		}
+		for (Entry<Integer, Integer> keyCount : keyCounts.entrySet()) {
+			assertEquals("key " + keyCount.getKey(), Integer.valueOf(1), keyCount.getValue());
+		}
+		assertEquals(55000, map.size());
+	}
+
+	@Test
+	public void testConcurrentPutIfAbsent() throws Exception {
+		final ConcurrentHugeHashMap<Integer, Integer> map = createConcurrentMap();
+		final int keyCount = 1000;
+		final AtomicInteger winnerCount = new AtomicInteger();
+
+		runConcurrently(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (int i = 0; i < keyCount; i++) {
+					if (map.putIfAbsent(i, i) == null) {
+						winnerCount.incrementAndGet();
+					}
+				}
+				return null;
+			}
+		});
+
+		assertEquals(keyCount, winnerCount.get());
+		assertEquals(keyCount, map.size());
+	}
+
+	@Test
+	public void testConcurrentReplace() throws Exception {
+		final ConcurrentHugeHashMap<Integer, Integer> map = createConcurrentMap();
+		final int keyCount = 20;
+		final int incrementCount = 200;
+		for (int i = 0; i < keyCount; i++) {
+			map.put(i, 0);
+		}
+
+		int threadCount = runConcurrently(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (int j = 0; j < incrementCount; j++) {
+					for (int i = 0; i < keyCount; i++) {
+						Integer value;
+						do {
+							value = map.get(i);
+						} while (!map.replace(i, value, value + 1));
+					}
+				}
+				return null;
+			}
+		});
+
+		for (int i = 0; i < keyCount; i++) {
+			assertEquals(Integer.valueOf(threadCount * incrementCount), map.get(i));
+		}
+	}
+
+	private static int runConcurrently(Callable<Void> worker) throws Exception {
+		int threadCount = 4;
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threadCount; i++) {
+			workers.add(worker);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (Future<Void> future : executor.invokeAll(workers)) {
+				future.get(); // rethrows the failure of a worker
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return threadCount;
+	}
+}
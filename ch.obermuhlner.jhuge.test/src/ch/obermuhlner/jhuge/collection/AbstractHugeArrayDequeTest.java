@@ -0,0 +1,217 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Abstract base class to test {@link HugeArrayDeque}.
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractHugeArrayDequeTest extends AbstractCollectionTest {
+
+	@Override
+	protected <T> Collection<T> createCollection(T... initial) {
+		return createDeque(initial);
+	}
+
+	private <T> HugeArrayDeque<T> createDeque(T... initial) {
+		HugeArrayDeque.Builder<T> builder = new HugeArrayDeque.Builder<T>();
+		builder.memoryManager(createMemoryManager());
+		if (isFaster()) {
+			builder.faster();
+		}
+		builder.capacity(initial.length);
+		builder.addAll(initial);
+		return builder.build();
+	}
+
+	protected abstract boolean isFaster();
+
+	protected abstract MemoryManager createMemoryManager();
+
+	@Override
+	protected boolean supportsMutable() {
+		return true;
+	}
+
+	@Override
+	protected boolean supportsNullValues() {
+		return false;
+	}
+
+	@Override
+	@Test
+	public void testHashCode() {
+		// like ArrayDeque the hashCode() is identity based
+		Collection<String> collection = createCollection("a");
+		assertEquals(collection.hashCode(), collection.hashCode());
+	}
+
+	@Override
+	@Test
+	public void testEquals() {
+		// like ArrayDeque the equals() is identity based
+		Collection<String> collection = createCollection("a", "b", "c");
+		assertEquals(true, collection.equals(collection));
+		assertEquals(false, collection.equals(createCollection("a", "b", "c")));
+		assertEquals(false, collection.equals(null));
+	}
+
+	@Test
+	public void testDeque() {
+		HugeArrayDeque<String> deque = createDeque();
+		assertEquals(null, deque.peekFirst());
+		assertEquals(null, deque.peekLast());
+		assertEquals(null, deque.pollFirst());
+		assertEquals(null, deque.pollLast());
+
+		deque.addLast("b");
+		deque.addFirst("a");
+		deque.offerLast("c");
+		deque.offerFirst("0");
+		assertEquals(Arrays.asList("0", "a", "b", "c"), new ArrayList<String>(deque));
+		assertEquals("0", deque.getFirst());
+		assertEquals("c", deque.getLast());
+
+		assertEquals("0", deque.pop());
+		deque.push("x");
+		assertEquals("x", deque.removeFirst());
+		assertEquals("c", deque.removeLast());
+		assertEquals("a", deque.poll());
+		assertEquals("b", deque.peek());
+		assertEquals(1, deque.size());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testRemoveFirst_empty() {
+		createDeque().removeFirst();
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testGetLast_empty() {
+		createDeque().getLast();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAddFirst_null() {
+		createDeque().addFirst(null);
+	}
+
+	@Test
+	public void testRemoveOccurrence() {
+		HugeArrayDeque<String> deque = createDeque("a", "b", "c", "b", "a");
+		assertEquals(true, deque.removeLastOccurrence("a"));
+		assertEquals(true, deque.removeFirstOccurrence("b"));
+		assertEquals(false, deque.removeFirstOccurrence("x"));
+		assertEquals(false, deque.removeLastOccurrence(null));
+		assertEquals(Arrays.asList("a", "c", "b"), new ArrayList<String>(deque));
+	}
+
+	@Test
+	public void testDescendingIterator() {
+		HugeArrayDeque<String> deque = createDeque("a", "b", "c", "d");
+		Iterator<String> iterator = deque.descendingIterator();
+		assertEquals("d", iterator.next());
+		assertEquals("c", iterator.next());
+		iterator.remove();
+		assertEquals("b", iterator.next());
+		assertEquals("a", iterator.next());
+		iterator.remove();
+		assertEquals(false, iterator.hasNext());
+		assertEquals(Arrays.asList("b", "d"), new ArrayList<String>(deque));
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testIterator_concurrentModification() {
+		HugeArrayDeque<String> deque = createDeque("a", "b");
+		Iterator<String> iterator = deque.iterator();
+		iterator.next();
+		deque.addFirst("c");
+		iterator.next();
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		HugeArrayDeque<Integer> deque = createDeque();
+		Deque<Integer> expected = new ArrayDeque<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+				expected.addLast(i);
+				deque.addLast(i);
+				break;
+			case 2:
+				expected.addFirst(i);
+				deque.addFirst(i);
+				break;
+			case 3:
+				assertEquals(expected.pollFirst(), deque.pollFirst());
+				break;
+			case 4:
+				assertEquals(expected.pollLast(), deque.pollLast());
+				break;
+			default:
+				Integer element = Integer.valueOf(random.nextInt(i + 1));
+				assertEquals(expected.removeFirstOccurrence(element), deque.removeFirstOccurrence(element));
+				break;
+			}
+			assertEquals(expected.size(), deque.size());
+			assertEquals(expected.peekFirst(), deque.peekFirst());
+			assertEquals(expected.peekLast(), deque.peekLast());
+		}
+		assertEquals(new ArrayList<Integer>(expected), new ArrayList<Integer>(deque));
+
+		Iterator<Integer> expectedIterator = expected.iterator();
+		Iterator<Integer> iterator = deque.iterator();
+		while (iterator.hasNext()) {
+			assertEquals(expectedIterator.next(), iterator.next());
+			if (random.nextBoolean()) {
+				expectedIterator.remove();
+				iterator.remove();
+			}
+		}
+		assertEquals(new ArrayList<Integer>(expected), new ArrayList<Integer>(deque));
+	}
+
+	@Test
+	public void testCapacity() {
+		assertEquals(8, createDeque().getCapacity());
+		assertEquals(16, createDeque(1, 2, 3, 4, 5, 6, 7, 8, 9).getCapacity());
+
+		HugeArrayDeque<Integer> deque = createDeque();
+		for (int i = 0; i < 6; i++) {
+			deque.addLast(i);
+		}
+		for (int i = 0; i < 4; i++) {
+			deque.pollFirst();
+		}
+		// wraps around the end of the circular buffer before growing
+		for (int i = 6; i < 21; i++) {
+			deque.addLast(i);
+		}
+		assertEquals(32, deque.getCapacity());
+		assertEquals(Arrays.asList(4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20), new ArrayList<Integer>(deque));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		HugeArrayDeque.Builder<String> builder = new HugeArrayDeque.Builder<String>().memoryManager(createMemoryManager());
+		builder.build();
+		builder.build();
+	}
+}
@@ -3,8 +3,16 @@ package ch.obermuhlner.jhuge.collection;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -12,8 +20,10 @@ import ch.obermuhlner.jhuge.collection.HugeArrayList.Builder;
 import ch.obermuhlner.jhuge.converter.Converters;
 import ch.obermuhlner.jhuge.converter.IntegerConverter;
 import ch.obermuhlner.jhuge.converter.ZipCompressionConverter;
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
 import ch.obermuhlner.jhuge.memory.MemoryManager;
 import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManagerTest;
 
 /**
  * Abstract base class to test {@link HugeArrayList}.
@@ -30,6 +40,9 @@ public abstract class AbstractHugeArrayListTest extends AbstractListTest {
 		if (isFaster()) {
 			builder.faster();
 		}
+		if (isChunked()) {
+			builder.chunked();
+		}
 		builder.capacity(initial.length);
 		builder.addAll(initial);
 		return builder.build();
@@ -37,6 +50,10 @@ public abstract class AbstractHugeArrayListTest extends AbstractListTest {
 
 	protected abstract boolean isFaster();
 	
+	protected boolean isChunked() {
+		return false;
+	}
+	
 	protected abstract MemoryManager createMemoryManager();
 
 	@Override
@@ -97,6 +114,17 @@ public abstract class AbstractHugeArrayListTest extends AbstractListTest {
 		assertEquals(34567, memoryManager.getBlockSize());
 	}
 
+	@Test
+	public void testBuilder_directory() throws IOException {
+		File directory = MemoryMappedFileManagerTest.createTempDirectory();
+		HugeArrayList<Integer> list = new HugeArrayList.Builder<Integer>().directory(directory).bufferSize(1000).addAll(1, 2, 3).build();
+		assertEquals(true, list.getMemoryManager() instanceof MemoryMappedFileManager);
+		MemoryMappedFileManager memoryManager = (MemoryMappedFileManager) list.getMemoryManager();
+		assertEquals(directory, memoryManager.getDirectory());
+		assertEquals(MemoryMappedFileManagerTest.expectedSegmentFiles(1), directory.listFiles().length);
+		assertEquals(Arrays.asList(1, 2, 3), list);
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void testBuilder_prepare() {
 		Builder<Integer> builder = new HugeArrayList.Builder<Integer>();
@@ -121,4 +149,153 @@ public abstract class AbstractHugeArrayListTest extends AbstractListTest {
 		HugeArrayList<Integer> list = new HugeArrayList.Builder<Integer>().memoryManager(createMemoryManager()).addAll(Arrays.asList(1, 2, 3)).build();
 		assertEquals(3, list.size());
 	}
+
+	@Test
+	public void testBuilder_chunked() {
+		HugeArrayList<Integer> list = new HugeArrayList.Builder<Integer>().memoryManager(new DummyMemoryManager()).chunked().addAll(1, 2, 3).build();
+		assertEquals(true, list.isChunked());
+		list.add(0, 0);
+		list.remove(2);
+		assertEquals(Arrays.asList(0, 1, 3), list);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_chunked_afterAdd() {
+		new HugeArrayList.Builder<Integer>().memoryManager(createMemoryManager()).add(1).chunked();
+	}
+
+	@Test
+	public void testAddAll_bulk() {
+		List<Integer> list = createList(0, 1, 2);
+		List<Integer> expected = new ArrayList<Integer>(list);
+
+		List<Integer> elements = new ArrayList<Integer>();
+		for (int i = 0; i < 2500; i++) {
+			elements.add(i % 10 == 0 ? null : i);
+		}
+		assertEquals(true, list.addAll(elements));
+		expected.addAll(elements);
+		assertEquals(expected, list);
+
+		assertEquals(true, list.addAll(1, Arrays.asList(-1, -2)));
+		expected.addAll(1, Arrays.asList(-1, -2));
+		assertEquals(expected, list);
+
+		assertEquals(false, list.addAll(Arrays.<Integer>asList()));
+		assertEquals(expected.size(), list.size());
+	}
+
+	@Test
+	public void testAddAll_self() {
+		List<Integer> list = createList(1, 2, 3);
+		list.addAll(list);
+		assertEquals(Arrays.asList(1, 2, 3, 1, 2, 3), list);
+		list.addAll(1, list);
+		assertEquals(Arrays.asList(1, 1, 2, 3, 1, 2, 3, 2, 3, 1, 2, 3), list);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAddAll_illegalIndex() {
+		createList(1, 2, 3).addAll(4, Arrays.asList(4));
+	}
+
+	@Test
+	public void testSplittableIterator() {
+		HugeArrayList<Integer> list = (HugeArrayList<Integer>) createList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+		SplittableIterator<Integer> iterator = list.splittableIterator();
+		assertEquals(true, iterator.isSized());
+		assertEquals(10, iterator.estimateSize());
+
+		SplittableIterator<Integer> prefix = iterator.trySplit();
+		assertEquals(5, prefix.estimateSize());
+		assertEquals(5, iterator.estimateSize());
+		SplittableIterator<Integer> prefixPrefix = prefix.trySplit();
+		assertEquals(2, prefixPrefix.estimateSize());
+
+		assertEquals(Arrays.asList(0, 1), toList(prefixPrefix));
+		assertEquals(Arrays.asList(2, 3, 4), toList(prefix));
+		assertEquals(Integer.valueOf(5), iterator.next());
+		assertEquals(4, iterator.estimateSize());
+		assertEquals(Arrays.asList(6, 7, 8, 9), toList(iterator));
+		assertEquals(null, iterator.trySplit());
+	}
+
+	@Test
+	public void testSplittableIterator_parallel() throws Exception {
+		List<Integer> list = createList();
+		for (int i = 0; i < 1000; i++) {
+			list.add(i);
+		}
+
+		List<SplittableIterator<Integer>> iterators = new ArrayList<SplittableIterator<Integer>>();
+		iterators.add(((HugeArrayList<Integer>) list).splittableIterator());
+		for (int i = 0; i < 3; i++) {
+			for (SplittableIterator<Integer> iterator : new ArrayList<SplittableIterator<Integer>>(iterators)) {
+				iterators.add(iterator.trySplit());
+			}
+		}
+		assertEquals(8, iterators.size());
+
+		List<Callable<Long>> workers = new ArrayList<Callable<Long>>();
+		for (final SplittableIterator<Integer> iterator : iterators) {
+			workers.add(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					long sum = 0;
+					while (iterator.hasNext()) {
+						sum += iterator.next();
+					}
+					return sum;
+				}
+			});
+		}
+
+		long sum = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (Future<Long> future : executor.invokeAll(workers)) {
+				sum += future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(999 * 1000 / 2, sum);
+	}
+
+	private static <T> List<T> toList(Iterator<T> iterator) {
+		List<T> result = new ArrayList<T>();
+		while (iterator.hasNext()) {
+			result.add(iterator.next());
+		}
+		return result;
+	}
+
+	@Test
+	public void testQueue() {
+		HugeArrayList.Builder<Integer> builder = new HugeArrayList.Builder<Integer>().memoryManager(createMemoryManager());
+		if (isFaster()) {
+			builder.faster();
+		}
+		if (isChunked()) {
+			builder.chunked();
+		}
+		HugeArrayList<Integer> list = builder.build();
+
+		// use the list as a work queue: add at the end, remove at the head
+		int next = 0;
+		int expectedHead = 0;
+		for (int i = 0; i < 20; i++) {
+			for (int j = 0; j < 300; j++) {
+				list.add(next++);
+			}
+			for (int j = 0; j < 200; j++) {
+				assertEquals(Integer.valueOf(expectedHead++), list.remove(0));
+			}
+		}
+		assertEquals(next - expectedHead, list.size());
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(Integer.valueOf(expectedHead + i), list.get(i));
+		}
+	}
 }
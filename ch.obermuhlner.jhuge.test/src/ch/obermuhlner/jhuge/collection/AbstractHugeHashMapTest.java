@@ -3,8 +3,17 @@ package ch.obermuhlner.jhuge.collection;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.junit.Test;
 
@@ -15,6 +24,7 @@ import ch.obermuhlner.jhuge.converter.LongConverter;
 import ch.obermuhlner.jhuge.converter.ZipCompressionConverter;
 import ch.obermuhlner.jhuge.memory.MemoryManager;
 import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManagerTest;
 
 /**
  * Abstract base class to test {@link HugeHashMap}.
@@ -121,6 +131,27 @@ public abstract class AbstractHugeHashMapTest extends AbstractMutableMapTest {
 		assertEquals(3456, memoryManager.getBlockSize());
 	}
 
+	@Test
+	public void testBuilder_defaultBlockSize() {
+		HugeHashMap<Integer, Long> map = new HugeHashMap.Builder<Integer, Long>().key(Integer.class).value(Long.class).build();
+		MemoryMappedFileManager memoryManager = (MemoryMappedFileManager) map.getMemoryManager();
+		assertEquals(4 + 4 + 8, memoryManager.getBlockSize()); // header, key and value in a single block
+
+		HugeHashMap<Integer, String> otherMap = new HugeHashMap.Builder<Integer, String>().key(Integer.class).build();
+		assertEquals(MemoryMappedFileManager.NO_BLOCK_SIZE, ((MemoryMappedFileManager) otherMap.getMemoryManager()).getBlockSize());
+	}
+
+	@Test
+	public void testBuilder_directory() throws IOException {
+		File directory = MemoryMappedFileManagerTest.createTempDirectory();
+		HugeHashMap<Integer, Long> map = new HugeHashMap.Builder<Integer, Long>().directory(directory).bufferSize(1000).put(1, 100L).build();
+		assertEquals(true, map.getMemoryManager() instanceof MemoryMappedFileManager);
+		MemoryMappedFileManager memoryManager = (MemoryMappedFileManager) map.getMemoryManager();
+		assertEquals(directory, memoryManager.getDirectory());
+		assertEquals(MemoryMappedFileManagerTest.expectedSegmentFiles(1), directory.listFiles().length);
+		assertEquals(Long.valueOf(100L), map.get(1));
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void testBuilder_prepare() {
 		Builder<Integer, Long> builder = new HugeHashMap.Builder<Integer, Long>();
@@ -144,4 +175,248 @@ public abstract class AbstractHugeHashMapTest extends AbstractMutableMapTest {
 		HugeHashMap<Integer, Long> map = new HugeHashMap.Builder<Integer, Long>().memoryManager(createMemoryManager()).putAll(initial).build();
 		assertEquals(3, map.size());
 	}
+
+	@Test
+	public void testPut_singleBlockPerEntry() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(1024 * 1024);
+		Builder<Integer, String> builder = new HugeHashMap.Builder<Integer, String>().key(Integer.class).memoryManager(memoryManager);
+		if (isFaster()) {
+			builder.faster();
+		}
+		HugeHashMap<Integer, String> map = builder.build();
+
+		map.put(1, "one");
+		int allocatedBlocks = memoryManager.getAllocatedBlocks();
+		map.put(2, "two");
+		assertEquals(allocatedBlocks + 1, memoryManager.getAllocatedBlocks());
+
+		map.put(2, "TWO"); // same length - overwritten in place
+		assertEquals(allocatedBlocks + 1, memoryManager.getAllocatedBlocks());
+		assertEquals("TWO", map.get(2));
+
+		map.put(2, null);
+		assertEquals(allocatedBlocks + 1, memoryManager.getAllocatedBlocks());
+		assertEquals(true, map.containsKey(2));
+		assertEquals(null, map.get(2));
+
+		map.remove(2);
+		assertEquals(allocatedBlocks, memoryManager.getAllocatedBlocks());
+		assertEquals("one", map.get(1));
+	}
+
+	@Test
+	public void testPutAll_bulk() {
+		Map<Integer, String> map = createEmptyMap();
+		map.put(0, "zero");
+		map.put(1, "one");
+
+		Map<Integer, String> entries = new HashMap<Integer, String>();
+		for (int i = 0; i < 2500; i++) {
+			entries.put(i, i % 10 == 0 ? null : "value" + i);
+		}
+		map.putAll(entries);
+		assertEquals(entries, map);
+
+		map.putAll(map);
+		assertEquals(entries, map);
+	}
+
+	@Test
+	public void testPutAll_singleBlockPerEntry() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(1024 * 1024);
+		Builder<Integer, String> builder = new HugeHashMap.Builder<Integer, String>().key(Integer.class).memoryManager(memoryManager);
+		if (isFaster()) {
+			builder.faster();
+		}
+		HugeHashMap<Integer, String> map = builder.build();
+
+		map.put(1, "one");
+		map.put(2, "two");
+		int allocatedBlocks = memoryManager.getAllocatedBlocks();
+
+		Map<Integer, String> entries = new HashMap<Integer, String>();
+		entries.put(1, "ONE"); // same length - overwritten in place
+		entries.put(2, "second"); // different length - moved
+		entries.put(3, "three");
+		map.putAll(entries);
+		assertEquals(allocatedBlocks + 1, memoryManager.getAllocatedBlocks());
+		assertEquals(entries, map);
+	}
+
+	@Test
+	public void testPut_equalKeysWithDifferentSerializedLength() {
+		// equal lists with the same hash code, but the LinkedList serializes to a different length
+		List<Integer> arrayListKey = new ArrayList<Integer>(Arrays.asList(1, 2));
+		List<Integer> linkedListKey = new LinkedList<Integer>(Arrays.asList(1, 2));
+		Map<List<Integer>, String> map = createEmptyMap();
+		map.put(arrayListKey, "first");
+
+		assertEquals("first", map.put(linkedListKey, "other")); // same value length
+		assertEquals("other", map.get(arrayListKey));
+		assertEquals("other", map.put(linkedListKey, "much longer value"));
+		assertEquals("much longer value", map.get(linkedListKey));
+		assertEquals("much longer value", map.put(linkedListKey, null));
+		assertEquals(null, map.get(arrayListKey));
+
+		map.putAll(Collections.singletonMap(linkedListKey, "bulk"));
+		assertEquals("bulk", map.get(arrayListKey));
+		assertEquals(1, map.size());
+
+		// the original key is kept
+		assertEquals(ArrayList.class, map.keySet().iterator().next().getClass());
+	}
+
+	@Test
+	public void testGet_collidingStrings() {
+		// "Aa" and "BB" have the same hash code
+		Map<String, String> map = createEmptyMap();
+		map.put("Aa", "first");
+		map.put("BB", "second");
+		map.put("AaBB", "third");
+		map.put("BBAa", "fourth");
+
+		assertEquals("first", map.get("Aa"));
+		assertEquals("second", map.get("BB"));
+		assertEquals("third", map.get("AaBB"));
+		assertEquals("fourth", map.get("BBAa"));
+		assertEquals(null, map.get("AaAa"));
+		assertEquals(false, map.containsKey("BBBB"));
+
+		assertEquals("second", map.put("BB", "SECOND"));
+		assertEquals("SECOND", map.get("BB"));
+		assertEquals("third", map.remove("AaBB"));
+		assertEquals(false, map.containsKey("AaBB"));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void testGet_manyCollidingStrings() {
+		// all combinations of "Aa" and "BB" with the same length have the same hash code
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 64; i++) {
+			StringBuilder key = new StringBuilder();
+			for (int bit = 0; bit < 6; bit++) {
+				key.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+			}
+			keys.add(key.toString());
+		}
+
+		Map<String, String> map = createEmptyMap();
+		Map<String, String> expected = new HashMap<String, String>();
+		for (String key : keys) {
+			map.put(key, "value" + key);
+			expected.put(key, "value" + key);
+		}
+		assertEquals(expected, map);
+
+		for (String key : keys) {
+			assertEquals("value" + key, map.get(key));
+			assertEquals(false, map.containsKey(key + "AaBB"));
+		}
+
+		assertEquals("value" + keys.get(7), map.put(keys.get(7), "longer value"));
+		expected.put(keys.get(7), "longer value");
+		assertEquals("longer value", map.get(keys.get(7)));
+
+		Iterator<Entry<String, String>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			String key = iterator.next().getKey();
+			if (key.startsWith("Aa")) {
+				iterator.remove();
+				expected.remove(key);
+			}
+		}
+		assertEquals(32, map.size());
+		assertEquals(expected, map);
+		for (String key : keys) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+	}
+
+	@Test
+	public void testSize_allMutations() {
+		Map<String, String> map = createEmptyMap();
+		assertSize(0, map);
+
+		map.put("a", "1");
+		map.put("b", "2");
+		map.put(null, "null");
+		map.put("Aa", "3");
+		map.put("BB", "4"); // same hash code as "Aa"
+		assertSize(5, map);
+
+		map.put("a", "changed");
+		map.put("BB", "changed with different length");
+		map.put(null, null);
+		assertSize(5, map);
+
+		map.remove("BB");
+		map.remove("missing");
+		assertSize(4, map);
+
+		Iterator<Entry<String, String>> iterator = map.entrySet().iterator();
+		iterator.next();
+		iterator.remove();
+		assertSize(3, map);
+
+		map.entrySet().iterator().next().setValue("set");
+		assertSize(3, map);
+
+		map.clear();
+		assertSize(0, map);
+
+		map.put("a", "again");
+		assertSize(1, map);
+	}
+
+	private static void assertSize(int expectedSize, Map<?, ?> map) {
+		int count = 0;
+		for (Iterator<?> iterator = map.entrySet().iterator(); iterator.hasNext(); iterator.next()) {
+			count++;
+		}
+		assertEquals(expectedSize, count);
+		assertEquals(expectedSize, map.size());
+		assertEquals(expectedSize, map.entrySet().size());
+		assertEquals(expectedSize == 0, map.isEmpty());
+		assertEquals(expectedSize == 0, map.entrySet().isEmpty());
+	}
+
+	@Test
+	public void testGet_otherKeyType() {
+		HugeHashMap<Integer, String> map = new HugeHashMap.Builder<Integer, String>().key(Integer.class).memoryManager(createMemoryManager()).put(1, "one").build();
+		assertEquals("one", map.get(1));
+		assertEquals(null, map.get(1L));
+		assertEquals(false, map.containsKey("1"));
+	}
+
+	@Test
+	public void testSplittableEntryIterator() {
+		HugeHashMap<Integer, String> map = (HugeHashMap<Integer, String>) this.<Integer, String>createEmptyMap();
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, "x" + i);
+		}
+		map.put(null, null);
+
+		List<SplittableIterator<Entry<Integer, String>>> iterators = new ArrayList<SplittableIterator<Entry<Integer, String>>>();
+		iterators.add(map.splittableEntryIterator());
+		for (int i = 0; i < 3; i++) {
+			for (SplittableIterator<Entry<Integer, String>> iterator : new ArrayList<SplittableIterator<Entry<Integer, String>>>(iterators)) {
+				SplittableIterator<Entry<Integer, String>> split = iterator.trySplit();
+				if (split != null) {
+					iterators.add(split);
+				}
+			}
+		}
+		assertEquals(true, iterators.size() > 1);
+
+		Map<Integer, String> result = new HashMap<Integer, String>();
+		for (SplittableIterator<Entry<Integer, String>> iterator : iterators) {
+			while (iterator.hasNext()) {
+				Entry<Integer, String> entry = iterator.next();
+				assertEquals(false, result.containsKey(entry.getKey()));
+				result.put(entry.getKey(), entry.getValue());
+			}
+		}
+		assertEquals(map, result);
+	}
 }
@@ -3,7 +3,11 @@ package ch.obermuhlner.jhuge.collection;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Test;
@@ -120,4 +124,122 @@ public abstract class AbstractHugeHashSetTest extends AbstractSetTest {
 		HugeHashSet<Integer> list = new HugeHashSet.Builder<Integer>().memoryManager(createMemoryManager()).addAll(Arrays.asList(1, 2, 3)).build();
 		assertEquals(3, list.size());
 	}
+
+	@Test
+	public void testContains_collidingStrings() {
+		// "Aa" and "BB" have the same hash code
+		Set<String> set = createSet("Aa", "BB", "AaBB");
+
+		assertEquals(true, set.contains("Aa"));
+		assertEquals(true, set.contains("BB"));
+		assertEquals(true, set.contains("AaBB"));
+		assertEquals(false, set.contains("BBAa"));
+		assertEquals(false, set.add("BB"));
+		assertEquals(true, set.add("BBAa"));
+		assertEquals(true, set.remove("Aa"));
+		assertEquals(false, set.contains("Aa"));
+		assertEquals(3, set.size());
+	}
+
+	@Test
+	public void testSize_allMutations() {
+		Set<String> set = createSet();
+		assertSize(0, set);
+
+		set.add("a");
+		set.add("b");
+		set.add(null);
+		set.add("Aa");
+		set.add("BB"); // same hash code as "Aa"
+		assertSize(5, set);
+
+		set.add("a");
+		set.add("BB");
+		set.add(null);
+		assertSize(5, set);
+
+		set.remove("BB");
+		set.remove("a");
+		set.remove("missing");
+		assertSize(3, set);
+
+		Iterator<String> iterator = set.iterator();
+		iterator.next();
+		iterator.remove();
+		assertSize(2, set);
+
+		set.clear();
+		assertSize(0, set);
+
+		set.add("again");
+		assertSize(1, set);
+	}
+
+	private static void assertSize(int expectedSize, Set<?> set) {
+		int count = 0;
+		for (Iterator<?> iterator = set.iterator(); iterator.hasNext(); iterator.next()) {
+			count++;
+		}
+		assertEquals(expectedSize, count);
+		assertEquals(expectedSize, set.size());
+		assertEquals(expectedSize == 0, set.isEmpty());
+	}
+
+	@Test
+	public void testAddAll_bulk() {
+		Set<Integer> set = createSet(0, 1, 2);
+		List<Integer> elements = new ArrayList<Integer>();
+		for (int i = 0; i < 2500; i++) {
+			elements.add(i / 2); // every element twice
+		}
+		elements.add(null);
+
+		assertEquals(true, set.addAll(elements));
+		assertEquals(1251, set.size());
+		assertEquals(new HashSet<Integer>(elements), set);
+
+		assertEquals(false, set.addAll(elements));
+		assertEquals(false, set.addAll(set));
+		assertEquals(1251, set.size());
+	}
+
+	@Test
+	public void testContains_otherElementType() {
+		HugeHashSet<Integer> set = new HugeHashSet.Builder<Integer>().element(Integer.class).memoryManager(createMemoryManager()).add(1).build();
+		assertEquals(true, set.contains(1));
+		assertEquals(false, set.contains(1L));
+		assertEquals(false, set.contains("1"));
+	}
+
+	@Test
+	public void testSplittableIterator() {
+		HugeHashSet<Integer> set = (HugeHashSet<Integer>) this.<Integer>createSet();
+		for (int i = 0; i < 1000; i++) {
+			set.add(i);
+		}
+		set.add(null);
+
+		List<SplittableIterator<Integer>> iterators = new ArrayList<SplittableIterator<Integer>>();
+		iterators.add(set.splittableIterator());
+		assertEquals(false, iterators.get(0).isSized());
+		assertEquals(1001, iterators.get(0).estimateSize());
+		for (int i = 0; i < 3; i++) {
+			for (SplittableIterator<Integer> iterator : new ArrayList<SplittableIterator<Integer>>(iterators)) {
+				SplittableIterator<Integer> split = iterator.trySplit();
+				if (split != null) {
+					iterators.add(split);
+				}
+			}
+		}
+		assertEquals(true, iterators.size() > 1);
+
+		Set<Integer> result = new HashSet<Integer>();
+		for (SplittableIterator<Integer> iterator : iterators) {
+			while (iterator.hasNext()) {
+				assertEquals(true, result.add(iterator.next()));
+			}
+			assertEquals(null, iterator.trySplit());
+		}
+		assertEquals(set, result);
+	}
 }
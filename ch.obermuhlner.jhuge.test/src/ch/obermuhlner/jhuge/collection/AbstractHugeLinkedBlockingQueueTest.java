@@ -0,0 +1,319 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * Abstract base class to test {@link HugeLinkedBlockingQueue}.
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractHugeLinkedBlockingQueueTest extends AbstractCollectionTest {
+
+	@Override
+	protected <T> Collection<T> createCollection(T... initial) {
+		return createQueue(initial);
+	}
+
+	private <T> HugeLinkedBlockingQueue<T> createQueue(T... initial) {
+		return new HugeLinkedBlockingQueue.Builder<T>().memoryManager(createMemoryManager()).addAll(initial).build();
+	}
+
+	protected abstract MemoryManager createMemoryManager();
+
+	@Override
+	protected boolean supportsMutable() {
+		return true;
+	}
+
+	@Override
+	protected boolean supportsNullValues() {
+		return false;
+	}
+
+	@Override
+	@Test
+	public void testHashCode() {
+		// like LinkedBlockingQueue the hashCode() is identity based
+		Collection<String> collection = createCollection("a");
+		assertEquals(collection.hashCode(), collection.hashCode());
+	}
+
+	@Override
+	@Test
+	public void testEquals() {
+		// like LinkedBlockingQueue the equals() is identity based
+		Collection<String> collection = createCollection("a", "b", "c");
+		assertEquals(true, collection.equals(collection));
+		assertEquals(false, collection.equals(createCollection("a", "b", "c")));
+		assertEquals(false, collection.equals(null));
+	}
+
+	@Test
+	public void testQueue() throws InterruptedException {
+		HugeLinkedBlockingQueue<String> queue = createQueue();
+		assertEquals(null, queue.peek());
+		assertEquals(null, queue.poll());
+		assertEquals(null, queue.poll(1, TimeUnit.MILLISECONDS));
+		assertEquals(Integer.MAX_VALUE, queue.remainingCapacity());
+
+		queue.add("a");
+		queue.offer("b");
+		queue.put("c");
+		assertEquals(true, queue.offer("d", 1, TimeUnit.MILLISECONDS));
+		assertEquals(Arrays.asList("a", "b", "c", "d"), new ArrayList<String>(queue));
+		assertEquals(4, queue.size());
+
+		assertEquals("a", queue.peek());
+		assertEquals("a", queue.poll());
+		assertEquals("b", queue.take());
+		assertEquals("c", queue.poll(1, TimeUnit.MILLISECONDS));
+		assertEquals("d", queue.remove());
+		assertEquals(0, queue.size());
+		assertEquals(0, queue.getByteSize());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testOffer_null() {
+		createQueue().offer(null);
+	}
+
+	@Test
+	public void testMaxSize() throws InterruptedException {
+		HugeLinkedBlockingQueue<String> queue = new HugeLinkedBlockingQueue.Builder<String>().memoryManager(createMemoryManager()).maxSize(2).build();
+		assertEquals(true, queue.offer("a"));
+		assertEquals(true, queue.offer("b"));
+		assertEquals(0, queue.remainingCapacity());
+		assertEquals(false, queue.offer("c"));
+		assertEquals(false, queue.offer("c", 1, TimeUnit.MILLISECONDS));
+
+		queue.poll();
+		assertEquals(1, queue.remainingCapacity());
+		assertEquals(true, queue.offer("c"));
+		assertEquals(Arrays.asList("b", "c"), new ArrayList<String>(queue));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMaxSize_add() {
+		HugeLinkedBlockingQueue<String> queue = new HugeLinkedBlockingQueue.Builder<String>().memoryManager(createMemoryManager()).maxSize(1).build();
+		queue.add("a");
+		queue.add("b");
+	}
+
+	@Test
+	public void testMaxBytes() {
+		HugeLinkedBlockingQueue<String> queue = createQueue();
+		queue.add("aaaaaaaaaa");
+		long elementBytes = queue.getByteSize();
+		assertTrue(elementBytes > 0);
+		queue.clear();
+		assertEquals(0, queue.getByteSize());
+
+		queue = new HugeLinkedBlockingQueue.Builder<String>().memoryManager(createMemoryManager()).maxBytes(2 * elementBytes).build();
+		assertEquals(true, queue.offer("aaaaaaaaaa"));
+		assertEquals(true, queue.offer("bbbbbbbbbb"));
+		assertEquals(2 * elementBytes, queue.getByteSize());
+		assertEquals(false, queue.offer("cccccccccc"));
+
+		queue.poll();
+		assertEquals(elementBytes, queue.getByteSize());
+		assertEquals(true, queue.offer("cccccccccc"));
+		assertEquals(Arrays.asList("bbbbbbbbbb", "cccccccccc"), new ArrayList<String>(queue));
+	}
+
+	@Test
+	public void testMaxBytes_oversizeElement() {
+		HugeLinkedBlockingQueue<String> queue = new HugeLinkedBlockingQueue.Builder<String>().memoryManager(createMemoryManager()).maxBytes(1).build();
+		// an element larger than the byte budget is accepted by an empty queue
+		assertEquals(true, queue.offer("aaaaaaaaaa"));
+		assertEquals(false, queue.offer("b"));
+		assertEquals("aaaaaaaaaa", queue.poll());
+		assertEquals(true, queue.offer("b"));
+	}
+
+	@Test
+	public void testPut_blocksUntilTake() throws Exception {
+		final HugeLinkedBlockingQueue<Integer> queue = new HugeLinkedBlockingQueue.Builder<Integer>().memoryManager(createMemoryManager()).maxSize(1).build();
+		queue.put(0);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Void> producer = executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					queue.put(1);
+					return null;
+				}
+			});
+
+			Thread.sleep(20);
+			assertEquals(false, producer.isDone());
+			assertEquals(Integer.valueOf(0), queue.take());
+			producer.get(10, TimeUnit.SECONDS);
+			assertEquals(Integer.valueOf(1), queue.poll());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testDrainTo() {
+		HugeLinkedBlockingQueue<String> queue = createQueue("a", "b", "c", "d", "e");
+		List<String> result = new ArrayList<String>();
+
+		assertEquals(0, queue.drainTo(result, 0));
+		assertEquals(2, queue.drainTo(result, 2));
+		assertEquals(Arrays.asList("a", "b"), result);
+		assertEquals(3, queue.size());
+
+		assertEquals(3, queue.drainTo(result));
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"), result);
+		assertEquals(0, queue.size());
+		assertEquals(0, queue.getByteSize());
+		assertEquals(0, queue.drainTo(result));
+
+		queue.add("f");
+		assertEquals(Arrays.asList("f"), new ArrayList<String>(queue));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDrainTo_self() {
+		HugeLinkedBlockingQueue<String> queue = createQueue("a");
+		queue.drainTo(queue);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testDrainTo_null() {
+		createQueue("a").drainTo(null);
+	}
+
+	@Test
+	public void testIterator_remove() {
+		HugeLinkedBlockingQueue<String> queue = createQueue("a", "b", "c", "d");
+		Iterator<String> iterator = queue.iterator();
+		assertEquals("a", iterator.next());
+		assertEquals("b", iterator.next());
+		iterator.remove();
+		assertEquals("c", iterator.next());
+		assertEquals("d", iterator.next());
+		iterator.remove();
+		assertEquals(false, iterator.hasNext());
+		assertEquals(Arrays.asList("a", "c"), new ArrayList<String>(queue));
+
+		queue.add("e");
+		assertEquals(Arrays.asList("a", "c", "e"), new ArrayList<String>(queue));
+	}
+
+	@Test
+	public void testIterator_weaklyConsistent() {
+		HugeLinkedBlockingQueue<String> queue = createQueue("a", "b", "c", "d");
+		Iterator<String> iterator = queue.iterator();
+		assertEquals("a", iterator.next());
+
+		// the prefetched "b" is still returned, the removed "c" is skipped and the added "e" is seen
+		queue.poll();
+		queue.poll();
+		queue.remove("c");
+		queue.add("e");
+		assertEquals("b", iterator.next());
+		assertEquals("d", iterator.next());
+		assertEquals("e", iterator.next());
+		assertEquals(false, iterator.hasNext());
+	}
+
+	@Test
+	public void testProducerConsumer() throws Exception {
+		// uses the default thread-safe memory manager of the builder
+		final HugeLinkedBlockingQueue<Integer> queue = new HugeLinkedBlockingQueue.Builder<Integer>().bufferSize(64 * 1024).maxSize(100).build();
+		assertTrue(queue.getMemoryManager() instanceof StripedMemoryManager);
+
+		final int producerCount = 3;
+		final int elementCount = 2000;
+		List<Callable<Long>> workers = new ArrayList<Callable<Long>>();
+		for (int i = 0; i < producerCount; i++) {
+			workers.add(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					for (int j = 0; j < elementCount; j++) {
+						queue.put(j);
+					}
+					return 0L;
+				}
+			});
+		}
+		for (int i = 0; i < 2; i++) {
+			final boolean drain = i == 0;
+			workers.add(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					long sum = 0;
+					for (int j = 0; j < producerCount * elementCount / 2;) {
+						if (drain) {
+							List<Integer> batch = new ArrayList<Integer>();
+							queue.drainTo(batch, producerCount * elementCount / 2 - j);
+							for (Integer value : batch) {
+								sum += value;
+							}
+							j += batch.size();
+						} else {
+							sum += queue.take();
+							j++;
+						}
+					}
+					return sum;
+				}
+			});
+		}
+
+		long sum = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+		try {
+			for (Future<Long> future : executor.invokeAll(workers, 60, TimeUnit.SECONDS)) {
+				sum += future.get(); // rethrows the failure of a worker
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(producerCount * (long) elementCount * (elementCount - 1) / 2, sum);
+		assertEquals(0, queue.size());
+		assertEquals(0, queue.getByteSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilder_maxSize_illegal() {
+		new HugeLinkedBlockingQueue.Builder<String>().maxSize(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilder_maxBytes_illegal() {
+		new HugeLinkedBlockingQueue.Builder<String>().maxBytes(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_maxSize_afterAdd() {
+		new HugeLinkedBlockingQueue.Builder<String>().memoryManager(createMemoryManager()).add("a").maxSize(10);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		HugeLinkedBlockingQueue.Builder<String> builder = new HugeLinkedBlockingQueue.Builder<String>().memoryManager(createMemoryManager());
+		builder.build();
+		builder.build();
+	}
+}
@@ -0,0 +1,269 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.collection.HugeLinkedHashMap.Builder;
+import ch.obermuhlner.jhuge.collection.HugeLinkedHashMap.EvictionPolicy;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Abstract base class to test {@link HugeLinkedHashMap}.
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractHugeLinkedHashMapTest extends AbstractMutableMapTest {
+
+	@Override
+	protected <K, V> Map<K, V> createEmptyMap() {
+		return this.<K, V>createBuilder().build();
+	}
+
+	private <K, V> Builder<K, V> createBuilder() {
+		Builder<K, V> builder = new HugeLinkedHashMap.Builder<K, V>();
+		builder.memoryManager(createMemoryManager());
+		if (isFaster()) {
+			builder.faster();
+		}
+		return builder;
+	}
+
+	protected abstract boolean isFaster();
+
+	protected abstract MemoryManager createMemoryManager();
+
+	@Override
+	protected boolean supportsNullKeys() {
+		return true;
+	}
+
+	@Override
+	protected boolean supportsNullValues() {
+		return true;
+	}
+
+	@Test
+	public void testInsertionOrder() {
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().build();
+		assertEquals(false, map.isAccessOrder());
+		assertRandomOperations(new LinkedHashMap<Integer, String>(), map);
+	}
+
+	@Test
+	public void testAccessOrder() {
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().accessOrder().build();
+		assertEquals(true, map.isAccessOrder());
+		assertRandomOperations(new LinkedHashMap<Integer, String>(16, 0.75f, true), map);
+	}
+
+	private static void assertRandomOperations(Map<Integer, String> expected, HugeLinkedHashMap<Integer, String> map) {
+		Random random = new Random(1);
+		for (int i = 0; i < 3000; i++) {
+			int key = random.nextInt(200);
+			int operation = random.nextInt(10);
+			if (operation < 5) {
+				// values of different lengths move the entries to new memory blocks
+				String value = random.nextInt(20) == 0 ? null : createString(random.nextInt(20));
+				assertEquals(expected.put(key, value), map.put(key, value));
+			} else if (operation < 8) {
+				assertEquals(expected.get(key), map.get(key));
+			} else {
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+			if (i % 100 == 0) {
+				assertEquals(new ArrayList<Entry<Integer, String>>(expected.entrySet()), new ArrayList<Entry<Integer, String>>(map.entrySet()));
+			}
+		}
+		assertEquals(new ArrayList<Entry<Integer, String>>(expected.entrySet()), new ArrayList<Entry<Integer, String>>(map.entrySet()));
+
+		Iterator<Integer> expectedIterator = expected.keySet().iterator();
+		Iterator<Integer> iterator = map.keySet().iterator();
+		while (iterator.hasNext()) {
+			assertEquals(expectedIterator.next(), iterator.next());
+			if (random.nextBoolean()) {
+				expectedIterator.remove();
+				iterator.remove();
+			}
+		}
+		assertEquals(new ArrayList<Entry<Integer, String>>(expected.entrySet()), new ArrayList<Entry<Integer, String>>(map.entrySet()));
+
+		for (Integer key : new ArrayList<Integer>(expected.keySet())) {
+			map.remove(key);
+		}
+		assertEquals(0, map.size());
+		assertEquals(0, map.getByteSize());
+	}
+
+	private static String createString(int length) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			result.append((char) ('a' + i));
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testMaxSize_leastRecentlyUsed() {
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().accessOrder().maxSize(3).build();
+		map.put(1, "a");
+		map.put(2, "b");
+		map.put(3, "c");
+		map.get(1);
+		map.put(4, "d");
+		assertEquals(Arrays.asList(3, 1, 4), new ArrayList<Integer>(map.keySet()));
+
+		map.put(3, "cc");
+		map.put(5, "e");
+		assertEquals(Arrays.asList(4, 3, 5), new ArrayList<Integer>(map.keySet()));
+	}
+
+	@Test
+	public void testMaxSize_random() {
+		final int maxSize = 50;
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().accessOrder().maxSize(maxSize).build();
+		Map<Integer, String> expected = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Integer, String> eldest) {
+				return size() > maxSize;
+			}
+		};
+
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			int key = random.nextInt(100);
+			if (random.nextBoolean()) {
+				assertEquals(expected.put(key, "X" + i), map.put(key, "X" + i));
+			} else {
+				assertEquals(expected.get(key), map.get(key));
+			}
+			assertTrue(map.size() <= maxSize);
+		}
+		assertEquals(new ArrayList<Entry<Integer, String>>(expected.entrySet()), new ArrayList<Entry<Integer, String>>(map.entrySet()));
+	}
+
+	@Test
+	public void testPut_equalKeysWithDifferentSerializedLength() {
+		// equal lists, but the LinkedList serializes to a different length
+		HugeLinkedHashMap<List<Integer>, String> map = this.<List<Integer>, String>createBuilder().build();
+		map.put(new ArrayList<Integer>(Arrays.asList(1, 2)), "a");
+		map.put(new ArrayList<Integer>(Arrays.asList(3)), "b");
+
+		assertEquals("a", map.put(new LinkedList<Integer>(Arrays.asList(1, 2)), "longer value"));
+		assertEquals("longer value", map.get(Arrays.asList(1, 2)));
+		assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)), new ArrayList<List<Integer>>(map.keySet()));
+		assertEquals(ArrayList.class, map.keySet().iterator().next().getClass());
+	}
+
+	@Test
+	public void testMaxBytes() {
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().maxBytes(1000).build();
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, "X" + i);
+			assertTrue(map.getByteSize() <= 1000);
+		}
+		assertTrue(map.size() > 10);
+		assertEquals(Integer.valueOf(999), new ArrayList<Integer>(map.keySet()).get(map.size() - 1));
+
+		// a single entry beyond the budget is kept
+		map.put(-1, createString(2000));
+		assertEquals(1, map.size());
+		assertTrue(map.getByteSize() > 1000);
+
+		map.clear();
+		assertEquals(0, map.getByteSize());
+	}
+
+	@Test
+	public void testEvictionPolicy() {
+		final List<Integer> evicted = new ArrayList<Integer>();
+		EvictionPolicy<Integer, String> policy = new EvictionPolicy<Integer, String>() {
+			@Override
+			public boolean removeEldestEntry(HugeLinkedHashMap<Integer, String> map, Entry<Integer, String> eldest) {
+				if (map.size() > 2) {
+					evicted.add(eldest.getKey());
+					return true;
+				}
+				return false;
+			}
+		};
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().evictionPolicy(policy).build();
+		for (int i = 0; i < 5; i++) {
+			map.put(i, "X" + i);
+		}
+		assertEquals(Arrays.asList(0, 1, 2), evicted);
+		assertEquals(Arrays.asList(3, 4), new ArrayList<Integer>(map.keySet()));
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testIterator_accessOrder_concurrentModification() {
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().accessOrder().build();
+		map.put(1, "a");
+		map.put(2, "b");
+		Iterator<Integer> iterator = map.keySet().iterator();
+		iterator.next();
+		map.get(1);
+		iterator.next();
+	}
+
+	@Test
+	public void testEntrySetValue_accessOrder() {
+		HugeLinkedHashMap<Integer, String> map = this.<Integer, String>createBuilder().accessOrder().maxSize(5).build();
+		for (int i = 0; i < 5; i++) {
+			map.put(i, "X" + i);
+		}
+
+		// setting the value does not move the entry, evict entries or fail the iteration
+		for (Entry<Integer, String> entry : map.entrySet()) {
+			assertEquals("X" + entry.getKey(), entry.setValue("longer value " + entry.getKey()));
+			assertEquals("longer value " + entry.getKey(), entry.getValue());
+		}
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), new ArrayList<Integer>(map.keySet()));
+		for (int i = 0; i < 5; i++) {
+			assertEquals("longer value " + i, map.get(i));
+		}
+	}
+
+	@Test
+	public void testBuilder_defaultBlockSize() {
+		HugeLinkedHashMap<Integer, Long> map = new HugeLinkedHashMap.Builder<Integer, Long>().key(Integer.class).value(Long.class).build();
+		MemoryMappedFileManager memoryManager = (MemoryMappedFileManager) map.getMemoryManager();
+		assertEquals(4 + 2 * 8 + 4 + 8, memoryManager.getBlockSize()); // header, links, key and value in a single block
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilder_maxSize_illegal() {
+		new HugeLinkedHashMap.Builder<Integer, String>().maxSize(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilder_maxBytes_illegal() {
+		new HugeLinkedHashMap.Builder<Integer, String>().maxBytes(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_accessOrder_afterPut() {
+		new HugeLinkedHashMap.Builder<Integer, String>().put(1, "a").accessOrder();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		Builder<Integer, String> builder = new HugeLinkedHashMap.Builder<Integer, String>();
+		builder.build();
+		builder.build();
+	}
+}
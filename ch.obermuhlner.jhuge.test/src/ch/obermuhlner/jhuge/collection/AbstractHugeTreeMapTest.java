@@ -0,0 +1,373 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.collection.HugeTreeMap.Builder;
+import ch.obermuhlner.jhuge.converter.CompactConverter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Abstract base class to test {@link HugeTreeMap}.
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractHugeTreeMapTest extends AbstractMutableMapTest {
+
+	@Override
+	protected <K, V> Map<K, V> createEmptyMap() {
+		return createTreeMap();
+	}
+
+	private <K, V> HugeTreeMap<K, V> createTreeMap() {
+		return new HugeTreeMap.Builder<K, V>().memoryManager(createMemoryManager()).build();
+	}
+
+	protected abstract MemoryManager createMemoryManager();
+
+	@Override
+	protected boolean supportsNullKeys() {
+		return false;
+	}
+
+	@Override
+	protected boolean supportsNullValues() {
+		return true;
+	}
+
+	@Test
+	public void testBuilder_default() {
+		HugeTreeMap<Integer, Long> map = new HugeTreeMap.Builder<Integer, Long>().build();
+		assertEquals(true, map.getMemoryManager() instanceof MemoryMappedFileManager);
+		assertNull(map.comparator());
+	}
+
+	@Test
+	public void testBuilder_comparator() {
+		HugeTreeMap<String, Integer> map = new HugeTreeMap.Builder<String, Integer>().comparator(String.CASE_INSENSITIVE_ORDER).build();
+		assertEquals(String.CASE_INSENSITIVE_ORDER, map.comparator());
+
+		map.put("b", 1);
+		map.put("A", 2);
+		map.put("B", 3);
+		assertEquals(2, map.size());
+		assertEquals("A", map.firstKey());
+		assertEquals(Integer.valueOf(3), map.get("b"));
+	}
+
+	@Test
+	public void testPut_comparatorEqualKeysWithDifferentLength() {
+		Comparator<String> numeric = new Comparator<String>() {
+			@Override
+			public int compare(String o1, String o2) {
+				return Integer.compare(Integer.parseInt(o1), Integer.parseInt(o2));
+			}
+		};
+		HugeTreeMap<String, String> map = new HugeTreeMap.Builder<String, String>().comparator(numeric).memoryManager(createMemoryManager()).build();
+		map.put("0001", "a");
+		map.put("2", "b");
+
+		assertEquals("a", map.put("1", "c")); // same value length
+		assertEquals("c", map.get("01"));
+		assertEquals("c", map.put("1", "much longer value"));
+		assertEquals("much longer value", map.get("1"));
+		assertEquals("much longer value", map.put("1", null));
+		assertEquals(null, map.get("0001"));
+		assertEquals(2, map.size());
+
+		// the original key is kept
+		assertEquals("0001", map.firstKey());
+		assertEquals("2", map.lastKey());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_comparator_afterPut() {
+		Builder<String, Integer> builder = new HugeTreeMap.Builder<String, Integer>().put("a", 1);
+		builder.comparator(String.CASE_INSENSITIVE_ORDER);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		Builder<String, Integer> builder = new HugeTreeMap.Builder<String, Integer>();
+		builder.build();
+		builder.build();
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testPut_null_key() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		map.put(null, "a");
+	}
+
+	@Test
+	public void testRandom_orderedConverter() {
+		HugeTreeMap<Integer, String> map = new HugeTreeMap.Builder<Integer, String>().key(Integer.class).memoryManager(createMemoryManager()).build();
+		assertRandomOperations(map);
+	}
+
+	@Test
+	public void testRandom_comparableKeys() {
+		HugeTreeMap<Integer, String> map = new HugeTreeMap.Builder<Integer, String>().key(new CompactConverter<Integer>()).memoryManager(createMemoryManager()).build();
+		assertRandomOperations(map);
+	}
+
+	@Test
+	public void testRandom_comparator() {
+		HugeTreeMap<Integer, String> map = new HugeTreeMap.Builder<Integer, String>().key(Integer.class).comparator(Collections.reverseOrder()).memoryManager(createMemoryManager()).build();
+		assertRandomOperations(map);
+	}
+
+	private void assertRandomOperations(HugeTreeMap<Integer, String> map) {
+		NavigableMap<Integer, String> expected = new TreeMap<Integer, String>(map.comparator());
+		Random random = new Random(1234);
+
+		for (int i = 0; i < 5000; i++) {
+			int key = random.nextInt(4000) - 2000;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				String value = random.nextInt(10) == 0 ? null : "X" + i;
+				assertEquals(expected.put(key, value), map.put(key, value));
+			}
+		}
+		assertEquals(true, map.getHeight() > 1);
+		assertNavigation(expected, map);
+		assertNavigation(expected.descendingMap(), map.descendingMap());
+
+		// remove all except a few entries
+		Iterator<Integer> iterator = map.keySet().iterator();
+		Iterator<Integer> expectedIterator = expected.keySet().iterator();
+		int index = 0;
+		while (iterator.hasNext()) {
+			assertEquals(expectedIterator.next(), iterator.next());
+			if (index++ % 100 != 0) {
+				iterator.remove();
+				expectedIterator.remove();
+			}
+		}
+		assertNavigation(expected, map);
+	}
+
+	private static void assertNavigation(NavigableMap<Integer, String> expected, NavigableMap<Integer, String> actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.isEmpty(), actual.isEmpty());
+		assertEquals(new ArrayList<Entry<Integer, String>>(expected.entrySet()), new ArrayList<Entry<Integer, String>>(actual.entrySet()));
+		assertEquals(new ArrayList<Integer>(expected.descendingKeySet()), new ArrayList<Integer>(actual.descendingKeySet()));
+		assertEquals(expected.firstEntry(), actual.firstEntry());
+		assertEquals(expected.lastEntry(), actual.lastEntry());
+
+		for (int key = -2100; key <= 2100; key += 7) {
+			assertEquals(expected.get(key), actual.get(key));
+			assertEquals(expected.containsKey(key), actual.containsKey(key));
+			assertEquals(expected.lowerEntry(key), actual.lowerEntry(key));
+			assertEquals(expected.floorKey(key), actual.floorKey(key));
+			assertEquals(expected.ceilingEntry(key), actual.ceilingEntry(key));
+			assertEquals(expected.higherKey(key), actual.higherKey(key));
+		}
+	}
+
+	@Test
+	public void testSubMap() {
+		HugeTreeMap<Integer, String> map = new HugeTreeMap.Builder<Integer, String>().key(Integer.class).memoryManager(createMemoryManager()).build();
+		NavigableMap<Integer, String> expected = new TreeMap<Integer, String>();
+		for (int i = 0; i < 1000; i += 2) {
+			map.put(i, "X" + i);
+			expected.put(i, "X" + i);
+		}
+
+		assertSubMaps(expected, map);
+		assertSubMaps(expected.descendingMap(), map.descendingMap());
+		assertSubMaps(expected.subMap(100, true, 900, false), map.subMap(100, true, 900, false));
+		assertSubMaps(expected.headMap(500, true).descendingMap(), map.headMap(500, true).descendingMap());
+	}
+
+	private static void assertSubMaps(NavigableMap<Integer, String> expected, NavigableMap<Integer, String> actual) {
+		assertNavigation(expected, actual);
+		int first = expected.firstKey();
+		int last = expected.lastKey();
+		int quarter = (last - first) / 4;
+		for (boolean fromInclusive : new boolean[] { false, true }) {
+			for (boolean toInclusive : new boolean[] { false, true }) {
+				assertNavigation(expected.subMap(first + quarter, fromInclusive, last - quarter, toInclusive), actual.subMap(first + quarter, fromInclusive, last - quarter, toInclusive));
+				assertNavigation(expected.subMap(first + quarter + 1, fromInclusive, last - quarter - 1, toInclusive), actual.subMap(first + quarter + 1, fromInclusive, last - quarter - 1, toInclusive));
+				assertNavigation(expected.headMap(first + quarter, toInclusive), actual.headMap(first + quarter, toInclusive));
+				assertNavigation(expected.tailMap(last - quarter, fromInclusive), actual.tailMap(last - quarter, fromInclusive));
+				assertNavigation(expected.subMap(first + quarter, fromInclusive, last - quarter, toInclusive).descendingMap(), actual.subMap(first + quarter, fromInclusive, last - quarter, toInclusive).descendingMap());
+			}
+		}
+		assertNavigation(expected.subMap(first + quarter, true, first + quarter, false), actual.subMap(first + quarter, true, first + quarter, false));
+	}
+
+	@Test
+	public void testSubMap_mutate() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		for (int i = 0; i < 500; i++) {
+			map.put(i, "X" + i);
+		}
+
+		NavigableMap<Integer, String> subMap = map.subMap(100, true, 200, false);
+		assertEquals(100, subMap.size());
+		assertEquals(Integer.valueOf(100), subMap.firstKey());
+		assertEquals(Integer.valueOf(199), subMap.lastKey());
+		assertNull(subMap.get(200));
+		assertNull(subMap.remove(300));
+		assertEquals(500, map.size());
+
+		subMap.put(150, "Y");
+		assertEquals("Y", map.get(150));
+
+		try {
+			subMap.put(200, "Y");
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException exception) {
+			// expected
+		}
+		try {
+			subMap.subMap(50, 150);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException exception) {
+			// expected
+		}
+		try {
+			map.subMap(200, 100);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException exception) {
+			// expected
+		}
+
+		assertEquals(Integer.valueOf(100), subMap.pollFirstEntry().getKey());
+		assertEquals(Integer.valueOf(199), subMap.pollLastEntry().getKey());
+		assertEquals(98, subMap.size());
+
+		subMap.clear();
+		assertEquals(true, subMap.isEmpty());
+		assertEquals(400, map.size());
+		assertEquals(Integer.valueOf(99), map.lowerKey(150));
+		assertEquals(Integer.valueOf(200), map.higherKey(150));
+	}
+
+	@Test
+	public void testNavigableKeySet() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		for (int i = 0; i < 300; i++) {
+			map.put(i, "X" + i);
+		}
+
+		assertEquals(Integer.valueOf(0), map.navigableKeySet().first());
+		assertEquals(Integer.valueOf(299), map.navigableKeySet().last());
+		assertEquals(Integer.valueOf(10), map.navigableKeySet().ceiling(10));
+		assertEquals(Integer.valueOf(11), map.navigableKeySet().higher(10));
+		assertEquals(50, map.navigableKeySet().subSet(100, 150).size());
+		assertEquals(Integer.valueOf(299), map.descendingKeySet().first());
+		assertEquals(Integer.valueOf(299), map.navigableKeySet().descendingIterator().next());
+		assertEquals(Integer.valueOf(0), map.navigableKeySet().pollFirst());
+		assertEquals(Integer.valueOf(299), map.navigableKeySet().pollLast());
+		assertEquals(true, map.keySet().remove(100));
+		assertEquals(false, map.keySet().remove(100));
+		assertEquals(297, map.size());
+	}
+
+	@Test
+	public void testPollFirstEntry_all() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		for (int i = 0; i < 10000; i++) {
+			map.put(i, "X" + i);
+		}
+		assertEquals(3, map.getHeight());
+
+		for (int i = 0; i < 10000; i++) {
+			Entry<Integer, String> entry = map.pollFirstEntry();
+			assertEquals(Integer.valueOf(i), entry.getKey());
+			assertEquals("X" + i, entry.getValue());
+		}
+		assertNull(map.pollFirstEntry());
+		assertEquals(0, map.size());
+		assertEquals(1, map.getHeight());
+	}
+
+	@Test
+	public void testPut_ascending() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		// ascending keys fill the leaves completely: 64 * 65 entries fit into 2 levels
+		for (int i = 0; i < 64 * 65; i++) {
+			map.put(i, "X" + i);
+		}
+		assertEquals(2, map.getHeight());
+		map.put(64 * 65, "X");
+		assertEquals(3, map.getHeight());
+	}
+
+	@Test
+	public void testClear() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, "X" + i);
+		}
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(1, map.getHeight());
+		assertNull(map.firstEntry());
+
+		map.put(1, "a");
+		assertEquals("a", map.get(1));
+	}
+
+	@Test
+	public void testEntrySetValue() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		for (int i = 0; i < 200; i++) {
+			map.put(i, "X" + i);
+		}
+		for (Entry<Integer, String> entry : map.tailMap(100).entrySet()) {
+			entry.setValue("Y" + entry.getKey());
+		}
+		assertEquals("X99", map.get(99));
+		assertEquals("Y100", map.get(100));
+		assertEquals("Y199", map.get(199));
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testIterator_concurrentModification() {
+		HugeTreeMap<Integer, String> map = createTreeMap();
+		for (int i = 0; i < 10; i++) {
+			map.put(i, "X" + i);
+		}
+		Iterator<Integer> iterator = map.keySet().iterator();
+		iterator.next();
+		map.put(100, "X");
+		iterator.next();
+	}
+
+	@Test
+	public void testKeys_strings() {
+		HugeTreeMap<String, Integer> map = createTreeMap();
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			keys.add("key" + i);
+		}
+		Collections.shuffle(keys, new Random(1));
+		for (String key : keys) {
+			map.put(key, key.length());
+		}
+
+		Collections.sort(keys);
+		assertEquals(keys, new ArrayList<String>(map.keySet()));
+		assertEquals("key109", map.floorKey("key10a"));
+		assertEquals("key11", map.ceilingKey("key10a"));
+	}
+}
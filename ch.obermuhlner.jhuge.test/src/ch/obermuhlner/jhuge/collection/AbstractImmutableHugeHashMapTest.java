@@ -3,8 +3,15 @@ package ch.obermuhlner.jhuge.collection;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -155,4 +162,50 @@ public abstract class AbstractImmutableHugeHashMapTest extends AbstractMapTest {
 		ImmutableHugeHashMap<Integer, Long> map = new ImmutableHugeHashMap.Builder<Integer, Long>().memoryManager(createMemoryManager()).putAll(initial).build();
 		assertEquals(3, map.size());
 	}
+
+	@Test
+	public void testBuilder_put_duplicates() {
+		ImmutableHugeHashMap<String, Long> map = new ImmutableHugeHashMap.Builder<String, Long>().memoryManager(createMemoryManager()).put("a", 1L).put("Aa", 2L).put("BB", 3L).put("a", 4L).put("BB", 5L).build();
+		assertEquals(3, map.size());
+		assertEquals(3, map.entrySet().size());
+		assertEquals(false, map.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentGet() throws Exception {
+		final int entryCount = 10;
+		Builder<Integer, String> builder = new ImmutableHugeHashMap.Builder<Integer, String>().memoryManager(createMemoryManager());
+		for (int i = 0; i < entryCount; i++) {
+			builder.put(i, "value" + i);
+		}
+		final ImmutableHugeHashMap<Integer, String> map = builder.build();
+		
+		final int threadCount = 8;
+		final int getCount = 20000;
+		List<Callable<Void>> readers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threadCount; i++) {
+			final Random random = new Random(i);
+			readers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < getCount; j++) {
+						int key = random.nextInt(entryCount);
+						assertEquals("value" + key, map.get(key));
+						assertEquals(true, map.containsKey(key));
+						assertEquals(false, map.containsKey(entryCount + key));
+					}
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (Future<Void> future : executor.invokeAll(readers)) {
+				future.get(); // rethrows the failure of a reader
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
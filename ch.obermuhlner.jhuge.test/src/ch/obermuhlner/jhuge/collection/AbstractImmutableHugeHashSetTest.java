@@ -112,4 +112,11 @@ public abstract class AbstractImmutableHugeHashSetTest extends AbstractSetTest {
 		ImmutableHugeHashSet<Integer> list = new ImmutableHugeHashSet.Builder<Integer>().memoryManager(createMemoryManager()).addAll(Arrays.asList(1, 2, 3)).build();
 		assertEquals(3, list.size());
 	}
+
+	@Test
+	public void testBuilder_addAll_duplicates() {
+		ImmutableHugeHashSet<String> set = new ImmutableHugeHashSet.Builder<String>().memoryManager(createMemoryManager()).addAll("a", "Aa", "BB", "a", "BB", null, null).build();
+		assertEquals(4, set.size());
+		assertEquals(false, set.isEmpty());
+	}
 }
@@ -0,0 +1,201 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.collection.LongIndexedHugeList.Cursor;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Abstract base class to test {@link LongIndexedHugeList}.
+ * 
+ * <p>The {@link List} tests are run against the {@link LongIndexedHugeList#asList()} view.</p>
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractLongIndexedHugeListTest extends AbstractListTest {
+
+	@Override
+	protected <E> List<E> createList(E... initial) {
+		return createLongIndexedList(initial).asList();
+	}
+
+	private <E> LongIndexedHugeList<E> createLongIndexedList(E... initial) {
+		LongIndexedHugeList.Builder<E> builder = new LongIndexedHugeList.Builder<E>();
+		builder.memoryManager(createMemoryManager());
+		builder.addAll(initial);
+		return builder.build();
+	}
+
+	protected abstract MemoryManager createMemoryManager();
+
+	@Override
+	protected boolean supportsMutable() {
+		return true;
+	}
+
+	@Override
+	protected boolean supportsNullValues() {
+		return true;
+	}
+
+	@Test
+	public void testLongIndexed() {
+		LongIndexedHugeList<String> list = createLongIndexedList();
+		assertEquals(0, list.longSize());
+		assertEquals(true, list.isEmpty());
+
+		list.add("a");
+		list.add("c");
+		list.add(1L, "b");
+		list.add(3L, null);
+		assertEquals(4, list.longSize());
+		assertEquals(4, list.size());
+		assertEquals("a", list.get(0L));
+		assertEquals("b", list.get(1L));
+		assertEquals("c", list.get(2L));
+		assertEquals(null, list.get(3L));
+
+		assertEquals(1, list.indexOf("b"));
+		assertEquals(3, list.indexOf(null));
+		assertEquals(-1, list.indexOf("x"));
+		assertEquals(true, list.contains("c"));
+
+		assertEquals("b", list.set(1L, "B"));
+		assertEquals("B", list.remove(1L));
+		assertEquals(Arrays.asList("a", "c", null), list.asList());
+		assertEquals(true, list.remove("c"));
+		assertEquals(Arrays.asList("a", null), new ArrayList<String>(list));
+
+		list.clear();
+		assertEquals(0, list.longSize());
+	}
+
+	@Test
+	public void testIndexOutOfBounds() {
+		LongIndexedHugeList<String> list = createLongIndexedList("a");
+		try {
+			list.get(1L);
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException exception) {
+			// expected
+		}
+		try {
+			list.set(-1L, "x");
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException exception) {
+			// expected
+		}
+		try {
+			list.add(2L, "x");
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException exception) {
+			// expected
+		}
+		try {
+			list.remove(1L);
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException exception) {
+			// expected
+		}
+		try {
+			list.cursor(2L);
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException exception) {
+			// expected
+		}
+		assertEquals(Arrays.asList("a"), list.asList());
+	}
+
+	@Test
+	public void testCursor() {
+		LongIndexedHugeList<String> list = createLongIndexedList("a", "b", "c", "d");
+		Cursor<String> cursor = list.cursor(2L);
+		assertEquals(2, cursor.nextIndex());
+		assertEquals(1, cursor.previousIndex());
+		assertEquals("c", cursor.next());
+		assertEquals("d", cursor.next());
+		assertEquals(false, cursor.hasNext());
+		try {
+			cursor.next();
+			fail("expected NoSuchElementException");
+		} catch (NoSuchElementException exception) {
+			// expected
+		}
+
+		assertEquals("d", cursor.previous());
+		cursor.set("D");
+		assertEquals("c", cursor.previous());
+		cursor.remove();
+		assertEquals(2, cursor.nextIndex());
+		assertEquals("b", cursor.previous());
+		assertEquals("a", cursor.previous());
+		assertEquals(false, cursor.hasPrevious());
+		assertEquals(-1, cursor.previousIndex());
+
+		assertEquals("a", cursor.next());
+		cursor.remove();
+		assertEquals(0, cursor.nextIndex());
+		assertEquals(Arrays.asList("b", "D"), list.asList());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCursor_remove_twice() {
+		LongIndexedHugeList<String> list = createLongIndexedList("a", "b");
+		Cursor<String> cursor = list.cursor(0L);
+		cursor.next();
+		cursor.remove();
+		cursor.remove();
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testIterator_concurrentModification() {
+		LongIndexedHugeList<String> list = createLongIndexedList("a", "b");
+		Iterator<String> iterator = list.iterator();
+		iterator.next();
+		list.add("c");
+		iterator.next();
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		LongIndexedHugeList<Integer> list = createLongIndexedList();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 5000; i++) {
+			int operation = random.nextInt(5);
+			if (expected.isEmpty() || operation < 2) {
+				expected.add(i);
+				list.add(i);
+			} else if (operation == 2) {
+				int index = random.nextInt(expected.size() + 1);
+				expected.add(index, i);
+				list.add((long) index, i);
+			} else if (operation == 3) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), list.remove((long) index));
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.set(index, i), list.set((long) index, i));
+			}
+		}
+		assertEquals(expected.size(), list.longSize());
+		assertEquals(expected, list.asList());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		LongIndexedHugeList.Builder<String> builder = new LongIndexedHugeList.Builder<String>().memoryManager(createMemoryManager());
+		builder.build();
+		builder.build();
+	}
+}
@@ -880,7 +880,7 @@ public abstract class AbstractMapTest {
 				String desc = "step=" + i;
 
 				String randomKey = String.valueOf(random.nextInt(100));
-				if (supportsNullValues()) {
+				if (supportsNullKeys()) {
 					if (random.nextInt(100) == 0) {
 						randomKey = null;
 					}
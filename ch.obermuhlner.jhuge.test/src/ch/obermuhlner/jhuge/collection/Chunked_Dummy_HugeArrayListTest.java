@@ -0,0 +1,25 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Tests {@link HugeArrayList} in chunked mode with a {@link DummyMemoryManager}.
+ */
+public class Chunked_Dummy_HugeArrayListTest extends AbstractHugeArrayListTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new DummyMemoryManager();
+	}
+	
+	@Override
+	protected boolean isFaster() {
+		return false;
+	}
+
+	@Override
+	protected boolean isChunked() {
+		return true;
+	}
+}
@@ -0,0 +1,25 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeArrayList} in chunked mode with a {@link MemoryMappedFileManager}.
+ */
+public class Chunked_MemoryMappedFile_HugeArrayListTest extends AbstractHugeArrayListTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new MemoryMappedFileManager(20000);
+	}
+
+	@Override
+	protected boolean isFaster() {
+		return false;
+	}
+
+	@Override
+	protected boolean isChunked() {
+		return true;
+	}
+}
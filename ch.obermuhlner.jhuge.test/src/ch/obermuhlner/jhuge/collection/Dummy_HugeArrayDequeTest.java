@@ -0,0 +1,20 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Tests {@link HugeArrayDeque} with a {@link DummyMemoryManager}.
+ */
+public class Dummy_HugeArrayDequeTest extends AbstractHugeArrayDequeTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new DummyMemoryManager();
+	}
+	
+	@Override
+	protected boolean isFaster() {
+		return false;
+	}
+}
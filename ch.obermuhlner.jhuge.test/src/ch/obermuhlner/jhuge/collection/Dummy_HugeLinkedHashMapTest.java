@@ -0,0 +1,20 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Tests {@link HugeLinkedHashMap} with a {@link DummyMemoryManager}.
+ */
+public class Dummy_HugeLinkedHashMapTest extends AbstractHugeLinkedHashMapTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new DummyMemoryManager();
+	}
+
+	@Override
+	protected boolean isFaster() {
+		return false;
+	}
+}
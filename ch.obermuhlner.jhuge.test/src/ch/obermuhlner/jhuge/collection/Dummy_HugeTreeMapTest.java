@@ -0,0 +1,15 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Tests {@link HugeTreeMap} with a {@link DummyMemoryManager}.
+ */
+public class Dummy_HugeTreeMapTest extends AbstractHugeTreeMapTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new DummyMemoryManager();
+	}
+}
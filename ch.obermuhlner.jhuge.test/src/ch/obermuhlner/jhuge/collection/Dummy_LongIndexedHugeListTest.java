@@ -0,0 +1,15 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * Tests {@link LongIndexedHugeList} with a {@link DummyMemoryManager}.
+ */
+public class Dummy_LongIndexedHugeListTest extends AbstractLongIndexedHugeListTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new DummyMemoryManager();
+	}
+}
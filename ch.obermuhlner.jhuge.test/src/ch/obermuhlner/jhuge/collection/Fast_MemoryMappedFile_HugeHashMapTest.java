@@ -10,7 +10,7 @@ public class Fast_MemoryMappedFile_HugeHashMapTest extends AbstractHugeHashMapTe
 
 	@Override
 	protected MemoryManager createMemoryManager() {
-		return new MemoryMappedFileManager(150);
+		return new MemoryMappedFileManager(1024);
 	}
 
 	@Override
@@ -10,7 +10,7 @@ public class Fast_MemoryMappedFile_HugeHashSetTest extends AbstractHugeHashSetTe
 
 	@Override
 	protected MemoryManager createMemoryManager() {
-		return new MemoryMappedFileManager(150);
+		return new MemoryMappedFileManager(1024);
 	}
 
 	@Override
@@ -0,0 +1,20 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeLinkedHashMap} in faster mode with a {@link MemoryMappedFileManager}.
+ */
+public class Fast_MemoryMappedFile_HugeLinkedHashMapTest extends AbstractHugeLinkedHashMapTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new MemoryMappedFileManager(4096);
+	}
+
+	@Override
+	protected boolean isFaster() {
+		return true;
+	}
+}
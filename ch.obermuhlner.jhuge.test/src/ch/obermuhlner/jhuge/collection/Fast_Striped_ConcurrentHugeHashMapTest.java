@@ -0,0 +1,21 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * Tests {@link ConcurrentHugeHashMap} in faster mode with a {@link StripedMemoryManager}.
+ */
+public class Fast_Striped_ConcurrentHugeHashMapTest extends AbstractConcurrentHugeHashMapTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new StripedMemoryManager(4, 64 * 1024, MemoryMappedFileManager.NO_BLOCK_SIZE);
+	}
+
+	@Override
+	protected boolean isFaster() {
+		return true;
+	}
+}
@@ -0,0 +1,106 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeDoubleList}.
+ */
+@SuppressWarnings("javadoc")
+public class HugeDoubleListTest {
+
+	private static final double DELTA = 0.0;
+
+	private static HugeDoubleList createList() {
+		return new HugeDoubleList.Builder().memoryManager(new DummyMemoryManager()).build();
+	}
+
+	@Test
+	public void testPrimitive() {
+		HugeDoubleList list = createList();
+		assertEquals(0, list.size());
+
+		list.addDouble(1.5);
+		list.addDouble(Double.MAX_VALUE);
+		list.addDouble(0, -Double.MIN_VALUE);
+		assertEquals(3, list.size());
+		assertEquals(-Double.MIN_VALUE, list.getDouble(0), DELTA);
+		assertEquals(1.5, list.getDouble(1), DELTA);
+		assertEquals(Double.MAX_VALUE, list.getDouble(2), DELTA);
+
+		assertEquals(1.5, list.setDouble(1, 2.5), DELTA);
+		assertEquals(2.5, list.getDouble(1), DELTA);
+		assertEquals(1, list.indexOfDouble(2.5));
+		assertEquals(-1, list.indexOfDouble(1.5));
+		assertEquals(true, list.containsDouble(Double.MAX_VALUE));
+		assertEquals(false, list.containsDouble(99));
+
+		assertEquals(-Double.MIN_VALUE, list.removeDouble(0), DELTA);
+		assertArrayEquals(new double[] { 2.5, Double.MAX_VALUE }, list.toDoubleArray(), DELTA);
+
+		list.clear();
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	public void testSpecialValues() {
+		HugeDoubleList list = createList();
+		list.addDoubles(new double[] { 0.0, Double.NaN, -0.0, Double.NEGATIVE_INFINITY });
+
+		// same semantics as Double.equals()
+		assertEquals(1, list.indexOfDouble(Double.NaN));
+		assertEquals(0, list.indexOfDouble(0.0));
+		assertEquals(2, list.indexOfDouble(-0.0));
+		assertEquals(3, list.indexOfDouble(Double.NEGATIVE_INFINITY));
+		assertEquals(true, list.contains(Double.NaN));
+		assertEquals(Arrays.asList(0.0, Double.NaN, -0.0, Double.NEGATIVE_INFINITY), list);
+
+		assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(list.getDouble(2)));
+	}
+
+	@Test
+	public void testBoxed() {
+		HugeDoubleList list = new HugeDoubleList.Builder().memoryManager(new DummyMemoryManager()).addAll(1.0, 2.0, 3.0).build();
+		assertEquals(Arrays.asList(1.0, 2.0, 3.0), list);
+		assertEquals(Double.valueOf(2.0), list.get(1));
+		assertEquals(Double.valueOf(2.0), list.set(1, 20.0));
+		assertEquals(1, list.indexOf(20.0));
+		assertEquals(-1, list.indexOf(20));
+		assertEquals(true, list.remove(Double.valueOf(20.0)));
+		assertEquals(Arrays.asList(1.0, 3.0), list);
+	}
+
+	@Test
+	public void testBulk() {
+		// spans several pages in a buffer that cannot hold the entire list
+		HugeDoubleList list = new HugeDoubleList.Builder().memoryManager(new MemoryMappedFileManager(10000)).build();
+		double[] values = new double[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i / 7.0;
+		}
+		list.addDoubles(values, 1, 4000);
+		assertEquals(4000, list.size());
+
+		double[] result = new double[3000];
+		list.getDoubles(500, result, 10, 2990);
+		for (int i = 0; i < 2990; i++) {
+			assertEquals(values[501 + i], result[10 + i], DELTA);
+		}
+
+		double[] all = list.toDoubleArray();
+		assertArrayEquals(Arrays.copyOfRange(values, 1, 4001), all, DELTA);
+	}
+
+	@Test
+	public void testBuilder_addDouble() {
+		HugeDoubleList list = new HugeDoubleList.Builder().memoryManager(new DummyMemoryManager()).addDouble(1).addDoubles(new double[] { 2, 3 }).add(4.0).build();
+		assertArrayEquals(new double[] { 1, 2, 3, 4 }, list.toDoubleArray(), DELTA);
+	}
+}
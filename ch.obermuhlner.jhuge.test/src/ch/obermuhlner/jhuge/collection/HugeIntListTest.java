@@ -0,0 +1,157 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeIntList}.
+ */
+@SuppressWarnings("javadoc")
+public class HugeIntListTest {
+
+	private static HugeIntList createList() {
+		return new HugeIntList.Builder().memoryManager(new DummyMemoryManager()).build();
+	}
+
+	@Test
+	public void testPrimitive() {
+		HugeIntList list = createList();
+		assertEquals(0, list.size());
+
+		list.addInt(10);
+		list.addInt(Integer.MAX_VALUE);
+		list.addInt(0, Integer.MIN_VALUE);
+		assertEquals(3, list.size());
+		assertEquals(Integer.MIN_VALUE, list.getInt(0));
+		assertEquals(10, list.getInt(1));
+		assertEquals(Integer.MAX_VALUE, list.getInt(2));
+
+		assertEquals(10, list.setInt(1, 11));
+		assertEquals(11, list.getInt(1));
+		assertEquals(1, list.indexOfInt(11));
+		assertEquals(-1, list.indexOfInt(10));
+		assertEquals(true, list.containsInt(Integer.MAX_VALUE));
+		assertEquals(false, list.containsInt(99));
+
+		assertEquals(Integer.MIN_VALUE, list.removeInt(0));
+		assertArrayEquals(new int[] { 11, Integer.MAX_VALUE }, list.toIntArray());
+
+		list.clear();
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	public void testBoxed() {
+		HugeIntList list = new HugeIntList.Builder().memoryManager(new DummyMemoryManager()).addAll(1, 2, 3).build();
+		assertEquals(Arrays.asList(1, 2, 3), list);
+		assertEquals(list, Arrays.asList(1, 2, 3));
+		assertEquals(Arrays.asList(1, 2, 3).hashCode(), list.hashCode());
+
+		assertEquals(Integer.valueOf(2), list.get(1));
+		assertEquals(Integer.valueOf(2), list.set(1, 20));
+		assertEquals(1, list.indexOf(20));
+		assertEquals(-1, list.indexOf(20L));
+		assertEquals(false, list.contains("20"));
+		assertEquals(true, list.remove(Integer.valueOf(20)));
+		assertEquals(Arrays.asList(1, 3), list);
+
+		list.addAll(1, Arrays.asList(4, 5));
+		assertEquals(Arrays.asList(1, 4, 5, 3), list);
+		list.subList(1, 3).clear();
+		assertEquals(Arrays.asList(1, 3), list);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAdd_null() {
+		createList().add(null);
+	}
+
+	@Test
+	public void testBulk() {
+		// spans several pages in a buffer that cannot hold the entire list
+		HugeIntList list = new HugeIntList.Builder().memoryManager(new MemoryMappedFileManager(10000)).build();
+		int[] values = new int[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 7;
+		}
+		list.addInt(-1);
+		list.addInts(values, 1, 4000);
+		list.addInts(new int[] { -2, -3 });
+		assertEquals(4003, list.size());
+		assertEquals(-1, list.getInt(0));
+		assertEquals(values[1], list.getInt(1));
+		assertEquals(values[4000], list.getInt(4000));
+		assertEquals(-3, list.getInt(4002));
+
+		int[] result = new int[3000];
+		list.getInts(500, result, 10, 2990);
+		for (int i = 0; i < 2990; i++) {
+			assertEquals(values[500 + i], result[10 + i]);
+		}
+
+		int[] all = list.toIntArray();
+		assertEquals(4003, all.length);
+		for (int i = 0; i < 4000; i++) {
+			assertEquals(values[i + 1], all[i + 1]);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetInts_IndexOutOfBoundsException() {
+		HugeIntList list = createList();
+		list.addInts(new int[] { 1, 2, 3 });
+		list.getInts(2, new int[5], 0, 2);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAddInts_IndexOutOfBoundsException() {
+		createList().addInts(new int[3], 2, 2);
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		HugeIntList list = createList();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 3000; i++) {
+			int operation = random.nextInt(4);
+			if (expected.isEmpty() || operation < 2) {
+				int value = random.nextInt();
+				int index = random.nextInt(expected.size() + 1);
+				expected.add(index, value);
+				list.addInt(index, value);
+			} else if (operation == 2) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index).intValue(), list.removeInt(index));
+			} else {
+				int index = random.nextInt(expected.size());
+				int value = random.nextInt();
+				assertEquals(expected.set(index, value).intValue(), list.setInt(index, value));
+			}
+		}
+		assertEquals(expected, list);
+	}
+
+	@Test
+	public void testBuilder_addInt() {
+		HugeIntList list = new HugeIntList.Builder().memoryManager(new DummyMemoryManager()).capacity(2).addInt(1).addInts(new int[] { 2, 3 }).add(4).build();
+		assertArrayEquals(new int[] { 1, 2, 3, 4 }, list.toIntArray());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		HugeIntList.Builder builder = new HugeIntList.Builder().memoryManager(new DummyMemoryManager());
+		builder.build();
+		builder.build();
+	}
+}
@@ -0,0 +1,157 @@
+package ch.obermuhlner.jhuge.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeLongList}.
+ */
+@SuppressWarnings("javadoc")
+public class HugeLongListTest {
+
+	private static HugeLongList createList() {
+		return new HugeLongList.Builder().memoryManager(new DummyMemoryManager()).build();
+	}
+
+	@Test
+	public void testPrimitive() {
+		HugeLongList list = createList();
+		assertEquals(0, list.size());
+
+		list.addLong(10);
+		list.addLong(Long.MAX_VALUE);
+		list.addLong(0, Long.MIN_VALUE);
+		assertEquals(3, list.size());
+		assertEquals(Long.MIN_VALUE, list.getLong(0));
+		assertEquals(10, list.getLong(1));
+		assertEquals(Long.MAX_VALUE, list.getLong(2));
+
+		assertEquals(10, list.setLong(1, 11));
+		assertEquals(11, list.getLong(1));
+		assertEquals(1, list.indexOfLong(11));
+		assertEquals(-1, list.indexOfLong(10));
+		assertEquals(true, list.containsLong(Long.MAX_VALUE));
+		assertEquals(false, list.containsLong(99));
+
+		assertEquals(Long.MIN_VALUE, list.removeLong(0));
+		assertArrayEquals(new long[] { 11, Long.MAX_VALUE }, list.toLongArray());
+
+		list.clear();
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	public void testBoxed() {
+		HugeLongList list = new HugeLongList.Builder().memoryManager(new DummyMemoryManager()).addAll(1L, 2L, 3L).build();
+		assertEquals(Arrays.asList(1L, 2L, 3L), list);
+		assertEquals(list, Arrays.asList(1L, 2L, 3L));
+		assertEquals(Arrays.asList(1L, 2L, 3L).hashCode(), list.hashCode());
+
+		assertEquals(Long.valueOf(2), list.get(1));
+		assertEquals(Long.valueOf(2), list.set(1, 20L));
+		assertEquals(1, list.indexOf(20L));
+		assertEquals(-1, list.indexOf(20));
+		assertEquals(false, list.contains("20"));
+		assertEquals(true, list.remove(Long.valueOf(20)));
+		assertEquals(Arrays.asList(1L, 3L), list);
+
+		list.addAll(1, Arrays.asList(4L, 5L));
+		assertEquals(Arrays.asList(1L, 4L, 5L, 3L), list);
+		list.subList(1, 3).clear();
+		assertEquals(Arrays.asList(1L, 3L), list);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAdd_null() {
+		createList().add(null);
+	}
+
+	@Test
+	public void testBulk() {
+		// spans several pages in a buffer that cannot hold the entire list
+		HugeLongList list = new HugeLongList.Builder().memoryManager(new MemoryMappedFileManager(10000)).build();
+		long[] values = new long[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 1000000007L;
+		}
+		list.addLong(-1);
+		list.addLongs(values, 1, 4000);
+		list.addLongs(new long[] { -2, -3 });
+		assertEquals(4003, list.size());
+		assertEquals(-1, list.getLong(0));
+		assertEquals(values[1], list.getLong(1));
+		assertEquals(values[4000], list.getLong(4000));
+		assertEquals(-3, list.getLong(4002));
+
+		long[] result = new long[3000];
+		list.getLongs(500, result, 10, 2990);
+		for (int i = 0; i < 2990; i++) {
+			assertEquals(values[500 + i], result[10 + i]);
+		}
+
+		long[] all = list.toLongArray();
+		assertEquals(4003, all.length);
+		for (int i = 0; i < 4000; i++) {
+			assertEquals(values[i + 1], all[i + 1]);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetLongs_IndexOutOfBoundsException() {
+		HugeLongList list = createList();
+		list.addLongs(new long[] { 1, 2, 3 });
+		list.getLongs(2, new long[5], 0, 2);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAddLongs_IndexOutOfBoundsException() {
+		createList().addLongs(new long[3], 2, 2);
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		HugeLongList list = createList();
+		List<Long> expected = new ArrayList<Long>();
+		for (int i = 0; i < 3000; i++) {
+			int operation = random.nextInt(4);
+			if (expected.isEmpty() || operation < 2) {
+				long value = random.nextLong();
+				int index = random.nextInt(expected.size() + 1);
+				expected.add(index, value);
+				list.addLong(index, value);
+			} else if (operation == 2) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index).longValue(), list.removeLong(index));
+			} else {
+				int index = random.nextInt(expected.size());
+				long value = random.nextLong();
+				assertEquals(expected.set(index, value).longValue(), list.setLong(index, value));
+			}
+		}
+		assertEquals(expected, list);
+	}
+
+	@Test
+	public void testBuilder_addLong() {
+		HugeLongList list = new HugeLongList.Builder().memoryManager(new DummyMemoryManager()).capacity(2).addLong(1).addLongs(new long[] { 2, 3 }).add(4L).build();
+		assertArrayEquals(new long[] { 1, 2, 3, 4 }, list.toLongArray());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilder_build_twice() {
+		HugeLongList.Builder builder = new HugeLongList.Builder().memoryManager(new DummyMemoryManager());
+		builder.build();
+		builder.build();
+	}
+}
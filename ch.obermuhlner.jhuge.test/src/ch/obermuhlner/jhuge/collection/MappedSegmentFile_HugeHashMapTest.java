@@ -0,0 +1,27 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.IOException;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManagerTest;
+
+/**
+ * Tests {@link HugeHashMap} with a {@link MemoryMappedFileManager} that stores the buffers in segment files.
+ */
+public class MappedSegmentFile_HugeHashMapTest extends AbstractHugeHashMapTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		try {
+			return new MemoryMappedFileManager(1024, MemoryMappedFileManager.NO_BLOCK_SIZE, MemoryMappedFileManagerTest.createTempDirectory());
+		} catch (IOException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	@Override
+	protected boolean isFaster() {
+		return false;
+	}
+}
@@ -0,0 +1,20 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeArrayDeque} with a {@link MemoryMappedFileManager}.
+ */
+public class MemoryMappedFile_HugeArrayDequeTest extends AbstractHugeArrayDequeTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new MemoryMappedFileManager(20000);
+	}
+
+	@Override
+	protected boolean isFaster() {
+		return false;
+	}
+}
@@ -0,0 +1,15 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeTreeMap} with a {@link MemoryMappedFileManager}.
+ */
+public class MemoryMappedFile_HugeTreeMapTest extends AbstractHugeTreeMapTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new MemoryMappedFileManager(64 * 1024);
+	}
+}
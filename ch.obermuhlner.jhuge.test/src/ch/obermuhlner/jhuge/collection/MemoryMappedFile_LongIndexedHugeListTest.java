@@ -0,0 +1,15 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link LongIndexedHugeList} with a {@link MemoryMappedFileManager}.
+ */
+public class MemoryMappedFile_LongIndexedHugeListTest extends AbstractLongIndexedHugeListTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new MemoryMappedFileManager(20000);
+	}
+}
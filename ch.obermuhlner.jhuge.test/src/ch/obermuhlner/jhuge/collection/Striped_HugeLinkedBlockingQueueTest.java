@@ -0,0 +1,16 @@
+package ch.obermuhlner.jhuge.collection;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * Tests {@link HugeLinkedBlockingQueue} with a {@link StripedMemoryManager}.
+ */
+public class Striped_HugeLinkedBlockingQueueTest extends AbstractHugeLinkedBlockingQueueTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new StripedMemoryManager(4, 64 * 1024, MemoryMappedFileManager.NO_BLOCK_SIZE);
+	}
+}
@@ -8,6 +8,8 @@ import static ch.obermuhlner.jhuge.converter.AbstractSerializableConverterTest.a
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Random;
 
@@ -261,6 +263,134 @@ public abstract class AbstractIntLongArrayMapTest {
 		}
 	}
 
+	@Test
+	public void testEnsureCapacity() {
+		IntLongArrayMap map = createIntLongArrayMap();
+		map.put(1, ARRAY_1);
+		map.ensureCapacity(1000);
+		assertEquals(1, map.size());
+		assertArrayEquals(ARRAY_1, map.get(1));
+
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, ARRAY_1);
+		}
+		map.ensureCapacity(10);
+		assertEquals(1000, map.size());
+		for (int i = 0; i < 1000; i++) {
+			assertArrayEquals(ARRAY_1, map.get(i));
+		}
+	}
+
+	@Test
+	public void testKeySet_slotRanges() {
+		IntLongArrayMap map = createIntLongArrayMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(i * 7, ARRAY_1);
+		}
+
+		int slotCount = map.slotCount();
+		assertEquals(true, slotCount >= 1);
+
+		// disjoint slot ranges contain disjoint keys that together are all keys
+		Collection<Integer> keys = new ArrayList<Integer>();
+		int step = Math.max(1, slotCount / 3);
+		for (int fromSlot = 0; fromSlot < slotCount; fromSlot += step) {
+			IntIterator keySet = map.keySet(fromSlot, Math.min(slotCount, fromSlot + step));
+			while (keySet.hasNext()) {
+				keys.add(keySet.next());
+			}
+		}
+		assertEquals(100, keys.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(true, keys.contains(i * 7));
+		}
+
+		assertEquals(false, map.keySet(0, 0).hasNext());
+	}
+
+	@Test
+	public void testHashBucketKeySet() {
+		IntLongArrayMap map = createIntLongArrayMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(i * 7, ARRAY_1);
+		}
+
+		int bucketCount = map.hashBucketCount();
+		assertEquals(1, Integer.bitCount(bucketCount));
+
+		// fewer buckets than slots, as many buckets as slots and more buckets than slots
+		for (int rangeBucketCount : new int[] { 1, bucketCount / 2, bucketCount, bucketCount * 4 }) {
+			Collection<Integer> keys = new ArrayList<Integer>();
+			int step = Math.max(1, rangeBucketCount / 3);
+			for (int fromBucket = 0; fromBucket < rangeBucketCount; fromBucket += step) {
+				IntIterator keySet = map.hashBucketKeySet(rangeBucketCount, fromBucket, Math.min(rangeBucketCount, fromBucket + step));
+				while (keySet.hasNext()) {
+					keys.add(keySet.next());
+				}
+			}
+			assertEquals(100, keys.size());
+			for (int i = 0; i < 100; i++) {
+				assertEquals(true, keys.contains(i * 7));
+			}
+		}
+
+		assertEquals(false, map.hashBucketKeySet(bucketCount, 0, 0).hasNext());
+	}
+
+	@Test
+	public void testHashBucketKeySet_growing() {
+		IntLongArrayMap map = createIntLongArrayMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(i, ARRAY_1);
+		}
+
+		// the table grows and rehashes between the bucket ranges
+		int bucketCount = map.hashBucketCount();
+		int nextKey = 1000;
+		Map<Integer, Integer> keyCounts = new HashMap<Integer, Integer>();
+		for (int fromBucket = 0; fromBucket < bucketCount; fromBucket++) {
+			IntIterator keySet = map.hashBucketKeySet(bucketCount, fromBucket, fromBucket + 1);
+			while (keySet.hasNext()) {
+				int key = keySet.next();
+				Integer count = keyCounts.get(key);
+				keyCounts.put(key, count == null ? 1 : count + 1);
+			}
+			for (int i = 0; i < 20; i++) {
+				map.put(nextKey++, ARRAY_1);
+			}
+		}
+		assertEquals(true, map.hashBucketCount() > bucketCount);
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Integer.valueOf(1), keyCounts.get(i));
+		}
+	}
+
+	@Test
+	public void testHashBucketKeySet_remove() {
+		IntLongArrayMap map = createIntLongArrayMap();
+		for (int i = 0; i < 100; i++) {
+			map.put(i, ARRAY_1);
+		}
+
+		IntIterator keySet = map.hashBucketKeySet(1, 0, 1);
+		int count = 0;
+		while (keySet.hasNext()) {
+			keySet.next();
+			keySet.remove();
+			count++;
+		}
+		assertEquals(100, count);
+		assertEquals(0, map.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHashBucketKeySet_notPowerOf2() {
+		IntLongArrayMap map = createIntLongArrayMap();
+
+		map.hashBucketKeySet(3, 0, 1);
+	}
+
 	@Test
 	public void testToString() {
 		IntLongArrayMap map = createIntLongArrayMap();
@@ -375,4 +505,52 @@ public abstract class AbstractIntLongArrayMapTest {
 			}
 		}
 	}
+
+	@Test
+	public void testRandom_compareWithHashMap() {
+		Random random = new Random(1);
+
+		IntLongArrayMap map = createIntLongArrayMap();
+		Map<Integer, long[]> referenceMap = new HashMap<Integer, long[]>();
+
+		final int n = 20000;
+		for (int i = 0; i < n; i++) {
+			// multiples of a large power of 2 to provoke collisions
+			int key = random.nextInt(i / 10 + 1) * 65536;
+
+			if (random.nextInt(100) < 60) {
+				long[] value = new long[random.nextInt(5)];
+				for (int j = 0; j < value.length; j++) {
+					value[j] = random.nextLong();
+				}
+				map.put(key, value);
+				referenceMap.put(key, value);
+			} else {
+				map.remove(key);
+				referenceMap.remove(key);
+			}
+
+			assertEquals(referenceMap.size(), map.size());
+		}
+
+		for (Map.Entry<Integer, long[]> entry : referenceMap.entrySet()) {
+			assertArrayEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+
+		int count = 0;
+		IntIterator keySet = map.keySet();
+		while (keySet.hasNext()) {
+			int key = keySet.next();
+			assertEquals(true, referenceMap.containsKey(key));
+			if (count % 2 == 0) {
+				keySet.remove();
+				referenceMap.remove(key);
+			}
+			count++;
+		}
+		assertEquals(referenceMap.size(), map.size());
+		for (Map.Entry<Integer, long[]> entry : referenceMap.entrySet()) {
+			assertArrayEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+	}
 }
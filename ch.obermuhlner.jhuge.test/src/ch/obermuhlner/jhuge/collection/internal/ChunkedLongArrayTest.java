@@ -0,0 +1,120 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link ChunkedLongArray} with small chunks, so that the elements are spread over many chunks.
+ */
+@SuppressWarnings("javadoc")
+public class ChunkedLongArrayTest extends AbstractLongArrayTest {
+
+	@Override
+	protected LongArray createLongArray(int capacity) {
+		return new ChunkedLongArray(new DummyMemoryManager(), 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testChunkCapacity_tooSmall() {
+		new ChunkedLongArray(new DummyMemoryManager(), 3);
+	}
+
+	@Test
+	public void testLargerThanBuffer() {
+		// every chunk fits into a buffer, but the entire array does not
+		ChunkedLongArray array = new ChunkedLongArray(new MemoryMappedFileManager(100), 8);
+		for (int i = 0; i < 1000; i++) {
+			array.add(i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, array.get(i));
+		}
+	}
+
+	@Test
+	public void testInsertAtHead() {
+		ChunkedLongArray array = new ChunkedLongArray(new DummyMemoryManager(), 8);
+		for (int i = 0; i < 100; i++) {
+			array.add(0, i);
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals(99 - i, array.get(i));
+		}
+	}
+
+	@Test
+	public void testQueue() {
+		ChunkedLongArray array = new ChunkedLongArray(new DummyMemoryManager(), 8);
+		long next = 0;
+		long head = 0;
+		for (int i = 0; i < 100; i++) {
+			for (int j = 0; j < 30; j++) {
+				array.add(next++);
+			}
+			for (int j = 0; j < 25; j++) {
+				assertEquals(head++, array.remove(0));
+			}
+		}
+		assertEquals(next - head, array.size());
+		assertEquals(head, array.get(0));
+		assertEquals(head, array.indexOf(head) + head);
+	}
+
+	@Test
+	public void testRandomInsertRemove() {
+		Random random = new Random(1234);
+		ChunkedLongArray array = new ChunkedLongArray(new DummyMemoryManager(), 8);
+		List<Long> expected = new ArrayList<Long>();
+
+		for (int i = 0; i < 5000; i++) {
+			int operation = random.nextInt(7);
+			if (expected.isEmpty() || operation < 3) {
+				int index = random.nextInt(expected.size() + 1);
+				long value = random.nextLong();
+				array.add(index, value);
+				expected.add(index, value);
+			} else if (operation < 6) {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index).longValue(), array.remove(index));
+			} else {
+				int index = random.nextInt(expected.size());
+				long value = random.nextLong();
+				assertEquals(expected.set(index, value).longValue(), array.set(index, value));
+			}
+		}
+
+		assertEquals(expected.size(), array.size());
+		long[] expectedArray = new long[expected.size()];
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).longValue(), array.get(i));
+			expectedArray[i] = expected.get(i);
+		}
+		assertArrayEquals(expectedArray, array.toArray());
+		if (!expected.isEmpty()) {
+			assertEquals(expected.indexOf(expected.get(expected.size() - 1)), array.indexOf(expected.get(expected.size() - 1)));
+		}
+	}
+
+	@Test
+	public void testRemoveAll_freesChunks() {
+		DummyMemoryManager memoryManager = new DummyMemoryManager();
+		ChunkedLongArray array = new ChunkedLongArray(memoryManager, 8);
+		for (int i = 0; i < 100; i++) {
+			array.add(i);
+		}
+		for (int i = 0; i < 100; i++) {
+			array.remove(array.size() / 2);
+		}
+		assertEquals(0, array.size());
+		assertEquals("ChunkedLongArray{size=0, chunks=1}", array.toString());
+	}
+}
@@ -0,0 +1,91 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link HashChain}.
+ */
+@SuppressWarnings("javadoc")
+public class HashChainTest {
+
+	@Test
+	public void testSingleAddress() {
+		long[] chain = new long[] { 123 };
+		assertEquals(1, HashChain.size(chain));
+		assertFalse(HashChain.hasFingerprints(chain));
+	}
+
+	@Test
+	public void testCreate() {
+		long[] chain = HashChain.create(10, 0xFFFF, 20, 1);
+		assertEquals(2, HashChain.size(chain));
+		assertTrue(HashChain.hasFingerprints(chain));
+		assertEquals(10, chain[0]);
+		assertEquals(20, chain[1]);
+		assertEquals(0xFFFF, HashChain.fingerprint(chain, 0));
+		assertEquals(1, HashChain.fingerprint(chain, 1));
+	}
+
+	@Test
+	public void testAppendRemove() {
+		long[] chain = HashChain.create(0, 1000, 1, 1001);
+		for (int i = 2; i < 20; i++) {
+			chain = HashChain.append(chain, i, 1000 + i);
+			assertChain(chain, 0, i + 1);
+		}
+
+		// remove from the end
+		chain = HashChain.remove(chain, 19);
+		assertChain(chain, 0, 19);
+
+		// remove from the start
+		chain = HashChain.remove(chain, 0);
+		assertChain(chain, 1, 19);
+
+		while (HashChain.size(chain) > 2) {
+			chain = HashChain.remove(chain, 1);
+		}
+		assertEquals(2, HashChain.size(chain));
+		assertEquals(1, chain[0]);
+		assertEquals(18, chain[1]);
+		assertEquals(1001, HashChain.fingerprint(chain, 0));
+		assertEquals(1018, HashChain.fingerprint(chain, 1));
+
+		assertArrayEquals(new long[] { 18 }, HashChain.remove(chain, 0));
+		assertArrayEquals(new long[] { 1 }, HashChain.remove(chain, 1));
+	}
+
+	private static void assertChain(long[] chain, int firstAddress, int endAddress) {
+		assertEquals(endAddress - firstAddress, HashChain.size(chain));
+		for (int i = 0; i < HashChain.size(chain); i++) {
+			assertEquals(firstAddress + i, chain[i]);
+			assertEquals(1000 + firstAddress + i, HashChain.fingerprint(chain, i));
+		}
+	}
+
+	@Test
+	public void testFingerprint() {
+		assertEquals(HashChain.fingerprint(new byte[] { 1, 2, 3 }), HashChain.fingerprint(new byte[] { 1, 2, 3 }));
+		assertTrue(HashChain.fingerprint(new byte[0]) >= 0);
+		assertTrue(HashChain.fingerprint(new byte[] { -1, -2, -3, -4 }) <= 0xFFFF);
+
+		// "Aa" and "BB" have the same hash code but different fingerprints
+		assertTrue(HashChain.fingerprint("Aa".getBytes()) != HashChain.fingerprint("BB".getBytes()));
+		assertTrue(HashChain.fingerprint("AaBB".getBytes()) != HashChain.fingerprint("BBAa".getBytes()));
+	}
+
+	@Test
+	public void testFingerprint_byteBuffer() {
+		byte[] data = new byte[] { 9, 9, 1, 2, 3, 9 };
+		ByteBuffer buffer = ByteBuffer.wrap(data, 2, 3);
+		assertEquals(HashChain.fingerprint(new byte[] { 1, 2, 3 }), HashChain.fingerprint(buffer));
+		assertEquals(2, buffer.position());
+	}
+}
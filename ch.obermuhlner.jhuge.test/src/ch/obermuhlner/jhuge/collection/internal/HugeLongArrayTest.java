@@ -3,9 +3,12 @@ package ch.obermuhlner.jhuge.collection.internal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
 
 /**
  * Tests {@link HugeLongArray}.
@@ -73,4 +76,20 @@ public class HugeLongArrayTest extends AbstractLongArrayTest {
 			// expected
 		}
 	}
+	
+	@Test
+	public void testSetSize_reusedMemory() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(1000);
+		byte[] garbage = new byte[200];
+		Arrays.fill(garbage, (byte) 0x55);
+		memoryManager.free(memoryManager.allocate(garbage));
+		
+		HugeLongArray hugeLongArray = new HugeLongArray(memoryManager, 2);
+		hugeLongArray.add(1000);
+		hugeLongArray.setSize(20);
+		assertEquals(1000, hugeLongArray.get(0));
+		for (int i = 1; i < 20; i++) {
+			assertEquals(0, hugeLongArray.get(i));
+		}
+	}
 }
@@ -0,0 +1,136 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import static org.junit.Assert.assertEquals;
+import static ch.obermuhlner.jhuge.converter.AbstractSerializableConverterTest.assertArrayEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeOpenAddressingIntLongArrayMap}
+ */
+@SuppressWarnings("javadoc")
+public class HugeOpenAddressingIntLongArrayMapTest extends AbstractIntLongArrayMapTest {
+
+	@Override
+	protected IntLongArrayMap createIntLongArrayMap() {
+		return new HugeOpenAddressingIntLongArrayMap(createMemoryManager(), 1);
+	}
+
+	private MemoryManager createMemoryManager() {
+		return new DummyMemoryManager();
+	}
+
+	@Test
+	public void testPutGetRemove_noAllocation() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(1024 * 1024);
+		IntLongArrayMap map = new HugeOpenAddressingIntLongArrayMap(memoryManager, 100);
+		int allocatedBlocks = memoryManager.getAllocatedBlocks();
+
+		for (int i = 0; i < 50; i++) {
+			map.put(i, new long[] { i });
+			map.put(i, new long[] { i, i * 10 });
+		}
+		for (int i = 0; i < 50; i++) {
+			assertArrayEquals(new long[] { i, i * 10 }, map.get(i));
+			map.remove(i);
+		}
+
+		assertEquals(allocatedBlocks, memoryManager.getAllocatedBlocks());
+	}
+
+	@Test
+	public void testPut_incrementalRehash() {
+		IntLongArrayMap map = new HugeOpenAddressingIntLongArrayMap(createMemoryManager(), 1);
+
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, new long[] { i });
+			assertEquals(i + 1, map.size());
+
+			// entries that are not yet moved into the new table must still be found
+			for (int j = 0; j <= i; j++) {
+				assertArrayEquals(new long[] { j }, map.get(j));
+			}
+			assertEquals(false, map.containsKey(i + 1));
+		}
+	}
+
+	@Test
+	public void testIterator_incrementalRehash() {
+		for (int n = 1; n < 200; n++) {
+			IntLongArrayMap map = new HugeOpenAddressingIntLongArrayMap(createMemoryManager(), 1);
+			for (int i = 0; i < n; i++) {
+				map.put(i, new long[] { i, i, i });
+			}
+
+			Set<Integer> keys = new HashSet<Integer>();
+			IntIterator iterator = map.keySet();
+			while (iterator.hasNext()) {
+				int key = iterator.next();
+				assertEquals(true, keys.add(key));
+				if (key % 2 == 0) {
+					iterator.remove();
+				}
+			}
+			assertEquals(n, keys.size());
+			assertEquals(n / 2, map.size());
+
+			for (int i = 0; i < n; i++) {
+				assertEquals(i % 2 != 0, map.containsKey(i));
+			}
+		}
+	}
+
+	@Test
+	public void testClear_incrementalRehash() {
+		for (int n = 1; n < 200; n++) {
+			IntLongArrayMap map = new HugeOpenAddressingIntLongArrayMap(createMemoryManager(), 1);
+			for (int i = 0; i < n; i++) {
+				map.put(i, new long[] { i, i, i });
+			}
+
+			map.clear();
+			assertEquals(0, map.size());
+			assertEquals(false, map.keySet().hasNext());
+			for (int i = 0; i < n; i++) {
+				assertEquals(null, map.get(i));
+			}
+
+			map.put(n, new long[] { n });
+			assertEquals(1, map.size());
+			assertArrayEquals(new long[] { n }, map.get(n));
+		}
+	}
+
+	@Test
+	public void testLargeValues_freed() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(1024 * 1024);
+		IntLongArrayMap map = new HugeOpenAddressingIntLongArrayMap(memoryManager, 100);
+		int allocatedBlocks = memoryManager.getAllocatedBlocks();
+
+		map.put(1, new long[] { 1, 2, 3 });
+		map.put(2, new long[] { 1, 2, 3, 4 });
+		assertEquals(allocatedBlocks + 2, memoryManager.getAllocatedBlocks());
+
+		map.put(1, new long[] { 4, 5, 6 }); // same length - overwritten in place
+		assertArrayEquals(new long[] { 4, 5, 6 }, map.get(1));
+		assertEquals(allocatedBlocks + 2, memoryManager.getAllocatedBlocks());
+
+		map.put(1, new long[] { 7 }); // fits inline
+		assertArrayEquals(new long[] { 7 }, map.get(1));
+		assertEquals(allocatedBlocks + 1, memoryManager.getAllocatedBlocks());
+
+		map.remove(2);
+		assertEquals(allocatedBlocks, memoryManager.getAllocatedBlocks());
+
+		map.put(3, new long[] { 1, 2, 3, 4, 5 });
+		map.clear();
+		assertEquals(allocatedBlocks, memoryManager.getAllocatedBlocks());
+	}
+}
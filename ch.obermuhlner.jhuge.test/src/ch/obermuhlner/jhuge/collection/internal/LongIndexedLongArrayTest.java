@@ -0,0 +1,93 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link LongIndexedLongArray}.
+ */
+@SuppressWarnings("javadoc")
+public class LongIndexedLongArrayTest {
+
+	@Test
+	public void testAddGetSet() {
+		LongIndexedLongArray array = new LongIndexedLongArray(new DummyMemoryManager());
+		assertEquals(0, array.size());
+
+		for (long i = 0; i < 3000; i++) {
+			array.add(i * 3);
+		}
+		assertEquals(3000, array.size());
+		for (long i = 0; i < 3000; i++) {
+			assertEquals(i * 3, array.get(i));
+		}
+
+		assertEquals(6, array.set(2L, -1));
+		assertEquals(-1, array.get(2L));
+
+		array.clear();
+		assertEquals(0, array.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGet_IndexOutOfBoundsException() {
+		LongIndexedLongArray array = new LongIndexedLongArray(new DummyMemoryManager());
+		array.add(1);
+		array.get(1L);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAdd_IndexOutOfBoundsException() {
+		LongIndexedLongArray array = new LongIndexedLongArray(new DummyMemoryManager());
+		array.add(1L, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPageCapacity_notPowerOf2() {
+		new LongIndexedLongArray(new DummyMemoryManager(), 8, 6);
+	}
+
+	@Test
+	public void testLargerThanBuffer() {
+		// every page fits into a buffer, but the entire array does not
+		LongIndexedLongArray array = new LongIndexedLongArray(new MemoryMappedFileManager(100), 2, 8);
+		for (long i = 0; i < 1000; i++) {
+			array.add(i);
+		}
+		for (long i = 0; i < 1000; i++) {
+			assertEquals(i, array.get(i));
+		}
+	}
+
+	@Test
+	public void testRandomInsertRemove() {
+		Random random = new Random(1234);
+		LongIndexedLongArray array = new LongIndexedLongArray(new DummyMemoryManager(), 2, 4);
+		List<Long> expected = new ArrayList<Long>();
+
+		for (int i = 0; i < 2000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				int index = random.nextInt(expected.size() + 1);
+				long value = random.nextLong();
+				array.add((long) index, value);
+				expected.add(index, value);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index).longValue(), array.remove((long) index));
+			}
+		}
+
+		assertEquals(expected.size(), array.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).longValue(), array.get((long) i));
+		}
+	}
+}
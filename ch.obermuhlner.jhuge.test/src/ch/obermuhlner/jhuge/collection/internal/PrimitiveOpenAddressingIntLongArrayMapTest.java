@@ -0,0 +1,12 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+/**
+ * Tests {@link PrimitiveOpenAddressingIntLongArrayMap}
+ */
+public class PrimitiveOpenAddressingIntLongArrayMapTest extends AbstractIntLongArrayMapTest {
+
+	@Override
+	protected IntLongArrayMap createIntLongArrayMap() {
+		return new PrimitiveOpenAddressingIntLongArrayMap(1);
+	}
+}
@@ -0,0 +1,84 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+
+/**
+ * Tests {@link HugeIntArray} with small pages, so that the elements are spread over many pages.
+ */
+@SuppressWarnings("javadoc")
+public class SmallPage_HugeIntArrayTest extends AbstractIntArrayTest {
+
+	@Override
+	protected IntArray createIntArray(int capacity) {
+		return new HugeIntArray(new DummyMemoryManager(), 2, 4);
+	}
+
+	@Test
+	public void testRandomInsertRemove() {
+		Random random = new Random(1234);
+		HugeIntArray hugeIntArray = new HugeIntArray(new DummyMemoryManager(), 2, 4);
+		List<Integer> expected = new ArrayList<Integer>();
+		
+		for (int i = 0; i < 2000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				int index = random.nextInt(expected.size() + 1);
+				int value = random.nextInt();
+				hugeIntArray.add(index, value);
+				expected.add(index, value);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index).intValue(), hugeIntArray.remove(index));
+			}
+		}
+		
+		assertEquals(expected.size(), hugeIntArray.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).intValue(), hugeIntArray.get(i));
+		}
+	}
+
+	@Test
+	public void testBulkGetAddAll() {
+		HugeIntArray hugeIntArray = new HugeIntArray(new DummyMemoryManager(), 2, 4);
+		int[] values = new int[50];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 3;
+		}
+		hugeIntArray.add(-1);
+		hugeIntArray.addAll(values, 5, 40);
+		assertEquals(41, hugeIntArray.size());
+		assertEquals(-1, hugeIntArray.get(0));
+		for (int i = 0; i < 40; i++) {
+			assertEquals((i + 5) * 3, hugeIntArray.get(i + 1));
+		}
+
+		int[] result = new int[20];
+		hugeIntArray.get(3, result, 2, 17);
+		for (int i = 0; i < 17; i++) {
+			assertEquals((i + 7) * 3, result[i + 2]);
+		}
+		assertEquals(0, result[0]);
+		assertEquals(0, result[19]);
+
+		int[] all = hugeIntArray.toArray();
+		assertEquals(41, all.length);
+		assertEquals(-1, all[0]);
+		assertEquals(44 * 3, all[40]);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testBulkGet_IndexOutOfBoundsException() {
+		HugeIntArray hugeIntArray = new HugeIntArray(new DummyMemoryManager(), 2, 4);
+		hugeIntArray.add(1);
+		hugeIntArray.add(2);
+		hugeIntArray.get(1, new int[2], 0, 2);
+	}
+}
@@ -0,0 +1,119 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.obermuhlner.jhuge.memory.DummyMemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+
+/**
+ * Tests {@link HugeLongArray} with small pages, so that the elements are spread over many pages.
+ */
+@SuppressWarnings("javadoc")
+public class SmallPage_HugeLongArrayTest extends AbstractLongArrayTest {
+
+	@Override
+	protected LongArray createLongArray(int capacity) {
+		return new HugeLongArray(new DummyMemoryManager(), 2, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPageCapacity_notPowerOf2() {
+		new HugeLongArray(new DummyMemoryManager(), 8, 6);
+	}
+
+	@Test
+	public void testSetSize() {
+		HugeLongArray hugeLongArray = new HugeLongArray(new DummyMemoryManager(), 2, 4);
+		hugeLongArray.add(1000);
+		hugeLongArray.add(1001);
+		
+		hugeLongArray.setSize(11);
+		assertEquals(11, hugeLongArray.size());
+		assertEquals(1000, hugeLongArray.get(0));
+		assertEquals(1001, hugeLongArray.get(1));
+		for (int i = 2; i < 11; i++) {
+			assertEquals(0, hugeLongArray.get(i));
+		}
+	}
+	
+	@Test
+	public void testLargerThanBuffer() {
+		// every page fits into a buffer, but the entire array does not 
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(100);
+		HugeLongArray hugeLongArray = new HugeLongArray(memoryManager, 2, 8);
+		
+		for (int i = 0; i < 1000; i++) {
+			hugeLongArray.add(i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, hugeLongArray.get(i));
+		}
+	}
+
+	@Test
+	public void testRandomInsertRemove() {
+		Random random = new Random(1234);
+		HugeLongArray hugeLongArray = new HugeLongArray(new DummyMemoryManager(), 2, 4);
+		List<Long> expected = new ArrayList<Long>();
+		
+		for (int i = 0; i < 2000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				int index = random.nextInt(expected.size() + 1);
+				long value = random.nextLong();
+				hugeLongArray.add(index, value);
+				expected.add(index, value);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index).longValue(), hugeLongArray.remove(index));
+			}
+		}
+		
+		assertEquals(expected.size(), hugeLongArray.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).longValue(), hugeLongArray.get(i));
+		}
+	}
+
+	@Test
+	public void testBulkGetAddAll() {
+		HugeLongArray hugeLongArray = new HugeLongArray(new DummyMemoryManager(), 2, 4);
+		long[] values = new long[50];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i * 3;
+		}
+		hugeLongArray.add(-1);
+		hugeLongArray.addAll(values, 5, 40);
+		assertEquals(41, hugeLongArray.size());
+		assertEquals(-1, hugeLongArray.get(0));
+		for (int i = 0; i < 40; i++) {
+			assertEquals((i + 5) * 3, hugeLongArray.get(i + 1));
+		}
+
+		long[] result = new long[20];
+		hugeLongArray.get(3, result, 2, 17);
+		for (int i = 0; i < 17; i++) {
+			assertEquals((i + 7) * 3, result[i + 2]);
+		}
+		assertEquals(0, result[0]);
+		assertEquals(0, result[19]);
+
+		long[] all = hugeLongArray.toArray();
+		assertEquals(41, all.length);
+		assertEquals(-1, all[0]);
+		assertEquals(44 * 3, all[40]);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testBulkGet_IndexOutOfBoundsException() {
+		HugeLongArray hugeLongArray = new HugeLongArray(new DummyMemoryManager(), 2, 4);
+		hugeLongArray.add(1);
+		hugeLongArray.add(2);
+		hugeLongArray.get(1, new long[2], 0, 2);
+	}
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.math.BigInteger;
 import java.math.MathContext;
 import java.math.RoundingMode;
@@ -287,6 +288,19 @@ public abstract class AbstractSerializableConverterTest {
 			assertEquals(desc, serializedLength, data.length);
 		}
 		T deserializedObject = converter.deserialize(data);
+		if (converter instanceof ByteBufferConverter) {
+			// deserialize from a buffer that does not start at the serialized representation
+			ByteBuffer buffer = ByteBuffer.allocate(data.length + 3);
+			buffer.position(3);
+			buffer.put(data);
+			buffer.position(3);
+			assertEquals(desc, object, ((ByteBufferConverter<T>) converter).deserialize(buffer));
+			assertEquals(desc, 3, buffer.position());
+		}
+		if (converter instanceof CanonicalConverter && object != null && ((CanonicalConverter<T>) converter).isCanonical(object)) {
+			// equal objects must be serialized into equal bytes
+			assertArrayEquals(data, converter.serialize(deserializedObject));
+		}
 		if (object != null && object.getClass().isArray()) {
 			assertArrayEquals(object, deserializedObject);
 			return;
@@ -1,6 +1,11 @@
 package ch.obermuhlner.jhuge.converter;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.Serializable;
+import java.util.Date;
+
+import org.junit.Test;
 
 import ch.obermuhlner.jhuge.converter.CompactConverter;
 import ch.obermuhlner.jhuge.converter.Converter;
@@ -8,6 +13,7 @@ import ch.obermuhlner.jhuge.converter.Converter;
 /**
  * Tests {@link CompactConverter}.
  */
+@SuppressWarnings("javadoc")
 public class CompactConverterTest extends AbstractSerializableConverterTest {
 
 	@Override
@@ -15,4 +21,17 @@ public class CompactConverterTest extends AbstractSerializableConverterTest {
 		return new CompactConverter<T>(null);
 	}
 
+	@Test
+	public void testIsCanonical() {
+		CompactConverter<Serializable> converter = new CompactConverter<Serializable>(null);
+		assertEquals(true, converter.isCanonical("abc"));
+		assertEquals(true, converter.isCanonical(1));
+		assertEquals(true, converter.isCanonical(1L));
+		assertEquals(true, converter.isCanonical('x'));
+		assertEquals(false, converter.isCanonical(1.0));
+		assertEquals(false, converter.isCanonical(Boolean.TRUE));
+		assertEquals(false, converter.isCanonical(new Date()));
+		assertEquals(false, converter.isCanonical(new int[] { 1 }));
+	}
+
 }
@@ -1,5 +1,9 @@
 package ch.obermuhlner.jhuge.converter;
 
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
 /**
@@ -17,4 +21,25 @@ public class IntegerConverterTest {
 		AbstractSerializableConverterTest.assertConvert(converter, Integer.MIN_VALUE);
 		AbstractSerializableConverterTest.assertConvert(converter, Integer.MAX_VALUE);
 	}	
+
+	@Test
+	public void testIsCanonical() {
+		IntegerConverter converter = new IntegerConverter();
+		assertEquals(true, converter.isCanonical(1));
+		assertEquals(false, converter.isCanonical(1L));
+		assertEquals(false, converter.isCanonical("1"));
+	}
+
+	@Test
+	public void testCompareSerialized() {
+		IntegerConverter converter = new IntegerConverter();
+		Integer[] values = { Integer.MIN_VALUE, -4321, -1, 0, 1, 1234, Integer.MAX_VALUE };
+		for (int i = 0; i < values.length; i++) {
+			for (int j = 0; j < values.length; j++) {
+				ByteBuffer data1 = ByteBuffer.wrap(converter.serialize(values[i]));
+				ByteBuffer data2 = ByteBuffer.wrap(converter.serialize(values[j]));
+				assertEquals(Integer.signum(values[i].compareTo(values[j])), Integer.signum(converter.compareSerialized(data1, data2)));
+			}
+		}
+	}
 }
@@ -1,5 +1,9 @@
 package ch.obermuhlner.jhuge.converter;
 
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
 /**
@@ -17,4 +21,17 @@ public class LongConverterTest {
 		AbstractSerializableConverterTest.assertConvert(converter, Long.MIN_VALUE);
 		AbstractSerializableConverterTest.assertConvert(converter, Long.MAX_VALUE);
 	}	
+
+	@Test
+	public void testCompareSerialized() {
+		LongConverter converter = new LongConverter();
+		Long[] values = { Long.MIN_VALUE, -4321L, -1L, 0L, 1L, 1234L, Long.MAX_VALUE };
+		for (int i = 0; i < values.length; i++) {
+			for (int j = 0; j < values.length; j++) {
+				ByteBuffer data1 = ByteBuffer.wrap(converter.serialize(values[i]));
+				ByteBuffer data2 = ByteBuffer.wrap(converter.serialize(values[j]));
+				assertEquals(Integer.signum(values[i].compareTo(values[j])), Integer.signum(converter.compareSerialized(data1, data2)));
+			}
+		}
+	}
 }
@@ -2,6 +2,9 @@ package ch.obermuhlner.jhuge.memory;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 import org.junit.Test;
 
 /**
@@ -42,4 +45,142 @@ public abstract class AbstractMemoryManagerTest {
 		memoryManager.free(block1);
 	}
 	
+	/**
+	 * Tests {@link MemoryManager#allocate(byte[][])}.
+	 */
+	@Test
+	public void testAllocateBatch() {
+		MemoryManager memoryManager = createMemoryManager();
+
+		byte[][] data = new byte[200][];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new byte[i % 17];
+			for (int j = 0; j < data[i].length; j++) {
+				data[i][j] = (byte) (i + j);
+			}
+		}
+		long[] addresses = memoryManager.allocate(data);
+		assertEquals(data.length, addresses.length);
+
+		// free every other block to check that the blocks are independent
+		for (int i = 0; i < data.length; i += 2) {
+			memoryManager.free(addresses[i]);
+		}
+		for (int i = 1; i < data.length; i += 2) {
+			ByteBuffer view = memoryManager.view(addresses[i]);
+			assertEquals(true, view.remaining() >= data[i].length);
+			for (int j = 0; j < data[i].length; j++) {
+				assertEquals(data[i][j], view.get(j));
+			}
+			memoryManager.free(addresses[i]);
+		}
+
+		assertEquals(0, memoryManager.allocate(new byte[0][]).length);
+	}
+
+	/**
+	 * Tests {@link MemoryManager#view(long)}.
+	 */
+	@Test
+	public void testView() {
+		MemoryManager memoryManager = createMemoryManager();
+		
+		long block1 = memoryManager.allocate(new byte[] { 1, 2, 3, 4, 5 });
+		long block2 = memoryManager.allocate(new byte[] { 6, 7, 8 });
+		
+		ByteBuffer view1 = memoryManager.view(block1);
+		assertEquals(true, view1.isReadOnly());
+		assertEquals(0, view1.position());
+		assertEquals(true, view1.remaining() >= 5);
+		assertEquals(1, view1.get(0));
+		assertEquals(5, view1.get(4));
+		
+		ByteBuffer view2 = memoryManager.view(block2);
+		assertEquals(true, view2.remaining() >= 3);
+		assertEquals(6, view2.get());
+		assertEquals(7, view2.get());
+		assertEquals(8, view2.get());
+		assertEquals(1, view1.get(0)); // not affected by reading the other view
+		
+		try {
+			view1.put(0, (byte) 99);
+			throw new AssertionError("expected ReadOnlyBufferException");
+		} catch (ReadOnlyBufferException exception) {
+			// expected
+		}
+		assertEquals(1, memoryManager.read(block1)[0]);
+
+		memoryManager.free(block1);
+		memoryManager.free(block2);
+	}
+	
+	/**
+	 * Tests reading and writing parts of a memory block.
+	 */
+	@Test
+	public void testReadWriteOffset() {
+		MemoryManager memoryManager = createMemoryManager();
+		
+		long block = memoryManager.allocate(new byte[20]);
+		
+		memoryManager.writeLong(block, 0, 0x0102030405060708L);
+		memoryManager.writeInt(block, 8, 0x090A0B0C);
+		memoryManager.write(block, 12, new byte[] { 13, 14, 15, 16, 99 }, 4);
+		
+		assertEquals(0x0102030405060708L, memoryManager.readLong(block, 0));
+		assertEquals(0x090A0B0C, memoryManager.readInt(block, 8));
+		assertEquals(0x0D0E0F10, memoryManager.readInt(block, 12));
+		assertEquals(0x05060708090A0B0CL, memoryManager.readLong(block, 4));
+		assertEquals(0, memoryManager.readInt(block, 16)); // not modified
+		
+		byte[] data = new byte[3];
+		memoryManager.read(block, 7, data, 3);
+		assertEquals(8, data[0]);
+		assertEquals(9, data[1]);
+		assertEquals(10, data[2]);
+
+		byte[] content = memoryManager.read(block);
+		assertEquals(1, content[0]);
+		assertEquals(16, content[15]);
+		assertEquals(0, content[16]);
+
+		memoryManager.free(block);
+	}
+
+	/**
+	 * Tests reading outside of a memory block.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadLong_outside() {
+		MemoryManager memoryManager = createMemoryManager();
+		
+		long block = memoryManager.allocate(new byte[20]);
+		int length = memoryManager.read(block).length;
+		memoryManager.readLong(block, length - 4);
+	}
+
+	/**
+	 * Tests writing outside of a memory block.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrite_outside() {
+		MemoryManager memoryManager = createMemoryManager();
+		
+		long block = memoryManager.allocate(new byte[20]);
+		int length = memoryManager.read(block).length;
+		memoryManager.write(block, length - 2, new byte[4], 4);
+	}
+
+	/**
+	 * Tests {@link MemoryManager#view(long)} of an empty memory block.
+	 */
+	@Test
+	public void testView_empty() {
+		MemoryManager memoryManager = createMemoryManager();
+		
+		long block = memoryManager.allocate(0);
+		assertEquals(0, memoryManager.view(block).remaining());
+		
+		memoryManager.free(block);
+	}
 }
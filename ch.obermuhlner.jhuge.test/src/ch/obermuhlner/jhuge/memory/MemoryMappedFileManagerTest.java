@@ -2,10 +2,19 @@ package ch.obermuhlner.jhuge.memory;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import static ch.obermuhlner.jhuge.converter.AbstractSerializableConverterTest.assertArrayEquals;
@@ -38,59 +47,194 @@ public class MemoryMappedFileManagerTest extends AbstractMemoryManagerTest {
 		assertEquals(1, memoryManager.getAllocatedBlocks());
 		assertEquals(1, memoryManager.getFreeBlocks()); // one big free block in buffer #1 
 		assertEquals(20, memoryManager.getUsedBytes());
-		assertEquals(200-4-20-4, memoryManager.getFreeBytes());
+		assertEquals(200-8-20-8, memoryManager.getFreeBytes());
 		assertEquals(200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 200-4-20-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8-20-8 }, memoryManager.getFreeBlockSizes());
 		
-		memoryManager.free(address1);
+		memoryManager.free(address1); // coalesced immediately with the free block after it
 		assertEquals(0, memoryManager.getAllocatedBlocks());
-		assertEquals(2, memoryManager.getFreeBlocks());
-		assertEquals(200-4-4, memoryManager.getFreeBytes());
+		assertEquals(1, memoryManager.getFreeBlocks());
+		assertEquals(200-8, memoryManager.getFreeBytes());
 		assertEquals(200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 20, 200-4-20-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8 }, memoryManager.getFreeBlockSizes());
 		
-		memoryManager.compact();
+		memoryManager.compact(); // nothing left to compact
 		assertEquals(1, memoryManager.getFreeBlocks());
-		assertEquals(200-4, memoryManager.getFreeBytes());
+		assertEquals(200-8, memoryManager.getFreeBytes());
 		assertEquals(200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 200-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8 }, memoryManager.getFreeBlockSizes());
 		
 		long address2 = memoryManager.allocate(60); // allocated from buffer #1
 		assertEquals(60, memoryManager.read(address2).length);
 		assertEquals(1, memoryManager.getAllocatedBlocks());
 		assertEquals(1, memoryManager.getFreeBlocks());
 		assertEquals(60, memoryManager.getUsedBytes());
-		assertEquals(200-4-60-4, memoryManager.getFreeBytes());
+		assertEquals(200-8-60-8, memoryManager.getFreeBytes());
 		assertEquals(200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 200-4-60-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8-60-8 }, memoryManager.getFreeBlockSizes());
 
 		long address3 = memoryManager.allocate(150); // need to create buffer #2
 		assertEquals(150, memoryManager.read(address3).length);
 		assertEquals(2, memoryManager.getAllocatedBlocks());
 		assertEquals(2, memoryManager.getFreeBlocks());
 		assertEquals(60+150, memoryManager.getUsedBytes());
-		assertEquals(200-4-60-4 +200-4-150-4, memoryManager.getFreeBytes());
+		assertEquals(200-8-60-8 +200-8-150-8, memoryManager.getFreeBytes());
 		assertEquals(200 +200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 200-4-150-4, 200-4-60-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8-150-8, 200-8-60-8 }, memoryManager.getFreeBlockSizes());
 		
 		long address4 = memoryManager.allocate(120); // allocated from buffer #1 - with oversize taking the entire free block of buffer #1
-		assertEquals((200-4-60-4), memoryManager.read(address4).length);
+		assertEquals((200-8-60-8), memoryManager.read(address4).length);
 		assertEquals(3, memoryManager.getAllocatedBlocks());
 		assertEquals(1, memoryManager.getFreeBlocks());
-		assertEquals(60+150+(200-4-60-4), memoryManager.getUsedBytes());
-		assertEquals(0 +200-4-150-4, memoryManager.getFreeBytes());
+		assertEquals(60+150+(200-8-60-8), memoryManager.getUsedBytes());
+		assertEquals(0 +200-8-150-8, memoryManager.getFreeBytes());
 		assertEquals(200 +200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 200-4-150-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8-150-8 }, memoryManager.getFreeBlockSizes());
 		
 		memoryManager.reset();
 		assertEquals(0, memoryManager.getAllocatedBlocks());
 		assertEquals(2, memoryManager.getFreeBlocks());
 		assertEquals(0, memoryManager.getUsedBytes());
-		assertEquals(200-4 + 200-4, memoryManager.getFreeBytes());
+		assertEquals(200-8 + 200-8, memoryManager.getFreeBytes());
 		assertEquals(200 +200, memoryManager.getTotalBytes());
-		assertArrayEquals(new int[] { 200-4, 200-4 }, memoryManager.getFreeBlockSizes());
+		assertArrayEquals(new int[] { 200-8, 200-8 }, memoryManager.getFreeBlockSizes());
 	}
 	
+	@Test
+	public void testAllocateBatch_sizes() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(200, -1, 0, false);
+
+		long[] addresses = memoryManager.allocate(new byte[][] { new byte[20], new byte[30], new byte[10] });
+		assertEquals(3, memoryManager.getAllocatedBlocks());
+		assertEquals(20 + 30 + 10, memoryManager.getUsedBytes());
+		assertEquals(20, memoryManager.read(addresses[0]).length);
+		assertEquals(30, memoryManager.read(addresses[1]).length);
+		assertEquals(10, memoryManager.read(addresses[2]).length);
+		// consecutive blocks in one region
+		assertEquals(addresses[0] + 8 + 20, addresses[1]);
+		assertEquals(addresses[1] + 8 + 30, addresses[2]);
+		assertArrayEquals(new int[] { 200-8-20-8-30-8-10-8 }, memoryManager.getFreeBlockSizes());
+
+		for (long address : addresses) {
+			memoryManager.free(address);
+		}
+		assertEquals(0, memoryManager.getAllocatedBlocks());
+		assertEquals(0, memoryManager.getUsedBytes());
+		assertArrayEquals(new int[] { 200-8 }, memoryManager.getFreeBlockSizes());
+
+		// a batch larger than a buffer is split into several regions
+		byte[][] data = new byte[20][];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new byte[] { (byte) i, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		}
+		addresses = memoryManager.allocate(data);
+		assertEquals(20, memoryManager.getAllocatedBlocks());
+		assertEquals(true, memoryManager.getUsedBytes() >= 20 * 10); // a remainder too small for a free block is added to the last block of a region
+		for (int i = 0; i < data.length; i++) {
+			byte[] read = memoryManager.read(addresses[i]);
+			assertArrayEquals(data[i], Arrays.copyOf(read, data[i].length));
+		}
+	}
+
+	@Test
+	public void testCoalesceFreeBlocks() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(200, MemoryMappedFileManager.NO_BLOCK_SIZE, 0, false);
+		
+		long address1 = memoryManager.allocate(10);
+		long address2 = memoryManager.allocate(20);
+		long address3 = memoryManager.allocate(30);
+		long address4 = memoryManager.allocate(40);
+		assertArrayEquals(new int[] { 200-8-10-8-20-8-30-8-40-8 }, memoryManager.getFreeBlockSizes());
+
+		memoryManager.free(address1); // no free neighbor
+		assertArrayEquals(new int[] { 10, 200-8-10-8-20-8-30-8-40-8 }, memoryManager.getFreeBlockSizes());
+
+		memoryManager.free(address3); // no free neighbor
+		assertArrayEquals(new int[] { 10, 30, 200-8-10-8-20-8-30-8-40-8 }, memoryManager.getFreeBlockSizes());
+
+		memoryManager.free(address2); // coalesced with left and right neighbor
+		assertArrayEquals(new int[] { 200-8-10-8-20-8-30-8-40-8, 10+8+20+8+30 }, memoryManager.getFreeBlockSizes());
+
+		memoryManager.free(address4); // coalesced with left and right neighbor
+		assertArrayEquals(new int[] { 200-8 }, memoryManager.getFreeBlockSizes());
+		assertEquals(1, memoryManager.getFreeBlocks());
+		assertEquals(200-8, memoryManager.getFreeBytes());
+		assertEquals(0, memoryManager.getUsedBytes());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testAllocateTooLarge() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(200);
+		memoryManager.allocate(200-8+1);
+	}
+	
+	@Test
+	public void testView_reflectsWrite() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(200);
+		
+		long address = memoryManager.allocate(new byte[] { 1, 2, 3 });
+		ByteBuffer view = memoryManager.view(address);
+		assertEquals(true, view.remaining() >= 3);
+		
+		memoryManager.write(address, new byte[] { 4, 5, 6 });
+		assertEquals(4, view.get(0)); // view accesses the memory block directly
+		assertEquals(6, view.get(2));
+	}
+	
+	@Test
+	public void testDirectory() throws IOException {
+		File directory = createTempDirectory();
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(200, MemoryMappedFileManager.NO_BLOCK_SIZE, directory);
+		assertEquals(directory, memoryManager.getDirectory());
+		assertEquals(0, directory.listFiles().length);
+
+		long address1 = memoryManager.allocate(new byte[] { 1, 2, 3 });
+		assertEquals(expectedSegmentFiles(1), directory.listFiles().length);
+		assertEquals(200, memoryManager.getTotalBytes());
+
+		long address2 = memoryManager.allocate(190); // need to create segment file #2
+		memoryManager.write(address2, new byte[] { 4, 5, 6 });
+		assertEquals(expectedSegmentFiles(2), directory.listFiles().length);
+		assertEquals(400, memoryManager.getTotalBytes());
+
+		assertEquals(1, memoryManager.read(address1)[0]);
+		assertEquals(3, memoryManager.read(address1)[2]);
+		assertEquals(4, memoryManager.read(address2)[0]);
+		assertEquals(6, memoryManager.read(address2)[2]);
+		
+		memoryManager.free(address1);
+		memoryManager.free(address2);
+		memoryManager.reset();
+		assertEquals(expectedSegmentFiles(2), directory.listFiles().length);
+		assertEquals(400, memoryManager.getTotalBytes());
+	}
+
+	/**
+	 * Returns the number of segment files that are expected to be visible in the directory.
+	 * 
+	 * <p>The segment files are deleted immediately after they are mapped, except on Windows.</p>
+	 * 
+	 * @param segmentFiles the number of mapped segment files
+	 * @return the expected number of files in the directory
+	 */
+	public static int expectedSegmentFiles(int segmentFiles) {
+		return System.getProperty("os.name").startsWith("Windows") ? segmentFiles : 0;
+	}
+
+	/**
+	 * Creates a new empty temporary directory that is deleted when the JVM exits.
+	 * 
+	 * @return the created directory
+	 * @throws IOException if the directory could not be created
+	 */
+	public static File createTempDirectory() throws IOException {
+		File directory = File.createTempFile("jhuge", ".test");
+		directory.delete();
+		directory.mkdirs();
+		directory.deleteOnExit();
+		return directory;
+	}
+
 	@Test
 	public void testBufferSize() {
 		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(200);
@@ -157,6 +301,76 @@ public class MemoryMappedFileManagerTest extends AbstractMemoryManagerTest {
 
 	}
 
+	@Test
+	public void testReuseFreeBlocks() {
+		MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(10000, MemoryMappedFileManager.NO_BLOCK_SIZE, 0, false);
+		
+		long[] addresses = new long[200];
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = memoryManager.allocate(4 + i % 40);
+		}
+		long totalBytes = memoryManager.getTotalBytes();
+		
+		for (int i = 0; i < addresses.length; i += 2) {
+			memoryManager.free(addresses[i]);
+		}
+		assertEquals(100 + 1, memoryManager.getFreeBlocks()); // every other block + the remaining free block of the buffer
+		
+		for (int i = 0; i < addresses.length; i += 2) {
+			long address = memoryManager.allocate(4 + i % 40);
+			assertEquals(4 + i % 40, memoryManager.read(address).length);
+		}
+		assertEquals(1, memoryManager.getFreeBlocks()); // all freed blocks reused
+		assertEquals(totalBytes, memoryManager.getTotalBytes()); // no new buffer
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		final MemoryMappedFileManager memoryManager = new MemoryMappedFileManager(1000);
+		
+		final int blockCount = 1000;
+		final long[] addresses = new long[blockCount];
+		for (int i = 0; i < blockCount; i++) {
+			addresses[i] = memoryManager.allocate(createBlockData(i));
+		}
+		
+		final int threadCount = 8;
+		final int readCount = 20000;
+		List<Callable<Void>> readers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threadCount; i++) {
+			final Random random = new Random(i);
+			readers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < readCount; j++) {
+						int index = random.nextInt(blockCount);
+						byte[] expected = createBlockData(index);
+						byte[] data = memoryManager.read(addresses[index]); // might be longer because of the allowed block oversize
+						assertArrayEquals(expected, Arrays.copyOf(data, expected.length));
+					}
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (Future<Void> future : executor.invokeAll(readers)) {
+				future.get(); // rethrows the failure of a reader
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	private static byte[] createBlockData(int index) {
+		byte[] data = new byte[4 + index % 100];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (index + i);
+		}
+		return data;
+	}
+
 	@Test
 	public void testFragmentation() {
 		Random random = new Random(1234);
@@ -0,0 +1,113 @@
+package ch.obermuhlner.jhuge.memory;
+
+import static ch.obermuhlner.jhuge.converter.AbstractSerializableConverterTest.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link StripedMemoryManager}.
+ */
+@SuppressWarnings("javadoc")
+public class StripedMemoryManagerTest extends AbstractMemoryManagerTest {
+
+	@Override
+	protected MemoryManager createMemoryManager() {
+		return new StripedMemoryManager(4, 1000, MemoryMappedFileManager.NO_BLOCK_SIZE);
+	}
+
+	@Test
+	public void testArenaCount() {
+		assertEquals(3, new StripedMemoryManager(3).getArenaCount());
+		assertEquals(Runtime.getRuntime().availableProcessors(), new StripedMemoryManager().getArenaCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoArenas() {
+		new StripedMemoryManager(new MemoryManager[0]);
+	}
+
+	@Test
+	public void testArenaMemoryManager() {
+		DummyMemoryManager arena1 = new DummyMemoryManager();
+		DummyMemoryManager arena2 = new DummyMemoryManager();
+		StripedMemoryManager memoryManager = new StripedMemoryManager(arena1, arena2);
+
+		long address = memoryManager.allocate(new byte[] { 1, 2, 3 });
+		MemoryManager arena = memoryManager.getArenaMemoryManager(address);
+		assertEquals(true, arena == arena1 || arena == arena2);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, memoryManager.read(address));
+		
+		memoryManager.free(address);
+		memoryManager.reset();
+	}
+
+	@Test
+	public void testConcurrentAllocateAndFree() throws Exception {
+		final StripedMemoryManager memoryManager = new StripedMemoryManager(3, 1000, MemoryMappedFileManager.NO_BLOCK_SIZE);
+		
+		// blocks allocated by one thread are often freed by another thread
+		final ConcurrentLinkedQueue<long[]> sharedBlocks = new ConcurrentLinkedQueue<long[]>();
+
+		final int threadCount = 8;
+		final int stepCount = 20000;
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threadCount; i++) {
+			final Random random = new Random(i);
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < stepCount; j++) {
+						if (random.nextBoolean()) {
+							int value = random.nextInt(1000);
+							long address = memoryManager.allocate(createBlockData(value));
+							sharedBlocks.add(new long[] { address, value });
+						} else {
+							long[] block = sharedBlocks.poll();
+							if (block != null) {
+								byte[] expected = createBlockData((int) block[1]);
+								byte[] data = memoryManager.read(block[0]); // might be longer because of the allowed block oversize
+								assertArrayEquals(expected, Arrays.copyOf(data, expected.length));
+								memoryManager.free(block[0]);
+							}
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (Future<Void> future : executor.invokeAll(workers)) {
+				future.get(); // rethrows the failure of a worker
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		for (long[] block : sharedBlocks) {
+			byte[] expected = createBlockData((int) block[1]);
+			assertArrayEquals(expected, Arrays.copyOf(memoryManager.read(block[0]), expected.length));
+			memoryManager.free(block[0]);
+		}
+	}
+
+	private static byte[] createBlockData(int value) {
+		byte[] data = new byte[4 + value % 100];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (value + i);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,138 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.util.NoSuchElementException;
+
+import ch.obermuhlner.jhuge.collection.internal.IntIterator;
+import ch.obermuhlner.jhuge.collection.internal.IntLongArrayMap;
+
+/**
+ * Abstract base class for a {@link SplittableIterator} over the elements stored in the addresses of an {@link IntLongArrayMap}.
+ *
+ * <p>The iterator covers a range of slots of the {@link IntLongArrayMap} and splits by halving the range of slots.
+ * Splitting is only possible before the iteration has started.</p>
+ *
+ * @param <E> the type of elements
+ */
+abstract class AbstractHashSlotSplittableIterator<E> implements SplittableIterator<E> {
+
+	private final IntLongArrayMap hashCodeMap;
+
+	private final int totalSize;
+
+	private final int totalSlotCount;
+
+	private int fromSlot;
+
+	private final int toSlot;
+
+	private IntIterator hashCodeMapIterator;
+
+	private long[] currentAddresses;
+
+	private int currentSize;
+
+	private int currentIndex;
+
+	/**
+	 * Constructs a {@link AbstractHashSlotSplittableIterator}.
+	 *
+	 * @param hashCodeMap the {@link IntLongArrayMap} containing the addresses of the elements
+	 * @param totalSize the total number of elements in the {@link IntLongArrayMap}
+	 * @param fromSlot the first slot (inclusive)
+	 * @param toSlot the last slot (exclusive)
+	 */
+	protected AbstractHashSlotSplittableIterator(IntLongArrayMap hashCodeMap, int totalSize, int fromSlot, int toSlot) {
+		this.hashCodeMap = hashCodeMap;
+		this.totalSize = totalSize;
+		this.totalSlotCount = hashCodeMap.slotCount();
+		this.fromSlot = fromSlot;
+		this.toSlot = toSlot;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return advance();
+	}
+
+	@Override
+	public E next() {
+		if (!advance()) {
+			throw new NoSuchElementException();
+		}
+		return readElement(currentAddresses[currentIndex++]);
+	}
+
+	private boolean advance() {
+		if (hashCodeMapIterator == null) {
+			hashCodeMapIterator = hashCodeMap.keySet(fromSlot, toSlot);
+		}
+		while (currentIndex >= currentSize) {
+			if (!hashCodeMapIterator.hasNext()) {
+				return false;
+			}
+			currentAddresses = hashCodeMap.get(hashCodeMapIterator.next());
+			currentSize = size(currentAddresses);
+			currentIndex = 0;
+		}
+		return true;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public SplittableIterator<E> trySplit() {
+		if (hashCodeMapIterator != null || toSlot - fromSlot < 2) {
+			return null;
+		}
+		int middleSlot = (fromSlot + toSlot) >>> 1;
+		SplittableIterator<E> result = createSplit(fromSlot, middleSlot);
+		fromSlot = middleSlot;
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The estimate assumes that the elements are evenly distributed over the slots.</p>
+	 */
+	@Override
+	public long estimateSize() {
+		if (totalSlotCount == 0) {
+			return 0;
+		}
+		return (long) totalSize * (toSlot - fromSlot) / totalSlotCount;
+	}
+
+	@Override
+	public boolean isSized() {
+		return false;
+	}
+
+	/**
+	 * Returns the number of valid addresses in the specified array of addresses.
+	 *
+	 * @param addresses the addresses stored in a slot
+	 * @return the number of valid addresses
+	 */
+	protected abstract int size(long[] addresses);
+
+	/**
+	 * Reads the element at the specified address.
+	 *
+	 * @param address the address of the element
+	 * @return the element
+	 */
+	protected abstract E readElement(long address);
+
+	/**
+	 * Creates a new iterator over the specified range of slots.
+	 *
+	 * @param fromSlot the first slot (inclusive)
+	 * @param toSlot the last slot (exclusive)
+	 * @return the created {@link SplittableIterator}
+	 */
+	protected abstract SplittableIterator<E> createSplit(int fromSlot, int toSlot);
+}
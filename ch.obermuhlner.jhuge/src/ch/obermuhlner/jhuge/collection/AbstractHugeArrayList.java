@@ -1,12 +1,18 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.nio.ByteBuffer;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+import ch.obermuhlner.jhuge.collection.internal.ChunkedLongArray;
 import ch.obermuhlner.jhuge.collection.internal.HugeLongArray;
 import ch.obermuhlner.jhuge.collection.internal.PrimitiveLongArray;
 import ch.obermuhlner.jhuge.collection.internal.LongArray;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
 import ch.obermuhlner.jhuge.converter.Converter;
 import ch.obermuhlner.jhuge.memory.MemoryManager;
 
@@ -17,6 +23,7 @@ import ch.obermuhlner.jhuge.memory.MemoryManager;
  * <ul>
  * <li><code>setInternal(int, E)</code></li>
  * <li><code>addInternal(int, E)</code></li>
+ * <li><code>addAllInternal(int, Collection)</code></li>
  * <li><code>removeInternal(int)</code></li>
  * <li><code>clearInternal()</code></li>
  * </ul>
@@ -30,12 +37,16 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 
 	private static final byte[] EMPTY_DATA = new byte[0];
 
+	private static final int BULK_BATCH_SIZE = 1024;
+
 	private final MemoryManager memoryManager;
 	
 	private final LongArray addresses;
 
 	private final Converter<E> converter;
 
+	private final ByteBufferConverter<E> byteBufferConverter;
+
 	/**
 	 * Constructs a {@link AbstractHugeArrayList}.
 	 * 
@@ -45,9 +56,30 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 	 * @param capacity the initial capacity
 	 */
 	protected AbstractHugeArrayList(MemoryManager memoryManager, Converter<E> converter, boolean faster, int capacity) {
+		this(memoryManager, converter, faster, false, capacity);
+	}
+
+	/**
+	 * Constructs a {@link AbstractHugeArrayList} that optionally stores the addresses of the elements in chunks.
+	 * 
+	 * <p>In chunked mode inserting and removing elements at arbitrary index positions is O(log n) instead of O(n),
+	 * but accessing an element is O(log n) instead of O(1).</p>
+	 * 
+	 * @param memoryManager the {@link MemoryManager}
+	 * @param converter the element {@link Converter}
+	 * @param faster <code>true</code> to trade memory consumption for improved performance (ignored in chunked mode)
+	 * @param chunked <code>true</code> to store the addresses of the elements in chunks
+	 * @param capacity the initial capacity
+	 */
+	protected AbstractHugeArrayList(MemoryManager memoryManager, Converter<E> converter, boolean faster, boolean chunked, int capacity) {
 		this.memoryManager = memoryManager;
 		this.converter = converter;
-		this.addresses = faster ? new PrimitiveLongArray(capacity) : new HugeLongArray(memoryManager, capacity);
+		this.byteBufferConverter = converter instanceof ByteBufferConverter ? (ByteBufferConverter<E>) converter : null;
+		if (chunked) {
+			this.addresses = new ChunkedLongArray(memoryManager);
+		} else {
+			this.addresses = faster ? new PrimitiveLongArray(capacity) : new HugeLongArray(memoryManager, capacity);
+		}
 	}
 
 	/**
@@ -68,12 +100,19 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 		return converter;
 	}
 	
+	/**
+	 * Returns whether the addresses of the elements are stored in chunks.
+	 * 
+	 * @return <code>true</code> if chunked, <code>false</code> otherwise
+	 */
+	boolean isChunked() {
+		return addresses instanceof ChunkedLongArray;
+	}
+	
 	@Override
 	public E get(int index) {
 		long address = addresses.get(index);
-		byte[] data = memoryManager.read(address);
-		E element = deserializeElement(data);
-		return element;
+		return readElement(address);
 	}
 
 	/**
@@ -92,8 +131,7 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 		long address = memoryManager.allocate(data);
 
 		long oldAddress = addresses.set(index, address);
-		byte[] oldData = memoryManager.read(oldAddress);
-		E oldElement = deserializeElement(oldData);
+		E oldElement = readElement(oldAddress);
 		memoryManager.free(oldAddress);
 		
 		return oldElement;
@@ -116,6 +154,57 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 		addresses.add(index, address);
 	}
 
+	/**
+	 * Adds all elements of the specified collection at the specified index position.
+	 * 
+	 * <p>This method has the same semantics as {@link #addAll(int, Collection)}.
+	 * Mutable subclasses can implement {@link #addAll(int, Collection)} by calling this method.</p>
+	 * <p>Immutable subclasses can call this method from the builder.</p>
+	 * 
+	 * <p>The elements are serialized and allocated in batches with a single {@link MemoryManager#allocate(byte[][])} call per batch.
+	 * Elements added at the end are registered with a single {@link LongArray#addAll(long[], int, int)} call per batch.</p>
+	 * 
+	 * @param index the index to insert the elements
+	 * @param elements the elements to insert
+	 * @return <code>true</code> if this list changed, <code>false</code> otherwise
+	 */
+	protected boolean addAllInternal(int index, Collection<? extends E> elements) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size());
+		}
+		if (elements == this) {
+			// the list grows while it is iterated
+			elements = new ArrayList<E>(this);
+		}
+
+		byte[][] batch = new byte[Math.max(1, Math.min(BULK_BATCH_SIZE, elements.size()))][];
+		int count = 0;
+		for (E element : elements) {
+			batch[count++] = serializeElement(element);
+			if (count == batch.length) {
+				index = addBatch(index, batch, count);
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			addBatch(index, batch, count);
+		}
+
+		return !elements.isEmpty();
+	}
+
+	private int addBatch(int index, byte[][] batch, int count) {
+		long[] batchAddresses = memoryManager.allocate(count == batch.length ? batch : Arrays.copyOf(batch, count));
+		if (index == addresses.size()) {
+			addresses.addAll(batchAddresses, 0, count);
+		} else {
+			for (int i = 0; i < count; i++) {
+				addresses.add(index + i, batchAddresses[i]);
+			}
+		}
+		return index + count;
+	}
+
 	/**
 	 * Removes the element at the specified index position.
 	 * 
@@ -127,10 +216,8 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 	 * @return the old element
 	 */
 	protected E removeInternal(int index) {
-		long oldAddress1 = addresses.remove(index);
-		long oldAddress = oldAddress1;
-		byte[] oldData = memoryManager.read(oldAddress);
-		E oldElement = deserializeElement(oldData);
+		long oldAddress = addresses.remove(index);
+		E oldElement = readElement(oldAddress);
 		memoryManager.free(oldAddress);
 		
 		return oldElement;
@@ -158,6 +245,20 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 		return addresses.size();
 	}
 
+	/**
+	 * Returns a {@link SplittableIterator} over the elements in this list.
+	 * 
+	 * <p>The iterator splits on ranges of the address array,
+	 * so that the split iterators can read and deserialize the elements in parallel.
+	 * The size of every split iterator is exact.
+	 * The list must not be modified while the iterators are used.</p>
+	 * 
+	 * @return the {@link SplittableIterator}
+	 */
+	public SplittableIterator<E> splittableIterator() {
+		return new RangeSplittableIterator(0, size());
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "{size=" + size() + "}";
@@ -167,7 +268,69 @@ public abstract class AbstractHugeArrayList<E> extends AbstractList<E> {
 		return element == null ? EMPTY_DATA : converter.serialize(element);
 	}
 
+	private E readElement(long address) {
+		if (byteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			ByteBuffer data = memoryManager.view(address);
+			return data.hasRemaining() ? byteBufferConverter.deserialize(data) : null;
+		}
+		
+		byte[] data = memoryManager.read(address);
+		return deserializeElement(data);
+	}
+
 	private E deserializeElement(byte[] data) {
 		return (data == null || data.length == 0) ? null : converter.deserialize(data);
 	}
+
+	private class RangeSplittableIterator implements SplittableIterator<E> {
+
+		private int index;
+
+		private final int endIndex;
+
+		public RangeSplittableIterator(int index, int endIndex) {
+			this.index = index;
+			this.endIndex = endIndex;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < endIndex;
+		}
+
+		@Override
+		public E next() {
+			if (index >= endIndex) {
+				throw new NoSuchElementException();
+			}
+			return readElement(addresses.get(index++));
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public SplittableIterator<E> trySplit() {
+			if (endIndex - index < 2) {
+				return null;
+			}
+			int middleIndex = (index + endIndex) >>> 1;
+			SplittableIterator<E> result = new RangeSplittableIterator(index, middleIndex);
+			index = middleIndex;
+			return result;
+		}
+
+		@Override
+		public long estimateSize() {
+			return endIndex - index;
+		}
+
+		@Override
+		public boolean isSized() {
+			return true;
+		}
+	}
 }
@@ -1,16 +1,22 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
-import ch.obermuhlner.jhuge.collection.internal.HugeIntLongArrayMap;
+import ch.obermuhlner.jhuge.collection.internal.HashChain;
+import ch.obermuhlner.jhuge.collection.internal.HugeOpenAddressingIntLongArrayMap;
 import ch.obermuhlner.jhuge.collection.internal.IntIterator;
 import ch.obermuhlner.jhuge.collection.internal.IntLongArrayMap;
-import ch.obermuhlner.jhuge.collection.internal.PrimitiveIntLongArrayMap;
+import ch.obermuhlner.jhuge.collection.internal.PrimitiveOpenAddressingIntLongArrayMap;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
+import ch.obermuhlner.jhuge.converter.CanonicalConverter;
 import ch.obermuhlner.jhuge.converter.Converter;
 import ch.obermuhlner.jhuge.memory.MemoryManager;
 
@@ -20,12 +26,23 @@ import ch.obermuhlner.jhuge.memory.MemoryManager;
  * <p>The mutating operations are implemented as protected methods with the suffix "Internal".</p>
  * <ul>
  * <li><code>putInternal(K, V)</code></li>
+ * <li><code>putAllInternal(Map)</code></li>
+ * <li><code>removeInternal(Object)</code></li>
  * <li><code>clearInternal()</code></li>
  * </ul>
  * 
  * <p>Immutable concrete subclasses can call these internal methods to implement a builder.</p>
  * <p>Mutable concrete subclasses can implement the equivalent public methods by calling the internal methods.</p>
  * 
+ * <p>Every key/value pair is stored in a single memory block:
+ * an <code>int</code> header with the length of the serialized key, followed by the serialized key and the serialized value.
+ * The highest bit of the header is set if the value is <code>null</code>.</p>
+ * <p>Subclasses can reserve <code>long</code> links between the header and the serialized key
+ * (for example to thread the entries into a linked list) and are notified about added, moved, accessed and removed entries.</p>
+ * <p>The entries are grouped by the hash code of their keys.
+ * If several keys have the same hash code, a {@link HashChain fingerprint} of every serialized key is stored next to the address of its entry,
+ * so that keys with a canonical serialized form are compared only with the entries that have the same fingerprint.</p>
+ * 
  * @param <K> the type of keys
  * @param <V> the type of values
  */
@@ -33,11 +50,28 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 
 	private static final byte[] EMPTY_DATA = new byte[0];
 
+	private static final int ENTRY_HEADER_SIZE = 4;
+
+	private static final int NULL_VALUE_FLAG = 0x80000000;
+
+	private static final long NO_ADDRESS = -1;
+
+	private static final int BULK_BATCH_SIZE = 1024;
+
 	private final MemoryManager memoryManager;
 	private final Converter<K> keyConverter;
 	private final Converter<V> valueConverter;
+	private final ByteBufferConverter<K> keyByteBufferConverter;
+	private final CanonicalConverter<K> keyCanonicalConverter;
+	private final ByteBufferConverter<V> valueByteBufferConverter;
 
 	private final IntLongArrayMap hashCodeMap;
+	
+	private final int entryLinkCount;
+	
+	private final int keyOffset;
+	
+	private int size;
 
 	/**
 	 * Constructs an {@link AbstractHugeHashMap}.
@@ -49,11 +83,31 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 	 * @param capacity the initial capacity
 	 */
 	protected AbstractHugeHashMap(MemoryManager memoryManager, Converter<K> keyConverter, Converter<V> valueConverter, boolean faster, int capacity) {
+		this(memoryManager, keyConverter, valueConverter, faster, capacity, 0);
+	}
+	
+	/**
+	 * Constructs an {@link AbstractHugeHashMap} that reserves links in every entry.
+	 * 
+	 * @param memoryManager the {@link MemoryManager}
+	 * @param keyConverter the key {@link Converter}
+	 * @param valueConverter the value {@link Converter}
+	 * @param faster <code>true</code> to trade memory consumption for improved performance
+	 * @param capacity the initial capacity
+	 * @param entryLinkCount the number of <code>long</code> links to reserve in every entry, see {@link #getEntryLink(long, int)}
+	 */
+	protected AbstractHugeHashMap(MemoryManager memoryManager, Converter<K> keyConverter, Converter<V> valueConverter, boolean faster, int capacity, int entryLinkCount) {
 		this.memoryManager = memoryManager;
 		this.keyConverter = keyConverter;
 		this.valueConverter = valueConverter;
+		this.keyByteBufferConverter = keyConverter instanceof ByteBufferConverter ? (ByteBufferConverter<K>) keyConverter : null;
+		this.keyCanonicalConverter = keyConverter instanceof CanonicalConverter ? (CanonicalConverter<K>) keyConverter : null;
+		this.valueByteBufferConverter = valueConverter instanceof ByteBufferConverter ? (ByteBufferConverter<V>) valueConverter : null;
+		
+		this.entryLinkCount = entryLinkCount;
+		this.keyOffset = ENTRY_HEADER_SIZE + entryLinkCount * 8;
 		
-		hashCodeMap = faster ? new PrimitiveIntLongArrayMap(capacity) : new HugeIntLongArrayMap(memoryManager, capacity);
+		hashCodeMap = faster ? new PrimitiveOpenAddressingIntLongArrayMap(capacity, 1) : new HugeOpenAddressingIntLongArrayMap(memoryManager, capacity, 1);
 	}
 	
 	/**
@@ -87,38 +141,30 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 	public V get(Object key) {
 		int hashCode = hashCode(key);
 		
-		long[] keyValueAddresses = hashCodeMap.get(hashCode);
-		if (keyValueAddresses == null) {
+		long[] entryAddresses = hashCodeMap.get(hashCode);
+		if (entryAddresses == null) {
 			return null;
 		}
 		
-		for (int i = 0; i < keyValueAddresses.length; i+=2) {
-			K matchingKey = getKey(keyValueAddresses[i + 0]);
-			if (key == null ? matchingKey == null : key.equals(matchingKey)) {
-				return getValue(keyValueAddresses[i + 1]);
-			}
+		int index = findEntry(entryAddresses, key, serializeCanonicalKey(key));
+		if (index < 0) {
+			return null;
 		}
 		
-		return null;
+		entryAccessed(entryAddresses[index]);
+		return getValue(memoryManager.view(entryAddresses[index]));
 	}
 	
 	@Override
 	public boolean containsKey(Object key) {
 		int hashCode = hashCode(key);
 		
-		long[] keyValueAddresses = hashCodeMap.get(hashCode);
-		if (keyValueAddresses == null) {
+		long[] entryAddresses = hashCodeMap.get(hashCode);
+		if (entryAddresses == null) {
 			return false;
 		}
 
-		for (int i = 0; i < keyValueAddresses.length; i+=2) {
-			K matchingKey = getKey(keyValueAddresses[i + 0]);
-			if (key == null ? matchingKey == null : key.equals(matchingKey)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return findEntry(entryAddresses, key, serializeCanonicalKey(key)) >= 0;
 	}
 
 	@Override
@@ -126,21 +172,182 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 		return getClass().getSimpleName() + "{size=" + size() + ", table=" + hashCodeMap + "}";
 	}
 	
-	private K getKey(long address) {
-		byte[] data = memoryManager.read(address);
-		K key = deserializeKey(data);
-		return key;
+	private boolean isCanonicalKey(Object key) {
+		return key == null || (keyCanonicalConverter != null && keyCanonicalConverter.isCanonical(key));
+	}
+	
+	/**
+	 * Serializes a key to compare it with the serialized keys of the entries.
+	 * 
+	 * @param key the key
+	 * @return the canonical serialized key, or <code>null</code> if the key must be compared with {@link Object#equals(Object)}
+	 */
+	@SuppressWarnings("unchecked")
+	private byte[] serializeCanonicalKey(Object key) {
+		return isCanonicalKey(key) ? serializeKey((K) key) : null;
+	}
+	
+	/**
+	 * Finds the entry with the specified key in a chain of entries with the same hash code.
+	 * 
+	 * <p>If the canonical serialized key is known and the chain has fingerprints,
+	 * only the entries with the same fingerprint are compared.</p>
+	 * 
+	 * @param entryAddresses the chain of entry addresses
+	 * @param key the key
+	 * @param keyData the canonical serialized key, or <code>null</code> to compare the keys with {@link Object#equals(Object)}
+	 * @return the index of the entry in the chain, or -1 if not found
+	 */
+	private int findEntry(long[] entryAddresses, Object key, byte[] keyData) {
+		boolean useFingerprints = keyData != null && HashChain.hasFingerprints(entryAddresses);
+		int fingerprint = useFingerprints ? HashChain.fingerprint(keyData) : 0;
+		
+		int chainSize = HashChain.size(entryAddresses);
+		for (int i = 0; i < chainSize; i++) {
+			if (useFingerprints && HashChain.fingerprint(entryAddresses, i) != fingerprint) {
+				continue;
+			}
+			if (matchesKey(memoryManager.view(entryAddresses[i]), key, keyData)) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Returns whether the key of an entry matches the specified key.
+	 * 
+	 * <p>If the canonical serialized key is known the serialized keys are compared, otherwise the key of the entry is deserialized.</p>
+	 * 
+	 * @param entry the {@link MemoryManager#view(long) view} of the entry block
+	 * @param key the key
+	 * @param keyData the canonical serialized key, or <code>null</code> to compare the keys with {@link Object#equals(Object)}
+	 * @return <code>true</code> if the keys match, <code>false</code> otherwise
+	 */
+	private boolean matchesKey(ByteBuffer entry, Object key, byte[] keyData) {
+		if (keyData != null) {
+			if ((entry.getInt(0) & ~NULL_VALUE_FLAG) != keyData.length) {
+				return false;
+			}
+			for (int i = 0; i < keyData.length; i++) {
+				if (entry.get(keyOffset + i) != keyData[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		K entryKey = getKey(entry);
+		return key == null ? entryKey == null : key.equals(entryKey);
 	}
 	
-	private V getValue(long address) {
-		byte[] data = memoryManager.read(address);
-		V value = deserializeValue(data);
-		return value;
+	/**
+	 * Deserializes the key of an entry.
+	 * 
+	 * @param entry the {@link MemoryManager#view(long) view} of the entry block
+	 * @return the key
+	 */
+	private K getKey(ByteBuffer entry) {
+		int keyLength = entry.getInt(0) & ~NULL_VALUE_FLAG;
+		if (keyLength == 0) {
+			return null;
+		}
+		
+		ByteBuffer keyBuffer = entry.duplicate();
+		keyBuffer.position(keyOffset);
+		keyBuffer.limit(keyOffset + keyLength);
+		if (keyByteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			return keyByteBufferConverter.deserialize(keyBuffer);
+		}
+		
+		byte[] data = new byte[keyLength];
+		keyBuffer.get(data);
+		return keyConverter.deserialize(data);
+	}
+	
+	/**
+	 * Deserializes the value of an entry.
+	 * 
+	 * @param entry the {@link MemoryManager#view(long) view} of the entry block
+	 * @return the value
+	 */
+	private V getValue(ByteBuffer entry) {
+		int header = entry.getInt(0);
+		if ((header & NULL_VALUE_FLAG) != 0) {
+			return null;
+		}
+		
+		ByteBuffer valueBuffer = entry.duplicate();
+		valueBuffer.position(keyOffset + header);
+		if (valueByteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			return valueByteBufferConverter.deserialize(valueBuffer);
+		}
+		
+		byte[] data = new byte[valueBuffer.remaining()];
+		valueBuffer.get(data);
+		return valueConverter.deserialize(data);
+	}
+	
+	@Override
+	public int size() {
+		return size;
 	}
 	
 	@Override
 	public boolean isEmpty() {
-		return hashCodeMap.size() == 0;
+		return size == 0;
+	}
+
+	/**
+	 * Returns a {@link SplittableIterator} over the entries in this map.
+	 * 
+	 * <p>The iterator splits on ranges of hash table slots,
+	 * so that the split iterators can read and deserialize the entries in parallel.
+	 * The entries are returned in no particular order and are immutable.
+	 * The map must not be modified while the iterators are used.</p>
+	 * 
+	 * @return the {@link SplittableIterator}
+	 */
+	public SplittableIterator<Entry<K, V>> splittableEntryIterator() {
+		return new SlotSplittableEntryIterator(0, hashCodeMap.slotCount());
+	}
+	
+	/**
+	 * Returns the number of hash buckets that can be copied efficiently with {@link #hashBucketEntries(int, int, int)}.
+	 * 
+	 * @return the number of hash buckets, a power of 2
+	 */
+	int hashBucketCount() {
+		return hashCodeMap.hashBucketCount();
+	}
+	
+	/**
+	 * Copies the entries in the specified range of hash buckets.
+	 * 
+	 * <p>The bucket of an entry only depends on the hash code of its key,
+	 * so copying consecutive bucket ranges returns every entry that stays in the map exactly once, even if the map grows in between.</p>
+	 * <p>The entries are immutable.</p>
+	 * 
+	 * @param bucketCount the number of buckets, a power of 2
+	 * @param fromBucket the first bucket (inclusive)
+	 * @param toBucket the last bucket (exclusive)
+	 * @return the list of copied entries
+	 */
+	List<Entry<K, V>> hashBucketEntries(int bucketCount, int fromBucket, int toBucket) {
+		List<Entry<K, V>> result = new ArrayList<Entry<K, V>>();
+		IntIterator hashCodeMapIterator = hashCodeMap.hashBucketKeySet(bucketCount, fromBucket, toBucket);
+		while (hashCodeMapIterator.hasNext()) {
+			long[] entryAddresses = hashCodeMap.get(hashCodeMapIterator.next());
+			int chainSize = HashChain.size(entryAddresses);
+			for (int i = 0; i < chainSize; i++) {
+				ByteBuffer entryData = memoryManager.view(entryAddresses[i]);
+				result.add(new SimpleImmutableEntry<K, V>(getKey(entryData), getValue(entryData)));
+			}
+		}
+		return result;
 	}
 	
 	/**
@@ -155,41 +362,242 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 	 * @return the old value, or <code>null</code> if none
 	 */
 	protected V putInternal(K key, V value) {
+		return putEntry(key, value, serializeKey(key), serializeValue(value), NO_ADDRESS);
+	}
+
+	/**
+	 * Puts all key/value pairs of the specified map.
+	 * 
+	 * <p>This method has the same semantics as {@link #putAll(Map)}.
+	 * Mutable subclasses can implement {@link #putAll(Map)} by calling this method.</p>
+	 * <p>Immutable subclasses can call this method from the builder.</p>
+	 * 
+	 * <p>The hash table is grown at most once for all key/value pairs.
+	 * The entries are serialized and allocated in batches with a single {@link MemoryManager#allocate(byte[][])} call per batch,
+	 * the memory blocks of entries that only replace the value of an existing entry in place are freed again.</p>
+	 * 
+	 * @param map the key/value pairs to put
+	 */
+	protected void putAllInternal(Map<? extends K, ? extends V> map) {
+		if (map == this) {
+			return;
+		}
+
+		hashCodeMap.ensureCapacity(hashCodeMap.size() + map.size());
+
+		List<Entry<? extends K, ? extends V>> batch = new ArrayList<Entry<? extends K, ? extends V>>(Math.min(BULK_BATCH_SIZE, map.size()));
+		for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			batch.add(entry);
+			if (batch.size() == BULK_BATCH_SIZE) {
+				putBatch(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			putBatch(batch);
+		}
+	}
+
+	private void putBatch(List<Entry<? extends K, ? extends V>> batch) {
+		byte[][] keyData = new byte[batch.size()][];
+		byte[][] valueData = new byte[batch.size()][];
+		byte[][] data = new byte[batch.size()][];
+		for (int i = 0; i < data.length; i++) {
+			Entry<? extends K, ? extends V> entry = batch.get(i);
+			keyData[i] = serializeKey(entry.getKey());
+			valueData[i] = serializeValue(entry.getValue());
+			data[i] = entryData(keyData[i], valueData[i]);
+		}
+		long[] batchAddresses = memoryManager.allocate(data);
+
+		for (int i = 0; i < data.length; i++) {
+			Entry<? extends K, ? extends V> entry = batch.get(i);
+			putEntry(entry.getKey(), entry.getValue(), keyData[i], valueData[i], batchAddresses[i]);
+		}
+	}
+
+	/**
+	 * Puts a key/value pair.
+	 * 
+	 * @param key the key to add
+	 * @param value the value to add
+	 * @param keyData the serialized key
+	 * @param valueData the serialized value
+	 * @param preallocatedAddress the address of the memory block already containing the serialized entry, or {@link #NO_ADDRESS} to allocate it if necessary
+	 * @return the old value, or <code>null</code> if none
+	 */
+	private V putEntry(K key, V value, byte[] keyData, byte[] valueData, long preallocatedAddress) {
 		int hashCode = hashCode(key);
-		byte[] keyData = serializeKey(key);
-		byte[] valueData = serializeValue(value);
 		
-		long[] keyValueAddresses = hashCodeMap.get(hashCode);
-		if (keyValueAddresses == null) {
-			long keyAddress = memoryManager.allocate(keyData);
-			long valueAddress = memoryManager.allocate(valueData);
-			
-			keyValueAddresses = new long[2];
-			keyValueAddresses[0] = keyAddress; 
-			keyValueAddresses[1] = valueAddress;
-			hashCodeMap.put(hashCode, keyValueAddresses);
+		long[] entryAddresses = hashCodeMap.get(hashCode);
+		if (entryAddresses == null) {
+			long entryAddress = preallocatedAddress != NO_ADDRESS ? preallocatedAddress : allocateEntry(keyData, valueData);
+			hashCodeMap.put(hashCode, new long[] { entryAddress });
+			size++;
+			entryAdded(entryAddress);
 			return null;
+		}
+		
+		int index = findEntry(entryAddresses, key, isCanonicalKey(key) ? keyData : null);
+		if (index >= 0) {
+			V oldValue = getValue(memoryManager.view(entryAddresses[index]));
+			replaceValue(hashCode, entryAddresses, index, valueData, preallocatedAddress);
+			entryAccessed(entryAddresses[index]);
+			return oldValue;
+		}
+		
+		long entryAddress = preallocatedAddress != NO_ADDRESS ? preallocatedAddress : allocateEntry(keyData, valueData);
+		int fingerprint = HashChain.fingerprint(keyData);
+		if (HashChain.hasFingerprints(entryAddresses)) {
+			hashCodeMap.put(hashCode, HashChain.append(entryAddresses, entryAddress, fingerprint));
 		} else {
-			for (int i = 0; i < keyValueAddresses.length; i+=2) {
-				byte[] oldKeyData = memoryManager.read(keyValueAddresses[i+0]);
-				K oldKey = deserializeKey(oldKeyData);
-				if (key == null ? oldKey == null : key.equals(oldKey)) {
-					byte[] oldValueData = memoryManager.read(keyValueAddresses[i+1]);
-					V oldValue = deserializeValue(oldValueData);
-					memoryManager.free(keyValueAddresses[i+1]);
-					long valueAddress = memoryManager.allocate(valueData);
-					keyValueAddresses[i+1] = valueAddress;
-					hashCodeMap.put(hashCode, keyValueAddresses);
-					return oldValue;
-				}
+			// first collision - the fingerprint of the existing entry was not stored yet
+			long existingAddress = entryAddresses[0];
+			hashCodeMap.put(hashCode, HashChain.create(existingAddress, keyFingerprint(existingAddress), entryAddress, fingerprint));
+		}
+		size++;
+		entryAdded(entryAddress);
+		return null;
+	}
+	
+	/**
+	 * Replaces the value of the key/value pair with the specified key, if the key is present.
+	 * 
+	 * <p>Other than {@link #putInternal(Object, Object)} this never adds a key/value pair
+	 * and does not call {@link #entryAccessed(long)}.</p>
+	 * 
+	 * @param key the key
+	 * @param value the new value
+	 * @return the old value, or <code>null</code> if none
+	 */
+	protected V replaceInternal(K key, V value) {
+		int hashCode = hashCode(key);
+		
+		long[] entryAddresses = hashCodeMap.get(hashCode);
+		if (entryAddresses == null) {
+			return null;
+		}
+		
+		int index = findEntry(entryAddresses, key, serializeCanonicalKey(key));
+		if (index < 0) {
+			return null;
+		}
+		
+		V oldValue = getValue(memoryManager.view(entryAddresses[index]));
+		replaceValue(hashCode, entryAddresses, index, serializeValue(value), NO_ADDRESS);
+		return oldValue;
+	}
+	
+	/**
+	 * Replaces the value of an existing entry.
+	 * 
+	 * <p>The stored key is kept, like {@link HashMap} keeps the original key.
+	 * An equal key may serialize to a different length, so the key length is taken from the header of the stored entry.</p>
+	 * 
+	 * @param hashCode the hash code of the key
+	 * @param entryAddresses the chain of entry addresses
+	 * @param index the index of the entry in the chain
+	 * @param valueData the serialized value
+	 * @param preallocatedAddress the address of a memory block already allocated for the new entry, or {@link #NO_ADDRESS}
+	 */
+	private void replaceValue(int hashCode, long[] entryAddresses, int index, byte[] valueData, long preallocatedAddress) {
+		long oldEntryAddress = entryAddresses[index];
+		ByteBuffer entry = memoryManager.view(oldEntryAddress);
+		int keyLength = entry.getInt(0) & ~NULL_VALUE_FLAG;
+		int valueOffset = keyOffset + keyLength;
+		if (entry.remaining() == valueOffset + valueData.length) {
+			// same length - overwrite the value in place
+			memoryManager.writeInt(oldEntryAddress, 0, entryHeader(keyLength, valueData));
+			memoryManager.write(oldEntryAddress, valueOffset, valueData, valueData.length);
+			if (preallocatedAddress != NO_ADDRESS) {
+				memoryManager.free(preallocatedAddress);
 			}
-			
-			long keyAddress = memoryManager.allocate(keyData);
-			long valueAddress = memoryManager.allocate(valueData);
-
-			hashCodeMap.put(hashCode, append(keyValueAddresses, keyAddress, valueAddress));
+			return;
+		}
+		
+		// copy the links and the stored key - the fingerprint of the key stays the same
+		byte[] data = new byte[valueOffset + valueData.length];
+		memoryManager.read(oldEntryAddress, 0, data, valueOffset);
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.putInt(0, entryHeader(keyLength, valueData));
+		buffer.position(valueOffset);
+		buffer.put(valueData);
+		
+		long newEntryAddress;
+		if (preallocatedAddress != NO_ADDRESS && memoryManager.view(preallocatedAddress).remaining() == data.length) {
+			newEntryAddress = preallocatedAddress;
+			memoryManager.write(newEntryAddress, 0, data, data.length);
+		} else {
+			if (preallocatedAddress != NO_ADDRESS) {
+				memoryManager.free(preallocatedAddress);
+			}
+			newEntryAddress = memoryManager.allocate(data);
+		}
+		entryMoved(oldEntryAddress, newEntryAddress);
+		memoryManager.free(oldEntryAddress);
+		entryAddresses[index] = newEntryAddress;
+		hashCodeMap.put(hashCode, entryAddresses);
+	}
+	
+	private int keyFingerprint(long entryAddress) {
+		ByteBuffer entry = memoryManager.view(entryAddress);
+		ByteBuffer keyBuffer = entry.duplicate();
+		keyBuffer.position(keyOffset);
+		keyBuffer.limit(keyOffset + (entry.getInt(0) & ~NULL_VALUE_FLAG));
+		return HashChain.fingerprint(keyBuffer);
+	}
+	
+	private long allocateEntry(byte[] keyData, byte[] valueData) {
+		return memoryManager.allocate(entryData(keyData, valueData));
+	}
+	
+	private byte[] entryData(byte[] keyData, byte[] valueData) {
+		byte[] data = new byte[keyOffset + keyData.length + valueData.length];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.putInt(entryHeader(keyData.length, valueData));
+		buffer.position(keyOffset);
+		buffer.put(keyData).put(valueData);
+		return data;
+	}
+	
+	private static int entryHeader(int keyLength, byte[] valueData) {
+		return valueData.length == 0 ? keyLength | NULL_VALUE_FLAG : keyLength;
+	}
+	
+	/**
+	 * Removes the key/value pair with the specified key.
+	 * 
+	 * <p>This method has the same semantics as {@link #remove(Object)}.
+	 * Mutable subclasses can implement {@link #remove(Object)} by calling this method.</p>
+	 * 
+	 * @param key the key to remove
+	 * @return the old value, or <code>null</code> if none
+	 */
+	protected V removeInternal(Object key) {
+		int hashCode = hashCode(key);
+		
+		long[] entryAddresses = hashCodeMap.get(hashCode);
+		if (entryAddresses == null) {
 			return null;
 		}
+		
+		int index = findEntry(entryAddresses, key, serializeCanonicalKey(key));
+		if (index < 0) {
+			return null;
+		}
+		
+		long entryAddress = entryAddresses[index];
+		V oldValue = getValue(memoryManager.view(entryAddress));
+		entryRemoved(entryAddress);
+		memoryManager.free(entryAddress);
+		
+		if (HashChain.size(entryAddresses) == 1) {
+			hashCodeMap.remove(hashCode);
+		} else {
+			hashCodeMap.put(hashCode, HashChain.remove(entryAddresses, index));
+		}
+		size--;
+		return oldValue;
 	}
 	
 	/**
@@ -204,12 +612,114 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 		while (hashCodeMapIterator.hasNext()) {
 			int key = hashCodeMapIterator.next();
 			long[] addresses = hashCodeMap.get(key);
-			for (int j = 0; j < addresses.length; j++) {
+			int chainSize = HashChain.size(addresses);
+			for (int j = 0; j < chainSize; j++) {
 				memoryManager.free(addresses[j]);
 			}
 		}
 		
 		hashCodeMap.clear();
+		size = 0;
+	}
+	
+	/**
+	 * Called after a new entry has been added.
+	 * 
+	 * <p>The default implementation does nothing.</p>
+	 * 
+	 * @param entryAddress the address of the new entry
+	 */
+	protected void entryAdded(long entryAddress) {
+		// does nothing
+	}
+	
+	/**
+	 * Called after an existing entry has been read by {@link #get(Object)} or written by {@link #putInternal(Object, Object)}.
+	 * 
+	 * <p>The default implementation does nothing.</p>
+	 * 
+	 * @param entryAddress the address of the entry
+	 */
+	protected void entryAccessed(long entryAddress) {
+		// does nothing
+	}
+	
+	/**
+	 * Called when an entry has been copied into a new memory block, because its value no longer fits into the old block.
+	 * 
+	 * <p>The links have already been copied into the new entry.
+	 * The old entry is freed after this method returns.</p>
+	 * <p>The default implementation does nothing.</p>
+	 * 
+	 * @param oldEntryAddress the old address of the entry
+	 * @param newEntryAddress the new address of the entry
+	 */
+	protected void entryMoved(long oldEntryAddress, long newEntryAddress) {
+		// does nothing
+	}
+	
+	/**
+	 * Called before an entry is removed.
+	 * 
+	 * <p>This method is not called by {@link #clearInternal()}.</p>
+	 * <p>The default implementation does nothing.</p>
+	 * 
+	 * @param entryAddress the address of the entry, which is freed after this method returns
+	 */
+	protected void entryRemoved(long entryAddress) {
+		// does nothing
+	}
+	
+	/**
+	 * Returns a link stored in an entry.
+	 * 
+	 * @param entryAddress the address of the entry
+	 * @param index the index of the link, smaller than the number of links reserved in the constructor
+	 * @return the link
+	 */
+	protected long getEntryLink(long entryAddress, int index) {
+		return memoryManager.readLong(entryAddress, ENTRY_HEADER_SIZE + index * 8);
+	}
+	
+	/**
+	 * Stores a link in an entry.
+	 * 
+	 * @param entryAddress the address of the entry
+	 * @param index the index of the link, smaller than the number of links reserved in the constructor
+	 * @param link the link to store
+	 */
+	protected void setEntryLink(long entryAddress, int index, long link) {
+		memoryManager.writeLong(entryAddress, ENTRY_HEADER_SIZE + index * 8, link);
+	}
+	
+	/**
+	 * Deserializes the key of the entry at the specified address.
+	 * 
+	 * @param entryAddress the address of the entry
+	 * @return the key
+	 */
+	protected K getEntryKey(long entryAddress) {
+		return getKey(memoryManager.view(entryAddress));
+	}
+	
+	/**
+	 * Deserializes the value of the entry at the specified address.
+	 * 
+	 * @param entryAddress the address of the entry
+	 * @return the value
+	 */
+	protected V getEntryValue(long entryAddress) {
+		return getValue(memoryManager.view(entryAddress));
+	}
+	
+	/**
+	 * Returns the number of bytes of the memory block of the entry at the specified address.
+	 * 
+	 * @param entryAddress the address of the entry
+	 * @return the number of bytes
+	 */
+	protected int getEntryByteSize(long entryAddress) {
+		return memoryManager.view(entryAddress).remaining();
 	}
 	
 	private static int hashCode(Object object) {
@@ -218,44 +728,51 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 		return h ^ (h >>> 7) ^ (h >>> 4);
 	}
 
-	private static long[] append(long[] keyValueAddresses, long keyAddress, long valueAddress) {
-		long[] result = new long[keyValueAddresses.length + 2];
-		System.arraycopy(keyValueAddresses, 0, result, 0, keyValueAddresses.length);
-		result[result.length - 2] = keyAddress;
-		result[result.length - 1] = valueAddress;
-		return result;
-	}
-	
 	private byte[] serializeKey(K key) {
 		return key == null ? EMPTY_DATA : keyConverter.serialize(key);
 	}
 
-	private K deserializeKey(byte[] data) {
-		return (data == null || data.length == 0) ? null : keyConverter.deserialize(data);
-	}
 	
 	private byte[] serializeValue(V value) {
 		return value == null ? EMPTY_DATA : valueConverter.serialize(value);
 	}
 
-	private V deserializeValue(byte[] data) {
-		return (data == null || data.length == 0) ? null : valueConverter.deserialize(data);
-	}
 	
+	private class SlotSplittableEntryIterator extends AbstractHashSlotSplittableIterator<Entry<K, V>> {
+
+		public SlotSplittableEntryIterator(int fromSlot, int toSlot) {
+			super(hashCodeMap, size, fromSlot, toSlot);
+		}
+
+		@Override
+		protected int size(long[] addresses) {
+			return HashChain.size(addresses);
+		}
+
+		@Override
+		protected Entry<K, V> readElement(long address) {
+			ByteBuffer entryData = memoryManager.view(address);
+			return new SimpleImmutableEntry<K, V>(getKey(entryData), getValue(entryData));
+		}
+
+		@Override
+		protected SplittableIterator<Entry<K, V>> createSplit(int fromSlot, int toSlot) {
+			return new SlotSplittableEntryIterator(fromSlot, toSlot);
+		}
+	}
+
 	/**
 	 * Abstract base class to simplify implementing the {@link Map#entrySet() entrySet} of an {@link AbstractHugeHashMap}.
 	 */
 	protected abstract class AbstractEntrySet extends AbstractSet<Entry<K, V>> {
 		@Override
 		public int size() {
-			int result = 0;
-			IntIterator keySet = hashCodeMap.keySet();
-			while(keySet.hasNext()) {
-				int hashCode = keySet.next();
-				long[] addresses = hashCodeMap.get(hashCode);
-				result += addresses.length / 2;
-			}
-			return result;
+			return size;
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
 		}
 	}
 	
@@ -266,35 +783,36 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 		private IntIterator hashCodeMapIterator = hashCodeMap.keySet();
 		private int currentHashCode;
 		private long[] currentAddresses;
+		private int currentSize;
 		private int currentIndex = 0;
 		
 		@Override
 		public boolean hasNext() {
-			return (currentAddresses != null && currentIndex + 2 < currentAddresses.length) || hashCodeMapIterator.hasNext();
+			return (currentAddresses != null && currentIndex + 1 < currentSize) || hashCodeMapIterator.hasNext();
 		}
 		
 		@Override
 		public Entry<K, V> next() {
-			currentIndex += 2;
-			if (currentAddresses == null || currentIndex >= currentAddresses.length) {
+			currentIndex++;
+			if (currentAddresses == null || currentIndex >= currentSize) {
 				currentIndex = 0;
 				if (hashCodeMapIterator.hasNext()) {
 					currentHashCode = hashCodeMapIterator.next();
 					currentAddresses = hashCodeMap.get(currentHashCode);
+					currentSize = HashChain.size(currentAddresses);
 				} else {
 					currentHashCode = 0;
 					currentAddresses = null;
+					currentSize = 0;
 				}
 			}
 			if (currentAddresses == null) {
 				throw new NoSuchElementException();
 			}
 			
-			long keyAddress = currentAddresses[currentIndex+0];
-			long valueAddress = currentAddresses[currentIndex+1];
-			
-			K key = getKey(keyAddress);
-			V value = getValue(valueAddress);
+			ByteBuffer entryData = memoryManager.view(currentAddresses[currentIndex]);
+			K key = getKey(entryData);
+			V value = getValue(entryData);
 			AbstractEntry entry = createEntry(key, value);
 			return entry;
 		}
@@ -320,22 +838,20 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 				throw new NoSuchElementException();
 			}
 
-			long keyAddress = currentAddresses[currentIndex+0];
-			long valueAddress = currentAddresses[currentIndex+1];
-			memoryManager.free(keyAddress);
-			memoryManager.free(valueAddress);
+			entryRemoved(currentAddresses[currentIndex]);
+			memoryManager.free(currentAddresses[currentIndex]);
+			size--;
 			
-			if (currentIndex == 0 && currentAddresses.length == 2) {
+			if (currentSize == 1) {
 				// remove entire entry
 				hashCodeMapIterator.remove();
 			} else {
-				// remove 1 pair from entry
-				long[] newKeyValueAddresses = new long[currentAddresses.length - 2];
-				System.arraycopy(currentAddresses, 0, newKeyValueAddresses, 0, currentIndex);
-				System.arraycopy(currentAddresses, currentIndex+2, newKeyValueAddresses, currentIndex, currentAddresses.length - currentIndex - 2);
-				hashCodeMap.put(currentHashCode, newKeyValueAddresses);
-				currentAddresses = newKeyValueAddresses;
-				currentIndex -= 2;
+				// remove 1 key/value pair from entry
+				long[] newEntryAddresses = HashChain.remove(currentAddresses, currentIndex);
+				hashCodeMap.put(currentHashCode, newEntryAddresses);
+				currentAddresses = newEntryAddresses;
+				currentSize--;
+				currentIndex--;
 			}
 		}
 	}
@@ -388,6 +904,24 @@ public abstract class AbstractHugeHashMap<K, V> extends AbstractMap<K, V> {
 			return oldValue;
 		}
 		
+		/**
+		 * Replaces the value of this entry in the underlying map with {@link AbstractHugeHashMap#replaceInternal(Object, Object)}.
+		 * 
+		 * <p>Other than {@link #setValueInternal(Object)} this does not go through {@link #put(Object, Object)},
+		 * so that subclasses are not notified that the entry was {@link AbstractHugeHashMap#entryAccessed(long) accessed}.</p>
+		 * 
+		 * @param value the value to set
+		 * @return the old value
+		 */
+		protected V replaceValueInternal(V value) {
+			V oldValue = this.value;
+			this.value = value;
+			
+			replaceInternal(key, value);
+			
+			return oldValue;
+		}
+		
 		@Override
 		public String toString() {
 			return key + "=" + value;
@@ -1,15 +1,21 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.nio.ByteBuffer;
 import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
-import ch.obermuhlner.jhuge.collection.internal.HugeIntLongArrayMap;
+import ch.obermuhlner.jhuge.collection.internal.HugeOpenAddressingIntLongArrayMap;
 import ch.obermuhlner.jhuge.collection.internal.IntIterator;
 import ch.obermuhlner.jhuge.collection.internal.IntLongArrayMap;
-import ch.obermuhlner.jhuge.collection.internal.PrimitiveIntLongArrayMap;
+import ch.obermuhlner.jhuge.collection.internal.PrimitiveOpenAddressingIntLongArrayMap;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
+import ch.obermuhlner.jhuge.converter.CanonicalConverter;
 import ch.obermuhlner.jhuge.converter.Converter;
 import ch.obermuhlner.jhuge.memory.MemoryManager;
 
@@ -19,6 +25,7 @@ import ch.obermuhlner.jhuge.memory.MemoryManager;
  * <p>The mutating operations are implemented as protected methods with the suffix "Internal".</p>
  * <ul>
  * <li><code>addInternal(E)</code></li>
+ * <li><code>addAllInternal(Collection)</code></li>
  * <li><code>removeInternal(Object)</code></li>
  * <li><code>clearInternal()</code></li>
  * </ul>
@@ -32,10 +39,18 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 
 	private static final byte[] EMPTY_DATA = new byte[0];
 
+	private static final long NO_ADDRESS = -1;
+
+	private static final int BULK_BATCH_SIZE = 1024;
+
 	private final MemoryManager memoryManager;
 	private final Converter<E> converter;
+	private final ByteBufferConverter<E> byteBufferConverter;
+	private final CanonicalConverter<E> canonicalConverter;
 	
 	private final IntLongArrayMap hashCodeMap;
+	
+	private int size;
 
 	/**
 	 * Constructs a {@link AbstractHugeHashSet}.
@@ -48,8 +63,10 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 	protected AbstractHugeHashSet(MemoryManager memoryManager, Converter<E> converter, boolean faster, int capacity) {
 		this.memoryManager = memoryManager;
 		this.converter = converter;
+		this.byteBufferConverter = converter instanceof ByteBufferConverter ? (ByteBufferConverter<E>) converter : null;
+		this.canonicalConverter = converter instanceof CanonicalConverter ? (CanonicalConverter<E>) converter : null;
 		
-		hashCodeMap = faster ? new PrimitiveIntLongArrayMap(capacity) : new HugeIntLongArrayMap(memoryManager, capacity);
+		hashCodeMap = faster ? new PrimitiveOpenAddressingIntLongArrayMap(capacity, 1) : new HugeOpenAddressingIntLongArrayMap(memoryManager, capacity, 1);
 	}
 
 	/**
@@ -79,9 +96,9 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 			return false;
 			
 		} else {
+			byte[] elementData = serializeCanonicalElement(element);
 			for (int i = 0; i < addresses.length; i++) {
-				E oldElement = readElement(addresses[i]);
-				if (element == null ? oldElement == null : element.equals(oldElement)) {
+				if (matchesElement(addresses[i], element, elementData)) {
 					return true;
 				}
 			}
@@ -100,27 +117,98 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 	 * @return <code>true</code> if the element was added, <code>false</code> otherwise 
 	 */
 	protected boolean addInternal(E element) {
+		return addElement(element, NO_ADDRESS);
+	}
+
+	/**
+	 * Adds all elements of the specified collection.
+	 * 
+	 * <p>This method has the same semantics as {@link #addAll(Collection)}.
+	 * Mutable subclasses can implement {@link #addAll(Collection)} by calling this method.</p>
+	 * <p>Immutable subclasses can call this method from the builder.</p>
+	 * 
+	 * <p>The hash table is grown at most once for all elements.
+	 * The elements are serialized and allocated in batches with a single {@link MemoryManager#allocate(byte[][])} call per batch,
+	 * the memory blocks of elements that are already contained are freed again.</p>
+	 * 
+	 * @param elements the elements to add
+	 * @return <code>true</code> if this set changed, <code>false</code> otherwise
+	 */
+	protected boolean addAllInternal(Collection<? extends E> elements) {
+		if (elements == this) {
+			return false;
+		}
+
+		hashCodeMap.ensureCapacity(hashCodeMap.size() + elements.size());
+
+		boolean changed = false;
+		List<E> batch = new ArrayList<E>(Math.min(BULK_BATCH_SIZE, elements.size()));
+		for (E element : elements) {
+			batch.add(element);
+			if (batch.size() == BULK_BATCH_SIZE) {
+				changed |= addBatch(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			changed |= addBatch(batch);
+		}
+		return changed;
+	}
+
+	private boolean addBatch(List<E> batch) {
+		byte[][] data = new byte[batch.size()][];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = serializeElement(batch.get(i));
+		}
+		long[] batchAddresses = memoryManager.allocate(data);
+
+		boolean changed = false;
+		for (int i = 0; i < data.length; i++) {
+			changed |= addElement(batch.get(i), batchAddresses[i]);
+		}
+		return changed;
+	}
+
+	/**
+	 * Adds an element.
+	 * 
+	 * @param element the element to add
+	 * @param preallocatedAddress the address of the memory block already containing the serialized element, or {@link #NO_ADDRESS} to allocate it if necessary
+	 * @return <code>true</code> if the element was added, <code>false</code> otherwise
+	 */
+	private boolean addElement(E element, long preallocatedAddress) {
 		int hashCode = hashCode(element);
 		long[] addresses = hashCodeMap.get(hashCode);
 		
 		if (addresses == null) {
-			long address = writeElement(element);
+			long address = preallocatedAddress != NO_ADDRESS ? preallocatedAddress : writeElement(element);
 			hashCodeMap.put(hashCode, new long[] { address });
+			size++;
 			return true;
 			
 		} else {
+			byte[] elementData = serializeCanonicalElement(element);
 			for (int i = 0; i < addresses.length; i++) {
-				E oldElement = readElement(addresses[i]);
-				if (element == null ? oldElement == null : element.equals(oldElement)) {
+				if (matchesElement(addresses[i], element, elementData)) {
+					if (preallocatedAddress != NO_ADDRESS) {
+						memoryManager.free(preallocatedAddress);
+					}
 					return false;
 				}
 			}
 			
-			long newAddress = writeElement(element);
+			long newAddress;
+			if (preallocatedAddress != NO_ADDRESS) {
+				newAddress = preallocatedAddress;
+			} else {
+				newAddress = elementData != null ? memoryManager.allocate(elementData) : writeElement(element);
+			}
 			long[] newAddresses = new long[addresses.length + 1];
 			System.arraycopy(addresses, 0, newAddresses, 0, addresses.length);
 			newAddresses[newAddresses.length - 1] = newAddress;
 			hashCodeMap.put(hashCode, newAddresses);
+			size++;
 			return true;
 		}
 	}
@@ -143,22 +231,23 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 			return false;
 			
 		} else if (addresses.length == 1) {
-			E oldElement = readElement(addresses[0]);
-			if (element == null ? oldElement == null : element.equals(oldElement)) {
+			if (matchesElement(addresses[0], element, serializeCanonicalElement(element))) {
 				memoryManager.free(addresses[0]);
 				hashCodeMap.remove(hashCode);
+				size--;
 				return true;
 			}
 			
 		} else {
+			byte[] elementData = serializeCanonicalElement(element);
 			for (int i = 0; i < addresses.length; i++) {
-				E oldElement = readElement(addresses[i]);
-				if (element == null ? oldElement == null : element.equals(oldElement)) {
+				if (matchesElement(addresses[i], element, elementData)) {
 					memoryManager.free(addresses[i]);
 					long[] newAddresses = new long[addresses.length - 1];
 					System.arraycopy(addresses, 0, newAddresses, 0, i);
 					System.arraycopy(addresses, i + 1, newAddresses, i, addresses.length - i - 1);
 					hashCodeMap.put(hashCode, newAddresses);
+					size--;
 					return true;
 				}
 			}
@@ -185,20 +274,30 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 		}
 
 		hashCodeMap.clear();
+		size = 0;
 	}
 	
 	@Override
 	public int size() {
-		int result = 0;
-		
-		IntIterator hashCodeMapIterator = hashCodeMap.keySet();
-		while (hashCodeMapIterator.hasNext()) {
-			int key = hashCodeMapIterator.next();
-			long[] addresses = hashCodeMap.get(key);
-			result += addresses.length;
-		}
-		
-		return result;
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns a {@link SplittableIterator} over the elements in this set.
+	 * 
+	 * <p>The iterator splits on ranges of hash table slots,
+	 * so that the split iterators can read and deserialize the elements in parallel.
+	 * The set must not be modified while the iterators are used.</p>
+	 * 
+	 * @return the {@link SplittableIterator}
+	 */
+	public SplittableIterator<E> splittableIterator() {
+		return new SlotSplittableIterator(0, hashCodeMap.slotCount());
 	}
 
 	private static int hashCode(Object object) {
@@ -207,6 +306,55 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 		return h ^ (h >>> 7) ^ (h >>> 4);
 	}
 	
+	/**
+	 * Serializes an element to compare it with the serialized elements in the memory blocks.
+	 * 
+	 * @param element the element
+	 * @return the canonical serialized element, or <code>null</code> if the element must be compared with {@link Object#equals(Object)}
+	 */
+	@SuppressWarnings("unchecked")
+	private byte[] serializeCanonicalElement(Object element) {
+		if (element == null) {
+			return EMPTY_DATA;
+		}
+		if (canonicalConverter != null && canonicalConverter.isCanonical(element)) {
+			return converter.serialize((E) element);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the element stored in a memory block matches the specified element.
+	 * 
+	 * <p>If the canonical serialized element is known the serialized elements are compared, otherwise the stored element is deserialized.
+	 * The memory block may be larger than the serialized element, but a canonical serialized form is never the prefix of another one.</p>
+	 * 
+	 * @param address the address of the memory block
+	 * @param element the element
+	 * @param elementData the canonical serialized element, or <code>null</code> to compare the elements with {@link Object#equals(Object)}
+	 * @return <code>true</code> if the elements match, <code>false</code> otherwise
+	 */
+	private boolean matchesElement(long address, Object element, byte[] elementData) {
+		if (elementData != null) {
+			ByteBuffer data = memoryManager.view(address);
+			if (elementData.length == 0) {
+				return !data.hasRemaining();
+			}
+			if (data.remaining() < elementData.length) {
+				return false;
+			}
+			for (int i = 0; i < elementData.length; i++) {
+				if (data.get(i) != elementData[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		E storedElement = readElement(address);
+		return element == null ? storedElement == null : element.equals(storedElement);
+	}
+	
 	private long writeElement(E element) {
 		byte[] data = serializeElement(element);
 		long address = memoryManager.allocate(data);
@@ -214,6 +362,12 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 	}
 	
 	private E readElement(long address) {
+		if (byteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			ByteBuffer data = memoryManager.view(address);
+			return data.hasRemaining() ? byteBufferConverter.deserialize(data) : null;
+		}
+		
 		byte[] data = memoryManager.read(address);
 		E element = deserializeElement(data);
 		return element;
@@ -226,6 +380,28 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 	private E deserializeElement(byte[] data) {
 		return (data == null || data.length == 0) ? null : converter.deserialize(data);
 	}
+
+	private class SlotSplittableIterator extends AbstractHashSlotSplittableIterator<E> {
+
+		public SlotSplittableIterator(int fromSlot, int toSlot) {
+			super(hashCodeMap, size, fromSlot, toSlot);
+		}
+
+		@Override
+		protected int size(long[] addresses) {
+			return addresses.length;
+		}
+
+		@Override
+		protected E readElement(long address) {
+			return AbstractHugeHashSet.this.readElement(address);
+		}
+
+		@Override
+		protected SplittableIterator<E> createSplit(int fromSlot, int toSlot) {
+			return new SlotSplittableIterator(fromSlot, toSlot);
+		}
+	}
 	
 	/**
 	 * Abstract base class to simplify implementing an {@link Iterator} for concrete subclasses of {@link AbstractHugeHashSet}.
@@ -280,6 +456,7 @@ public abstract class AbstractHugeHashSet<E> extends AbstractSet<E> {
 			long[] addresses = currentValue;
 			long address = addresses[currentIndex];
 			memoryManager.free(address);
+			size--;
 			
 			if (currentIndex == 0 && addresses.length == 1) {
 				// remove entire entry
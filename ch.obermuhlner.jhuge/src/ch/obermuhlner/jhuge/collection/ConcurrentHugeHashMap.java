@@ -0,0 +1,611 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeMapBuilder;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * A thread-safe {@link ConcurrentMap} that stores key/value pairs in a {@link MemoryManager}.
+ *
+ * <p>The implementation mimics a {@link ConcurrentHashMap}.
+ * The key/value pairs are distributed by the hash code of the key over several segments,
+ * every segment is a separate hash table (stored like in a {@link HugeHashMap}) protected by its own read/write lock.
+ * Any number of threads can read concurrently and threads that write into different segments do not block each other.</p>
+ *
+ * <p>The {@link MemoryManager} is shared by all segments and must be thread-safe.
+ * If no {@link MemoryManager} is specified in the {@link Builder} a {@link StripedMemoryManager} is used.</p>
+ *
+ * <p>Like {@link ConcurrentHashMap} this map does not allow <code>null</code> keys or values.</p>
+ *
+ * <p>The iterators are weakly consistent: they never throw a {@link java.util.ConcurrentModificationException}
+ * and return the key/value pairs of every range of hash codes as they were when the iterator reached the range.
+ * To do this the iterators copy the key/value pairs of a small range of hash codes at a time to the Java heap,
+ * so that iterating does not need more heap for huge maps.
+ * Since the range of a key does not depend on the size of the hash table,
+ * every key/value pair that stays in the map during the whole iteration is returned exactly once, even if the segments grow.</p>
+ *
+ * <p>Important:
+ * Changes to the keys or values outside of the huge collection are <strong>not</strong> automatically reflected by the serialized form in the collection.
+ * In this case you must replace the stored object with the modified object.</p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class ConcurrentHugeHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	/**
+	 * The default number of segments.
+	 */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/**
+	 * The number of hash buckets that an iterator copies at once.
+	 */
+	private static final int ITERATOR_BUCKET_COUNT = 256;
+
+	private final MemoryManager memoryManager;
+
+	private final Segment<K, V>[] segments;
+
+	private final int segmentMask;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private ConcurrentHugeHashMap(MemoryManager memoryManager, Converter<K> keyConverter, Converter<V> valueConverter, boolean faster, int capacity, int concurrencyLevel) {
+		this.memoryManager = memoryManager;
+
+		int segmentCount = 1;
+		while (segmentCount < concurrencyLevel) {
+			segmentCount *= 2;
+		}
+		segmentMask = segmentCount - 1;
+
+		int segmentCapacity = Math.max(1, capacity / segmentCount);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment<K, V>(memoryManager, keyConverter, valueConverter, faster, segmentCapacity);
+		}
+	}
+
+	/**
+	 * Returns the {@link MemoryManager}.
+	 *
+	 * @return the {@link MemoryManager}
+	 */
+	MemoryManager getMemoryManager() {
+		return memoryManager;
+	}
+
+	/**
+	 * Returns the number of segments.
+	 *
+	 * @return the number of segments
+	 */
+	int getSegmentCount() {
+		return segments.length;
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		if (key == null) {
+			throw new NullPointerException("key");
+		}
+
+		// use other bits than the hash table of the segment
+		int hash = key.hashCode() * 0x9E3779B9;
+		return segments[(hash >>> 16) & segmentMask];
+	}
+
+	private static void checkValue(Object value) {
+		if (value == null) {
+			throw new NullPointerException("value");
+		}
+	}
+
+	@Override
+	public V get(Object key) {
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.readLock().lock();
+		try {
+			return segment.get(key);
+		} finally {
+			segment.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.readLock().lock();
+		try {
+			return segment.containsKey(key);
+		} finally {
+			segment.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public V put(K key, V value) {
+		checkValue(value);
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.writeLock().lock();
+		try {
+			return segment.putInternal(key, value);
+		} finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		checkValue(value);
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.writeLock().lock();
+		try {
+			V oldValue = segment.get(key);
+			if (oldValue == null) {
+				segment.putInternal(key, value);
+			}
+			return oldValue;
+		} finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		checkValue(value);
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.writeLock().lock();
+		try {
+			if (!segment.containsKey(key)) {
+				return null;
+			}
+			return segment.putInternal(key, value);
+		} finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		checkValue(oldValue);
+		checkValue(newValue);
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.writeLock().lock();
+		try {
+			if (!oldValue.equals(segment.get(key))) {
+				return false;
+			}
+			segment.putInternal(key, newValue);
+			return true;
+		} finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public V remove(Object key) {
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.writeLock().lock();
+		try {
+			return segment.removeInternal(key);
+		} finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		if (value == null) {
+			return false;
+		}
+
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.writeLock().lock();
+		try {
+			if (!value.equals(segment.get(key))) {
+				return false;
+			}
+			segment.removeInternal(key);
+			return true;
+		} finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The segments are cleared one after the other.</p>
+	 */
+	@Override
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.lock.writeLock().lock();
+			try {
+				segment.clearInternal();
+			} finally {
+				segment.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The sizes of the segments are summed up one after the other,
+	 * so the result does not necessarily reflect the size at any single point in time if the map is modified concurrently.</p>
+	 */
+	@Override
+	public int size() {
+		int result = 0;
+		for (Segment<K, V> segment : segments) {
+			segment.lock.readLock().lock();
+			try {
+				result += segment.size();
+			} finally {
+				segment.lock.readLock().unlock();
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (Segment<K, V> segment : segments) {
+			segment.lock.readLock().lock();
+			try {
+				if (!segment.isEmpty()) {
+					return false;
+				}
+			} finally {
+				segment.lock.readLock().unlock();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size() + ", segments=" + segments.length + "}";
+	}
+
+	private class EntrySet extends AbstractSet<Entry<K, V>> {
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return ConcurrentHugeHashMap.this.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return ConcurrentHugeHashMap.this.isEmpty();
+		}
+
+		@Override
+		public void clear() {
+			ConcurrentHugeHashMap.this.clear();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Entry<K, V>> {
+		private int segmentIndex;
+		private int bucketCount;
+		private int nextBucket;
+		private Iterator<Entry<K, V>> batchIterator = Collections.<Entry<K, V>>emptyList().iterator();
+		private Entry<K, V> lastEntry;
+
+		@Override
+		public boolean hasNext() {
+			while (!batchIterator.hasNext() && segmentIndex < segments.length) {
+				Segment<K, V> segment = segments[segmentIndex];
+				if (bucketCount == 0) {
+					// the number of buckets is fixed while iterating the segment, so that the bucket of a key never changes
+					bucketCount = segment.iterationBucketCount();
+					nextBucket = 0;
+				}
+
+				if (nextBucket >= bucketCount) {
+					segmentIndex++;
+					bucketCount = 0;
+				} else {
+					int toBucket = Math.min(bucketCount, nextBucket + ITERATOR_BUCKET_COUNT);
+					batchIterator = segment.snapshot(bucketCount, nextBucket, toBucket).iterator();
+					nextBucket = toBucket;
+				}
+			}
+			return batchIterator.hasNext();
+		}
+
+		@Override
+		public Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			Entry<K, V> entry = batchIterator.next();
+			lastEntry = new ConcurrentMapEntry(entry.getKey(), entry.getValue());
+			return lastEntry;
+		}
+
+		@Override
+		public void remove() {
+			if (lastEntry == null) {
+				throw new IllegalStateException();
+			}
+
+			ConcurrentHugeHashMap.this.remove(lastEntry.getKey());
+			lastEntry = null;
+		}
+	}
+
+	private class ConcurrentMapEntry extends SimpleEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		public ConcurrentMapEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			V oldValue = super.setValue(value);
+			put(getKey(), value);
+			return oldValue;
+		}
+	}
+
+	/**
+	 * A segment is a hash table with its own lock.
+	 *
+	 * <p>The caller is responsible to hold the lock while accessing the segment.</p>
+	 */
+	private static class Segment<K, V> extends AbstractHugeHashMap<K, V> {
+
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		Segment(MemoryManager memoryManager, Converter<K> keyConverter, Converter<V> valueConverter, boolean faster, int capacity) {
+			super(memoryManager, keyConverter, valueConverter, faster, capacity);
+		}
+
+		/**
+		 * Returns the number of hash buckets to iterate this segment while holding the read lock.
+		 *
+		 * @return the number of hash buckets
+		 */
+		int iterationBucketCount() {
+			lock.readLock().lock();
+			try {
+				return hashBucketCount();
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Copies the key/value pairs of a range of hash buckets of this segment while holding the read lock.
+		 *
+		 * @param bucketCount the number of buckets
+		 * @param fromBucket the first bucket to copy (inclusive)
+		 * @param toBucket the last bucket to copy (exclusive)
+		 * @return the list of copied key/value pairs
+		 */
+		List<Entry<K, V>> snapshot(int bucketCount, int fromBucket, int toBucket) {
+			lock.readLock().lock();
+			try {
+				return hashBucketEntries(bucketCount, fromBucket, toBucket);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public Set<Entry<K, V>> entrySet() {
+			return new AbstractEntrySet() {
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					return new AbstractEntrySetIterator() {
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+
+						@Override
+						protected AbstractEntry createEntry(K key, V value) {
+							return new AbstractEntry(key, value) {
+								@Override
+								public V setValue(V value) {
+									throw new UnsupportedOperationException();
+								}
+							};
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/**
+	 * Builds a {@link ConcurrentHugeHashMap}.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	public static class Builder<K, V> extends AbstractHugeMapBuilder<K, V> {
+
+		private ConcurrentHugeHashMap<K, V> result;
+
+		private int concurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+
+		private boolean built;
+
+		private ConcurrentHugeHashMap<K, V> getMap() {
+			if (result == null) {
+				result = new ConcurrentHugeHashMap<K, V>(getMemoryManager(), getKeyConverter(), getValueConverter(), isFaster(), getCapacity(), concurrencyLevel);
+			}
+			return result;
+		}
+
+		/**
+		 * Specifies the estimated number of concurrently writing threads.
+		 *
+		 * <p>The number of segments is the smallest power of 2 that is not smaller than the concurrency level.</p>
+		 *
+		 * @param concurrencyLevel the concurrency level (at least 1)
+		 * @return this builder to chain calls
+		 * @throws IllegalArgumentException if the concurrency level is smaller than 1
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<K, V> concurrencyLevel(int concurrencyLevel) {
+			if (result != null) {
+				throw new IllegalStateException("Cannot change the configuration after adding the first element.");
+			}
+			if (concurrencyLevel < 1) {
+				throw new IllegalArgumentException("concurrencyLevel=" + concurrencyLevel);
+			}
+			this.concurrencyLevel = concurrencyLevel;
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * <p>Creates a {@link StripedMemoryManager} with one {@link MemoryMappedFileManager} arena per available processor.</p>
+		 */
+		@Override
+		protected MemoryManager createMemoryManager(int bufferSize, int blockSize, File directory) {
+			MemoryManager[] arenas = new MemoryManager[Runtime.getRuntime().availableProcessors()];
+			for (int i = 0; i < arenas.length; i++) {
+				arenas[i] = new MemoryMappedFileManager(bufferSize, blockSize, directory);
+			}
+			return new StripedMemoryManager(arenas);
+		}
+
+		@Override
+		public Builder<K, V> classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> key(Class<K> keyClass) {
+			super.key(keyClass);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> key(Converter<K> keyConverter) {
+			super.key(keyConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> value(Class<V> valueClass) {
+			super.value(valueClass);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> value(Converter<V> valueConverter) {
+			super.value(valueConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> compressKey() {
+			super.compressKey();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> compressValue() {
+			super.compressValue();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * <p>The {@link MemoryManager} must be thread-safe.</p>
+		 */
+		@Override
+		public Builder<K, V> memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> put(K key, V value) {
+			getMap().put(key, value);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> putAll(Map<K, V> map) {
+			getMap().putAll(map);
+			return this;
+		}
+
+		@Override
+		public ConcurrentHugeHashMap<K, V> build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getMap();
+		}
+	}
+}
@@ -0,0 +1,532 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeCollectionBuilder;
+import ch.obermuhlner.jhuge.collection.internal.HugeLongArray;
+import ch.obermuhlner.jhuge.collection.internal.LongArray;
+import ch.obermuhlner.jhuge.collection.internal.PrimitiveLongArray;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A mutable {@link Deque} that stores elements in a {@link MemoryManager}.
+ *
+ * <p>The implementation mimics an {@link ArrayDeque}:
+ * the addresses of the elements are stored in a circular buffer, which grows by doubling its capacity.</p>
+ *
+ * <p>Adding and removing elements at both ends is O(1), the memory block of a removed element is freed immediately.</p>
+ * <p>Removing an element in the middle ({@link #removeFirstOccurrence(Object)}, {@link #removeLastOccurrence(Object)} and {@link Iterator#remove()})
+ * is O(n).</p>
+ *
+ * <p>This deque does not support <code>null</code> elements.</p>
+ *
+ * <p>In order to store the elements in the {@link MemoryManager} they must be serialized and deserialized to read them.
+ * This is done by a {@link Converter} which can be specified in the {@link Builder}.
+ * The default {@link Converter} can handle instances of all serializable classes.</p>
+ *
+ * <p>In normal mode the circular buffer is stored in the {@link MemoryManager}.
+ * In {@link Builder#faster() faster} mode the circular buffer is stored on the Java heap and uses 8 bytes per element.</p>
+ *
+ * @param <E> the type of elements
+ */
+public class HugeArrayDeque<E> extends AbstractQueue<E> implements Deque<E> {
+
+	private final MemoryManager memoryManager;
+
+	private final Converter<E> converter;
+
+	private final ByteBufferConverter<E> byteBufferConverter;
+
+	/**
+	 * The circular buffer of element addresses, the size of this array is the capacity (always a power of 2).
+	 */
+	private final LongArray addresses;
+
+	private int head;
+
+	private int size;
+
+	private int modCount;
+
+	private HugeArrayDeque(MemoryManager memoryManager, Converter<E> converter, boolean faster, int capacity) {
+		this.memoryManager = memoryManager;
+		this.converter = converter;
+		this.byteBufferConverter = converter instanceof ByteBufferConverter ? (ByteBufferConverter<E>) converter : null;
+
+		int initialCapacity = Math.max(8, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+		this.addresses = faster ? new PrimitiveLongArray(initialCapacity) : new HugeLongArray(memoryManager, initialCapacity);
+		for (int i = 0; i < initialCapacity; i++) {
+			addresses.add(0);
+		}
+	}
+
+	/**
+	 * Returns the {@link MemoryManager}.
+	 *
+	 * @return the {@link MemoryManager}
+	 */
+	MemoryManager getMemoryManager() {
+		return memoryManager;
+	}
+
+	/**
+	 * Returns the element {@link Converter}.
+	 *
+	 * @return the element {@link Converter}
+	 */
+	Converter<E> getElementConverter() {
+		return converter;
+	}
+
+	/**
+	 * Returns the capacity of the circular buffer.
+	 *
+	 * @return the capacity
+	 */
+	int getCapacity() {
+		return addresses.size();
+	}
+
+	@Override
+	public void addFirst(E element) {
+		long address = allocateElement(element);
+		ensureCapacity();
+		head = (head - 1) & (addresses.size() - 1);
+		addresses.set(head, address);
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public void addLast(E element) {
+		long address = allocateElement(element);
+		ensureCapacity();
+		addresses.set(physicalIndex(size), address);
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public boolean offerFirst(E element) {
+		addFirst(element);
+		return true;
+	}
+
+	@Override
+	public boolean offerLast(E element) {
+		addLast(element);
+		return true;
+	}
+
+	@Override
+	public boolean offer(E element) {
+		addLast(element);
+		return true;
+	}
+
+	@Override
+	public E removeFirst() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return pollFirst();
+	}
+
+	@Override
+	public E removeLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return pollLast();
+	}
+
+	@Override
+	public E pollFirst() {
+		if (size == 0) {
+			return null;
+		}
+		long address = addresses.get(head);
+		head = (head + 1) & (addresses.size() - 1);
+		size--;
+		modCount++;
+		return readAndFreeElement(address);
+	}
+
+	@Override
+	public E pollLast() {
+		if (size == 0) {
+			return null;
+		}
+		long address = addresses.get(physicalIndex(size - 1));
+		size--;
+		modCount++;
+		return readAndFreeElement(address);
+	}
+
+	@Override
+	public E poll() {
+		return pollFirst();
+	}
+
+	@Override
+	public E getFirst() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return peekFirst();
+	}
+
+	@Override
+	public E getLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return peekLast();
+	}
+
+	@Override
+	public E peekFirst() {
+		return size == 0 ? null : get(0);
+	}
+
+	@Override
+	public E peekLast() {
+		return size == 0 ? null : get(size - 1);
+	}
+
+	@Override
+	public E peek() {
+		return peekFirst();
+	}
+
+	@Override
+	public void push(E element) {
+		addFirst(element);
+	}
+
+	@Override
+	public E pop() {
+		return removeFirst();
+	}
+
+	@Override
+	public boolean removeFirstOccurrence(Object element) {
+		if (element == null) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (element.equals(get(i))) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeLastOccurrence(Object element) {
+		if (element == null) {
+			return false;
+		}
+		for (int i = size - 1; i >= 0; i--) {
+			if (element.equals(get(i))) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean remove(Object element) {
+		return removeFirstOccurrence(element);
+	}
+
+	@Override
+	public boolean contains(Object element) {
+		if (element == null) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (element.equals(get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			memoryManager.free(addresses.get(physicalIndex(i)));
+		}
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new DequeIterator(false);
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new DequeIterator(true);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size + "}";
+	}
+
+	private E get(int index) {
+		return readElement(addresses.get(physicalIndex(index)));
+	}
+
+	private int physicalIndex(int index) {
+		return (head + index) & (addresses.size() - 1);
+	}
+
+	/**
+	 * Removes the element at the specified position relative to the head.
+	 *
+	 * <p>The shorter side of the deque is moved to close the gap,
+	 * in both cases the positions of the elements after the removed element are decremented.</p>
+	 *
+	 * @param index the position relative to the head
+	 */
+	private void removeAt(int index) {
+		long address = addresses.get(physicalIndex(index));
+		if (index < size - 1 - index) {
+			for (int i = index; i > 0; i--) {
+				addresses.set(physicalIndex(i), addresses.get(physicalIndex(i - 1)));
+			}
+			head = (head + 1) & (addresses.size() - 1);
+		} else {
+			for (int i = index; i < size - 1; i++) {
+				addresses.set(physicalIndex(i), addresses.get(physicalIndex(i + 1)));
+			}
+		}
+		size--;
+		modCount++;
+		memoryManager.free(address);
+	}
+
+	/**
+	 * Doubles the capacity of the circular buffer if it is full.
+	 *
+	 * <p>If the elements wrap around the end of the buffer, the wrapped elements are moved behind the old end.</p>
+	 */
+	private void ensureCapacity() {
+		int capacity = addresses.size();
+		if (size < capacity) {
+			return;
+		}
+		if (capacity == Integer.highestOneBit(Integer.MAX_VALUE)) {
+			throw new IllegalStateException("Deque too big: " + size);
+		}
+
+		for (int i = 0; i < capacity; i++) {
+			addresses.add(0);
+		}
+		for (int i = 0; i < head; i++) {
+			addresses.set(capacity + i, addresses.get(i));
+		}
+	}
+
+	private long allocateElement(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		return memoryManager.allocate(converter.serialize(element));
+	}
+
+	private E readAndFreeElement(long address) {
+		E element = readElement(address);
+		memoryManager.free(address);
+		return element;
+	}
+
+	private E readElement(long address) {
+		if (byteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			ByteBuffer data = memoryManager.view(address);
+			return byteBufferConverter.deserialize(data);
+		}
+
+		return converter.deserialize(memoryManager.read(address));
+	}
+
+	private class DequeIterator implements Iterator<E> {
+
+		private final boolean descending;
+
+		private int index;
+
+		private int lastIndex = -1;
+
+		private int expectedModCount = modCount;
+
+		public DequeIterator(boolean descending) {
+			this.descending = descending;
+			this.index = descending ? size - 1 : 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return descending ? index >= 0 : index < size;
+		}
+
+		@Override
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastIndex = index;
+			index += descending ? -1 : 1;
+			return get(lastIndex);
+		}
+
+		@Override
+		public void remove() {
+			if (lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(lastIndex);
+			if (!descending) {
+				// the elements after the removed element have moved one position towards the head
+				index = lastIndex;
+			}
+			lastIndex = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * Builds a {@link HugeArrayDeque}.
+	 *
+	 * @param <E> the type of elements
+	 */
+	public static class Builder<E> extends AbstractHugeCollectionBuilder<E> {
+
+		private HugeArrayDeque<E> result;
+
+		private boolean built;
+
+		private HugeArrayDeque<E> getDeque() {
+			if (result == null) {
+				result = new HugeArrayDeque<E>(getMemoryManager(), getElementConverter(), isFaster(), getCapacity());
+			}
+			return result;
+		}
+
+		@Override
+		public Builder<E> classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder<E> element(Class<E> elementClass) {
+			super.element(elementClass);
+			return this;
+		}
+
+		@Override
+		public Builder<E> element(Converter<E> elementConverter) {
+			super.element(elementConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<E> compressElement() {
+			super.compressElement();
+			return this;
+		}
+
+		@Override
+		public Builder<E> bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder<E> blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder<E> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder<E> memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder<E> faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder<E> capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder<E> add(E element) {
+			getDeque().add(element);
+			return this;
+		}
+
+		@Override
+		public Builder<E> addAll(Collection<E> elements) {
+			getDeque().addAll(elements);
+			return this;
+		}
+
+		@Override
+		public Builder<E> addAll(E... elements) {
+			return addAll(Arrays.asList(elements));
+		}
+
+		@Override
+		public HugeArrayDeque<E> build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getDeque();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -16,6 +17,7 @@ import ch.obermuhlner.jhuge.memory.MemoryManager;
  * 
  * <p>Access to single elements is O(1).</p>
  * <p>Removing a single element is O(n).</p>
+ * <p>In {@link Builder#chunked() chunked} mode accessing, inserting and removing single elements is O(log n).</p>
  * 
  * <p>In order to store the elements in the {@link MemoryManager} they must be serialized and deserialized to read them.
  * This is done by a {@link Converter} which can be specified in the {@link Builder}.
@@ -112,8 +114,8 @@ Java HotSpot(TM) 64-Bit Server VM (build 19.0-b09, mixed mode)
  */
 public class HugeArrayList<E> extends AbstractHugeArrayList<E> {
 
-	private HugeArrayList(MemoryManager memoryManager, Converter<E> converter, boolean faster, int capacity) {
-		super(memoryManager, converter, faster, capacity);
+	private HugeArrayList(MemoryManager memoryManager, Converter<E> converter, boolean faster, boolean chunked, int capacity) {
+		super(memoryManager, converter, faster, chunked, capacity);
 	}
 
 	@Override
@@ -126,6 +128,16 @@ public class HugeArrayList<E> extends AbstractHugeArrayList<E> {
 		addInternal(index, element);
 	}
 
+	@Override
+	public boolean addAll(Collection<? extends E> elements) {
+		return addAllInternal(size(), elements);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> elements) {
+		return addAllInternal(index, elements);
+	}
+
 	@Override
 	public E remove(int index) {
 		return removeInternal(index);
@@ -146,13 +158,34 @@ public class HugeArrayList<E> extends AbstractHugeArrayList<E> {
 		
 		private boolean built;
 		
+		private boolean chunked;
+		
 		private HugeArrayList<E> getList() {
 			if (result == null) {
-				result = new HugeArrayList<E>(getMemoryManager(), getElementConverter(), isFaster(), getCapacity());
+				result = new HugeArrayList<E>(getMemoryManager(), getElementConverter(), isFaster(), chunked, getCapacity());
 			}
 			return result;
 		}
 
+		/**
+		 * Specifies that the addresses of the elements are stored in chunks.
+		 * 
+		 * <p>In chunked mode inserting and removing elements at arbitrary index positions (for example at the head of the list) is O(log n) instead of O(n),
+		 * but accessing an element is O(log n) instead of O(1).
+		 * Use this mode if the list is used as a queue or is modified mostly in the middle.</p>
+		 * <p>The chunks are stored in the {@link MemoryManager}, the {@link #faster() faster} mode has no effect in chunked mode.</p>
+		 * 
+		 * @return this builder to chain calls
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<E> chunked() {
+			if (result != null) {
+				throw new IllegalStateException("Cannot change the configuration after adding the first element.");
+			}
+			chunked = true;
+			return this;
+		}
+
 		@Override
 		public Builder<E> classLoader(ClassLoader classLoader) {
 			super.classLoader(classLoader);
@@ -189,6 +222,12 @@ public class HugeArrayList<E> extends AbstractHugeArrayList<E> {
 			return this;
 		}
 		
+		@Override
+		public Builder<E> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+		
 		@Override
 		public Builder<E> memoryManager(MemoryManager memoryManager) {
 			super.memoryManager(memoryManager);
@@ -0,0 +1,350 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeListBuilder;
+import ch.obermuhlner.jhuge.collection.internal.HugeLongArray;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A mutable {@link List} of <code>double</code> values that stores the values densely in a {@link MemoryManager}.
+ *
+ * <p>Unlike a {@link HugeArrayList} of {@link Double} elements, which allocates a memory block for every element,
+ * the values are stored in pages of 8 bytes per value.
+ * The primitive methods {@link #getDouble(int)}, {@link #setDouble(int, double)} and {@link #addDouble(double)} do not allocate any objects.</p>
+ *
+ * <p>Access to single elements is O(1).</p>
+ * <p>Removing a single element is O(n).</p>
+ *
+ * <p>The values are stored as the bits of {@link Double#doubleToRawLongBits(double)}.
+ * Values are compared like {@link Double#equals(Object)}, so <code>NaN</code> is found by {@link #indexOfDouble(double)}.</p>
+ *
+ * <p>This list does not support <code>null</code> elements.</p>
+ */
+public class HugeDoubleList extends AbstractList<Double> implements RandomAccess {
+
+	private final HugeLongArray array;
+
+	private HugeDoubleList(MemoryManager memoryManager, int capacity) {
+		array = new HugeLongArray(memoryManager, capacity);
+	}
+
+	/**
+	 * Returns the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public double getDouble(int index) {
+		return Double.longBitsToDouble(array.get(index));
+	}
+
+	/**
+	 * Replaces the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param value the value to set
+	 * @return the old value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public double setDouble(int index, double value) {
+		return Double.longBitsToDouble(array.set(index, Double.doubleToRawLongBits(value)));
+	}
+
+	/**
+	 * Adds a value at the end.
+	 *
+	 * @param value the value to add
+	 */
+	public void addDouble(double value) {
+		array.add(Double.doubleToRawLongBits(value));
+		modCount++;
+	}
+
+	/**
+	 * Inserts a value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param value the value to add
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public void addDouble(int index, double value) {
+		array.add(index, Double.doubleToRawLongBits(value));
+		modCount++;
+	}
+
+	/**
+	 * Adds all values of the specified array at the end.
+	 *
+	 * @param values the values to add
+	 */
+	public void addDoubles(double[] values) {
+		addDoubles(values, 0, values.length);
+	}
+
+	/**
+	 * Adds a range of values of the specified array at the end.
+	 *
+	 * @param values the array containing the values to add
+	 * @param offset the offset of the first value in the array
+	 * @param length the number of values to add
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public void addDoubles(double[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + values.length);
+		}
+		long[] bits = new long[length];
+		for (int i = 0; i < length; i++) {
+			bits[i] = Double.doubleToRawLongBits(values[offset + i]);
+		}
+		array.addAll(bits, 0, length);
+		modCount++;
+	}
+
+	/**
+	 * Removes the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the removed value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public double removeDouble(int index) {
+		double oldValue = Double.longBitsToDouble(array.remove(index));
+		modCount++;
+		return oldValue;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the specified value.
+	 *
+	 * @param value the value to search
+	 * @return the index, or -1 if this list does not contain the value
+	 */
+	public int indexOfDouble(double value) {
+		long bits = Double.doubleToLongBits(value);
+		int n = array.size();
+		for (int i = 0; i < n; i++) {
+			if (Double.doubleToLongBits(Double.longBitsToDouble(array.get(i))) == bits) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns whether this list contains the specified value.
+	 *
+	 * @param value the value to search
+	 * @return <code>true</code> if this list contains the value
+	 */
+	public boolean containsDouble(double value) {
+		return indexOfDouble(value) >= 0;
+	}
+
+	/**
+	 * Copies a range of values into the specified array.
+	 *
+	 * @param index the index position of the first value to copy
+	 * @param values the array to copy the values into
+	 * @param offset the offset in the array
+	 * @param length the number of values to copy
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of this list or the array
+	 */
+	public void getDoubles(int index, double[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + values.length);
+		}
+		long[] bits = new long[length];
+		array.get(index, bits, 0, length);
+		for (int i = 0; i < length; i++) {
+			values[offset + i] = Double.longBitsToDouble(bits[i]);
+		}
+	}
+
+	/**
+	 * Returns all values as a <code>double[]</code>.
+	 *
+	 * @return a new array containing all values
+	 */
+	public double[] toDoubleArray() {
+		double[] result = new double[array.size()];
+		getDoubles(0, result, 0, result.length);
+		return result;
+	}
+
+	@Override
+	public Double get(int index) {
+		return getDouble(index);
+	}
+
+	@Override
+	public Double set(int index, Double element) {
+		return setDouble(index, element);
+	}
+
+	@Override
+	public void add(int index, Double element) {
+		addDouble(index, element);
+	}
+
+	@Override
+	public Double remove(int index) {
+		return removeDouble(index);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return o instanceof Double ? indexOfDouble((Double) o) : -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public void clear() {
+		array.clear();
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return array.size();
+	}
+
+	/**
+	 * Builds a {@link HugeDoubleList}.
+	 *
+	 * <p>The settings for the element {@link Converter} have no effect, the values are always stored as 8 bytes.</p>
+	 */
+	public static class Builder extends AbstractHugeListBuilder<Double> {
+
+		private HugeDoubleList result;
+
+		private boolean built;
+
+		private HugeDoubleList getList() {
+			if (result == null) {
+				result = new HugeDoubleList(getMemoryManager(), getCapacity());
+			}
+			return result;
+		}
+
+		@Override
+		public Builder classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder element(Class<Double> elementClass) {
+			super.element(elementClass);
+			return this;
+		}
+
+		@Override
+		public Builder element(Converter<Double> elementConverter) {
+			super.element(elementConverter);
+			return this;
+		}
+
+		@Override
+		public Builder compressElement() {
+			super.compressElement();
+			return this;
+		}
+
+		@Override
+		public Builder bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder add(Double element) {
+			getList().add(element);
+			return this;
+		}
+
+		/**
+		 * Adds a value.
+		 *
+		 * @param value the value to add
+		 * @return this builder to chain calls
+		 */
+		public Builder addDouble(double value) {
+			getList().addDouble(value);
+			return this;
+		}
+
+		@Override
+		public Builder addAll(Collection<Double> elements) {
+			getList().addAll(elements);
+			return this;
+		}
+
+		@Override
+		public Builder addAll(Double... elements) {
+			return addAll(Arrays.asList(elements));
+		}
+
+		/**
+		 * Adds all values of the specified array.
+		 *
+		 * @param values the values to add
+		 * @return this builder to chain calls
+		 */
+		public Builder addDoubles(double[] values) {
+			getList().addDoubles(values);
+			return this;
+		}
+
+		@Override
+		public HugeDoubleList build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getList();
+		}
+	}
+}
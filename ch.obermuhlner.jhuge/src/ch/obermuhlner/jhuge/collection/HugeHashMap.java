@@ -1,5 +1,6 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -58,27 +59,18 @@ Total: 9 entries                                            |      10 |        2
  * <p>The infrastructure data to quickly access the correct {@link MemoryManager} block of a key or value
  * is stored in Java objects and occupies Java heap.</p>
  * 
- * <p>The following table shows the heap consumption in faster mode when filled with 10000 String to String entries:</p>
+ * <p>The following table shows the heap consumption of the hash table in faster mode when filled with 10000 String to String entries
+ * (the table has grown to 16384 slots, the hash codes and addresses are stored in primitive arrays):</p>
 <pre>
-Class Name                                                  | Objects | Shallow Heap
--------------------------------------------------------------------------------------
-long[]                                                      |  10,001 |      320,080
-java.util.HashMap$Entry                                     |  10,000 |      240,000
-java.lang.Integer                                           |  10,000 |      160,000
-java.util.HashMap$Entry[]                                   |       1 |       65,552
-java.lang.Object[]                                          |       1 |           56
-ch.obermuhlner.jhuge.memory.MemoryMappedFileManager         |       1 |           40
-java.util.HashMap                                           |       1 |           40
-ch.obermuhlner.jhuge.collection.HugeHashMap                 |       1 |           32
-ch.obermuhlner.jhuge.converter.CompactConverter             |       2 |           32
-java.util.ArrayList                                         |       1 |           24
-ch.obermuhlner.jhuge.collection.internal.JavaIntLongArrayMap|       1 |           16
-ch.obermuhlner.jhuge.collection.internal.JavaLongArray      |       1 |           16
-Total: 12 entries                                           |  30,011 |      785,888
--------------------------------------------------------------------------------------
+Class Name        | Objects | Shallow Heap
+------------------------------------------
+long[]            |       1 |      131,088
+int[]             |       2 |      131,104
+Total: 2 entries  |       3 |      262,192
+------------------------------------------
 </pre>
  * 
- * <p>The {@link HugeHashMap} in faster mode uses about 72 bytes per entry, independent of the size of keys and values.</p>
+ * <p>The {@link HugeHashMap} in faster mode uses about 26 bytes per entry, independent of the size of keys and values.</p>
  * 
  * <h3>Heap comparison with HashMap</h3>
  * 
@@ -132,6 +124,16 @@ public class HugeHashMap<K, V> extends AbstractHugeHashMap<K, V> {
 	public V put(K key, V value) {
 		return putInternal(key, value);
 	}
+	
+	@Override
+	public void putAll(Map<? extends K, ? extends V> map) {
+		putAllInternal(map);
+	}
+
+	@Override
+	public V remove(Object key) {
+		return removeInternal(key);
+	}
 
 	@Override
 	public void clear() {
@@ -246,6 +248,12 @@ public class HugeHashMap<K, V> extends AbstractHugeHashMap<K, V> {
 			return this;
 		}
 		
+		@Override
+		public Builder<K, V> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+		
 		@Override
 		public Builder<K, V> memoryManager(MemoryManager memoryManager) {
 			super.memoryManager(memoryManager);
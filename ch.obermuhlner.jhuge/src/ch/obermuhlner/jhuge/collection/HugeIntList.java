@@ -0,0 +1,330 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeListBuilder;
+import ch.obermuhlner.jhuge.collection.internal.HugeIntArray;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A mutable {@link List} of <code>int</code> values that stores the values densely in a {@link MemoryManager}.
+ *
+ * <p>Unlike a {@link HugeArrayList} of {@link Integer} elements, which allocates a memory block for every element,
+ * the values are stored in pages of 4 bytes per value.
+ * The primitive methods {@link #getInt(int)}, {@link #setInt(int, int)} and {@link #addInt(int)} do not allocate any objects.</p>
+ *
+ * <p>Access to single elements is O(1).</p>
+ * <p>Removing a single element is O(n).</p>
+ *
+ * <p>This list does not support <code>null</code> elements.</p>
+ */
+public class HugeIntList extends AbstractList<Integer> implements RandomAccess {
+
+	private final HugeIntArray array;
+
+	private HugeIntList(MemoryManager memoryManager, int capacity) {
+		array = new HugeIntArray(memoryManager, capacity);
+	}
+
+	/**
+	 * Returns the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int getInt(int index) {
+		return array.get(index);
+	}
+
+	/**
+	 * Replaces the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param value the value to set
+	 * @return the old value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int setInt(int index, int value) {
+		return array.set(index, value);
+	}
+
+	/**
+	 * Adds a value at the end.
+	 *
+	 * @param value the value to add
+	 */
+	public void addInt(int value) {
+		array.add(value);
+		modCount++;
+	}
+
+	/**
+	 * Inserts a value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param value the value to add
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public void addInt(int index, int value) {
+		array.add(index, value);
+		modCount++;
+	}
+
+	/**
+	 * Adds all values of the specified array at the end.
+	 *
+	 * @param values the values to add
+	 */
+	public void addInts(int[] values) {
+		addInts(values, 0, values.length);
+	}
+
+	/**
+	 * Adds a range of values of the specified array at the end.
+	 *
+	 * @param values the array containing the values to add
+	 * @param offset the offset of the first value in the array
+	 * @param length the number of values to add
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public void addInts(int[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + values.length);
+		}
+		array.addAll(values, offset, length);
+		modCount++;
+	}
+
+	/**
+	 * Removes the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the removed value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int removeInt(int index) {
+		int oldValue = array.remove(index);
+		modCount++;
+		return oldValue;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the specified value.
+	 *
+	 * @param value the value to search
+	 * @return the index, or -1 if this list does not contain the value
+	 */
+	public int indexOfInt(int value) {
+		return array.indexOf(value);
+	}
+
+	/**
+	 * Returns whether this list contains the specified value.
+	 *
+	 * @param value the value to search
+	 * @return <code>true</code> if this list contains the value
+	 */
+	public boolean containsInt(int value) {
+		return array.indexOf(value) >= 0;
+	}
+
+	/**
+	 * Copies a range of values into the specified array.
+	 *
+	 * @param index the index position of the first value to copy
+	 * @param values the array to copy the values into
+	 * @param offset the offset in the array
+	 * @param length the number of values to copy
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of this list or the array
+	 */
+	public void getInts(int index, int[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + values.length);
+		}
+		array.get(index, values, offset, length);
+	}
+
+	/**
+	 * Returns all values as an <code>int[]</code>.
+	 *
+	 * @return a new array containing all values
+	 */
+	public int[] toIntArray() {
+		return array.toArray();
+	}
+
+	@Override
+	public Integer get(int index) {
+		return getInt(index);
+	}
+
+	@Override
+	public Integer set(int index, Integer element) {
+		return setInt(index, element);
+	}
+
+	@Override
+	public void add(int index, Integer element) {
+		addInt(index, element);
+	}
+
+	@Override
+	public Integer remove(int index) {
+		return removeInt(index);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return o instanceof Integer ? indexOfInt((Integer) o) : -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public void clear() {
+		array.clear();
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return array.size();
+	}
+
+	/**
+	 * Builds a {@link HugeIntList}.
+	 *
+	 * <p>The settings for the element {@link Converter} have no effect, the values are always stored as 4 bytes.</p>
+	 */
+	public static class Builder extends AbstractHugeListBuilder<Integer> {
+
+		private HugeIntList result;
+
+		private boolean built;
+
+		private HugeIntList getList() {
+			if (result == null) {
+				result = new HugeIntList(getMemoryManager(), getCapacity());
+			}
+			return result;
+		}
+
+		@Override
+		public Builder classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder element(Class<Integer> elementClass) {
+			super.element(elementClass);
+			return this;
+		}
+
+		@Override
+		public Builder element(Converter<Integer> elementConverter) {
+			super.element(elementConverter);
+			return this;
+		}
+
+		@Override
+		public Builder compressElement() {
+			super.compressElement();
+			return this;
+		}
+
+		@Override
+		public Builder bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder add(Integer element) {
+			getList().add(element);
+			return this;
+		}
+
+		/**
+		 * Adds a value.
+		 *
+		 * @param value the value to add
+		 * @return this builder to chain calls
+		 */
+		public Builder addInt(int value) {
+			getList().addInt(value);
+			return this;
+		}
+
+		@Override
+		public Builder addAll(Collection<Integer> elements) {
+			getList().addAll(elements);
+			return this;
+		}
+
+		@Override
+		public Builder addAll(Integer... elements) {
+			return addAll(Arrays.asList(elements));
+		}
+
+		/**
+		 * Adds all values of the specified array.
+		 *
+		 * @param values the values to add
+		 * @return this builder to chain calls
+		 */
+		public Builder addInts(int[] values) {
+			getList().addInts(values);
+			return this;
+		}
+
+		@Override
+		public HugeIntList build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getList();
+		}
+	}
+}
@@ -0,0 +1,854 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeCollectionBuilder;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+import ch.obermuhlner.jhuge.memory.MemoryMappedFileManager;
+import ch.obermuhlner.jhuge.memory.StripedMemoryManager;
+
+/**
+ * A thread-safe, optionally bounded {@link BlockingQueue} that stores elements in a {@link MemoryManager}.
+ *
+ * <p>The implementation mimics a {@link LinkedBlockingQueue}:
+ * every element is stored in a node memory block that also contains the address of the next node.
+ * Producers only lock the tail and consumers only lock the head of the queue, so that producers and consumers do not block each other.</p>
+ *
+ * <p>The queue can be bounded by the {@link Builder#maxSize(int) number of elements}
+ * and by the {@link Builder#maxBytes(long) number of bytes} of the serialized elements.
+ * An element that is larger than the byte budget is only accepted by an empty queue.</p>
+ *
+ * <p>{@link #drainTo(Collection)} removes the elements in a single pass while holding the head lock only once.</p>
+ *
+ * <p>The {@link MemoryManager} is used concurrently by producers and consumers and must be thread-safe.
+ * If no {@link MemoryManager} is specified in the {@link Builder} a {@link StripedMemoryManager} is used.</p>
+ *
+ * <p>Like {@link LinkedBlockingQueue} this queue does not allow <code>null</code> elements
+ * and the iterators are weakly consistent.</p>
+ *
+ * @param <E> the type of elements
+ */
+public class HugeLinkedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+	private static final long NO_NODE = -1;
+
+	private static final int NEXT_OFFSET = 0;
+
+	private static final int SEQUENCE_OFFSET = 8;
+
+	private static final int LENGTH_OFFSET = 16;
+
+	private static final int HEADER_SIZE = 20;
+
+	private final MemoryManager memoryManager;
+
+	private final Converter<E> converter;
+
+	private final ByteBufferConverter<E> byteBufferConverter;
+
+	private final int maxSize;
+
+	private final long maxBytes;
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	private final AtomicLong byteCount = new AtomicLong();
+
+	/**
+	 * The number of producers that are waiting or about to wait for {@link #notFull}.
+	 */
+	private final AtomicInteger waitingProducers = new AtomicInteger();
+
+	private final ReentrantLock takeLock = new ReentrantLock();
+
+	private final Condition notEmpty = takeLock.newCondition();
+
+	private final ReentrantLock putLock = new ReentrantLock();
+
+	private final Condition notFull = putLock.newCondition();
+
+	/**
+	 * The address of the dummy node before the first element, guarded by {@link #takeLock}.
+	 */
+	private long head;
+
+	/**
+	 * The sequence number of the dummy head node, guarded by {@link #takeLock}.
+	 */
+	private long headSequence;
+
+	/**
+	 * The address of the last node, guarded by {@link #putLock}.
+	 */
+	private long last;
+
+	/**
+	 * The sequence number of the next node, guarded by {@link #putLock}.
+	 */
+	private long nextSequence;
+
+	/**
+	 * Incremented whenever a node that is not the head is removed, guarded by both locks.
+	 */
+	private long removalCount;
+
+	private HugeLinkedBlockingQueue(MemoryManager memoryManager, Converter<E> converter, int maxSize, long maxBytes) {
+		this.memoryManager = memoryManager;
+		this.converter = converter;
+		this.byteBufferConverter = converter instanceof ByteBufferConverter ? (ByteBufferConverter<E>) converter : null;
+		this.maxSize = maxSize;
+		this.maxBytes = maxBytes;
+
+		headSequence = -1;
+		head = last = memoryManager.allocate(createNode(headSequence, new byte[0]));
+	}
+
+	/**
+	 * Returns the {@link MemoryManager}.
+	 *
+	 * @return the {@link MemoryManager}
+	 */
+	MemoryManager getMemoryManager() {
+		return memoryManager;
+	}
+
+	/**
+	 * Returns the number of bytes of the serialized elements in this queue.
+	 *
+	 * <p>This is the size that is compared with the {@link Builder#maxBytes(long) byte budget}.</p>
+	 *
+	 * @return the number of bytes
+	 */
+	public long getByteSize() {
+		return byteCount.get();
+	}
+
+	@Override
+	public void put(E element) throws InterruptedException {
+		byte[] data = serializeElement(element);
+		int c;
+		putLock.lockInterruptibly();
+		try {
+			if (isFull(data.length)) {
+				waitingProducers.incrementAndGet();
+				try {
+					while (isFull(data.length)) {
+						notFull.await();
+					}
+				} finally {
+					waitingProducers.decrementAndGet();
+				}
+			}
+			c = enqueue(data);
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) {
+			signalNotEmpty();
+		}
+	}
+
+	@Override
+	public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+		byte[] data = serializeElement(element);
+		long nanos = unit.toNanos(timeout);
+		int c;
+		putLock.lockInterruptibly();
+		try {
+			if (isFull(data.length)) {
+				waitingProducers.incrementAndGet();
+				try {
+					while (isFull(data.length)) {
+						if (nanos <= 0) {
+							return false;
+						}
+						nanos = notFull.awaitNanos(nanos);
+					}
+				} finally {
+					waitingProducers.decrementAndGet();
+				}
+			}
+			c = enqueue(data);
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) {
+			signalNotEmpty();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(E element) {
+		byte[] data = serializeElement(element);
+		int c;
+		putLock.lock();
+		try {
+			if (isFull(data.length)) {
+				return false;
+			}
+			c = enqueue(data);
+		} finally {
+			putLock.unlock();
+		}
+		if (c == 0) {
+			signalNotEmpty();
+		}
+		return true;
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E element;
+		int c;
+		takeLock.lockInterruptibly();
+		try {
+			while (count.get() == 0) {
+				notEmpty.await();
+			}
+			element = dequeue();
+			c = count.getAndDecrement();
+			if (c > 1) {
+				notEmpty.signal();
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		signalNotFull();
+		return element;
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		E element;
+		int c;
+		takeLock.lockInterruptibly();
+		try {
+			while (count.get() == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			element = dequeue();
+			c = count.getAndDecrement();
+			if (c > 1) {
+				notEmpty.signal();
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		signalNotFull();
+		return element;
+	}
+
+	@Override
+	public E poll() {
+		if (count.get() == 0) {
+			return null;
+		}
+		E element = null;
+		takeLock.lock();
+		try {
+			if (count.get() > 0) {
+				element = dequeue();
+				int c = count.getAndDecrement();
+				if (c > 1) {
+					notEmpty.signal();
+				}
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		if (element != null) {
+			signalNotFull();
+		}
+		return element;
+	}
+
+	@Override
+	public E peek() {
+		if (count.get() == 0) {
+			return null;
+		}
+		takeLock.lock();
+		try {
+			long first = memoryManager.readLong(head, NEXT_OFFSET);
+			return first == NO_NODE ? null : readElement(first);
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> collection) {
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The elements are removed in a single pass while holding the head lock,
+	 * the counters are updated and waiting producers are signalled only once.</p>
+	 */
+	@Override
+	public int drainTo(Collection<? super E> collection, int maxElements) {
+		if (collection == null) {
+			throw new NullPointerException();
+		}
+		if (collection == this) {
+			throw new IllegalArgumentException();
+		}
+		if (maxElements <= 0) {
+			return 0;
+		}
+
+		int drained = 0;
+		takeLock.lock();
+		try {
+			int n = Math.min(maxElements, count.get());
+			long drainedBytes = 0;
+			try {
+				while (drained < n) {
+					long first = memoryManager.readLong(head, NEXT_OFFSET);
+					ByteBuffer node = memoryManager.view(first);
+					drainedBytes += node.getInt(LENGTH_OFFSET);
+					collection.add(deserializeElement(node));
+
+					memoryManager.free(head);
+					head = first;
+					headSequence = memoryManager.readLong(first, SEQUENCE_OFFSET);
+					drained++;
+				}
+			} finally {
+				if (drained > 0) {
+					byteCount.addAndGet(-drainedBytes);
+					count.getAndAdd(-drained);
+				}
+			}
+		} finally {
+			takeLock.unlock();
+		}
+		if (drained > 0) {
+			signalNotFull();
+		}
+		return drained;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Only the bound on the number of elements is considered, not the bound on the number of bytes.</p>
+	 */
+	@Override
+	public int remainingCapacity() {
+		return maxSize - count.get();
+	}
+
+	@Override
+	public int size() {
+		return count.get();
+	}
+
+	@Override
+	public boolean contains(Object element) {
+		if (element == null) {
+			return false;
+		}
+		fullyLock();
+		try {
+			for (long node = memoryManager.readLong(head, NEXT_OFFSET); node != NO_NODE; node = memoryManager.readLong(node, NEXT_OFFSET)) {
+				if (element.equals(readElement(node))) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object element) {
+		if (element == null) {
+			return false;
+		}
+		fullyLock();
+		try {
+			long trail = head;
+			for (long node = memoryManager.readLong(trail, NEXT_OFFSET); node != NO_NODE; node = memoryManager.readLong(trail, NEXT_OFFSET)) {
+				if (element.equals(readElement(node))) {
+					unlink(trail, node);
+					return true;
+				}
+				trail = node;
+			}
+			return false;
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		fullyLock();
+		try {
+			long node = memoryManager.readLong(head, NEXT_OFFSET);
+			while (node != NO_NODE) {
+				long next = memoryManager.readLong(node, NEXT_OFFSET);
+				memoryManager.free(node);
+				node = next;
+			}
+			memoryManager.writeLong(head, NEXT_OFFSET, NO_NODE);
+			last = head;
+			removalCount++;
+			byteCount.set(0);
+			count.set(0);
+			if (waitingProducers.get() > 0) {
+				notFull.signalAll();
+			}
+		} finally {
+			fullyUnlock();
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new QueueIterator();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size() + "}";
+	}
+
+	private boolean isFull(int length) {
+		int currentCount = count.get();
+		return currentCount >= maxSize || (currentCount > 0 && byteCount.get() + length > maxBytes);
+	}
+
+	/**
+	 * Links a new node at the end of the queue.
+	 *
+	 * <p>Must be called while holding the {@link #putLock}.</p>
+	 *
+	 * @param data the serialized element
+	 * @return the number of elements before adding the new node
+	 */
+	private int enqueue(byte[] data) {
+		long node = memoryManager.allocate(createNode(nextSequence++, data));
+		memoryManager.writeLong(last, NEXT_OFFSET, node);
+		last = node;
+
+		byteCount.addAndGet(data.length);
+		int c = count.getAndIncrement();
+		if (waitingProducers.get() > 0 && !isFull(0)) {
+			notFull.signal();
+		}
+		return c;
+	}
+
+	/**
+	 * Removes the first node of the queue.
+	 *
+	 * <p>Must be called while holding the {@link #takeLock} and only if the queue is not empty.
+	 * The caller must decrement the {@link #count}.</p>
+	 *
+	 * @return the element of the removed node
+	 */
+	private E dequeue() {
+		long first = memoryManager.readLong(head, NEXT_OFFSET);
+		ByteBuffer node = memoryManager.view(first);
+		int length = node.getInt(LENGTH_OFFSET);
+		E element = deserializeElement(node);
+
+		// the first node becomes the new dummy head node
+		memoryManager.free(head);
+		head = first;
+		headSequence = memoryManager.readLong(first, SEQUENCE_OFFSET);
+
+		byteCount.addAndGet(-length);
+		return element;
+	}
+
+	/**
+	 * Unlinks a node that is not the head node.
+	 *
+	 * <p>Must be called while holding both locks.</p>
+	 *
+	 * @param trail the node before the node to unlink
+	 * @param node the node to unlink
+	 */
+	private void unlink(long trail, long node) {
+		int length = memoryManager.readInt(node, LENGTH_OFFSET);
+		memoryManager.writeLong(trail, NEXT_OFFSET, memoryManager.readLong(node, NEXT_OFFSET));
+		if (last == node) {
+			last = trail;
+		}
+		memoryManager.free(node);
+		removalCount++;
+
+		byteCount.addAndGet(-length);
+		count.getAndDecrement();
+		if (waitingProducers.get() > 0) {
+			notFull.signal();
+		}
+	}
+
+	private void signalNotEmpty() {
+		takeLock.lock();
+		try {
+			notEmpty.signal();
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	/**
+	 * Signals a waiting producer.
+	 *
+	 * <p>The {@link #putLock} is only acquired if a producer is waiting,
+	 * so that consumers do not contend with producers otherwise.</p>
+	 */
+	private void signalNotFull() {
+		if (waitingProducers.get() > 0) {
+			putLock.lock();
+			try {
+				notFull.signal();
+			} finally {
+				putLock.unlock();
+			}
+		}
+	}
+
+	private void fullyLock() {
+		putLock.lock();
+		takeLock.lock();
+	}
+
+	private void fullyUnlock() {
+		takeLock.unlock();
+		putLock.unlock();
+	}
+
+	private byte[] serializeElement(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		return converter.serialize(element);
+	}
+
+	private static byte[] createNode(long sequence, byte[] data) {
+		byte[] node = new byte[HEADER_SIZE + data.length];
+		ByteBuffer buffer = ByteBuffer.wrap(node);
+		buffer.putLong(NEXT_OFFSET, NO_NODE);
+		buffer.putLong(SEQUENCE_OFFSET, sequence);
+		buffer.putInt(LENGTH_OFFSET, data.length);
+		System.arraycopy(data, 0, node, HEADER_SIZE, data.length);
+		return node;
+	}
+
+	private E readElement(long node) {
+		return deserializeElement(memoryManager.view(node));
+	}
+
+	private E deserializeElement(ByteBuffer node) {
+		// the memory block may be larger than the node
+		node.limit(HEADER_SIZE + node.getInt(LENGTH_OFFSET));
+		node.position(HEADER_SIZE);
+		if (byteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			return byteBufferConverter.deserialize(node);
+		}
+
+		byte[] data = new byte[node.remaining()];
+		node.get(data);
+		return converter.deserialize(data);
+	}
+
+	/**
+	 * A weakly consistent iterator.
+	 *
+	 * <p>The iterator remembers the node of the next element and its sequence number.
+	 * The node is still valid as long as it has not been removed as head node (its sequence number is not smaller than the sequence number of the head node)
+	 * and no other node has been unlinked since.
+	 * Otherwise the next element is searched by its sequence number starting at the head.</p>
+	 */
+	private class QueueIterator implements Iterator<E> {
+
+		private long nextNode = NO_NODE;
+
+		private long nextNodeSequence;
+
+		private E nextElement;
+
+		private long lastReturnedSequence = -1;
+
+		private long expectedRemovalCount;
+
+		public QueueIterator() {
+			fullyLock();
+			try {
+				expectedRemovalCount = removalCount;
+				advance(memoryManager.readLong(head, NEXT_OFFSET));
+			} finally {
+				fullyUnlock();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextElement != null;
+		}
+
+		@Override
+		public E next() {
+			if (nextElement == null) {
+				throw new NoSuchElementException();
+			}
+			E result = nextElement;
+			lastReturnedSequence = nextNodeSequence;
+
+			fullyLock();
+			try {
+				long successor;
+				if (expectedRemovalCount == removalCount && nextNodeSequence >= headSequence) {
+					successor = memoryManager.readLong(nextNode, NEXT_OFFSET);
+				} else {
+					successor = memoryManager.readLong(head, NEXT_OFFSET);
+					while (successor != NO_NODE && memoryManager.readLong(successor, SEQUENCE_OFFSET) <= nextNodeSequence) {
+						successor = memoryManager.readLong(successor, NEXT_OFFSET);
+					}
+					expectedRemovalCount = removalCount;
+				}
+				advance(successor);
+			} finally {
+				fullyUnlock();
+			}
+			return result;
+		}
+
+		private void advance(long node) {
+			nextNode = node;
+			if (node == NO_NODE) {
+				nextElement = null;
+			} else {
+				nextNodeSequence = memoryManager.readLong(node, SEQUENCE_OFFSET);
+				nextElement = readElement(node);
+			}
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturnedSequence < 0) {
+				throw new IllegalStateException();
+			}
+			fullyLock();
+			try {
+				boolean nextNodeValid = expectedRemovalCount == removalCount;
+				long trail = head;
+				for (long node = memoryManager.readLong(trail, NEXT_OFFSET); node != NO_NODE; node = memoryManager.readLong(trail, NEXT_OFFSET)) {
+					long sequence = memoryManager.readLong(node, SEQUENCE_OFFSET);
+					if (sequence == lastReturnedSequence) {
+						unlink(trail, node);
+						break;
+					}
+					if (sequence > lastReturnedSequence) {
+						break;
+					}
+					trail = node;
+				}
+				if (nextNodeValid) {
+					// the next node is not affected by unlinking the last returned node
+					expectedRemovalCount = removalCount;
+				}
+			} finally {
+				fullyUnlock();
+			}
+			lastReturnedSequence = -1;
+		}
+	}
+
+	/**
+	 * Builds a {@link HugeLinkedBlockingQueue}.
+	 *
+	 * @param <E> the type of elements
+	 */
+	public static class Builder<E> extends AbstractHugeCollectionBuilder<E> {
+
+		private HugeLinkedBlockingQueue<E> result;
+
+		private int maxSize = Integer.MAX_VALUE;
+
+		private long maxBytes = Long.MAX_VALUE;
+
+		private boolean built;
+
+		private HugeLinkedBlockingQueue<E> getQueue() {
+			if (result == null) {
+				result = new HugeLinkedBlockingQueue<E>(getMemoryManager(), getElementConverter(), maxSize, maxBytes);
+			}
+			return result;
+		}
+
+		private void checkNotStarted() {
+			if (result != null) {
+				throw new IllegalStateException("Cannot change the configuration after adding the first element.");
+			}
+		}
+
+		/**
+		 * Specifies the maximum number of elements in the queue.
+		 *
+		 * <p>If not specified the number of elements is unbounded.</p>
+		 *
+		 * @param maxSize the maximum number of elements (at least 1)
+		 * @return this builder to chain calls
+		 * @throws IllegalArgumentException if the maximum size is smaller than 1
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<E> maxSize(int maxSize) {
+			checkNotStarted();
+			if (maxSize < 1) {
+				throw new IllegalArgumentException("maxSize=" + maxSize);
+			}
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * Specifies the maximum number of bytes of the serialized elements in the queue.
+		 *
+		 * <p>If not specified the number of bytes is unbounded.</p>
+		 *
+		 * @param maxBytes the maximum number of bytes (at least 1)
+		 * @return this builder to chain calls
+		 * @throws IllegalArgumentException if the maximum number of bytes is smaller than 1
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<E> maxBytes(long maxBytes) {
+			checkNotStarted();
+			if (maxBytes < 1) {
+				throw new IllegalArgumentException("maxBytes=" + maxBytes);
+			}
+			this.maxBytes = maxBytes;
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * <p>Creates a {@link StripedMemoryManager} with one {@link MemoryMappedFileManager} arena per available processor.</p>
+		 */
+		@Override
+		protected MemoryManager createMemoryManager(int bufferSize, int blockSize, File directory) {
+			MemoryManager[] arenas = new MemoryManager[Runtime.getRuntime().availableProcessors()];
+			for (int i = 0; i < arenas.length; i++) {
+				arenas[i] = new MemoryMappedFileManager(bufferSize, blockSize, directory);
+			}
+			return new StripedMemoryManager(arenas);
+		}
+
+		@Override
+		public Builder<E> classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder<E> element(Class<E> elementClass) {
+			super.element(elementClass);
+			return this;
+		}
+
+		@Override
+		public Builder<E> element(Converter<E> elementConverter) {
+			super.element(elementConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<E> compressElement() {
+			super.compressElement();
+			return this;
+		}
+
+		@Override
+		public Builder<E> bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder<E> blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder<E> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder<E> memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder<E> faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder<E> capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder<E> add(E element) {
+			getQueue().add(element);
+			return this;
+		}
+
+		@Override
+		public Builder<E> addAll(Collection<E> elements) {
+			getQueue().addAll(elements);
+			return this;
+		}
+
+		@Override
+		public Builder<E> addAll(E... elements) {
+			return addAll(Arrays.asList(elements));
+		}
+
+		@Override
+		public HugeLinkedBlockingQueue<E> build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getQueue();
+		}
+	}
+}
@@ -0,0 +1,504 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeMapBuilder;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A {@link Map} that stores key/value pairs in a {@link MemoryManager} and iterates them in a predictable order.
+ *
+ * <p>The implementation mimics a {@link LinkedHashMap}.</p>
+ *
+ * <p>The entries are threaded into a doubly linked list, which is stored in the memory blocks of the entries themselves.
+ * The list is in insertion order or (if the map is built with {@link Builder#accessOrder()}) in access order,
+ * where {@link #get(Object)} and {@link #put(Object, Object)} move an entry to the end of the list.</p>
+ *
+ * <p>An access ordered map with a {@link Builder#maxSize(int) maximum size}, a {@link Builder#maxBytes(long) byte budget}
+ * or an {@link EvictionPolicy} is an off-heap LRU cache:
+ * after every {@link #put(Object, Object)} the eldest entries are removed in O(1) until the map is within its limits.</p>
+ *
+ * <p>In order to store the elements in the {@link MemoryManager} they must be serialized and deserialized to read them.
+ * This is done by a {@link Converter} which can be specified in the {@link Builder}.
+ * The default {@link Converter} can handle instances of all serializable classes.</p>
+ *
+ * <p>Important:
+ * Changes to the keys or values outside of the huge collection are <strong>not</strong> automatically reflected by the serialized form in the collection.
+ * In this case you must replace the stored object with the modified object.</p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class HugeLinkedHashMap<K, V> extends AbstractHugeHashMap<K, V> {
+
+	private static final long NO_ENTRY = -1;
+
+	private static final int PREVIOUS_LINK = 0;
+
+	private static final int NEXT_LINK = 1;
+
+	private final boolean accessOrder;
+
+	private final int maxSize;
+
+	private final long maxBytes;
+
+	private final EvictionPolicy<K, V> evictionPolicy;
+
+	private long headAddress = NO_ENTRY;
+
+	private long tailAddress = NO_ENTRY;
+
+	private long byteSize;
+
+	private int modCount;
+
+	private HugeLinkedHashMap(MemoryManager memoryManager, Converter<K> keyConverter, Converter<V> valueConverter, boolean faster, int capacity, boolean accessOrder, int maxSize, long maxBytes, EvictionPolicy<K, V> evictionPolicy) {
+		super(memoryManager, keyConverter, valueConverter, faster, capacity, 2);
+		this.accessOrder = accessOrder;
+		this.maxSize = maxSize;
+		this.maxBytes = maxBytes;
+		this.evictionPolicy = evictionPolicy;
+	}
+
+	/**
+	 * Returns whether the entries are in access order.
+	 *
+	 * @return <code>true</code> for access order, <code>false</code> for insertion order
+	 */
+	public boolean isAccessOrder() {
+		return accessOrder;
+	}
+
+	/**
+	 * Returns the number of bytes of all entries in the {@link MemoryManager}.
+	 *
+	 * <p>This is the size that is compared with the {@link Builder#maxBytes(long) byte budget}.</p>
+	 *
+	 * @return the number of bytes
+	 */
+	public long getByteSize() {
+		return byteSize;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		V oldValue = putInternal(key, value);
+		evict();
+		return oldValue;
+	}
+
+	@Override
+	public V remove(Object key) {
+		return removeInternal(key);
+	}
+
+	@Override
+	public void clear() {
+		clearInternal();
+		headAddress = NO_ENTRY;
+		tailAddress = NO_ENTRY;
+		byteSize = 0;
+		modCount++;
+	}
+
+	/**
+	 * Removes the eldest entries while this map exceeds its limits.
+	 */
+	private void evict() {
+		while (size() > 1 && shouldRemoveEldestEntry()) {
+			removeInternal(getEntryKey(headAddress));
+		}
+	}
+
+	private boolean shouldRemoveEldestEntry() {
+		if (maxSize > 0 && size() > maxSize) {
+			return true;
+		}
+		if (maxBytes > 0 && byteSize > maxBytes) {
+			return true;
+		}
+		if (evictionPolicy != null) {
+			Entry<K, V> eldest = new SimpleImmutableEntry<K, V>(getEntryKey(headAddress), getEntryValue(headAddress));
+			return evictionPolicy.removeEldestEntry(this, eldest);
+		}
+		return false;
+	}
+
+	@Override
+	protected void entryAdded(long entryAddress) {
+		linkLast(entryAddress);
+		byteSize += getEntryByteSize(entryAddress);
+		modCount++;
+	}
+
+	@Override
+	protected void entryAccessed(long entryAddress) {
+		if (accessOrder && entryAddress != tailAddress) {
+			unlink(entryAddress);
+			linkLast(entryAddress);
+			modCount++;
+		}
+	}
+
+	@Override
+	protected void entryMoved(long oldEntryAddress, long newEntryAddress) {
+		long previous = getEntryLink(newEntryAddress, PREVIOUS_LINK);
+		long next = getEntryLink(newEntryAddress, NEXT_LINK);
+		if (previous == NO_ENTRY) {
+			headAddress = newEntryAddress;
+		} else {
+			setEntryLink(previous, NEXT_LINK, newEntryAddress);
+		}
+		if (next == NO_ENTRY) {
+			tailAddress = newEntryAddress;
+		} else {
+			setEntryLink(next, PREVIOUS_LINK, newEntryAddress);
+		}
+		byteSize += getEntryByteSize(newEntryAddress) - getEntryByteSize(oldEntryAddress);
+	}
+
+	@Override
+	protected void entryRemoved(long entryAddress) {
+		unlink(entryAddress);
+		byteSize -= getEntryByteSize(entryAddress);
+		modCount++;
+	}
+
+	private void linkLast(long entryAddress) {
+		setEntryLink(entryAddress, PREVIOUS_LINK, tailAddress);
+		setEntryLink(entryAddress, NEXT_LINK, NO_ENTRY);
+		if (tailAddress == NO_ENTRY) {
+			headAddress = entryAddress;
+		} else {
+			setEntryLink(tailAddress, NEXT_LINK, entryAddress);
+		}
+		tailAddress = entryAddress;
+	}
+
+	private void unlink(long entryAddress) {
+		long previous = getEntryLink(entryAddress, PREVIOUS_LINK);
+		long next = getEntryLink(entryAddress, NEXT_LINK);
+		if (previous == NO_ENTRY) {
+			headAddress = next;
+		} else {
+			setEntryLink(previous, NEXT_LINK, next);
+		}
+		if (next == NO_ENTRY) {
+			tailAddress = previous;
+		} else {
+			setEntryLink(next, PREVIOUS_LINK, previous);
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	private class EntrySet extends AbstractEntrySet {
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			return new LinkedEntryIterator();
+		}
+	}
+
+	/**
+	 * Iterates over the entries from the eldest to the youngest.
+	 */
+	private class LinkedEntryIterator implements Iterator<Entry<K, V>> {
+		private long nextAddress = headAddress;
+
+		private K lastKey;
+
+		private boolean hasLast;
+
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return nextAddress != NO_ENTRY;
+		}
+
+		@Override
+		public Entry<K, V> next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (nextAddress == NO_ENTRY) {
+				throw new NoSuchElementException();
+			}
+
+			long entryAddress = nextAddress;
+			nextAddress = getEntryLink(entryAddress, NEXT_LINK);
+			lastKey = getEntryKey(entryAddress);
+			hasLast = true;
+			return new HugeMapEntry(lastKey, getEntryValue(entryAddress));
+		}
+
+		@Override
+		public void remove() {
+			if (!hasLast) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+
+			removeInternal(lastKey);
+			hasLast = false;
+			expectedModCount = modCount;
+		}
+	}
+
+	class HugeMapEntry extends AbstractEntry {
+		public HugeMapEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			// like LinkedHashMap the entry is neither moved nor are other entries evicted
+			return replaceValueInternal(value);
+		}
+	}
+
+	/**
+	 * Decides whether the eldest entry of a {@link HugeLinkedHashMap} should be removed,
+	 * like {@link LinkedHashMap#removeEldestEntry(java.util.Map.Entry)}.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	public interface EvictionPolicy<K, V> {
+
+		/**
+		 * Returns whether the eldest entry should be removed.
+		 *
+		 * <p>This method is called after every {@link HugeLinkedHashMap#put(Object, Object)}
+		 * and again after every removal until it returns <code>false</code> or only one entry is left.
+		 * It can be used as a callback for the evicted entries.</p>
+		 * <p>The policy must not modify the map.</p>
+		 *
+		 * @param map the map
+		 * @param eldest a copy of the eldest entry
+		 * @return <code>true</code> to remove the eldest entry
+		 */
+		boolean removeEldestEntry(HugeLinkedHashMap<K, V> map, Entry<K, V> eldest);
+	}
+
+	/**
+	 * Builds a {@link HugeLinkedHashMap}.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	public static class Builder<K, V> extends AbstractHugeMapBuilder<K, V> {
+
+		private HugeLinkedHashMap<K, V> result;
+
+		private boolean built;
+
+		private boolean accessOrder;
+
+		private int maxSize;
+
+		private long maxBytes;
+
+		private EvictionPolicy<K, V> evictionPolicy;
+
+		private HugeLinkedHashMap<K, V> getMap() {
+			if (result == null) {
+				result = new HugeLinkedHashMap<K, V>(getMemoryManager(), getKeyConverter(), getValueConverter(), isFaster(), getCapacity(), accessOrder, maxSize, maxBytes, evictionPolicy);
+			}
+			return result;
+		}
+
+		private void checkNotStarted() {
+			if (result != null) {
+				throw new IllegalStateException("Cannot change the configuration after adding the first element.");
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * <p>Every key/value pair also contains the links to the previous and the next entry.</p>
+		 */
+		@Override
+		protected int entryBlockSize(int serializedKeyLength, int serializedValueLength) {
+			return super.entryBlockSize(serializedKeyLength, serializedValueLength) + 2 * 8;
+		}
+
+		/**
+		 * Specifies that the entries are in access order instead of insertion order.
+		 *
+		 * @return this builder to chain calls
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<K, V> accessOrder() {
+			checkNotStarted();
+			this.accessOrder = true;
+			return this;
+		}
+
+		/**
+		 * Specifies the maximum number of entries.
+		 *
+		 * <p>The eldest entries are removed if the map grows beyond this size.</p>
+		 *
+		 * @param maxSize the maximum number of entries (at least 1)
+		 * @return this builder to chain calls
+		 * @throws IllegalArgumentException if the maximum size is smaller than 1
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<K, V> maxSize(int maxSize) {
+			checkNotStarted();
+			if (maxSize < 1) {
+				throw new IllegalArgumentException("maxSize=" + maxSize);
+			}
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * Specifies the maximum number of bytes of all entries in the {@link MemoryManager}.
+		 *
+		 * <p>The eldest entries are removed if the map grows beyond this budget, but the youngest entry is always kept.</p>
+		 *
+		 * @param maxBytes the maximum number of bytes (at least 1)
+		 * @return this builder to chain calls
+		 * @throws IllegalArgumentException if the maximum number of bytes is smaller than 1
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 * @see HugeLinkedHashMap#getByteSize()
+		 */
+		public Builder<K, V> maxBytes(long maxBytes) {
+			checkNotStarted();
+			if (maxBytes < 1) {
+				throw new IllegalArgumentException("maxBytes=" + maxBytes);
+			}
+			this.maxBytes = maxBytes;
+			return this;
+		}
+
+		/**
+		 * Specifies the {@link EvictionPolicy} that decides whether the eldest entry should be removed.
+		 *
+		 * @param evictionPolicy the {@link EvictionPolicy}
+		 * @return this builder to chain calls
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<K, V> evictionPolicy(EvictionPolicy<K, V> evictionPolicy) {
+			checkNotStarted();
+			this.evictionPolicy = evictionPolicy;
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> key(Class<K> keyClass) {
+			super.key(keyClass);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> key(Converter<K> keyConverter) {
+			super.key(keyConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> value(Class<V> valueClass) {
+			super.value(valueClass);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> value(Converter<V> valueConverter) {
+			super.value(valueConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> compressKey() {
+			super.compressKey();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> compressValue() {
+			super.compressValue();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> put(K key, V value) {
+			getMap().put(key, value);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> putAll(Map<K, V> map) {
+			getMap().putAll(map);
+			return this;
+		}
+
+		@Override
+		public HugeLinkedHashMap<K, V> build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getMap();
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeListBuilder;
+import ch.obermuhlner.jhuge.collection.internal.HugeLongArray;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A mutable {@link List} of <code>long</code> values that stores the values densely in a {@link MemoryManager}.
+ *
+ * <p>Unlike a {@link HugeArrayList} of {@link Long} elements, which allocates a memory block for every element,
+ * the values are stored in pages of 8 bytes per value.
+ * The primitive methods {@link #getLong(int)}, {@link #setLong(int, long)} and {@link #addLong(long)} do not allocate any objects.</p>
+ *
+ * <p>Access to single elements is O(1).</p>
+ * <p>Removing a single element is O(n).</p>
+ *
+ * <p>This list does not support <code>null</code> elements.</p>
+ */
+public class HugeLongList extends AbstractList<Long> implements RandomAccess {
+
+	private final HugeLongArray array;
+
+	private HugeLongList(MemoryManager memoryManager, int capacity) {
+		array = new HugeLongArray(memoryManager, capacity);
+	}
+
+	/**
+	 * Returns the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long getLong(int index) {
+		return array.get(index);
+	}
+
+	/**
+	 * Replaces the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param value the value to set
+	 * @return the old value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long setLong(int index, long value) {
+		return array.set(index, value);
+	}
+
+	/**
+	 * Adds a value at the end.
+	 *
+	 * @param value the value to add
+	 */
+	public void addLong(long value) {
+		array.add(value);
+		modCount++;
+	}
+
+	/**
+	 * Inserts a value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param value the value to add
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public void addLong(int index, long value) {
+		array.add(index, value);
+		modCount++;
+	}
+
+	/**
+	 * Adds all values of the specified array at the end.
+	 *
+	 * @param values the values to add
+	 */
+	public void addLongs(long[] values) {
+		addLongs(values, 0, values.length);
+	}
+
+	/**
+	 * Adds a range of values of the specified array at the end.
+	 *
+	 * @param values the array containing the values to add
+	 * @param offset the offset of the first value in the array
+	 * @param length the number of values to add
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public void addLongs(long[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + values.length);
+		}
+		array.addAll(values, offset, length);
+		modCount++;
+	}
+
+	/**
+	 * Removes the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the removed value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long removeLong(int index) {
+		long oldValue = array.remove(index);
+		modCount++;
+		return oldValue;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the specified value.
+	 *
+	 * @param value the value to search
+	 * @return the index, or -1 if this list does not contain the value
+	 */
+	public int indexOfLong(long value) {
+		return array.indexOf(value);
+	}
+
+	/**
+	 * Returns whether this list contains the specified value.
+	 *
+	 * @param value the value to search
+	 * @return <code>true</code> if this list contains the value
+	 */
+	public boolean containsLong(long value) {
+		return array.indexOf(value) >= 0;
+	}
+
+	/**
+	 * Copies a range of values into the specified array.
+	 *
+	 * @param index the index position of the first value to copy
+	 * @param values the array to copy the values into
+	 * @param offset the offset in the array
+	 * @param length the number of values to copy
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of this list or the array
+	 */
+	public void getLongs(int index, long[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + values.length);
+		}
+		array.get(index, values, offset, length);
+	}
+
+	/**
+	 * Returns all values as a <code>long[]</code>.
+	 *
+	 * @return a new array containing all values
+	 */
+	public long[] toLongArray() {
+		return array.toArray();
+	}
+
+	@Override
+	public Long get(int index) {
+		return getLong(index);
+	}
+
+	@Override
+	public Long set(int index, Long element) {
+		return setLong(index, element);
+	}
+
+	@Override
+	public void add(int index, Long element) {
+		addLong(index, element);
+	}
+
+	@Override
+	public Long remove(int index) {
+		return removeLong(index);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return o instanceof Long ? indexOfLong((Long) o) : -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public void clear() {
+		array.clear();
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return array.size();
+	}
+
+	/**
+	 * Builds a {@link HugeLongList}.
+	 *
+	 * <p>The settings for the element {@link Converter} have no effect, the values are always stored as 8 bytes.</p>
+	 */
+	public static class Builder extends AbstractHugeListBuilder<Long> {
+
+		private HugeLongList result;
+
+		private boolean built;
+
+		private HugeLongList getList() {
+			if (result == null) {
+				result = new HugeLongList(getMemoryManager(), getCapacity());
+			}
+			return result;
+		}
+
+		@Override
+		public Builder classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder element(Class<Long> elementClass) {
+			super.element(elementClass);
+			return this;
+		}
+
+		@Override
+		public Builder element(Converter<Long> elementConverter) {
+			super.element(elementConverter);
+			return this;
+		}
+
+		@Override
+		public Builder compressElement() {
+			super.compressElement();
+			return this;
+		}
+
+		@Override
+		public Builder bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder add(Long element) {
+			getList().add(element);
+			return this;
+		}
+
+		/**
+		 * Adds a value.
+		 *
+		 * @param value the value to add
+		 * @return this builder to chain calls
+		 */
+		public Builder addLong(long value) {
+			getList().addLong(value);
+			return this;
+		}
+
+		@Override
+		public Builder addAll(Collection<Long> elements) {
+			getList().addAll(elements);
+			return this;
+		}
+
+		@Override
+		public Builder addAll(Long... elements) {
+			return addAll(Arrays.asList(elements));
+		}
+
+		/**
+		 * Adds all values of the specified array.
+		 *
+		 * @param values the values to add
+		 * @return this builder to chain calls
+		 */
+		public Builder addLongs(long[] values) {
+			getList().addLongs(values);
+			return this;
+		}
+
+		@Override
+		public HugeLongList build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getList();
+		}
+	}
+}
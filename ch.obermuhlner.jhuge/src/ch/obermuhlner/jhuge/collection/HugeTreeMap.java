@@ -0,0 +1,1736 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeMapBuilder;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.converter.OrderedConverter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A {@link NavigableMap} that stores key/value pairs sorted in a B+tree in a {@link MemoryManager}.
+ *
+ * <p>The implementation mimics a {@link TreeMap}.</p>
+ *
+ * <p>Access to single entries through the key is O(log n):
+ * {@link #containsKey(Object)}, {@link #get(Object)}, {@link #put(Object, Object)}, {@link #remove(Object)},
+ * {@link #floorKey(Object)}, {@link #ceilingKey(Object)} and the other navigation methods.
+ * </p>
+ *
+ * <p>The nodes of the tree are blocks in the {@link MemoryManager}.
+ * The leaves contain the addresses of the entries and are linked with each other, so that range scans
+ * ({@link #subMap(Object, boolean, Object, boolean)}, {@link #headMap(Object, boolean)}, {@link #tailMap(Object, boolean)}, {@link #descendingMap()})
+ * read the entries one by one, without copying them into the Java heap.</p>
+ *
+ * <p>The keys are sorted by the {@link Builder#comparator(Comparator) comparator} or by their natural ordering.
+ * If no comparator is specified and the key {@link Converter} is an {@link OrderedConverter}
+ * the keys are compared in their serialized form without deserializing them.</p>
+ *
+ * <p>Removing entries does not merge underfull nodes, only empty nodes are removed from the tree.
+ * Inserting keys in ascending order fills the nodes completely.</p>
+ *
+ * <p>This map does not support <code>null</code> keys. <code>null</code> values are supported.</p>
+ *
+ * <p>In order to store the elements in the {@link MemoryManager} they must be serialized and deserialized to read them.
+ * This is done by a {@link Converter} which can be specified in the {@link Builder}.
+ * The default {@link Converter} can handle instances of all serializable classes.</p>
+ *
+ * <p>Important:
+ * Changes to the keys or values outside of the huge collection are <strong>not</strong> automatically reflected by the serialized form in the collection.
+ * In this case you must replace the stored object with the modified object.</p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class HugeTreeMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+	private static final byte[] EMPTY_DATA = new byte[0];
+
+	private static final int ENTRY_HEADER_SIZE = 4;
+
+	private static final int NULL_VALUE_FLAG = 0x80000000;
+
+	private static final int NODE_CAPACITY = 64;
+
+	private static final long NO_NODE = -1;
+
+	private static final int LEAF_FLAG = 1;
+
+	private static final int NODE_FLAGS_OFFSET = 0;
+	private static final int NODE_COUNT_OFFSET = 4;
+
+	private static final int LEAF_PREVIOUS_OFFSET = 8;
+	private static final int LEAF_NEXT_OFFSET = 16;
+	private static final int LEAF_ENTRIES_OFFSET = 24;
+	private static final int LEAF_SIZE = LEAF_ENTRIES_OFFSET + NODE_CAPACITY * 8;
+
+	private static final int INNER_KEYS_OFFSET = 8;
+	private static final int INNER_CHILDREN_OFFSET = INNER_KEYS_OFFSET + NODE_CAPACITY * 8;
+	private static final int INNER_SIZE = INNER_CHILDREN_OFFSET + (NODE_CAPACITY + 1) * 8;
+
+	private static final int LOWER = 0;
+	private static final int FLOOR = 1;
+	private static final int CEILING = 2;
+	private static final int HIGHER = 3;
+
+	private final MemoryManager memoryManager;
+	private final Converter<K> keyConverter;
+	private final Converter<V> valueConverter;
+	private final ByteBufferConverter<K> keyByteBufferConverter;
+	private final ByteBufferConverter<V> valueByteBufferConverter;
+	private final OrderedConverter<K> keyOrderedConverter;
+	private final Comparator<? super K> comparator;
+
+	private final SubMap all = new SubMap(true, null, false, true, null, false, false);
+
+	private long rootAddress;
+
+	/**
+	 * The number of levels of the tree, 1 if the root is a leaf.
+	 */
+	private int height;
+
+	private int size;
+
+	private int modCount;
+
+	private HugeTreeMap(MemoryManager memoryManager, Converter<K> keyConverter, Converter<V> valueConverter, Comparator<? super K> comparator) {
+		this.memoryManager = memoryManager;
+		this.keyConverter = keyConverter;
+		this.valueConverter = valueConverter;
+		this.comparator = comparator;
+		this.keyByteBufferConverter = keyConverter instanceof ByteBufferConverter ? (ByteBufferConverter<K>) keyConverter : null;
+		this.valueByteBufferConverter = valueConverter instanceof ByteBufferConverter ? (ByteBufferConverter<V>) valueConverter : null;
+		this.keyOrderedConverter = comparator == null && keyConverter instanceof OrderedConverter ? (OrderedConverter<K>) keyConverter : null;
+
+		rootAddress = allocateLeaf();
+		height = 1;
+	}
+
+	/**
+	 * Returns the {@link MemoryManager}.
+	 *
+	 * @return the {@link MemoryManager}
+	 */
+	MemoryManager getMemoryManager() {
+		return memoryManager;
+	}
+
+	/**
+	 * Returns the number of levels of the tree.
+	 *
+	 * @return the height, 1 if the tree consists of a single leaf
+	 */
+	int getHeight() {
+		return height;
+	}
+
+	@Override
+	public Comparator<? super K> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public V get(Object key) {
+		Position position = findEntry(key);
+		if (position == null) {
+			return null;
+		}
+		return getValue(position);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return findEntry(key) != null;
+	}
+
+	/**
+	 * Finds the position of the entry with the specified key.
+	 *
+	 * <p>Keys that cannot be compared with the keys in this map are treated like missing keys.</p>
+	 *
+	 * @param key the key
+	 * @return the position, or <code>null</code> if the map does not contain the key
+	 */
+	private Position findEntry(Object key) {
+		try {
+			byte[] keyData = serializeProbe(key);
+			long leaf = findLeaf(key, keyData);
+			int index = searchLeaf(leaf, key, keyData);
+			return index < 0 ? null : new Position(leaf, index);
+		} catch (ClassCastException exception) {
+			return null;
+		}
+	}
+
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+
+		byte[] keyData = keyConverter.serialize(key);
+		byte[] valueData = serializeValue(value);
+		byte[] probeData = keyOrderedConverter != null ? keyData : null;
+
+		long[] pathNodes = new long[height];
+		int[] pathIndexes = new int[height];
+		boolean[] pathRightmost = new boolean[height];
+		long leaf = findLeaf(key, probeData, pathNodes, pathIndexes, pathRightmost);
+
+		int index = searchLeaf(leaf, key, probeData);
+		if (index >= 0) {
+			V oldValue = getValue(memoryManager.view(entryAddress(leaf, index)));
+			replaceValue(leaf, index, valueData);
+			return oldValue;
+		}
+
+		int insertIndex = -index - 1;
+		long entryAddress = allocateEntry(keyData, valueData);
+		int count = nodeCount(leaf);
+		if (count < NODE_CAPACITY) {
+			insertSlot(leaf, LEAF_ENTRIES_OFFSET, count, insertIndex, entryAddress);
+			setNodeCount(leaf, count + 1);
+		} else {
+			splitLeaf(leaf, insertIndex, entryAddress, pathNodes, pathIndexes, pathRightmost);
+		}
+
+		size++;
+		modCount++;
+		return null;
+	}
+
+	private void splitLeaf(long leaf, int insertIndex, long entryAddress, long[] pathNodes, int[] pathIndexes, boolean[] pathRightmost) {
+		long[] entries = new long[NODE_CAPACITY + 1];
+		readSlots(leaf, LEAF_ENTRIES_OFFSET, entries, 0, insertIndex);
+		entries[insertIndex] = entryAddress;
+		readSlots(leaf, LEAF_ENTRIES_OFFSET + insertIndex * 8, entries, insertIndex + 1, NODE_CAPACITY - insertIndex);
+
+		// appending to the last leaf (ascending keys) keeps the left leaf full
+		boolean append = insertIndex == NODE_CAPACITY && nextLeaf(leaf) == NO_NODE;
+		int leftCount = append ? NODE_CAPACITY : (NODE_CAPACITY + 1) / 2;
+		int rightCount = NODE_CAPACITY + 1 - leftCount;
+
+		long right = allocateLeaf();
+		writeSlots(leaf, LEAF_ENTRIES_OFFSET, entries, 0, leftCount);
+		setNodeCount(leaf, leftCount);
+		writeSlots(right, LEAF_ENTRIES_OFFSET, entries, leftCount, rightCount);
+		setNodeCount(right, rightCount);
+
+		long next = nextLeaf(leaf);
+		memoryManager.writeLong(right, LEAF_PREVIOUS_OFFSET, leaf);
+		memoryManager.writeLong(right, LEAF_NEXT_OFFSET, next);
+		memoryManager.writeLong(leaf, LEAF_NEXT_OFFSET, right);
+		if (next != NO_NODE) {
+			memoryManager.writeLong(next, LEAF_PREVIOUS_OFFSET, right);
+		}
+
+		insertIntoParent(height - 2, copyKey(entries[leftCount]), right, pathNodes, pathIndexes, pathRightmost);
+	}
+
+	private void insertIntoParent(int level, long separatorAddress, long right, long[] pathNodes, int[] pathIndexes, boolean[] pathRightmost) {
+		if (level < 0) {
+			long newRoot = allocateInner();
+			memoryManager.writeLong(newRoot, INNER_KEYS_OFFSET, separatorAddress);
+			memoryManager.writeLong(newRoot, INNER_CHILDREN_OFFSET, rootAddress);
+			memoryManager.writeLong(newRoot, INNER_CHILDREN_OFFSET + 8, right);
+			setNodeCount(newRoot, 1);
+			rootAddress = newRoot;
+			height++;
+			return;
+		}
+
+		long node = pathNodes[level];
+		int index = pathIndexes[level];
+		int count = nodeCount(node);
+		if (count < NODE_CAPACITY) {
+			insertSlot(node, INNER_KEYS_OFFSET, count, index, separatorAddress);
+			insertSlot(node, INNER_CHILDREN_OFFSET, count + 1, index + 1, right);
+			setNodeCount(node, count + 1);
+			return;
+		}
+
+		long[] keys = new long[NODE_CAPACITY + 1];
+		readSlots(node, INNER_KEYS_OFFSET, keys, 0, index);
+		keys[index] = separatorAddress;
+		readSlots(node, INNER_KEYS_OFFSET + index * 8, keys, index + 1, NODE_CAPACITY - index);
+		long[] children = new long[NODE_CAPACITY + 2];
+		readSlots(node, INNER_CHILDREN_OFFSET, children, 0, index + 1);
+		children[index + 1] = right;
+		readSlots(node, INNER_CHILDREN_OFFSET + (index + 1) * 8, children, index + 2, NODE_CAPACITY - index);
+
+		// appending to the last inner node (ascending keys) keeps the left node full
+		boolean append = index == NODE_CAPACITY && pathRightmost[level];
+		int leftCount = append ? NODE_CAPACITY : NODE_CAPACITY / 2;
+		int rightCount = NODE_CAPACITY - leftCount;
+
+		long newRight = allocateInner();
+		writeSlots(node, INNER_KEYS_OFFSET, keys, 0, leftCount);
+		writeSlots(node, INNER_CHILDREN_OFFSET, children, 0, leftCount + 1);
+		setNodeCount(node, leftCount);
+		writeSlots(newRight, INNER_KEYS_OFFSET, keys, leftCount + 1, rightCount);
+		writeSlots(newRight, INNER_CHILDREN_OFFSET, children, leftCount + 1, rightCount + 1);
+		setNodeCount(newRight, rightCount);
+
+		insertIntoParent(level - 1, keys[leftCount], newRight, pathNodes, pathIndexes, pathRightmost);
+	}
+
+	@Override
+	public V remove(Object key) {
+		long[] pathNodes = new long[height];
+		int[] pathIndexes = new int[height];
+		long leaf;
+		int index;
+		try {
+			byte[] keyData = serializeProbe(key);
+			leaf = findLeaf(key, keyData, pathNodes, pathIndexes, new boolean[height]);
+			index = searchLeaf(leaf, key, keyData);
+		} catch (ClassCastException exception) {
+			return null;
+		}
+		if (index < 0) {
+			return null;
+		}
+
+		long entryAddress = entryAddress(leaf, index);
+		V oldValue = getValue(memoryManager.view(entryAddress));
+		memoryManager.free(entryAddress);
+
+		int count = nodeCount(leaf);
+		removeSlot(leaf, LEAF_ENTRIES_OFFSET, count, index);
+		setNodeCount(leaf, count - 1);
+
+		if (count == 1 && height > 1) {
+			long previous = previousLeaf(leaf);
+			long next = nextLeaf(leaf);
+			if (previous != NO_NODE) {
+				memoryManager.writeLong(previous, LEAF_NEXT_OFFSET, next);
+			}
+			if (next != NO_NODE) {
+				memoryManager.writeLong(next, LEAF_PREVIOUS_OFFSET, previous);
+			}
+			memoryManager.free(leaf);
+			removeChild(height - 2, pathNodes, pathIndexes);
+
+			while (height > 1 && nodeCount(rootAddress) == 0) {
+				long oldRoot = rootAddress;
+				rootAddress = childAddress(oldRoot, 0);
+				memoryManager.free(oldRoot);
+				height--;
+			}
+		}
+
+		size--;
+		modCount++;
+		return oldValue;
+	}
+
+	private void removeChild(int level, long[] pathNodes, int[] pathIndexes) {
+		long node = pathNodes[level];
+		int index = pathIndexes[level];
+		int count = nodeCount(node);
+		if (count == 0) {
+			// the removed child was the only child
+			memoryManager.free(node);
+			if (level == 0) {
+				rootAddress = allocateLeaf();
+				height = 1;
+			} else {
+				removeChild(level - 1, pathNodes, pathIndexes);
+			}
+			return;
+		}
+
+		// the empty range of the removed child is merged into the neighbor
+		int keyIndex = index > 0 ? index - 1 : 0;
+		memoryManager.free(keyAddress(node, keyIndex));
+		removeSlot(node, INNER_KEYS_OFFSET, count, keyIndex);
+		removeSlot(node, INNER_CHILDREN_OFFSET, count + 1, index);
+		setNodeCount(node, count - 1);
+	}
+
+	@Override
+	public void clear() {
+		freeNode(rootAddress);
+		rootAddress = allocateLeaf();
+		height = 1;
+		size = 0;
+		modCount++;
+	}
+
+	private void freeNode(long node) {
+		int count = nodeCount(node);
+		if (isLeaf(node)) {
+			for (int i = 0; i < count; i++) {
+				memoryManager.free(entryAddress(node, i));
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				memoryManager.free(keyAddress(node, i));
+			}
+			for (int i = 0; i <= count; i++) {
+				freeNode(childAddress(node, i));
+			}
+		}
+		memoryManager.free(node);
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return all.entrySet();
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return navigableKeySet();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return all.values();
+	}
+
+	@Override
+	public Entry<K, V> lowerEntry(K key) {
+		return all.lowerEntry(key);
+	}
+
+	@Override
+	public K lowerKey(K key) {
+		return all.lowerKey(key);
+	}
+
+	@Override
+	public Entry<K, V> floorEntry(K key) {
+		return all.floorEntry(key);
+	}
+
+	@Override
+	public K floorKey(K key) {
+		return all.floorKey(key);
+	}
+
+	@Override
+	public Entry<K, V> ceilingEntry(K key) {
+		return all.ceilingEntry(key);
+	}
+
+	@Override
+	public K ceilingKey(K key) {
+		return all.ceilingKey(key);
+	}
+
+	@Override
+	public Entry<K, V> higherEntry(K key) {
+		return all.higherEntry(key);
+	}
+
+	@Override
+	public K higherKey(K key) {
+		return all.higherKey(key);
+	}
+
+	@Override
+	public Entry<K, V> firstEntry() {
+		return all.firstEntry();
+	}
+
+	@Override
+	public Entry<K, V> lastEntry() {
+		return all.lastEntry();
+	}
+
+	@Override
+	public Entry<K, V> pollFirstEntry() {
+		return all.pollFirstEntry();
+	}
+
+	@Override
+	public Entry<K, V> pollLastEntry() {
+		return all.pollLastEntry();
+	}
+
+	@Override
+	public K firstKey() {
+		return all.firstKey();
+	}
+
+	@Override
+	public K lastKey() {
+		return all.lastKey();
+	}
+
+	@Override
+	public NavigableMap<K, V> descendingMap() {
+		return all.descendingMap();
+	}
+
+	@Override
+	public NavigableSet<K> navigableKeySet() {
+		return all.navigableKeySet();
+	}
+
+	@Override
+	public NavigableSet<K> descendingKeySet() {
+		return all.descendingKeySet();
+	}
+
+	@Override
+	public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return all.subMap(fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	@Override
+	public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+		return all.headMap(toKey, inclusive);
+	}
+
+	@Override
+	public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+		return all.tailMap(fromKey, inclusive);
+	}
+
+	@Override
+	public SortedMap<K, V> subMap(K fromKey, K toKey) {
+		return all.subMap(fromKey, toKey);
+	}
+
+	@Override
+	public SortedMap<K, V> headMap(K toKey) {
+		return all.headMap(toKey);
+	}
+
+	@Override
+	public SortedMap<K, V> tailMap(K fromKey) {
+		return all.tailMap(fromKey);
+	}
+
+	/**
+	 * Serializes a key for the comparison with the stored keys.
+	 *
+	 * @param key the key
+	 * @return the serialized key, or <code>null</code> if the keys are compared in deserialized form
+	 */
+	private byte[] serializeProbe(Object key) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+		if (keyOrderedConverter == null) {
+			return null;
+		}
+
+		@SuppressWarnings("unchecked")
+		K typedKey = (K) key;
+		return keyOrderedConverter.serialize(typedKey);
+	}
+
+	private byte[] serializeValue(V value) {
+		if (value == null) {
+			return EMPTY_DATA;
+		}
+
+		return valueConverter.serialize(value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compareKeys(Object key1, Object key2) {
+		if (comparator != null) {
+			return comparator.compare((K) key1, (K) key2);
+		}
+		return ((Comparable<Object>) key1).compareTo(key2);
+	}
+
+	/**
+	 * Compares a key with a stored key.
+	 *
+	 * @param key the key
+	 * @param keyData the serialized key if the keys are compared in serialized form, <code>null</code> otherwise
+	 * @param keyBlockAddress the address of the entry or separator block containing the stored key
+	 * @return a negative integer, zero, or a positive integer as the key is less than, equal to, or greater than the stored key
+	 */
+	private int compareKey(Object key, byte[] keyData, long keyBlockAddress) {
+		ByteBuffer block = memoryManager.view(keyBlockAddress);
+		if (keyData != null) {
+			ByteBuffer keyBuffer = block.duplicate();
+			keyBuffer.position(ENTRY_HEADER_SIZE);
+			keyBuffer.limit(ENTRY_HEADER_SIZE + (block.getInt(0) & ~NULL_VALUE_FLAG));
+			return keyOrderedConverter.compareSerialized(ByteBuffer.wrap(keyData), keyBuffer);
+		}
+		return compareKeys(key, getKey(block));
+	}
+
+	private long findLeaf(Object key, byte[] keyData) {
+		long node = rootAddress;
+		while (!isLeaf(node)) {
+			node = childAddress(node, searchInner(node, key, keyData));
+		}
+		return node;
+	}
+
+	private long findLeaf(Object key, byte[] keyData, long[] pathNodes, int[] pathIndexes, boolean[] pathRightmost) {
+		long node = rootAddress;
+		boolean rightmost = true;
+		for (int level = 0; level < height - 1; level++) {
+			int index = searchInner(node, key, keyData);
+			pathNodes[level] = node;
+			pathIndexes[level] = index;
+			pathRightmost[level] = rightmost;
+			rightmost = rightmost && index == nodeCount(node);
+			node = childAddress(node, index);
+		}
+		return node;
+	}
+
+	/**
+	 * Searches the child of an inner node that contains the specified key.
+	 *
+	 * @return the index of the child, which is the number of separator keys that are less than or equal to the key
+	 */
+	private int searchInner(long node, Object key, byte[] keyData) {
+		int low = 0;
+		int high = nodeCount(node);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareKey(key, keyData, keyAddress(node, mid)) >= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Searches the specified key in a leaf.
+	 *
+	 * @return the index of the key, or <code>-(insertion point) - 1</code> if the leaf does not contain the key
+	 */
+	private int searchLeaf(long leaf, Object key, byte[] keyData) {
+		int low = 0;
+		int high = nodeCount(leaf) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = compareKey(key, keyData, entryAddress(leaf, mid));
+			if (comparison > 0) {
+				low = mid + 1;
+			} else if (comparison < 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Finds the position of the entry in the specified relation to a key.
+	 *
+	 * @param key the key
+	 * @param relation one of {@link #LOWER}, {@link #FLOOR}, {@link #CEILING}, {@link #HIGHER}
+	 * @return the position, or <code>null</code> if there is no such entry
+	 */
+	private Position findPosition(Object key, int relation) {
+		byte[] keyData = serializeProbe(key);
+		long leaf = findLeaf(key, keyData);
+		int index = searchLeaf(leaf, key, keyData);
+		boolean found = index >= 0;
+		if (!found) {
+			index = -index - 1;
+		}
+
+		switch (relation) {
+		case LOWER:
+			return toPosition(leaf, index - 1);
+		case FLOOR:
+			return toPosition(leaf, found ? index : index - 1);
+		case CEILING:
+			return toPosition(leaf, index);
+		default:
+			return toPosition(leaf, found ? index + 1 : index);
+		}
+	}
+
+	/**
+	 * Converts an index that may be outside the leaf into the position of the neighboring entry.
+	 *
+	 * <p>Only empty trees have empty leaves, so the neighbor of a leaf always contains entries.</p>
+	 */
+	private Position toPosition(long leaf, int index) {
+		if (index < 0) {
+			long previous = previousLeaf(leaf);
+			return previous == NO_NODE ? null : new Position(previous, nodeCount(previous) - 1);
+		}
+		if (index >= nodeCount(leaf)) {
+			long next = nextLeaf(leaf);
+			return next == NO_NODE ? null : new Position(next, 0);
+		}
+		return new Position(leaf, index);
+	}
+
+	private Position firstPosition() {
+		long node = rootAddress;
+		while (!isLeaf(node)) {
+			node = childAddress(node, 0);
+		}
+		return nodeCount(node) == 0 ? null : new Position(node, 0);
+	}
+
+	private Position lastPosition() {
+		long node = rootAddress;
+		while (!isLeaf(node)) {
+			node = childAddress(node, nodeCount(node));
+		}
+		int count = nodeCount(node);
+		return count == 0 ? null : new Position(node, count - 1);
+	}
+
+	private Position nextPosition(Position position) {
+		return toPosition(position.leaf, position.index + 1);
+	}
+
+	private Position previousPosition(Position position) {
+		return toPosition(position.leaf, position.index - 1);
+	}
+
+	private K getKey(Position position) {
+		return getKey(memoryManager.view(entryAddress(position.leaf, position.index)));
+	}
+
+	private V getValue(Position position) {
+		return getValue(memoryManager.view(entryAddress(position.leaf, position.index)));
+	}
+
+	/**
+	 * Deserializes the key of an entry or separator block.
+	 *
+	 * @param block the {@link MemoryManager#view(long) view} of the block
+	 * @return the key
+	 */
+	private K getKey(ByteBuffer block) {
+		ByteBuffer keyBuffer = block.duplicate();
+		keyBuffer.position(ENTRY_HEADER_SIZE);
+		keyBuffer.limit(ENTRY_HEADER_SIZE + (block.getInt(0) & ~NULL_VALUE_FLAG));
+		if (keyByteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			return keyByteBufferConverter.deserialize(keyBuffer);
+		}
+
+		byte[] data = new byte[keyBuffer.remaining()];
+		keyBuffer.get(data);
+		return keyConverter.deserialize(data);
+	}
+
+	/**
+	 * Deserializes the value of an entry.
+	 *
+	 * @param entry the {@link MemoryManager#view(long) view} of the entry block
+	 * @return the value
+	 */
+	private V getValue(ByteBuffer entry) {
+		int header = entry.getInt(0);
+		if ((header & NULL_VALUE_FLAG) != 0) {
+			return null;
+		}
+
+		ByteBuffer valueBuffer = entry.duplicate();
+		valueBuffer.position(ENTRY_HEADER_SIZE + header);
+		if (valueByteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			return valueByteBufferConverter.deserialize(valueBuffer);
+		}
+
+		byte[] data = new byte[valueBuffer.remaining()];
+		valueBuffer.get(data);
+		return valueConverter.deserialize(data);
+	}
+
+	private long allocateEntry(byte[] keyData, byte[] valueData) {
+		byte[] data = new byte[ENTRY_HEADER_SIZE + keyData.length + valueData.length];
+		ByteBuffer.wrap(data).putInt(entryHeader(keyData.length, valueData)).put(keyData).put(valueData);
+		return memoryManager.allocate(data);
+	}
+
+	/**
+	 * Replaces the value of the entry at the specified index in a leaf.
+	 *
+	 * <p>The stored key is kept, like {@link TreeMap} keeps the original key.
+	 * A key that compares equal may serialize to a different length, so the key length is taken from the header of the stored entry.</p>
+	 */
+	private void replaceValue(long leaf, int index, byte[] valueData) {
+		long entryAddress = entryAddress(leaf, index);
+		ByteBuffer entry = memoryManager.view(entryAddress);
+		int keyLength = entry.getInt(0) & ~NULL_VALUE_FLAG;
+		int valueOffset = ENTRY_HEADER_SIZE + keyLength;
+		if (entry.remaining() == valueOffset + valueData.length) {
+			// same length - overwrite the value in place
+			memoryManager.writeInt(entryAddress, 0, entryHeader(keyLength, valueData));
+			memoryManager.write(entryAddress, valueOffset, valueData, valueData.length);
+			return;
+		}
+
+		byte[] data = new byte[valueOffset + valueData.length];
+		memoryManager.read(entryAddress, 0, data, valueOffset);
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.putInt(0, entryHeader(keyLength, valueData));
+		buffer.position(valueOffset);
+		buffer.put(valueData);
+		memoryManager.free(entryAddress);
+		memoryManager.writeLong(leaf, LEAF_ENTRIES_OFFSET + index * 8, memoryManager.allocate(data));
+	}
+
+	private static int entryHeader(int keyLength, byte[] valueData) {
+		return valueData.length == 0 ? keyLength | NULL_VALUE_FLAG : keyLength;
+	}
+
+	/**
+	 * Copies the key of an entry into a new separator block, which has the same layout as an entry without a value.
+	 */
+	private long copyKey(long entryAddress) {
+		ByteBuffer entry = memoryManager.view(entryAddress);
+		int keyLength = entry.getInt(0) & ~NULL_VALUE_FLAG;
+		byte[] data = new byte[ENTRY_HEADER_SIZE + keyLength];
+		memoryManager.read(entryAddress, 0, data, data.length);
+		ByteBuffer.wrap(data).putInt(0, keyLength | NULL_VALUE_FLAG);
+		return memoryManager.allocate(data);
+	}
+
+	private long allocateLeaf() {
+		long leaf = memoryManager.allocate(LEAF_SIZE);
+		memoryManager.writeInt(leaf, NODE_FLAGS_OFFSET, LEAF_FLAG);
+		memoryManager.writeInt(leaf, NODE_COUNT_OFFSET, 0);
+		memoryManager.writeLong(leaf, LEAF_PREVIOUS_OFFSET, NO_NODE);
+		memoryManager.writeLong(leaf, LEAF_NEXT_OFFSET, NO_NODE);
+		return leaf;
+	}
+
+	private long allocateInner() {
+		long node = memoryManager.allocate(INNER_SIZE);
+		memoryManager.writeInt(node, NODE_FLAGS_OFFSET, 0);
+		memoryManager.writeInt(node, NODE_COUNT_OFFSET, 0);
+		return node;
+	}
+
+	private boolean isLeaf(long node) {
+		return memoryManager.readInt(node, NODE_FLAGS_OFFSET) == LEAF_FLAG;
+	}
+
+	private int nodeCount(long node) {
+		return memoryManager.readInt(node, NODE_COUNT_OFFSET);
+	}
+
+	private void setNodeCount(long node, int count) {
+		memoryManager.writeInt(node, NODE_COUNT_OFFSET, count);
+	}
+
+	private long previousLeaf(long leaf) {
+		return memoryManager.readLong(leaf, LEAF_PREVIOUS_OFFSET);
+	}
+
+	private long nextLeaf(long leaf) {
+		return memoryManager.readLong(leaf, LEAF_NEXT_OFFSET);
+	}
+
+	private long entryAddress(long leaf, int index) {
+		return memoryManager.readLong(leaf, LEAF_ENTRIES_OFFSET + index * 8);
+	}
+
+	private long keyAddress(long node, int index) {
+		return memoryManager.readLong(node, INNER_KEYS_OFFSET + index * 8);
+	}
+
+	private long childAddress(long node, int index) {
+		return memoryManager.readLong(node, INNER_CHILDREN_OFFSET + index * 8);
+	}
+
+	/**
+	 * Inserts a value into an array of <code>long</code> slots in a node, moving the following slots.
+	 */
+	private void insertSlot(long node, int offset, int count, int index, long value) {
+		int moveLength = (count - index) * 8;
+		if (moveLength > 0) {
+			byte[] data = new byte[moveLength];
+			memoryManager.read(node, offset + index * 8, data, moveLength);
+			memoryManager.write(node, offset + (index + 1) * 8, data, moveLength);
+		}
+		memoryManager.writeLong(node, offset + index * 8, value);
+	}
+
+	/**
+	 * Removes a value from an array of <code>long</code> slots in a node, moving the following slots.
+	 */
+	private void removeSlot(long node, int offset, int count, int index) {
+		int moveLength = (count - index - 1) * 8;
+		if (moveLength > 0) {
+			byte[] data = new byte[moveLength];
+			memoryManager.read(node, offset + (index + 1) * 8, data, moveLength);
+			memoryManager.write(node, offset + index * 8, data, moveLength);
+		}
+	}
+
+	private void readSlots(long node, int offset, long[] values, int valuesOffset, int count) {
+		if (count == 0) {
+			return;
+		}
+		byte[] data = new byte[count * 8];
+		memoryManager.read(node, offset, data, data.length);
+		ByteBuffer.wrap(data).asLongBuffer().get(values, valuesOffset, count);
+	}
+
+	private void writeSlots(long node, int offset, long[] values, int valuesOffset, int count) {
+		if (count == 0) {
+			return;
+		}
+		byte[] data = new byte[count * 8];
+		ByteBuffer.wrap(data).asLongBuffer().put(values, valuesOffset, count);
+		memoryManager.write(node, offset, data, data.length);
+	}
+
+	/**
+	 * The position of an entry in a leaf.
+	 */
+	private static class Position {
+		final long leaf;
+		final int index;
+
+		Position(long leaf, int index) {
+			this.leaf = leaf;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * A view of the entries within a range of keys, in ascending or descending order.
+	 *
+	 * <p>The bounds are always expressed in the ascending order of the map.</p>
+	 */
+	private class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+		private final boolean fromStart;
+		private final Object low;
+		private final boolean lowInclusive;
+		private final boolean toEnd;
+		private final Object high;
+		private final boolean highInclusive;
+		private final boolean descending;
+
+		SubMap(boolean fromStart, Object low, boolean lowInclusive, boolean toEnd, Object high, boolean highInclusive, boolean descending) {
+			this.fromStart = fromStart;
+			this.low = low;
+			this.lowInclusive = lowInclusive;
+			this.toEnd = toEnd;
+			this.high = high;
+			this.highInclusive = highInclusive;
+			this.descending = descending;
+		}
+
+		private boolean isUnbounded() {
+			return fromStart && toEnd;
+		}
+
+		private boolean tooLow(Object key) {
+			if (!fromStart) {
+				int comparison = compareKeys(key, low);
+				if (comparison < 0 || (comparison == 0 && !lowInclusive)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean tooHigh(Object key) {
+			if (!toEnd) {
+				int comparison = compareKeys(key, high);
+				if (comparison > 0 || (comparison == 0 && !highInclusive)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean inRange(Object key) {
+			return !tooLow(key) && !tooHigh(key);
+		}
+
+		private boolean inRange(Object key, boolean inclusive) {
+			if (inclusive) {
+				return inRange(key);
+			}
+			return (fromStart || compareKeys(key, low) >= 0) && (toEnd || compareKeys(high, key) >= 0);
+		}
+
+		private Position checkHigh(Position position) {
+			return position == null || (!toEnd && tooHigh(HugeTreeMap.this.getKey(position))) ? null : position;
+		}
+
+		private Position checkLow(Position position) {
+			return position == null || (!fromStart && tooLow(HugeTreeMap.this.getKey(position))) ? null : position;
+		}
+
+		private Position absoluteLowest() {
+			return checkHigh(fromStart ? firstPosition() : findPosition(low, lowInclusive ? CEILING : HIGHER));
+		}
+
+		private Position absoluteHighest() {
+			return checkLow(toEnd ? lastPosition() : findPosition(high, highInclusive ? FLOOR : LOWER));
+		}
+
+		private Position absoluteCeiling(Object key) {
+			if (tooLow(key)) {
+				return absoluteLowest();
+			}
+			return checkHigh(findPosition(key, CEILING));
+		}
+
+		private Position absoluteHigher(Object key) {
+			if (tooLow(key)) {
+				return absoluteLowest();
+			}
+			return checkHigh(findPosition(key, HIGHER));
+		}
+
+		private Position absoluteFloor(Object key) {
+			if (tooHigh(key)) {
+				return absoluteHighest();
+			}
+			return checkLow(findPosition(key, FLOOR));
+		}
+
+		private Position absoluteLower(Object key) {
+			if (tooHigh(key)) {
+				return absoluteHighest();
+			}
+			return checkLow(findPosition(key, LOWER));
+		}
+
+		private Position lowest() {
+			return descending ? absoluteHighest() : absoluteLowest();
+		}
+
+		private Position highest() {
+			return descending ? absoluteLowest() : absoluteHighest();
+		}
+
+		private Position lower(Object key) {
+			return descending ? absoluteHigher(key) : absoluteLower(key);
+		}
+
+		private Position floor(Object key) {
+			return descending ? absoluteCeiling(key) : absoluteFloor(key);
+		}
+
+		private Position ceiling(Object key) {
+			return descending ? absoluteFloor(key) : absoluteCeiling(key);
+		}
+
+		private Position higher(Object key) {
+			return descending ? absoluteLower(key) : absoluteHigher(key);
+		}
+
+		private Entry<K, V> exportEntry(Position position) {
+			if (position == null) {
+				return null;
+			}
+			return new SimpleImmutableEntry<K, V>(HugeTreeMap.this.getKey(position), HugeTreeMap.this.getValue(position));
+		}
+
+		private K exportKey(Position position) {
+			return position == null ? null : HugeTreeMap.this.getKey(position);
+		}
+
+		private K key(Position position) {
+			if (position == null) {
+				throw new NoSuchElementException();
+			}
+			return HugeTreeMap.this.getKey(position);
+		}
+
+		private Entry<K, V> pollEntry(Position position) {
+			Entry<K, V> entry = exportEntry(position);
+			if (entry != null) {
+				HugeTreeMap.this.remove(entry.getKey());
+			}
+			return entry;
+		}
+
+		@Override
+		public int size() {
+			if (isUnbounded()) {
+				return size;
+			}
+
+			int result = 0;
+			Iterator<K> iterator = new KeyIterator(this);
+			while (iterator.hasNext()) {
+				iterator.next();
+				result++;
+			}
+			return result;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			if (isUnbounded()) {
+				return size == 0;
+			}
+			return absoluteLowest() == null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return inRange(key) && HugeTreeMap.this.containsKey(key);
+		}
+
+		@Override
+		public V get(Object key) {
+			return inRange(key) ? HugeTreeMap.this.get(key) : null;
+		}
+
+		@Override
+		public V put(K key, V value) {
+			if (!inRange(key)) {
+				throw new IllegalArgumentException("key out of range: " + key);
+			}
+			return HugeTreeMap.this.put(key, value);
+		}
+
+		@Override
+		public V remove(Object key) {
+			return inRange(key) ? HugeTreeMap.this.remove(key) : null;
+		}
+
+		@Override
+		public void clear() {
+			if (isUnbounded()) {
+				HugeTreeMap.this.clear();
+			} else {
+				Iterator<K> iterator = new KeyIterator(this);
+				while (iterator.hasNext()) {
+					iterator.next();
+					iterator.remove();
+				}
+			}
+		}
+
+		@Override
+		public Comparator<? super K> comparator() {
+			if (descending) {
+				if (comparator == null) {
+					return Collections.reverseOrder();
+				}
+				return Collections.reverseOrder(comparator);
+			}
+			return comparator;
+		}
+
+		@Override
+		public Set<Entry<K, V>> entrySet() {
+			return new AbstractSet<Entry<K, V>>() {
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					return new EntryIterator(SubMap.this);
+				}
+
+				@Override
+				public int size() {
+					return SubMap.this.size();
+				}
+
+				@Override
+				public boolean isEmpty() {
+					return SubMap.this.isEmpty();
+				}
+
+				@Override
+				public void clear() {
+					SubMap.this.clear();
+				}
+			};
+		}
+
+		@Override
+		public Set<K> keySet() {
+			return navigableKeySet();
+		}
+
+		@Override
+		public Entry<K, V> lowerEntry(K key) {
+			return exportEntry(lower(key));
+		}
+
+		@Override
+		public K lowerKey(K key) {
+			return exportKey(lower(key));
+		}
+
+		@Override
+		public Entry<K, V> floorEntry(K key) {
+			return exportEntry(floor(key));
+		}
+
+		@Override
+		public K floorKey(K key) {
+			return exportKey(floor(key));
+		}
+
+		@Override
+		public Entry<K, V> ceilingEntry(K key) {
+			return exportEntry(ceiling(key));
+		}
+
+		@Override
+		public K ceilingKey(K key) {
+			return exportKey(ceiling(key));
+		}
+
+		@Override
+		public Entry<K, V> higherEntry(K key) {
+			return exportEntry(higher(key));
+		}
+
+		@Override
+		public K higherKey(K key) {
+			return exportKey(higher(key));
+		}
+
+		@Override
+		public Entry<K, V> firstEntry() {
+			return exportEntry(lowest());
+		}
+
+		@Override
+		public Entry<K, V> lastEntry() {
+			return exportEntry(highest());
+		}
+
+		@Override
+		public Entry<K, V> pollFirstEntry() {
+			return pollEntry(lowest());
+		}
+
+		@Override
+		public Entry<K, V> pollLastEntry() {
+			return pollEntry(highest());
+		}
+
+		@Override
+		public K firstKey() {
+			return key(lowest());
+		}
+
+		@Override
+		public K lastKey() {
+			return key(highest());
+		}
+
+		@Override
+		public NavigableMap<K, V> descendingMap() {
+			return new SubMap(fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending);
+		}
+
+		@Override
+		public NavigableSet<K> navigableKeySet() {
+			return new KeySet(this);
+		}
+
+		@Override
+		public NavigableSet<K> descendingKeySet() {
+			return new KeySet(new SubMap(fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending));
+		}
+
+		@Override
+		public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+			if (descending) {
+				return absoluteSubMap(false, toKey, toInclusive, false, fromKey, fromInclusive);
+			}
+			return absoluteSubMap(false, fromKey, fromInclusive, false, toKey, toInclusive);
+		}
+
+		@Override
+		public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+			if (descending) {
+				return absoluteSubMap(false, toKey, inclusive, true, null, false);
+			}
+			return absoluteSubMap(true, null, false, false, toKey, inclusive);
+		}
+
+		@Override
+		public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+			if (descending) {
+				return absoluteSubMap(true, null, false, false, fromKey, inclusive);
+			}
+			return absoluteSubMap(false, fromKey, inclusive, true, null, false);
+		}
+
+		@Override
+		public SortedMap<K, V> subMap(K fromKey, K toKey) {
+			return subMap(fromKey, true, toKey, false);
+		}
+
+		@Override
+		public SortedMap<K, V> headMap(K toKey) {
+			return headMap(toKey, false);
+		}
+
+		@Override
+		public SortedMap<K, V> tailMap(K fromKey) {
+			return tailMap(fromKey, true);
+		}
+
+		private NavigableMap<K, V> absoluteSubMap(boolean newFromStart, Object newLow, boolean newLowInclusive, boolean newToEnd, Object newHigh, boolean newHighInclusive) {
+			if (!newFromStart && !newToEnd) {
+				if (compareKeys(newLow, newHigh) > 0) {
+					throw new IllegalArgumentException("fromKey > toKey");
+				}
+			} else {
+				// checks the type and nullness of the key
+				if (!newFromStart) {
+					compareKeys(newLow, newLow);
+				}
+				if (!newToEnd) {
+					compareKeys(newHigh, newHigh);
+				}
+			}
+			if (!newFromStart && !inRange(newLow, newLowInclusive)) {
+				throw new IllegalArgumentException("fromKey out of range");
+			}
+			if (!newToEnd && !inRange(newHigh, newHighInclusive)) {
+				throw new IllegalArgumentException("toKey out of range");
+			}
+
+			return new SubMap(
+					newFromStart ? fromStart : false,
+					newFromStart ? low : newLow,
+					newFromStart ? lowInclusive : newLowInclusive,
+					newToEnd ? toEnd : false,
+					newToEnd ? high : newHigh,
+					newToEnd ? highInclusive : newHighInclusive,
+					descending);
+		}
+	}
+
+	/**
+	 * Iterates over the positions of a {@link SubMap} in the order of the view.
+	 */
+	private abstract class AbstractPositionIterator<T> implements Iterator<T> {
+		private final SubMap view;
+
+		private Position nextPosition;
+
+		private K nextKey;
+
+		private K lastKey;
+
+		private boolean hasLast;
+
+		private int expectedModCount = modCount;
+
+		AbstractPositionIterator(SubMap view) {
+			this.view = view;
+			setNext(view.lowest());
+		}
+
+		private void setNext(Position position) {
+			nextPosition = position;
+			nextKey = position == null ? null : getKey(position);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextPosition != null;
+		}
+
+		/**
+		 * Advances to the next position.
+		 *
+		 * @return the position of the returned element
+		 */
+		protected Position nextPosition() {
+			if (nextPosition == null) {
+				throw new NoSuchElementException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+
+			Position position = nextPosition;
+			lastKey = nextKey;
+			hasLast = true;
+
+			Position following = view.descending ? previousPosition(position) : HugeTreeMap.this.nextPosition(position);
+			nextPosition = null;
+			nextKey = null;
+			if (following != null) {
+				K followingKey = getKey(following);
+				if (!(view.descending ? view.tooLow(followingKey) : view.tooHigh(followingKey))) {
+					nextPosition = following;
+					nextKey = followingKey;
+				}
+			}
+			return position;
+		}
+
+		/**
+		 * Returns the key of the last returned element.
+		 *
+		 * @return the key
+		 */
+		protected K lastKey() {
+			return lastKey;
+		}
+
+		@Override
+		public void remove() {
+			if (!hasLast) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+
+			HugeTreeMap.this.remove(lastKey);
+			hasLast = false;
+			expectedModCount = modCount;
+
+			// the positions have moved
+			if (nextPosition != null) {
+				setNext(view.higher(lastKey));
+			}
+		}
+	}
+
+	private class EntryIterator extends AbstractPositionIterator<Entry<K, V>> {
+		EntryIterator(SubMap view) {
+			super(view);
+		}
+
+		@Override
+		public Entry<K, V> next() {
+			Position position = nextPosition();
+			return new HugeTreeMapEntry(lastKey(), getValue(position));
+		}
+	}
+
+	private class KeyIterator extends AbstractPositionIterator<K> {
+		KeyIterator(SubMap view) {
+			super(view);
+		}
+
+		@Override
+		public K next() {
+			nextPosition();
+			return lastKey();
+		}
+	}
+
+	private class HugeTreeMapEntry extends SimpleEntry<K, V> {
+		private static final long serialVersionUID = 0L;
+
+		HugeTreeMapEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			super.setValue(value);
+			return put(getKey(), value);
+		}
+	}
+
+	/**
+	 * The {@link NavigableSet} of the keys of a {@link SubMap}.
+	 */
+	private class KeySet extends AbstractSet<K> implements NavigableSet<K> {
+		private final SubMap map;
+
+		KeySet(SubMap map) {
+			this.map = map;
+		}
+
+		@Override
+		public Iterator<K> iterator() {
+			return new KeyIterator(map);
+		}
+
+		@Override
+		public Iterator<K> descendingIterator() {
+			return descendingSet().iterator();
+		}
+
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return map.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return map.containsKey(o);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!map.containsKey(o)) {
+				return false;
+			}
+			map.remove(o);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			map.clear();
+		}
+
+		@Override
+		public Comparator<? super K> comparator() {
+			return map.comparator();
+		}
+
+		@Override
+		public K first() {
+			return map.firstKey();
+		}
+
+		@Override
+		public K last() {
+			return map.lastKey();
+		}
+
+		@Override
+		public K lower(K e) {
+			return map.lowerKey(e);
+		}
+
+		@Override
+		public K floor(K e) {
+			return map.floorKey(e);
+		}
+
+		@Override
+		public K ceiling(K e) {
+			return map.ceilingKey(e);
+		}
+
+		@Override
+		public K higher(K e) {
+			return map.higherKey(e);
+		}
+
+		@Override
+		public K pollFirst() {
+			Entry<K, V> entry = map.pollFirstEntry();
+			return entry == null ? null : entry.getKey();
+		}
+
+		@Override
+		public K pollLast() {
+			Entry<K, V> entry = map.pollLastEntry();
+			return entry == null ? null : entry.getKey();
+		}
+
+		@Override
+		public NavigableSet<K> descendingSet() {
+			return map.descendingKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+			return map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+			return map.headMap(toElement, inclusive).navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+			return map.tailMap(fromElement, inclusive).navigableKeySet();
+		}
+
+		@Override
+		public SortedSet<K> subSet(K fromElement, K toElement) {
+			return subSet(fromElement, true, toElement, false);
+		}
+
+		@Override
+		public SortedSet<K> headSet(K toElement) {
+			return headSet(toElement, false);
+		}
+
+		@Override
+		public SortedSet<K> tailSet(K fromElement) {
+			return tailSet(fromElement, true);
+		}
+	}
+
+	/**
+	 * Builds a {@link HugeTreeMap}.
+	 *
+	 * <p>The {@link #faster()} and {@link #capacity(int)} hints have no effect on a {@link HugeTreeMap}.</p>
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	public static class Builder<K, V> extends AbstractHugeMapBuilder<K, V> {
+
+		private HugeTreeMap<K, V> result;
+
+		private boolean built;
+
+		private Comparator<? super K> comparator;
+
+		private HugeTreeMap<K, V> getMap() {
+			if (result == null) {
+				result = new HugeTreeMap<K, V>(getMemoryManager(), getKeyConverter(), getValueConverter(), comparator);
+			}
+			return result;
+		}
+
+		/**
+		 * Specifies the {@link Comparator} to sort the keys.
+		 *
+		 * <p>If no comparator is specified the keys are sorted by their natural ordering and must implement {@link Comparable}.</p>
+		 *
+		 * @param comparator the {@link Comparator}
+		 * @return this builder to chain calls
+		 * @throws IllegalStateException if called after adding the first element to this builder
+		 */
+		public Builder<K, V> comparator(Comparator<? super K> comparator) {
+			if (result != null) {
+				throw new IllegalStateException("Cannot change the configuration after adding the first element.");
+			}
+			this.comparator = comparator;
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> key(Class<K> keyClass) {
+			super.key(keyClass);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> key(Converter<K> keyConverter) {
+			super.key(keyConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> value(Class<V> valueClass) {
+			super.value(valueClass);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> value(Converter<V> valueConverter) {
+			super.value(valueConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> compressKey() {
+			super.compressKey();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> compressValue() {
+			super.compressValue();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> put(K key, V value) {
+			getMap().put(key, value);
+			return this;
+		}
+
+		@Override
+		public Builder<K, V> putAll(Map<K, V> map) {
+			getMap().putAll(map);
+			return this;
+		}
+
+		@Override
+		public HugeTreeMap<K, V> build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getMap();
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -126,6 +128,12 @@ public class ImmutableHugeArrayList<E> extends AbstractHugeArrayList<E> {
 			return this;
 		}
 		
+		@Override
+		public Builder<E> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+		
 		@Override
 		public Builder<E> memoryManager(MemoryManager memoryManager) {
 			super.memoryManager(memoryManager);
@@ -153,17 +161,14 @@ public class ImmutableHugeArrayList<E> extends AbstractHugeArrayList<E> {
 		
 		@Override
 		public Builder<E> addAll(Collection<E> elements) {
-			for (E element : elements) {
-				add(element);
-			}
+			ImmutableHugeArrayList<E> list = getList();
+			list.addAllInternal(list.size(), elements);
 			return this;
 		}
 		
 		@Override
 		public Builder<E> addAll(E... elements) {
-			for (E element : elements) {
-				add(element);
-			}
+			addAll(Arrays.asList(elements));
 			return this;
 		}
 		
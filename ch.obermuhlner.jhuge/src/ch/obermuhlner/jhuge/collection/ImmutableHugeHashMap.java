@@ -1,5 +1,6 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.io.File;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -181,6 +182,12 @@ public class ImmutableHugeHashMap<K, V> extends AbstractHugeHashMap<K, V> {
 			return this;
 		}
 		
+		@Override
+		public Builder<K, V> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+		
 		@Override
 		public Builder<K, V> memoryManager(MemoryManager memoryManager) {
 			super.memoryManager(memoryManager);
@@ -207,10 +214,7 @@ public class ImmutableHugeHashMap<K, V> extends AbstractHugeHashMap<K, V> {
 		
 		@Override
 		public Builder<K, V> putAll(Map<K, V> map) {
-			AbstractHugeHashMap<K, V> hugeMap = getMap();
-			for (Entry<K, V> entry : map.entrySet()) {
-				hugeMap.putInternal(entry.getKey(), entry.getValue());
-			}
+			getMap().putAllInternal(map);
 			return this;
 		}
 
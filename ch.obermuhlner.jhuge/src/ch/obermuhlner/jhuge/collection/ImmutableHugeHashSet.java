@@ -1,5 +1,7 @@
 package ch.obermuhlner.jhuge.collection;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
@@ -134,6 +136,12 @@ public class ImmutableHugeHashSet<E> extends AbstractHugeHashSet<E> {
 			return this;
 		}
 		
+		@Override
+		public Builder<E> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+		
 		@Override
 		public Builder<E> memoryManager(MemoryManager memoryManager) {
 			super.memoryManager(memoryManager);
@@ -160,18 +168,13 @@ public class ImmutableHugeHashSet<E> extends AbstractHugeHashSet<E> {
 		
 		@Override
 		public Builder<E> addAll(Collection<E> elements) {
-			for (E element : elements) {
-				add(element);
-			}
+			getSet().addAllInternal(elements);
 			return this;
 		}
 		
 		@Override
 		public Builder<E> addAll(E... elements) {
-			for (E element : elements) {
-				add(element);
-			}
-			return this;
+			return addAll(Arrays.asList(elements));
 		}
 
 		@Override
@@ -0,0 +1,534 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import ch.obermuhlner.jhuge.collection.builder.AbstractHugeCollectionBuilder;
+import ch.obermuhlner.jhuge.collection.internal.LongIndexedLongArray;
+import ch.obermuhlner.jhuge.converter.ByteBufferConverter;
+import ch.obermuhlner.jhuge.converter.Converter;
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A mutable list that stores elements in a {@link MemoryManager} and is indexed by <code>long</code>.
+ *
+ * <p>A {@link List} is indexed by <code>int</code> and can therefore not hold more than {@link Integer#MAX_VALUE} elements.
+ * This collection works like a {@link HugeArrayList} but all index positions and the size are <code>long</code>:</p>
+ * <ul>
+ * <li>{@link #longSize()}</li>
+ * <li>{@link #get(long)}</li>
+ * <li>{@link #set(long, Object)}</li>
+ * <li>{@link #add(long, Object)}</li>
+ * <li>{@link #remove(long)}</li>
+ * <li>{@link #indexOf(Object)}</li>
+ * <li>{@link #cursor(long)}</li>
+ * </ul>
+ *
+ * <p>Following the contract of {@link Collection#size()} the method {@link #size()} returns {@link Integer#MAX_VALUE}
+ * if this collection contains more elements.</p>
+ * <p>The {@link #asList()} view gives access to this collection as a {@link List}, as long as the size fits into an <code>int</code>.</p>
+ *
+ * <p>Access to single elements is O(1).</p>
+ * <p>Adding an element at the end is O(1), inserting or removing a single element anywhere else is O(n).</p>
+ *
+ * <p>The addresses of the elements are always stored in the {@link MemoryManager}, the {@link Builder#faster() faster} mode has no effect.</p>
+ *
+ * @param <E> the type of elements
+ */
+public class LongIndexedHugeList<E> extends AbstractCollection<E> {
+
+	private static final byte[] EMPTY_DATA = new byte[0];
+
+	private final MemoryManager memoryManager;
+
+	private final LongIndexedLongArray addresses;
+
+	private final Converter<E> converter;
+
+	private final ByteBufferConverter<E> byteBufferConverter;
+
+	private int modCount;
+
+	private LongIndexedHugeList(MemoryManager memoryManager, Converter<E> converter, int capacity) {
+		this.memoryManager = memoryManager;
+		this.converter = converter;
+		this.byteBufferConverter = converter instanceof ByteBufferConverter ? (ByteBufferConverter<E>) converter : null;
+		this.addresses = new LongIndexedLongArray(memoryManager, capacity, LongIndexedLongArray.DEFAULT_PAGE_CAPACITY);
+	}
+
+	/**
+	 * Returns the {@link MemoryManager}.
+	 *
+	 * @return the {@link MemoryManager}
+	 */
+	MemoryManager getMemoryManager() {
+		return memoryManager;
+	}
+
+	/**
+	 * Returns the number of elements in this collection.
+	 *
+	 * @return the number of elements
+	 */
+	public long longSize() {
+		return addresses.size();
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(addresses.size(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return addresses.size() == 0;
+	}
+
+	/**
+	 * Returns the element at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public E get(long index) {
+		return readElement(addresses.get(index));
+	}
+
+	/**
+	 * Replaces the element at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param element the element to set
+	 * @return the old element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public E set(long index, E element) {
+		long address = memoryManager.allocate(serializeElement(element));
+
+		long oldAddress;
+		try {
+			oldAddress = addresses.set(index, address);
+		} catch (IndexOutOfBoundsException exception) {
+			memoryManager.free(address);
+			throw exception;
+		}
+		E oldElement = readElement(oldAddress);
+		memoryManager.free(oldAddress);
+
+		return oldElement;
+	}
+
+	@Override
+	public boolean add(E element) {
+		addresses.add(memoryManager.allocate(serializeElement(element)));
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Inserts an element at the specified index position.
+	 *
+	 * @param index the index position
+	 * @param element the element to add
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public void add(long index, E element) {
+		if (index < 0 || index > addresses.size()) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + addresses.size());
+		}
+		addresses.add(index, memoryManager.allocate(serializeElement(element)));
+		modCount++;
+	}
+
+	/**
+	 * Removes the element at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the removed element
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public E remove(long index) {
+		long oldAddress = addresses.remove(index);
+		modCount++;
+		E oldElement = readElement(oldAddress);
+		memoryManager.free(oldAddress);
+
+		return oldElement;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the specified element.
+	 *
+	 * @param element the element to search
+	 * @return the index, or -1 if this collection does not contain the element
+	 */
+	public long indexOf(Object element) {
+		long size = addresses.size();
+		for (long i = 0; i < size; i++) {
+			E candidate = get(i);
+			if (element == null ? candidate == null : element.equals(candidate)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object element) {
+		return indexOf(element) >= 0;
+	}
+
+	@Override
+	public void clear() {
+		long size = addresses.size();
+		for (long i = 0; i < size; i++) {
+			memoryManager.free(addresses.get(i));
+		}
+		addresses.clear();
+		modCount++;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return cursor(0);
+	}
+
+	/**
+	 * Returns a {@link Cursor} over the elements, starting at the specified index position.
+	 *
+	 * @param index the index position of the first element returned by {@link Cursor#next()}
+	 * @return the {@link Cursor}
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public Cursor<E> cursor(long index) {
+		if (index < 0 || index > addresses.size()) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + addresses.size());
+		}
+		return new LongIndexedCursor(index);
+	}
+
+	/**
+	 * Returns a {@link List} view of this collection.
+	 *
+	 * <p>Changes in the view are reflected in this collection and vice versa.</p>
+	 * <p>All methods of the view throw an {@link IllegalStateException} if this collection contains more than {@link Integer#MAX_VALUE} elements.</p>
+	 *
+	 * @return the {@link List} view
+	 */
+	public List<E> asList() {
+		return new ListView();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + longSize() + "}";
+	}
+
+	private byte[] serializeElement(E element) {
+		return element == null ? EMPTY_DATA : converter.serialize(element);
+	}
+
+	private E readElement(long address) {
+		if (byteBufferConverter != null) {
+			// deserialize directly from the memory block without copying it
+			ByteBuffer data = memoryManager.view(address);
+			return data.hasRemaining() ? byteBufferConverter.deserialize(data) : null;
+		}
+
+		byte[] data = memoryManager.read(address);
+		return (data == null || data.length == 0) ? null : converter.deserialize(data);
+	}
+
+	/**
+	 * A cursor over the elements of a {@link LongIndexedHugeList} that can move in both directions.
+	 *
+	 * <p>This is the equivalent of a {@link java.util.ListIterator} with <code>long</code> index positions.</p>
+	 *
+	 * @param <E> the type of elements
+	 */
+	public interface Cursor<E> extends Iterator<E> {
+
+		/**
+		 * Returns whether there is an element before the cursor.
+		 *
+		 * @return <code>true</code> if {@link #previous()} will return an element
+		 */
+		boolean hasPrevious();
+
+		/**
+		 * Returns the element before the cursor and moves the cursor backwards.
+		 *
+		 * @return the previous element
+		 * @throws NoSuchElementException if there is no previous element
+		 */
+		E previous();
+
+		/**
+		 * Returns the index position of the element that would be returned by {@link #next()}.
+		 *
+		 * @return the index position, or the size of the list if the cursor is at the end
+		 */
+		long nextIndex();
+
+		/**
+		 * Returns the index position of the element that would be returned by {@link #previous()}.
+		 *
+		 * @return the index position, or -1 if the cursor is at the beginning
+		 */
+		long previousIndex();
+
+		/**
+		 * Replaces the element last returned by {@link #next()} or {@link #previous()}.
+		 *
+		 * @param element the element to set
+		 * @throws IllegalStateException if neither {@link #next()} nor {@link #previous()} have been called,
+		 * or {@link #remove()} has been called after the last call to {@link #next()} or {@link #previous()}
+		 */
+		void set(E element);
+	}
+
+	private class LongIndexedCursor implements Cursor<E> {
+
+		private long nextIndex;
+
+		private long lastIndex = -1;
+
+		private int expectedModCount = modCount;
+
+		public LongIndexedCursor(long index) {
+			nextIndex = index;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < addresses.size();
+		}
+
+		@Override
+		public E next() {
+			checkForComodification();
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastIndex = nextIndex++;
+			return get(lastIndex);
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return nextIndex > 0;
+		}
+
+		@Override
+		public E previous() {
+			checkForComodification();
+			if (!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			lastIndex = --nextIndex;
+			return get(lastIndex);
+		}
+
+		@Override
+		public long nextIndex() {
+			return nextIndex;
+		}
+
+		@Override
+		public long previousIndex() {
+			return nextIndex - 1;
+		}
+
+		@Override
+		public void set(E element) {
+			if (lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			LongIndexedHugeList.this.set(lastIndex, element);
+		}
+
+		@Override
+		public void remove() {
+			if (lastIndex < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			LongIndexedHugeList.this.remove(lastIndex);
+			if (lastIndex < nextIndex) {
+				nextIndex--;
+			}
+			lastIndex = -1;
+			expectedModCount = modCount;
+		}
+
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	private class ListView extends AbstractList<E> implements RandomAccess {
+
+		@Override
+		public E get(int index) {
+			checkIntSize();
+			return LongIndexedHugeList.this.get(index);
+		}
+
+		@Override
+		public E set(int index, E element) {
+			checkIntSize();
+			return LongIndexedHugeList.this.set(index, element);
+		}
+
+		@Override
+		public void add(int index, E element) {
+			checkIntSize();
+			LongIndexedHugeList.this.add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public E remove(int index) {
+			checkIntSize();
+			E oldElement = LongIndexedHugeList.this.remove(index);
+			modCount++;
+			return oldElement;
+		}
+
+		@Override
+		public void clear() {
+			LongIndexedHugeList.this.clear();
+			modCount++;
+		}
+
+		@Override
+		public int size() {
+			checkIntSize();
+			return (int) addresses.size();
+		}
+
+		private void checkIntSize() {
+			if (addresses.size() > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Size does not fit into an int: " + addresses.size());
+			}
+		}
+	}
+
+	/**
+	 * Builds a {@link LongIndexedHugeList}.
+	 *
+	 * @param <E> the type of elements
+	 */
+	public static class Builder<E> extends AbstractHugeCollectionBuilder<E> {
+
+		private LongIndexedHugeList<E> result;
+
+		private boolean built;
+
+		private LongIndexedHugeList<E> getList() {
+			if (result == null) {
+				result = new LongIndexedHugeList<E>(getMemoryManager(), getElementConverter(), getCapacity());
+			}
+			return result;
+		}
+
+		@Override
+		public Builder<E> classLoader(ClassLoader classLoader) {
+			super.classLoader(classLoader);
+			return this;
+		}
+
+		@Override
+		public Builder<E> element(Class<E> elementClass) {
+			super.element(elementClass);
+			return this;
+		}
+
+		@Override
+		public Builder<E> element(Converter<E> elementConverter) {
+			super.element(elementConverter);
+			return this;
+		}
+
+		@Override
+		public Builder<E> compressElement() {
+			super.compressElement();
+			return this;
+		}
+
+		@Override
+		public Builder<E> bufferSize(int bufferSize) {
+			super.bufferSize(bufferSize);
+			return this;
+		}
+
+		@Override
+		public Builder<E> blockSize(int blockSize) {
+			super.blockSize(blockSize);
+			return this;
+		}
+
+		@Override
+		public Builder<E> directory(File directory) {
+			super.directory(directory);
+			return this;
+		}
+
+		@Override
+		public Builder<E> memoryManager(MemoryManager memoryManager) {
+			super.memoryManager(memoryManager);
+			return this;
+		}
+
+		@Override
+		public Builder<E> faster() {
+			super.faster();
+			return this;
+		}
+
+		@Override
+		public Builder<E> capacity(int capacity) {
+			super.capacity(capacity);
+			return this;
+		}
+
+		@Override
+		public Builder<E> add(E element) {
+			getList().add(element);
+			return this;
+		}
+
+		@Override
+		public Builder<E> addAll(Collection<E> elements) {
+			getList().addAll(elements);
+			return this;
+		}
+
+		@Override
+		public Builder<E> addAll(E... elements) {
+			return addAll(Arrays.asList(elements));
+		}
+
+		@Override
+		public LongIndexedHugeList<E> build() {
+			if (built) {
+				throw new IllegalStateException("Has already been built.");
+			}
+			built = true;
+			return getList();
+		}
+	}
+}
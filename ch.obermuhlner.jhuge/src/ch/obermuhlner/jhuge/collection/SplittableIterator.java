@@ -0,0 +1,46 @@
+package ch.obermuhlner.jhuge.collection;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} that can split off a part of its remaining elements into a separate iterator,
+ * so that a huge collection can be processed by multiple threads in parallel.
+ *
+ * <p>This is designed with the same goal in mind as the <code>java.util.Spliterator</code> of Java 8,
+ * but only depends on Java 6.</p>
+ *
+ * <p>Every split iterator reads a disjoint range of the underlying storage,
+ * the elements are deserialized independently in the thread that consumes the iterator.
+ * The split iterators may be consumed concurrently as long as the underlying collection is not modified.</p>
+ *
+ * <p>The {@link #remove()} operation is not supported.</p>
+ *
+ * @param <E> the type of elements
+ */
+public interface SplittableIterator<E> extends Iterator<E> {
+
+	/**
+	 * Splits off a part of the remaining elements into a new {@link SplittableIterator}.
+	 *
+	 * <p>The elements returned by the new iterator will no longer be returned by this iterator.</p>
+	 *
+	 * @return the new {@link SplittableIterator} over the split off elements, or <code>null</code> if this iterator cannot be split
+	 */
+	SplittableIterator<E> trySplit();
+
+	/**
+	 * Returns an estimate of the number of remaining elements.
+	 *
+	 * @return the estimated number of remaining elements
+	 * @see #isSized()
+	 */
+	long estimateSize();
+
+	/**
+	 * Returns whether {@link #estimateSize()} is the exact number of remaining elements,
+	 * also for all iterators split off from this iterator.
+	 *
+	 * @return <code>true</code> if the size is exact, <code>false</code> if it is only an estimate
+	 */
+	boolean isSized();
+}
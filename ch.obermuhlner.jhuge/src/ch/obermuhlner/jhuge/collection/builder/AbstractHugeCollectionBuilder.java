@@ -1,5 +1,6 @@
 package ch.obermuhlner.jhuge.collection.builder;
 
+import java.io.File;
 import java.util.Collection;
 
 import ch.obermuhlner.jhuge.converter.Converter;
@@ -23,6 +24,8 @@ public abstract class AbstractHugeCollectionBuilder<E> implements CollectionBuil
 
 	private Integer blockSize;
 	
+	private File directory;
+	
 	private Converter<E> elementConverter;
 	
 	private boolean compressElement;
@@ -115,10 +118,25 @@ public abstract class AbstractHugeCollectionBuilder<E> implements CollectionBuil
 		return this;
 	}
 
+	/**
+	 * Specifies the directory where the {@link MemoryMappedFileManager} stores its memory mapped segment files.
+	 * 
+	 * <p>If no directory is specified the {@link MemoryMappedFileManager} uses direct buffers.</p>
+	 * 
+	 * @param directory the directory to store the segment files
+	 * @return this {@link CollectionBuilder} to chain calls
+	 * @throws IllegalStateException if called after adding the first element to this builder
+	 */
+	public AbstractHugeCollectionBuilder<E> directory(File directory) {
+		checkPrepared();
+		this.directory = directory;
+		return this;
+	}
+
 	/**
 	 * Specifies the {@link MemoryManager} used to store keys and values.
 	 * 
-	 * <p>This overrides any setting of {@link #bufferSize(int)} and {@link #blockSize(int)}.</p>
+	 * <p>This overrides any setting of {@link #bufferSize(int)}, {@link #blockSize(int)} and {@link #directory(File)}.</p>
 	 * 
 	 * @param memoryManager the MemoryManager to store the keys and values 
 	 * @return this {@link CollectionBuilder} to chain calls
@@ -183,7 +201,7 @@ public abstract class AbstractHugeCollectionBuilder<E> implements CollectionBuil
 				int serializedLength = elementConverter.serializedLength();
 				blockSize = serializedLength > 0 ? serializedLength : MemoryMappedFileManager.NO_BLOCK_SIZE;
 			}
-			memoryManager = new MemoryMappedFileManager(bufferSize, blockSize);
+			memoryManager = createMemoryManager(bufferSize, blockSize, directory);
 		}
 		
 		if (capacity == 0) {
@@ -193,6 +211,20 @@ public abstract class AbstractHugeCollectionBuilder<E> implements CollectionBuil
 		prepared = true;
 	}
 	
+	/**
+	 * Creates the {@link MemoryManager} if none was {@link #memoryManager(MemoryManager) specified}.
+	 * 
+	 * <p>The default implementation creates a {@link MemoryMappedFileManager}.</p>
+	 * 
+	 * @param bufferSize the buffer size
+	 * @param blockSize the block size, or {@link MemoryMappedFileManager#NO_BLOCK_SIZE} to use no block quantification
+	 * @param directory the directory to store the segment files, or <code>null</code> to use direct buffers
+	 * @return the created {@link MemoryManager}
+	 */
+	protected MemoryManager createMemoryManager(int bufferSize, int blockSize, File directory) {
+		return new MemoryMappedFileManager(bufferSize, blockSize, directory);
+	}
+	
 	/**
 	 * Returns the element {@link Converter}.
 	 * 
@@ -1,5 +1,6 @@
 package ch.obermuhlner.jhuge.collection.builder;
 
+import java.io.File;
 import java.util.Map;
 
 import ch.obermuhlner.jhuge.converter.Converter;
@@ -26,6 +27,8 @@ public abstract class AbstractHugeMapBuilder<K, V> implements MapBuilder<K, V> {
 
 	private Integer blockSize;
 	
+	private File directory;
+	
 	private Converter<K> keyConverter;
 
 	private Converter<V> valueConverter;
@@ -153,6 +156,9 @@ public abstract class AbstractHugeMapBuilder<K, V> implements MapBuilder<K, V> {
 	/**
 	 * Specifies the block size used in the {@link MemoryMappedFileManager}.
 	 * 
+	 * <p>If no block size is specified and both the key and the value {@link Converter} have a fixed {@link Converter#serializedLength() serialized length},
+	 * the size of the memory block of a key/value pair is used as block size, see {@link #entryBlockSize(int, int)}.</p>
+	 * 
 	 * @param blockSize the block size
 	 * @return this {@link MapBuilder} to chain calls
 	 * @throws IllegalStateException if called after adding the first element to this builder
@@ -163,10 +169,25 @@ public abstract class AbstractHugeMapBuilder<K, V> implements MapBuilder<K, V> {
 		return this;
 	}
 
+	/**
+	 * Specifies the directory where the {@link MemoryMappedFileManager} stores its memory mapped segment files.
+	 * 
+	 * <p>If no directory is specified the {@link MemoryMappedFileManager} uses direct buffers.</p>
+	 * 
+	 * @param directory the directory to store the segment files
+	 * @return this {@link MapBuilder} to chain calls
+	 * @throws IllegalStateException if called after adding the first element to this builder
+	 */
+	public AbstractHugeMapBuilder<K, V> directory(File directory) {
+		checkPrepared();
+		this.directory = directory;
+		return this;
+	}
+
 	/**
 	 * Specifies the {@link MemoryManager} used to store keys and values.
 	 * 
-	 * <p>This overrides any setting of {@link #bufferSize(int)} and {@link #blockSize(int)}.</p>
+	 * <p>This overrides any setting of {@link #bufferSize(int)}, {@link #blockSize(int)} and {@link #directory(File)}.</p>
 	 * 
 	 * @param memoryManager the MemoryManager to store the keys and values 
 	 * @return this {@link MapBuilder} to chain calls
@@ -242,9 +263,9 @@ public abstract class AbstractHugeMapBuilder<K, V> implements MapBuilder<K, V> {
 			if (blockSize == null) {
 				int serializedKeyLength = keyConverter.serializedLength();
 				int serializedValueLength = valueConverter.serializedLength();
-				blockSize = (serializedKeyLength == serializedValueLength && serializedKeyLength > 0) ? serializedKeyLength : MemoryMappedFileManager.NO_BLOCK_SIZE;
+				blockSize = (serializedKeyLength > 0 && serializedValueLength > 0) ? entryBlockSize(serializedKeyLength, serializedValueLength) : MemoryMappedFileManager.NO_BLOCK_SIZE;
 			}
-			memoryManager = new MemoryMappedFileManager(bufferSize, blockSize);
+			memoryManager = createMemoryManager(bufferSize, blockSize, directory);
 		}
 		
 		if (capacity == 0) {
@@ -254,6 +275,34 @@ public abstract class AbstractHugeMapBuilder<K, V> implements MapBuilder<K, V> {
 		prepared = true;
 	}
 	
+	/**
+	 * Returns the size of the memory block of a key/value pair with the specified serialized lengths.
+	 * 
+	 * <p>This is used as default {@link #blockSize(int) block size} if the key and the value have a fixed serialized length.</p>
+	 * <p>The default implementation returns the size of a single block containing an <code>int</code> header, the serialized key and the serialized value.</p>
+	 * 
+	 * @param serializedKeyLength the length of the serialized key
+	 * @param serializedValueLength the length of the serialized value
+	 * @return the size of the memory block
+	 */
+	protected int entryBlockSize(int serializedKeyLength, int serializedValueLength) {
+		return 4 + serializedKeyLength + serializedValueLength;
+	}
+	
+	/**
+	 * Creates the {@link MemoryManager} if none was {@link #memoryManager(MemoryManager) specified}.
+	 * 
+	 * <p>The default implementation creates a {@link MemoryMappedFileManager}.</p>
+	 * 
+	 * @param bufferSize the buffer size
+	 * @param blockSize the block size, or {@link MemoryMappedFileManager#NO_BLOCK_SIZE} to use no block quantification
+	 * @param directory the directory to store the segment files, or <code>null</code> to use direct buffers
+	 * @return the created {@link MemoryManager}
+	 */
+	protected MemoryManager createMemoryManager(int bufferSize, int blockSize, File directory) {
+		return new MemoryMappedFileManager(bufferSize, blockSize, directory);
+	}
+	
 	/**
 	 * Returns the key {@link Converter}.
 	 * 
@@ -0,0 +1,228 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Abstract base class to simplify implementing {@link IntLongArrayMap#hashBucketKeySet(int, int, int)}
+ * for an open addressing hash table with linear probing.
+ *
+ * <p>The bucket of a key is the hash of the key modulo the number of buckets.
+ * If the number of buckets is not larger than the capacity of a table,
+ * the keys of a range of buckets start in one range of slots for every multiple of the number of buckets.
+ * Otherwise they start in a single range of slots.
+ * The iterator scans these ranges of slots and follows the probe sequences that continue after the end of a range.</p>
+ * <p>The tables are scanned one after the other (for example the new and the old table of an incremental resize).</p>
+ */
+abstract class AbstractHashBucketIntIterator implements IntIterator {
+
+	/**
+	 * The state of a slot that ends every probe sequence.
+	 */
+	protected static final int EMPTY_SLOT = 0;
+
+	/**
+	 * The state of a slot that does not contain a key, but does not end a probe sequence.
+	 */
+	protected static final int DELETED_SLOT = 1;
+
+	/**
+	 * The state of a slot that contains a key.
+	 */
+	protected static final int OCCUPIED_SLOT = 2;
+
+	private final int bucketCount;
+
+	private final int fromBucket;
+
+	private final int toBucket;
+
+	private int tableIndex = -1;
+
+	private int capacity;
+
+	private int rangeCount;
+
+	private int rangeIndex;
+
+	private int rangeStart;
+
+	private int rangeLength;
+
+	private int index;
+
+	private int step;
+
+	private boolean nextValid;
+
+	private int nextKey;
+
+	private int currentKey;
+
+	private boolean currentValid;
+
+	/**
+	 * Constructs a {@link AbstractHashBucketIntIterator}.
+	 * 
+	 * @param bucketCount the number of buckets, must be a power of 2
+	 * @param fromBucket the first bucket (inclusive)
+	 * @param toBucket the last bucket (exclusive)
+	 * @throws IllegalArgumentException if the number of buckets is not a power of 2
+	 */
+	protected AbstractHashBucketIntIterator(int bucketCount, int fromBucket, int toBucket) {
+		if (bucketCount <= 0 || Integer.bitCount(bucketCount) != 1) {
+			throw new IllegalArgumentException("bucketCount=" + bucketCount + " is not a power of 2");
+		}
+
+		this.bucketCount = bucketCount;
+		this.fromBucket = Math.max(0, fromBucket);
+		this.toBucket = Math.min(bucketCount, toBucket);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!nextValid) {
+			nextValid = advance();
+		}
+		return nextValid;
+	}
+
+	@Override
+	public int next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		nextValid = false;
+		currentKey = nextKey;
+		currentValid = true;
+		return currentKey;
+	}
+
+	@Override
+	public void remove() {
+		if (!currentValid) {
+			throw new IllegalStateException();
+		}
+
+		// removing never moves other entries, so the iteration is not disturbed
+		removeKey(currentKey);
+		currentValid = false;
+	}
+
+	private boolean advance() {
+		while (true) {
+			if (rangeIndex >= rangeCount) {
+				tableIndex++;
+				if (tableIndex >= tableCount()) {
+					return false;
+				}
+				startTable();
+				continue;
+			}
+
+			int state = slotState(tableIndex, index);
+			if (step >= rangeLength && (step >= capacity || state == EMPTY_SLOT)) {
+				// the probe sequences that started in the range have ended
+				rangeIndex++;
+				startRange();
+				continue;
+			}
+
+			int slot = index;
+			index = (index + 1) & (capacity - 1);
+			step++;
+			if (state == OCCUPIED_SLOT) {
+				int key = slotKey(tableIndex, slot);
+				if (isInRange(key)) {
+					nextKey = key;
+					return true;
+				}
+			}
+		}
+	}
+
+	private void startTable() {
+		capacity = tableCapacity(tableIndex);
+		if (fromBucket >= toBucket) {
+			rangeCount = 0;
+		} else if (capacity >= bucketCount) {
+			rangeCount = capacity / bucketCount;
+			rangeLength = toBucket - fromBucket;
+		} else {
+			rangeCount = 1;
+			rangeLength = Math.min(capacity, toBucket - fromBucket);
+		}
+		rangeIndex = 0;
+		startRange();
+	}
+
+	private void startRange() {
+		if (capacity >= bucketCount) {
+			rangeStart = rangeIndex * bucketCount + fromBucket;
+		} else {
+			rangeStart = rangeLength == capacity ? 0 : fromBucket & (capacity - 1);
+		}
+		index = rangeStart;
+		step = 0;
+	}
+
+	private boolean isInRange(int key) {
+		int hash = hash(key);
+		int bucket = hash & (bucketCount - 1);
+		if (bucket < fromBucket || bucket >= toBucket) {
+			return false;
+		}
+
+		// a key is only returned in the range where its probe sequence starts, even if the scan continues into the next range
+		int offset = ((hash & (capacity - 1)) - rangeStart) & (capacity - 1);
+		return offset < rangeLength;
+	}
+
+	/**
+	 * Returns the number of tables to scan.
+	 * 
+	 * @return the number of tables
+	 */
+	protected abstract int tableCount();
+
+	/**
+	 * Returns the capacity of a table.
+	 * 
+	 * @param table the index of the table
+	 * @return the capacity, a power of 2
+	 */
+	protected abstract int tableCapacity(int table);
+
+	/**
+	 * Returns the state of a slot.
+	 * 
+	 * @param table the index of the table
+	 * @param index the index of the slot
+	 * @return {@link #EMPTY_SLOT}, {@link #DELETED_SLOT} or {@link #OCCUPIED_SLOT}
+	 */
+	protected abstract int slotState(int table, int index);
+
+	/**
+	 * Returns the key of an occupied slot.
+	 * 
+	 * @param table the index of the table
+	 * @param index the index of the slot
+	 * @return the key
+	 */
+	protected abstract int slotKey(int table, int index);
+
+	/**
+	 * Returns the hash of a key, the first slot of the probe sequence is the hash modulo the capacity of the table.
+	 * 
+	 * @param key the key
+	 * @return the hash
+	 */
+	protected abstract int hash(int key);
+
+	/**
+	 * Removes a key from the map.
+	 * 
+	 * @param key the key to remove
+	 */
+	protected abstract void removeKey(int key);
+}
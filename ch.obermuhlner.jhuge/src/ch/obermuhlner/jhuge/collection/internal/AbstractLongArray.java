@@ -38,6 +38,13 @@ public abstract class AbstractLongArray implements LongArray {
 		}
 	}
 	
+	@Override
+	public void addAll(long[] values, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			add(values[offset + i]);
+		}
+	}
+
 	@Override
 	public long[] toArray() {
 		final int n = size();
@@ -0,0 +1,430 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A {@link LongArray} implementation that stores the values in chunks in a {@link MemoryManager},
+ * so that inserting and removing values at arbitrary index positions is cheap.
+ *
+ * <p>Every chunk is a separate memory block with a fixed capacity and contains a variable number of values.
+ * The values of a chunk are stored contiguously somewhere inside the memory block,
+ * so that values can be inserted and removed at both ends of a chunk without moving the other values.</p>
+ * <p>The chunk directory (memory block address, start and size of every chunk) is kept on the Java heap,
+ * together with a Fenwick tree over the chunk sizes that finds the chunk of an index position in O(log n).</p>
+ *
+ * <ul>
+ * <li>Accessing a value is O(log n).</li>
+ * <li>Inserting or removing a value moves at most half a chunk and is O(log n + chunk capacity).</li>
+ * <li>Inserting or removing a value at either end of the array is amortized O(log n).</li>
+ * <li>Splitting a full chunk, merging sparse chunks and removing empty chunks rebuilds the chunk directory in O(n / chunk capacity),
+ * which is amortized over the many operations that fill or empty a chunk.</li>
+ * </ul>
+ *
+ * <p>In comparison {@link HugeLongArray} and {@link PrimitiveLongArray} move all values after the index position, which is O(n).</p>
+ */
+public class ChunkedLongArray extends AbstractLongArray {
+
+	/**
+	 * The default number of values in a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_CAPACITY = 1024;
+
+	private static final int ELEMENT_SIZE = 8;
+
+	private final MemoryManager memoryManager;
+
+	private final int chunkCapacity;
+
+	private long[] chunkAddresses = new long[8];
+
+	private int[] chunkStarts = new int[8];
+
+	private int[] chunkSizes = new int[8];
+
+	private int chunkCount;
+
+	/**
+	 * Fenwick tree (1-based) over the chunk sizes.
+	 */
+	private int[] tree = new int[9];
+
+	private int size;
+
+	/**
+	 * Constructs a {@link ChunkedLongArray}.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the values
+	 */
+	public ChunkedLongArray(MemoryManager memoryManager) {
+		this(memoryManager, DEFAULT_CHUNK_CAPACITY);
+	}
+
+	/**
+	 * Constructs a {@link ChunkedLongArray} with the specified chunk capacity.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the values
+	 * @param chunkCapacity the number of values in a chunk, must be at least 4
+	 * @throws IllegalArgumentException if the chunk capacity is smaller than 4
+	 */
+	public ChunkedLongArray(MemoryManager memoryManager, int chunkCapacity) {
+		if (chunkCapacity < 4) {
+			throw new IllegalArgumentException("chunkCapacity=" + chunkCapacity + " is smaller than 4");
+		}
+
+		this.memoryManager = memoryManager;
+		this.chunkCapacity = chunkCapacity;
+	}
+
+	@Override
+	public long get(int index) {
+		checkSize(index);
+
+		long position = locate(index);
+		int chunk = (int) (position >>> 32);
+		int offset = (int) position;
+		return memoryManager.readLong(chunkAddresses[chunk], (chunkStarts[chunk] + offset) * ELEMENT_SIZE);
+	}
+
+	@Override
+	public long set(int index, long value) {
+		checkSize(index);
+
+		long position = locate(index);
+		int chunk = (int) (position >>> 32);
+		int offset = (int) position;
+		long address = chunkAddresses[chunk];
+		int byteOffset = (chunkStarts[chunk] + offset) * ELEMENT_SIZE;
+		long oldValue = memoryManager.readLong(address, byteOffset);
+		memoryManager.writeLong(address, byteOffset, value);
+		return oldValue;
+	}
+
+	@Override
+	public void add(long value) {
+		addInternal(size, value);
+	}
+
+	@Override
+	public void add(int index, long value) {
+		checkSizeIncludingRightBound(index);
+
+		addInternal(index, value);
+	}
+
+	private void addInternal(int index, long value) {
+		int chunk;
+		int offset;
+		if (index == size) {
+			chunk = chunkCount - 1;
+			if (chunk < 0 || chunkSizes[chunk] == chunkCapacity) {
+				chunk++;
+				insertChunk(chunk, 0);
+				rebuildTree();
+			}
+			offset = chunkSizes[chunk];
+		} else {
+			long position = locate(index);
+			chunk = (int) (position >>> 32);
+			offset = (int) position;
+			if (chunkSizes[chunk] == chunkCapacity) {
+				if (offset == 0 && chunk > 0 && chunkSizes[chunk - 1] < chunkCapacity) {
+					chunk--;
+					offset = chunkSizes[chunk];
+				} else if (offset == 0) {
+					// new chunk in front of the full chunk, filled from the end if inserting at the head
+					insertChunk(chunk, chunk == 0 ? chunkCapacity : 0);
+					rebuildTree();
+				} else {
+					splitChunk(chunk);
+					rebuildTree();
+					if (offset >= chunkSizes[chunk]) {
+						offset -= chunkSizes[chunk];
+						chunk++;
+					}
+				}
+			}
+		}
+
+		insertIntoChunk(chunk, offset, value);
+		size++;
+		updateTree(chunk, 1);
+	}
+
+	@Override
+	public long remove(int index) {
+		checkSize(index);
+
+		long position = locate(index);
+		int chunk = (int) (position >>> 32);
+		int offset = (int) position;
+
+		long address = chunkAddresses[chunk];
+		int start = chunkStarts[chunk];
+		int chunkSize = chunkSizes[chunk];
+		long oldValue = memoryManager.readLong(address, (start + offset) * ELEMENT_SIZE);
+		if (offset < chunkSize - 1 - offset) {
+			copyElements(address, start, address, start + 1, offset);
+			chunkStarts[chunk] = start + 1;
+		} else {
+			copyElements(address, start + offset + 1, address, start + offset, chunkSize - 1 - offset);
+		}
+		chunkSizes[chunk] = chunkSize - 1;
+		size--;
+
+		if (chunkSize == 1 && chunkCount > 1) {
+			removeChunk(chunk);
+			rebuildTree();
+		} else {
+			updateTree(chunk, -1);
+			mergeSparseChunks(chunk);
+		}
+
+		return oldValue;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < chunkCount; i++) {
+			memoryManager.free(chunkAddresses[i]);
+		}
+		chunkCount = 0;
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int indexOf(long value) {
+		int index = 0;
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			LongBuffer values = readChunk(chunk);
+			while (values.hasRemaining()) {
+				if (values.get() == value) {
+					return index;
+				}
+				index++;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public long[] toArray() {
+		long[] result = new long[size];
+		int index = 0;
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			int chunkSize = chunkSizes[chunk];
+			readChunk(chunk).get(result, index, chunkSize);
+			index += chunkSize;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size + ", chunks=" + chunkCount + "}";
+	}
+
+	/**
+	 * Finds the chunk containing the specified index position.
+	 *
+	 * @param index the index position, must be smaller than the size
+	 * @return the chunk in the upper 32 bits and the offset inside the chunk in the lower 32 bits
+	 */
+	private long locate(int index) {
+		int chunk = 0;
+		int remaining = index;
+		for (int step = Integer.highestOneBit(chunkCount); step > 0; step >>>= 1) {
+			int next = chunk + step;
+			if (next <= chunkCount && tree[next] <= remaining) {
+				chunk = next;
+				remaining -= tree[next];
+			}
+		}
+		return ((long) chunk << 32) | remaining;
+	}
+
+	private void updateTree(int chunk, int delta) {
+		for (int i = chunk + 1; i <= chunkCount; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	private void rebuildTree() {
+		if (tree.length <= chunkCount) {
+			tree = new int[chunkAddresses.length + 1];
+		}
+		for (int i = 1; i <= chunkCount; i++) {
+			tree[i] = chunkSizes[i - 1];
+		}
+		for (int i = 1; i <= chunkCount; i++) {
+			int parent = i + (i & -i);
+			if (parent <= chunkCount) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+	private void insertIntoChunk(int chunk, int offset, long value) {
+		long address = chunkAddresses[chunk];
+		int start = chunkStarts[chunk];
+		int chunkSize = chunkSizes[chunk];
+		if (chunkSize == 0) {
+			if (start == chunkCapacity) {
+				start--;
+				chunkStarts[chunk] = start;
+			}
+			memoryManager.writeLong(address, start * ELEMENT_SIZE, value);
+			chunkSizes[chunk] = 1;
+			return;
+		}
+
+		boolean moveHead = offset < chunkSize - offset;
+		if (moveHead ? start == 0 : start + chunkSize == chunkCapacity) {
+			// no room on the cheaper side - center the values, so that both sides have room again
+			int newStart = (chunkCapacity - chunkSize) / 2;
+			copyElements(address, start, address, newStart, chunkSize);
+			start = newStart;
+			chunkStarts[chunk] = start;
+		}
+		if (start == 0) {
+			moveHead = false;
+		} else if (start + chunkSize == chunkCapacity) {
+			moveHead = true;
+		}
+
+		if (moveHead) {
+			copyElements(address, start, address, start - 1, offset);
+			start--;
+			chunkStarts[chunk] = start;
+		} else {
+			copyElements(address, start + offset, address, start + offset + 1, chunkSize - offset);
+		}
+		memoryManager.writeLong(address, (start + offset) * ELEMENT_SIZE, value);
+		chunkSizes[chunk] = chunkSize + 1;
+	}
+
+	/**
+	 * Moves the upper half of a full chunk into a new chunk after it.
+	 *
+	 * @param chunk the chunk to split
+	 */
+	private void splitChunk(int chunk) {
+		insertChunk(chunk + 1, 0);
+
+		int chunkSize = chunkSizes[chunk];
+		int half = chunkSize / 2;
+		copyElements(chunkAddresses[chunk], chunkStarts[chunk] + half, chunkAddresses[chunk + 1], 0, chunkSize - half);
+		chunkSizes[chunk] = half;
+		chunkSizes[chunk + 1] = chunkSize - half;
+	}
+
+	/**
+	 * Merges the specified chunk with a neighbour, if both together are at most half full.
+	 *
+	 * <p>This guarantees that two adjacent chunks are always more than half full,
+	 * so that the chunks are on average more than a quarter full.</p>
+	 *
+	 * @param chunk the chunk that has become smaller
+	 */
+	private void mergeSparseChunks(int chunk) {
+		int maxMergedSize = chunkCapacity / 2;
+		if (chunk + 1 < chunkCount && chunkSizes[chunk] + chunkSizes[chunk + 1] <= maxMergedSize) {
+			mergeChunks(chunk);
+			rebuildTree();
+		} else if (chunk > 0 && chunkSizes[chunk - 1] + chunkSizes[chunk] <= maxMergedSize) {
+			mergeChunks(chunk - 1);
+			rebuildTree();
+		}
+	}
+
+	/**
+	 * Moves all values of the next chunk to the end of the specified chunk and removes the next chunk.
+	 *
+	 * @param chunk the chunk to merge into
+	 */
+	private void mergeChunks(int chunk) {
+		long address = chunkAddresses[chunk];
+		int start = chunkStarts[chunk];
+		int chunkSize = chunkSizes[chunk];
+		int nextChunkSize = chunkSizes[chunk + 1];
+		if (start + chunkSize + nextChunkSize > chunkCapacity) {
+			copyElements(address, start, address, 0, chunkSize);
+			start = 0;
+			chunkStarts[chunk] = start;
+		}
+		copyElements(chunkAddresses[chunk + 1], chunkStarts[chunk + 1], address, start + chunkSize, nextChunkSize);
+		chunkSizes[chunk] = chunkSize + nextChunkSize;
+
+		removeChunk(chunk + 1);
+	}
+
+	private void insertChunk(int chunk, int start) {
+		if (chunkCount == chunkAddresses.length) {
+			int newLength = chunkAddresses.length * 2;
+			long[] newChunkAddresses = new long[newLength];
+			int[] newChunkStarts = new int[newLength];
+			int[] newChunkSizes = new int[newLength];
+			System.arraycopy(chunkAddresses, 0, newChunkAddresses, 0, chunkCount);
+			System.arraycopy(chunkStarts, 0, newChunkStarts, 0, chunkCount);
+			System.arraycopy(chunkSizes, 0, newChunkSizes, 0, chunkCount);
+			chunkAddresses = newChunkAddresses;
+			chunkStarts = newChunkStarts;
+			chunkSizes = newChunkSizes;
+		}
+
+		int count = chunkCount - chunk;
+		System.arraycopy(chunkAddresses, chunk, chunkAddresses, chunk + 1, count);
+		System.arraycopy(chunkStarts, chunk, chunkStarts, chunk + 1, count);
+		System.arraycopy(chunkSizes, chunk, chunkSizes, chunk + 1, count);
+		chunkAddresses[chunk] = memoryManager.allocate(chunkCapacity * ELEMENT_SIZE);
+		chunkStarts[chunk] = start;
+		chunkSizes[chunk] = 0;
+		chunkCount++;
+	}
+
+	private void removeChunk(int chunk) {
+		memoryManager.free(chunkAddresses[chunk]);
+
+		int count = chunkCount - chunk - 1;
+		System.arraycopy(chunkAddresses, chunk + 1, chunkAddresses, chunk, count);
+		System.arraycopy(chunkStarts, chunk + 1, chunkStarts, chunk, count);
+		System.arraycopy(chunkSizes, chunk + 1, chunkSizes, chunk, count);
+		chunkCount--;
+	}
+
+	private LongBuffer readChunk(int chunk) {
+		int length = chunkSizes[chunk] * ELEMENT_SIZE;
+		byte[] data = new byte[length];
+		memoryManager.read(chunkAddresses[chunk], chunkStarts[chunk] * ELEMENT_SIZE, data, length);
+		return ByteBuffer.wrap(data).asLongBuffer();
+	}
+
+	private void copyElements(long fromAddress, int fromIndex, long toAddress, int toIndex, int count) {
+		if (count == 0) {
+			return;
+		}
+		int length = count * ELEMENT_SIZE;
+		byte[] data = new byte[length];
+		memoryManager.read(fromAddress, fromIndex * ELEMENT_SIZE, data, length);
+		memoryManager.write(toAddress, toIndex * ELEMENT_SIZE, data, length);
+	}
+
+	private void checkSize(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+	}
+
+	private void checkSizeIncludingRightBound(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+	}
+}
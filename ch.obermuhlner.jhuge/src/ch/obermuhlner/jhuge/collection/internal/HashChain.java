@@ -0,0 +1,159 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Static helpers to manipulate the chains of entry addresses that share the same hash code,
+ * as they are stored as values in an {@link IntLongArrayMap}.
+ *
+ * <p>A chain with a single entry consists only of its address, so that it fits into a single inline slot.</p>
+ * <p>A chain with several entries consists of the addresses of the entries,
+ * followed by a 16 bit fingerprint of the serialized key of every entry, packed 4 into every <code>long</code>.
+ * The fingerprints allow to reject almost all non-matching entries without reading their memory blocks.</p>
+ */
+public final class HashChain {
+
+	private static final int FINGERPRINTS_PER_LONG = 4;
+
+	private static final int FINGERPRINT_BITS = 16;
+
+	private static final int FINGERPRINT_MASK = 0xFFFF;
+
+	private HashChain() {
+		// no instances
+	}
+
+	/**
+	 * Returns the number of entries in the specified chain.
+	 *
+	 * @param chain the chain
+	 * @return the number of entries
+	 */
+	public static int size(long[] chain) {
+		if (chain.length == 1) {
+			return 1;
+		}
+		// chain.length = size + ceil(size / 4)
+		return chain.length - (chain.length + FINGERPRINTS_PER_LONG) / (FINGERPRINTS_PER_LONG + 1);
+	}
+
+	/**
+	 * Returns whether the specified chain stores the fingerprints of its entries.
+	 *
+	 * @param chain the chain
+	 * @return <code>true</code> if the chain has fingerprints, <code>false</code> if it consists of a single address
+	 */
+	public static boolean hasFingerprints(long[] chain) {
+		return chain.length > 1;
+	}
+
+	/**
+	 * Returns the fingerprint of the entry at the specified index.
+	 *
+	 * @param chain the chain, which must {@link #hasFingerprints(long[]) have fingerprints}
+	 * @param index the index of the entry
+	 * @return the fingerprint
+	 */
+	public static int fingerprint(long[] chain, int index) {
+		long fingerprints = chain[size(chain) + index / FINGERPRINTS_PER_LONG];
+		return (int) (fingerprints >>> ((index % FINGERPRINTS_PER_LONG) * FINGERPRINT_BITS)) & FINGERPRINT_MASK;
+	}
+
+	/**
+	 * Creates a chain with two entries.
+	 *
+	 * @param address1 the address of the first entry
+	 * @param fingerprint1 the fingerprint of the first entry
+	 * @param address2 the address of the second entry
+	 * @param fingerprint2 the fingerprint of the second entry
+	 * @return the created chain
+	 */
+	public static long[] create(long address1, int fingerprint1, long address2, int fingerprint2) {
+		long[] result = new long[3];
+		result[0] = address1;
+		result[1] = address2;
+		result[2] = fingerprint1 | ((long) fingerprint2 << FINGERPRINT_BITS);
+		return result;
+	}
+
+	/**
+	 * Creates a new chain with an additional entry at the end.
+	 *
+	 * @param chain the chain, which must {@link #hasFingerprints(long[]) have fingerprints}
+	 * @param address the address of the new entry
+	 * @param fingerprint the fingerprint of the new entry
+	 * @return the new chain
+	 */
+	public static long[] append(long[] chain, long address, int fingerprint) {
+		int size = size(chain);
+		long[] result = new long[size + 1 + (size + FINGERPRINTS_PER_LONG) / FINGERPRINTS_PER_LONG];
+		System.arraycopy(chain, 0, result, 0, size);
+		result[size] = address;
+		for (int i = 0; i < size; i++) {
+			setFingerprint(result, size + 1, i, fingerprint(chain, i));
+		}
+		setFingerprint(result, size + 1, size, fingerprint);
+		return result;
+	}
+
+	/**
+	 * Creates a new chain without the entry at the specified index.
+	 *
+	 * @param chain the chain, which must {@link #hasFingerprints(long[]) have fingerprints}
+	 * @param index the index of the entry to remove
+	 * @return the new chain
+	 */
+	public static long[] remove(long[] chain, int index) {
+		int size = size(chain);
+		if (size == 2) {
+			return new long[] { chain[1 - index] };
+		}
+
+		long[] result = new long[size - 1 + (size - 1 + FINGERPRINTS_PER_LONG - 1) / FINGERPRINTS_PER_LONG];
+		int resultIndex = 0;
+		for (int i = 0; i < size; i++) {
+			if (i != index) {
+				result[resultIndex] = chain[i];
+				setFingerprint(result, size - 1, resultIndex, fingerprint(chain, i));
+				resultIndex++;
+			}
+		}
+		return result;
+	}
+
+	private static void setFingerprint(long[] chain, int size, int index, int fingerprint) {
+		chain[size + index / FINGERPRINTS_PER_LONG] |= (long) fingerprint << ((index % FINGERPRINTS_PER_LONG) * FINGERPRINT_BITS);
+	}
+
+	/**
+	 * Calculates the fingerprint of the specified serialized key.
+	 *
+	 * <p>The fingerprint is independent of the {@link Object#hashCode()} of the key (all entries in a chain have the same hash code)
+	 * and is only meaningful for keys with a canonical serialized form.</p>
+	 *
+	 * @param data the serialized key
+	 * @return the fingerprint
+	 */
+	public static int fingerprint(byte[] data) {
+		return fingerprint(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Calculates the fingerprint of the serialized key in the remaining bytes of the specified {@link ByteBuffer}.
+	 *
+	 * <p>The position of the buffer is not changed.</p>
+	 *
+	 * @param buffer the {@link ByteBuffer} containing the serialized key
+	 * @return the fingerprint
+	 * @see #fingerprint(byte[])
+	 */
+	public static int fingerprint(ByteBuffer buffer) {
+		// FNV-1a - unlike the polynomial hash of String it does not collide for "Aa" and "BB"
+		int hash = 0x811C9DC5;
+		for (int i = buffer.position(); i < buffer.limit(); i++) {
+			hash ^= buffer.get(i) & 0xFF;
+			hash *= 0x01000193;
+		}
+		return (hash ^ (hash >>> FINGERPRINT_BITS)) & FINGERPRINT_MASK;
+	}
+}
@@ -6,14 +6,33 @@ import ch.obermuhlner.jhuge.memory.MemoryManager;
 
 /**
  * A {@link IntArray} implementation that stores the values in a {@link MemoryManager}.
+ * 
+ * <p>The elements are stored in pages of a fixed capacity, each page is a separate memory block.
+ * The addresses of the pages are kept in a small page directory on the Java heap.
+ * Growing the array only allocates additional pages and never copies the existing elements
+ * (as long as the array is smaller than a single page the page itself grows, which copies at most one page).</p>
+ * <p>The size of the array is therefore not limited by the maximum size of a memory block of the {@link MemoryManager}.</p>
+ * <p>The elements are accessed individually with {@link MemoryManager#readInt(long, int)} and {@link MemoryManager#writeInt(long, int, int)},
+ * so that accessing an element does not copy an entire page.</p>
  */
 public class HugeIntArray extends AbstractIntArray {
 
+	/**
+	 * The default number of elements in a page.
+	 */
+	public static final int DEFAULT_PAGE_CAPACITY = 1024;
+
 	private static final int ELEMENT_SIZE = 4;
 	
 	private final MemoryManager memoryManager;
 
-	private long address;
+	private final int pageShift;
+	
+	private final int pageMask;
+
+	private final LongArray pageAddresses = new PrimitiveLongArray();
+	
+	private int capacity;
 	
 	private int size;
 
@@ -33,23 +52,37 @@ public class HugeIntArray extends AbstractIntArray {
 	 * @param capacity the initial capacity
 	 */
 	public HugeIntArray(MemoryManager memoryManager, int capacity) {
+		this(memoryManager, capacity, DEFAULT_PAGE_CAPACITY);
+	}
+	
+	/**
+	 * Constructs a {@link HugeIntArray} with the specified initial capacity and page capacity.
+	 * 
+	 * @param memoryManager the {@link MemoryManager} to store the values
+	 * @param capacity the initial capacity
+	 * @param pageCapacity the number of elements in a page, must be a power of 2
+	 * @throws IllegalArgumentException if the page capacity is not a power of 2
+	 */
+	public HugeIntArray(MemoryManager memoryManager, int capacity, int pageCapacity) {
+		if (pageCapacity <= 0 || Integer.bitCount(pageCapacity) != 1) {
+			throw new IllegalArgumentException("pageCapacity=" + pageCapacity + " is not a power of 2");
+		}
+		
 		this.memoryManager = memoryManager;
+		this.pageShift = Integer.numberOfTrailingZeros(pageCapacity);
+		this.pageMask = pageCapacity - 1;
 		
-		address = memoryManager.allocate(capacity * ELEMENT_SIZE);
+		ensureCapacity(capacity);
 	}
 	
 	@Override
 	public int set(int index, int value) {
 		checkSize(index);
 		
-		byte[] data = memoryManager.read(address);
-		ByteBuffer wrap = ByteBuffer.wrap(data);
-		wrap.position(index * ELEMENT_SIZE);
-		int oldValue = wrap.getInt();
-		wrap.position(index * ELEMENT_SIZE);
-		wrap.putInt(value);
-
-		memoryManager.write(address, data);
+		long pageAddress = pageAddress(index);
+		int offset = pageOffset(index);
+		int oldValue = memoryManager.readInt(pageAddress, offset);
+		memoryManager.writeInt(pageAddress, offset, value);
 		return oldValue;
 	}
 
@@ -66,25 +99,10 @@ public class HugeIntArray extends AbstractIntArray {
 	}
 
 	private void addInternal(int index, int value) {
-		byte[] data = memoryManager.read(address);
-		if (data.length > size * ELEMENT_SIZE) {
-			// move in block
-			System.arraycopy(data, index * ELEMENT_SIZE, data, index * ELEMENT_SIZE + ELEMENT_SIZE, (size - index) * ELEMENT_SIZE);
-			ByteBuffer wrap = ByteBuffer.wrap(data);
-			wrap.position(index * ELEMENT_SIZE);
-			wrap.putInt(value);
-			memoryManager.write(address, data);
-		} else {
-			// copy into new block
-			byte[] newData = new byte[data.length * 2];
-			System.arraycopy(data, 0, newData, 0, index * ELEMENT_SIZE);
-			System.arraycopy(data, index * ELEMENT_SIZE, newData, index * ELEMENT_SIZE + ELEMENT_SIZE, (size - index) * ELEMENT_SIZE);
-			ByteBuffer wrap = ByteBuffer.wrap(newData);
-			wrap.position(index * ELEMENT_SIZE);
-			wrap.putInt(value);
-			memoryManager.free(address);
-			address = memoryManager.allocate(newData);
-		}
+		ensureCapacity(size + 1);
+		
+		moveElements(index, index + 1, size - index);
+		memoryManager.writeInt(pageAddress(index), pageOffset(index), value);
 		
 		size++;
 	}
@@ -93,29 +111,81 @@ public class HugeIntArray extends AbstractIntArray {
 	public int get(int index) {
 		checkSize(index);
 
-		byte[] data = memoryManager.read(address);
-		ByteBuffer wrap = ByteBuffer.wrap(data);
-		wrap.position(index * ELEMENT_SIZE);
-		int value = wrap.getInt();
-		return value;
+		return memoryManager.readInt(pageAddress(index), pageOffset(index));
 	}
 
 	@Override
 	public int remove(int index) {
 		checkSize(index);
 
-		byte[] data = memoryManager.read(address);
-		ByteBuffer wrap = ByteBuffer.wrap(data);
-		wrap.position(index * ELEMENT_SIZE);
-		int oldValue = wrap.getInt();
-		System.arraycopy(data, 0, data, 0, index * ELEMENT_SIZE);
-		System.arraycopy(data, index * ELEMENT_SIZE + ELEMENT_SIZE, data, index * ELEMENT_SIZE, (size - index - 1) * ELEMENT_SIZE);
-		memoryManager.write(address, data);
+		int oldValue = memoryManager.readInt(pageAddress(index), pageOffset(index));
+		moveElements(index + 1, index, size - index - 1);
 		
 		size--;
 		
 		return oldValue;
 	}
+	
+	/**
+	 * Copies a range of values into the specified array.
+	 * 
+	 * <p>The values are read page by page, which is much faster than reading them one by one.</p>
+	 * 
+	 * @param index the index position of the first value to copy
+	 * @param values the array to copy the values into
+	 * @param offset the offset in the array
+	 * @param length the number of values to copy
+	 */
+	public void get(int index, int[] values, int offset, int length) {
+		checkRange(index, length);
+		
+		int pageCapacity = pageCapacity();
+		while (length > 0) {
+			int count = Math.min(length, pageCapacity - (index & pageMask));
+			int byteLength = count * ELEMENT_SIZE;
+			byte[] data = new byte[byteLength];
+			memoryManager.read(pageAddress(index), pageOffset(index), data, byteLength);
+			ByteBuffer.wrap(data).asIntBuffer().get(values, offset, count);
+			index += count;
+			offset += count;
+			length -= count;
+		}
+	}
+	
+	/**
+	 * Adds a range of values from the specified array at the end.
+	 * 
+	 * <p>The values are written page by page, which is much faster than adding them one by one.</p>
+	 * 
+	 * @param values the array containing the values to add
+	 * @param offset the offset in the array
+	 * @param length the number of values to add
+	 */
+	public void addAll(int[] values, int offset, int length) {
+		ensureCapacity(size + length);
+		
+		int pageCapacity = pageCapacity();
+		int index = size;
+		while (length > 0) {
+			int count = Math.min(length, pageCapacity - (index & pageMask));
+			int byteLength = count * ELEMENT_SIZE;
+			byte[] data = new byte[byteLength];
+			ByteBuffer.wrap(data).asIntBuffer().put(values, offset, count);
+			memoryManager.write(pageAddress(index), pageOffset(index), data, byteLength);
+			index += count;
+			offset += count;
+			length -= count;
+		}
+		
+		size = index;
+	}
+	
+	@Override
+	public int[] toArray() {
+		int[] result = new int[size];
+		get(0, result, 0, size);
+		return result;
+	}
 
 	@Override
 	public void clear() {
@@ -126,6 +196,95 @@ public class HugeIntArray extends AbstractIntArray {
 	public int size() {
 		return size;
 	}
+	
+	private int pageCapacity() {
+		return pageMask + 1;
+	}
+	
+	private long pageAddress(int index) {
+		return pageAddresses.get(index >>> pageShift);
+	}
+	
+	private int pageOffset(int index) {
+		return (index & pageMask) * ELEMENT_SIZE;
+	}
+
+	/**
+	 * Ensures that the array has at least the specified capacity.
+	 * 
+	 * <p>As long as the capacity is smaller than a single page, the first page grows by copying it.
+	 * Once the first page is full, new pages are appended.</p>
+	 * 
+	 * @param minCapacity the minimum capacity
+	 */
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity <= capacity) {
+			return;
+		}
+		
+		int pageCapacity = pageCapacity();
+		if (capacity < pageCapacity) {
+			int newCapacity = Math.min(pageCapacity, Math.max(minCapacity, capacity == 0 ? 8 : capacity * 2));
+			long newPageAddress = memoryManager.allocate(newCapacity * ELEMENT_SIZE);
+			if (pageAddresses.size() == 0) {
+				pageAddresses.add(newPageAddress);
+			} else {
+				long oldPageAddress = pageAddresses.get(0);
+				int length = size * ELEMENT_SIZE;
+				byte[] data = new byte[length];
+				memoryManager.read(oldPageAddress, 0, data, length);
+				memoryManager.write(newPageAddress, 0, data, length);
+				memoryManager.free(oldPageAddress);
+				pageAddresses.set(0, newPageAddress);
+			}
+			capacity = newCapacity;
+		}
+		
+		while (capacity < minCapacity) {
+			pageAddresses.add(memoryManager.allocate(pageCapacity * ELEMENT_SIZE));
+			capacity += pageCapacity;
+		}
+	}
+	
+	/**
+	 * Moves elements inside the array.
+	 * 
+	 * <p>The elements are copied in chunks that do not cross a page boundary, neither at the source nor at the destination.</p>
+	 * 
+	 * @param fromIndex the index of the first element to move
+	 * @param toIndex the index where the first element is moved to
+	 * @param count the number of elements to move
+	 */
+	private void moveElements(int fromIndex, int toIndex, int count) {
+		int pageCapacity = pageCapacity();
+		if (toIndex > fromIndex) {
+			// copy backwards, so that the source is not overwritten before it is copied
+			int end = count;
+			while (end > 0) {
+				int fromPageFill = ((fromIndex + end - 1) & pageMask) + 1;
+				int toPageFill = ((toIndex + end - 1) & pageMask) + 1;
+				int chunk = Math.min(end, Math.min(fromPageFill, toPageFill));
+				copyElements(fromIndex + end - chunk, toIndex + end - chunk, chunk);
+				end -= chunk;
+			}
+		} else {
+			int start = 0;
+			while (start < count) {
+				int fromPageRemaining = pageCapacity - ((fromIndex + start) & pageMask);
+				int toPageRemaining = pageCapacity - ((toIndex + start) & pageMask);
+				int chunk = Math.min(count - start, Math.min(fromPageRemaining, toPageRemaining));
+				copyElements(fromIndex + start, toIndex + start, chunk);
+				start += chunk;
+			}
+		}
+	}
+	
+	private void copyElements(int fromIndex, int toIndex, int count) {
+		int length = count * ELEMENT_SIZE;
+		byte[] data = new byte[length];
+		memoryManager.read(pageAddress(fromIndex), pageOffset(fromIndex), data, length);
+		memoryManager.write(pageAddress(toIndex), pageOffset(toIndex), data, length);
+	}
 
 	private void checkSize(int index) {
 		if (index < 0 || index >= size) {
@@ -133,6 +292,12 @@ public class HugeIntArray extends AbstractIntArray {
 		}		
 	}
 
+	private void checkRange(int index, int length) {
+		if (index < 0 || length < 0 || index + length > size) {
+			throw new IndexOutOfBoundsException("index=" + index + " length=" + length + " size=" + size);
+		}
+	}
+
 	private void checkSizeIncludingRightBound(int index) {
 		if (index < 0 || index > size) {
 			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
@@ -1,176 +1,133 @@
 package ch.obermuhlner.jhuge.collection.internal;
 
-import java.nio.ByteBuffer;
-
 import ch.obermuhlner.jhuge.memory.MemoryManager;
 
 /**
  * A {@link LongArray} implementation that stores the values in a {@link MemoryManager}.
+ *
+ * <p>The elements are stored in pages of a fixed capacity, each page is a separate memory block.
+ * The paging is implemented by a {@link LongIndexedLongArray}, this class only provides the <code>int</code> indexed {@link LongArray} interface.</p>
+ * <p>The size of the array is therefore not limited by the maximum size of a memory block of the {@link MemoryManager}.</p>
  */
 public class HugeLongArray extends AbstractLongArray {
 
-	private static final int ELEMENT_SIZE = 8;
-	
-	private final MemoryManager memoryManager;
+	/**
+	 * The default number of elements in a page.
+	 */
+	public static final int DEFAULT_PAGE_CAPACITY = LongIndexedLongArray.DEFAULT_PAGE_CAPACITY;
 
-	private long address;
-	
-	private int size;
+	private final LongIndexedLongArray array;
 
 	/**
 	 * Constructs a {@link HugeLongArray}.
-	 * 
+	 *
 	 * @param memoryManager the {@link MemoryManager} to store the values
 	 */
 	public HugeLongArray(MemoryManager memoryManager) {
 		this(memoryManager, 8);
 	}
-	
+
 	/**
 	 * Constructs a {@link HugeLongArray} with the specified initial capacity.
-	 * 
+	 *
 	 * @param memoryManager the {@link MemoryManager} to store the values
 	 * @param capacity the initial capacity
 	 */
 	public HugeLongArray(MemoryManager memoryManager, int capacity) {
-		this.memoryManager = memoryManager;
-		
-		address = memoryManager.allocate(capacity * ELEMENT_SIZE);
+		this(memoryManager, capacity, DEFAULT_PAGE_CAPACITY);
 	}
-	
+
+	/**
+	 * Constructs a {@link HugeLongArray} with the specified initial capacity and page capacity.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the values
+	 * @param capacity the initial capacity
+	 * @param pageCapacity the number of elements in a page, must be a power of 2
+	 * @throws IllegalArgumentException if the page capacity is not a power of 2
+	 */
+	public HugeLongArray(MemoryManager memoryManager, int capacity, int pageCapacity) {
+		array = new LongIndexedLongArray(memoryManager, capacity, pageCapacity);
+	}
+
 	@Override
 	public long set(int index, long value) {
-		checkSize(index);
-		
-		byte[] data = memoryManager.read(address);
-		ByteBuffer wrap = ByteBuffer.wrap(data);
-		wrap.position(index * ELEMENT_SIZE);
-		long oldValue = wrap.getLong();
-		wrap.position(index * ELEMENT_SIZE);
-		wrap.putLong(value);
-
-		memoryManager.write(address, data);
-		return oldValue;
+		return array.set(index, value);
 	}
 
 	@Override
 	public void add(int index, long value) {
-		checkSizeIncludingRightBound(index);
-		
-		addInternal(index, value);
+		array.add(index, value);
 	}
 
 	@Override
 	public void add(long value) {
-		addInternal(size, value);
-	}
-
-	private void addInternal(int index, long value) {
-		byte[] data = memoryManager.read(address);
-		if (data.length > size * ELEMENT_SIZE) {
-			// move in block
-			System.arraycopy(data, index * ELEMENT_SIZE, data, index * ELEMENT_SIZE + ELEMENT_SIZE, (size - index) * ELEMENT_SIZE);
-			ByteBuffer wrap = ByteBuffer.wrap(data);
-			wrap.position(index * ELEMENT_SIZE);
-			wrap.putLong(value);
-			memoryManager.write(address, data);
-		} else {
-			// copy into new block
-			byte[] newData = new byte[data.length * 2];
-			System.arraycopy(data, 0, newData, 0, index * ELEMENT_SIZE);
-			System.arraycopy(data, index * ELEMENT_SIZE, newData, index * ELEMENT_SIZE + ELEMENT_SIZE, (size - index) * ELEMENT_SIZE);
-			ByteBuffer wrap = ByteBuffer.wrap(newData);
-			wrap.position(index * ELEMENT_SIZE);
-			wrap.putLong(value);
-			memoryManager.free(address);
-			address = memoryManager.allocate(newData);
-		}
-		
-		size++;
+		array.add(value);
 	}
 
 	@Override
 	public long get(int index) {
-		checkSize(index);
-
-		byte[] data = memoryManager.read(address);
-		ByteBuffer wrap = ByteBuffer.wrap(data);
-		wrap.position(index * ELEMENT_SIZE);
-		long value = wrap.getLong();
-		return value;
+		return array.get(index);
 	}
 
 	@Override
 	public long remove(int index) {
-		checkSize(index);
-
-		byte[] data = memoryManager.read(address);
-		ByteBuffer wrap = ByteBuffer.wrap(data);
-		wrap.position(index * ELEMENT_SIZE);
-		long oldValue = wrap.getLong();
-		System.arraycopy(data, 0, data, 0, index * ELEMENT_SIZE);
-		System.arraycopy(data, index * ELEMENT_SIZE + ELEMENT_SIZE, data, index * ELEMENT_SIZE, (size - index - 1) * ELEMENT_SIZE);
-		memoryManager.write(address, data);
-		
-		size--;
-		
-		return oldValue;
+		return array.remove(index);
 	}
-	
+
 	/**
 	 * Sets the size of the array.
-	 * 
+	 *
+	 * <p>Elements added by growing the array are 0.</p>
+	 *
 	 * @param newSize the new size
 	 */
 	public void setSize(int newSize) {
-		byte[] data = memoryManager.read(address);
-		if (data.length < newSize * ELEMENT_SIZE) {
-			byte[] newData = new byte[newSize * ELEMENT_SIZE];
-			System.arraycopy(data, 0, newData, 0, size * ELEMENT_SIZE);
-			memoryManager.free(address);
-			address = memoryManager.allocate(newData);
-		} else {
-			for (int i = newSize; i < size; i++) {
-				set(i, 0);
-			}
-		}
-		size = newSize;
+		array.setSize(newSize);
 	}
 
+	/**
+	 * Copies a range of values into the specified array.
+	 *
+	 * <p>The values are read page by page, which is much faster than reading them one by one.</p>
+	 *
+	 * @param index the index position of the first value to copy
+	 * @param values the array to copy the values into
+	 * @param offset the offset in the array
+	 * @param length the number of values to copy
+	 */
+	public void get(int index, long[] values, int offset, int length) {
+		array.get(index, values, offset, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The values are written page by page, which is much faster than adding them one by one.</p>
+	 */
 	@Override
-	public void clear() {
-		size = 0;
+	public void addAll(long[] values, int offset, int length) {
+		array.addAll(values, offset, length);
 	}
 
 	@Override
-	public int size() {
-		return size;
+	public long[] toArray() {
+		long[] result = new long[size()];
+		array.get(0, result, 0, result.length);
+		return result;
 	}
-	
+
 	@Override
-	public String toString() {
-		return getClass().getSimpleName() + "{size=" + size + "}";
-//		StringBuilder result = new StringBuilder();
-//		result.append('[');
-//		for (int i = 0; i < size; i++) {
-//			if (i > 0) {
-//				result.append(", ");
-//			}
-//			result.append(get(i));
-//		}
-//		result.append(']');
-//		return result.toString();
+	public void clear() {
+		array.clear();
 	}
 
-	private void checkSize(int index) {
-		if (index < 0 || index >= size) {
-			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
-		}		
+	@Override
+	public int size() {
+		return (int) array.size();
 	}
 
-	private void checkSizeIncludingRightBound(int index) {
-		if (index < 0 || index > size) {
-			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
-		}
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size() + ", array=" + array + "}";
 	}
 }
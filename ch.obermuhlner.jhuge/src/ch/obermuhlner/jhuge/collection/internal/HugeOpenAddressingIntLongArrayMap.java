@@ -0,0 +1,693 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A map where the keys are <code>int</code> and the values are <code>long[]</code> that stores all data in a {@link MemoryManager}
+ * using an open addressing hash table with linear probing.
+ *
+ * <p>The table consists of fixed-width slots that are stored in pages, each page is a separate memory block.
+ * The addresses of the pages are kept in a small page directory on the Java heap.
+ * Every slot contains a header with the key and the length of the value,
+ * followed by the inline storage for short values.
+ * Values that do not fit into the inline storage are stored in a separate memory block and the slot contains its address.</p>
+ * <p>Removed entries are marked as deleted and the slots are reused by later insertions.</p>
+ * <p>As long as the values fit into the inline storage,
+ * {@link #put(int, long[])}, {@link #get(int)} and {@link #remove(int)} only read and write the slot
+ * and never allocate or free memory blocks (except when the table grows).</p>
+ * <p>The table is resized incrementally to avoid long pauses in huge maps.
+ * A resize only allocates the pages of the new table (a page is cleared when it is written the first time)
+ * and every following insertion of a new key moves a few slots of the old table into the new table.
+ * Until all slots are moved, lookups that do not find a key in the new table also search the old table.</p>
+ */
+public class HugeOpenAddressingIntLongArrayMap implements IntLongArrayMap {
+
+	/**
+	 * The default number of <code>long</code> values that are stored inline in a slot.
+	 */
+	public static final int DEFAULT_INLINE_CAPACITY = 2;
+
+	private static final int MIN_PAGE_SHIFT = 5;
+
+	private static final int MAX_PAGE_SHIFT = 12;
+
+	private static final int DIRECTORY_SHIFT = 10;
+
+	private static final int MIN_CAPACITY = 2;
+
+	private static final long EMPTY = 0;
+
+	private static final long DELETED = -1;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * The number of slots of the old table that are moved with every insertion of a new key.
+	 * 
+	 * <p>Must be large enough to move all slots before the new table needs to be resized again.</p>
+	 */
+	private static final int MIGRATION_SLOTS_PER_INSERT = 16;
+
+	private final MemoryManager memoryManager;
+
+	private final int inlineCapacity;
+
+	private final int slotSize;
+
+	private Table table;
+
+	private Table oldTable;
+
+	private int migrationIndex;
+
+	/**
+	 * Constructs a {@link HugeOpenAddressingIntLongArrayMap} with the specified {@link MemoryManager} and capacity.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the data
+	 * @param capacity the initial capacity
+	 */
+	public HugeOpenAddressingIntLongArrayMap(MemoryManager memoryManager, int capacity) {
+		this(memoryManager, capacity, DEFAULT_INLINE_CAPACITY);
+	}
+
+	/**
+	 * Constructs a {@link HugeOpenAddressingIntLongArrayMap} with the specified {@link MemoryManager}, capacity and inline capacity.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the data
+	 * @param capacity the initial capacity
+	 * @param inlineCapacity the number of <code>long</code> values that are stored inline in a slot (at least 1)
+	 */
+	public HugeOpenAddressingIntLongArrayMap(MemoryManager memoryManager, int capacity, int inlineCapacity) {
+		if (inlineCapacity < 1) {
+			throw new IllegalArgumentException("inlineCapacity=" + inlineCapacity);
+		}
+
+		this.memoryManager = memoryManager;
+		this.inlineCapacity = inlineCapacity;
+		this.slotSize = 8 + inlineCapacity * 8;
+
+		table = new Table(tableCapacity(capacity));
+	}
+
+	private static int tableCapacity(int capacity) {
+		int tableCapacity = MIN_CAPACITY;
+		while (tableCapacity * LOAD_FACTOR < capacity) {
+			tableCapacity *= 2;
+		}
+		return tableCapacity;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>If the table needs to grow, all entries are migrated immediately instead of incrementally.</p>
+	 */
+	@Override
+	public void ensureCapacity(int capacity) {
+		int tableCapacity = tableCapacity(capacity + table.deletedCount);
+		if (tableCapacity > table.capacity) {
+			startRehash(tableCapacity(capacity));
+			migrate(oldTable.capacity);
+		}
+	}
+
+	@Override
+	public void put(int key, long[] value) {
+		int index = table.hashIndex(key);
+		int deletedIndex = -1;
+		while (true) {
+			long header = table.readHeader(index);
+			if (header == EMPTY) {
+				break;
+			}
+			if (header == DELETED) {
+				if (deletedIndex < 0) {
+					deletedIndex = index;
+				}
+			} else if (headerKey(header) == key) {
+				writeValue(table, index, key, value, headerCount(header));
+				return;
+			}
+			index = table.nextIndex(index);
+		}
+
+		if (oldTable != null) {
+			int oldIndex = oldTable.findIndex(key);
+			if (oldIndex >= 0) {
+				// existing entries are never moved by an update, so that iterations are not disturbed
+				writeValue(oldTable, oldIndex, key, value, headerCount(oldTable.readHeader(oldIndex)));
+				return;
+			}
+		}
+
+		if (deletedIndex >= 0) {
+			index = deletedIndex;
+			table.deletedCount--;
+		} else if (table.size + table.deletedCount >= table.threshold) {
+			// grow only if the table is really filled - otherwise getting rid of the deleted slots is enough
+			startRehash(size() >= table.threshold / 2 ? table.capacity * 2 : table.capacity);
+			index = table.findFreeIndex(key);
+		}
+		writeValue(table, index, key, value, 0);
+		table.size++;
+
+		if (oldTable != null) {
+			migrate(MIGRATION_SLOTS_PER_INSERT);
+		}
+	}
+
+	@Override
+	public boolean containsKey(int key) {
+		return table.findIndex(key) >= 0 || (oldTable != null && oldTable.findIndex(key) >= 0);
+	}
+
+	@Override
+	public long[] get(int key) {
+		int index = table.findIndex(key);
+		if (index >= 0) {
+			return readValue(table, index);
+		}
+
+		if (oldTable != null) {
+			index = oldTable.findIndex(key);
+			if (index >= 0) {
+				return readValue(oldTable, index);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public void remove(int key) {
+		int index = table.findIndex(key);
+		if (index >= 0) {
+			table.remove(index);
+			return;
+		}
+
+		if (oldTable != null) {
+			index = oldTable.findIndex(key);
+			if (index >= 0) {
+				oldTable.remove(index);
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		if (oldTable != null) {
+			oldTable.freeValues();
+			oldTable.free();
+			oldTable = null;
+		}
+
+		table.freeValues();
+		table.clear();
+	}
+
+	@Override
+	public int size() {
+		return oldTable == null ? table.size : table.size + oldTable.size;
+	}
+
+	@Override
+	public IntIterator keySet() {
+		return new MyIntIterator(0, slotCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>During an incremental rehash the slots of the old table follow the slots of the new table.</p>
+	 */
+	@Override
+	public int slotCount() {
+		return oldTable == null ? table.capacity : table.capacity + oldTable.capacity;
+	}
+
+	@Override
+	public IntIterator keySet(int fromSlot, int toSlot) {
+		return new MyIntIterator(Math.max(0, fromSlot), Math.min(slotCount(), toSlot));
+	}
+
+	@Override
+	public int hashBucketCount() {
+		return table.capacity;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>During an incremental rehash the old table is scanned after the new table.</p>
+	 */
+	@Override
+	public IntIterator hashBucketKeySet(int bucketCount, int fromBucket, int toBucket) {
+		final Table[] tables = oldTable == null ? new Table[] { table } : new Table[] { table, oldTable };
+		return new AbstractHashBucketIntIterator(bucketCount, fromBucket, toBucket) {
+			@Override
+			protected int tableCount() {
+				return tables.length;
+			}
+
+			@Override
+			protected int tableCapacity(int table) {
+				return tables[table].capacity;
+			}
+
+			@Override
+			protected int slotState(int table, int index) {
+				long header = tables[table].readHeader(index);
+				if (header == EMPTY) {
+					return EMPTY_SLOT;
+				}
+				return header == DELETED ? DELETED_SLOT : OCCUPIED_SLOT;
+			}
+
+			@Override
+			protected int slotKey(int table, int index) {
+				return headerKey(tables[table].readHeader(index));
+			}
+
+			@Override
+			protected int hash(int key) {
+				return HugeOpenAddressingIntLongArrayMap.hash(key);
+			}
+
+			@Override
+			protected void removeKey(int key) {
+				HugeOpenAddressingIntLongArrayMap.this.remove(key);
+			}
+		};
+	}
+
+	private long[] readValue(Table valueTable, int index) {
+		int count = headerCount(valueTable.readHeader(index));
+		long[] result = new long[count];
+		if (count <= inlineCapacity) {
+			for (int i = 0; i < count; i++) {
+				result[i] = valueTable.readSlotValue(index, i);
+			}
+		} else {
+			long address = valueTable.readSlotValue(index, 0);
+			for (int i = 0; i < count; i++) {
+				result[i] = memoryManager.readLong(address, i * 8);
+			}
+		}
+		return result;
+	}
+
+	private void writeValue(Table valueTable, int index, int key, long[] value, int oldCount) {
+		long oldAddress = oldCount > inlineCapacity ? valueTable.readSlotValue(index, 0) : -1;
+
+		if (value.length <= inlineCapacity) {
+			if (oldAddress != -1) {
+				memoryManager.free(oldAddress);
+			}
+			for (int i = 0; i < value.length; i++) {
+				valueTable.writeSlotValue(index, i, value[i]);
+			}
+		} else {
+			long address = oldAddress;
+			if (oldCount != value.length) {
+				if (oldAddress != -1) {
+					memoryManager.free(oldAddress);
+				}
+				address = memoryManager.allocate(value.length * 8);
+			}
+			for (int i = 0; i < value.length; i++) {
+				memoryManager.writeLong(address, i * 8, value[i]);
+			}
+			valueTable.writeSlotValue(index, 0, address);
+		}
+
+		valueTable.writeHeader(index, header(key, value.length));
+	}
+
+	private void startRehash(int newCapacity) {
+		if (oldTable != null) {
+			// only happens if the previous resize could not keep up - finish it now
+			migrate(oldTable.capacity);
+		}
+
+		oldTable = table;
+		table = new Table(newCapacity);
+		migrationIndex = 0;
+	}
+
+	/**
+	 * Moves the entries of the specified number of slots from the old table into the new table.
+	 * 
+	 * <p>The moved slots are marked as deleted, so that the probe sequences of the remaining entries in the old table stay intact.
+	 * The old table is freed after all slots have been moved.</p>
+	 * 
+	 * @param slotCount the number of slots to move
+	 */
+	private void migrate(int slotCount) {
+		int endIndex = Math.min(oldTable.capacity, migrationIndex + slotCount);
+		while (migrationIndex < endIndex) {
+			if (!oldTable.isPageCleared(migrationIndex)) {
+				// a page that was never written contains no entries
+				migrationIndex = (migrationIndex | oldTable.pageMask) + 1;
+				continue;
+			}
+
+			long header = oldTable.readHeader(migrationIndex);
+			if (header != EMPTY && header != DELETED) {
+				int index = table.findFreeIndex(headerKey(header));
+				table.writeHeader(index, header);
+				for (int i = 0; i < inlineCapacity; i++) {
+					table.writeSlotValue(index, i, oldTable.readSlotValue(migrationIndex, i));
+				}
+				table.size++;
+
+				oldTable.writeHeader(migrationIndex, DELETED);
+				oldTable.size--;
+				oldTable.deletedCount++;
+			}
+			migrationIndex++;
+		}
+
+		if (migrationIndex >= oldTable.capacity) {
+			oldTable.free();
+			oldTable = null;
+		}
+	}
+
+	private static long header(int key, int count) {
+		// the count is stored + 1 so that an occupied slot can never be confused with EMPTY or DELETED
+		return ((long) (count + 1) << 32) | (key & 0xFFFFFFFFL);
+	}
+
+	private static int hash(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int headerKey(long header) {
+		return (int) header;
+	}
+
+	private static int headerCount(long header) {
+		return (int) (header >>> 32) - 1;
+	}
+
+	@Override
+	public String toString() {
+		String migration = oldTable == null ? "" : ", oldTableSize=" + oldTable.capacity + ", migrationIndex=" + migrationIndex;
+		return getClass().getSimpleName() + "{size=" + size() + ", tableSize=" + table.capacity + ", tableDeleted=" + table.deletedCount + migration + "}";
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = size();
+
+		IntIterator keySet = keySet();
+		while (keySet.hasNext()) {
+			int key = keySet.next();
+			long[] value = get(key);
+
+			int entryHash = key + Arrays.hashCode(value);
+			hash += entryHash; // not multiplied with factor - so hash does not depend in order in keySet
+		}
+
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object == this) {
+			return true;
+		}
+		if (!(object instanceof HugeOpenAddressingIntLongArrayMap)) {
+			return false;
+		}
+
+		HugeOpenAddressingIntLongArrayMap other = (HugeOpenAddressingIntLongArrayMap) object;
+
+		if (size() != other.size()) {
+			return false;
+		}
+
+		IntIterator keySet = keySet();
+		while (keySet.hasNext()) {
+			int key = keySet.next();
+			if (!Arrays.equals(get(key), other.get(key))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * A table of slots stored in pages.
+	 */
+	private class Table {
+
+		final int capacity;
+
+		final int threshold;
+
+		final int pageShift;
+
+		final int pageMask;
+
+		private final LongArray pageAddresses;
+
+		private final BitSet clearedPages;
+
+		int size;
+
+		int deletedCount;
+
+		Table(int capacity) {
+			this.capacity = capacity;
+			this.threshold = (int) (capacity * LOAD_FACTOR);
+
+			// small pages for small tables, larger pages to keep the page directory small for large tables
+			int tableShift = Integer.numberOfTrailingZeros(capacity);
+			pageShift = Math.min(tableShift, Math.max(MIN_PAGE_SHIFT, Math.min(MAX_PAGE_SHIFT, tableShift - DIRECTORY_SHIFT)));
+			pageMask = (1 << pageShift) - 1;
+
+			int pageCount = capacity >>> pageShift;
+			pageAddresses = new PrimitiveLongArray(pageCount);
+			for (int i = 0; i < pageCount; i++) {
+				pageAddresses.add(memoryManager.allocate(pageLength()));
+			}
+			clearedPages = new BitSet(pageCount);
+		}
+
+		int hashIndex(int key) {
+			return hash(key) & (capacity - 1);
+		}
+
+		int nextIndex(int index) {
+			return (index + 1) & (capacity - 1);
+		}
+
+		int previousIndex(int index) {
+			return (index - 1) & (capacity - 1);
+		}
+
+		int findIndex(int key) {
+			int index = hashIndex(key);
+			while (true) {
+				long header = readHeader(index);
+				if (header == EMPTY) {
+					return -1;
+				}
+				if (header != DELETED && headerKey(header) == key) {
+					return index;
+				}
+				index = nextIndex(index);
+			}
+		}
+
+		/**
+		 * Finds the first empty or deleted slot in the probe sequence of the specified key.
+		 * 
+		 * <p>May only be used if the key is not in the table.
+		 * A returned deleted slot is no longer counted as deleted.</p>
+		 * 
+		 * @param key the key
+		 * @return the index of the free slot
+		 */
+		int findFreeIndex(int key) {
+			int index = hashIndex(key);
+			while (true) {
+				long header = readHeader(index);
+				if (header == EMPTY) {
+					return index;
+				}
+				if (header == DELETED) {
+					deletedCount--;
+					return index;
+				}
+				index = nextIndex(index);
+			}
+		}
+
+		void remove(int index) {
+			int count = headerCount(readHeader(index));
+			if (count > inlineCapacity) {
+				memoryManager.free(readSlotValue(index, 0));
+			}
+			size--;
+
+			if (readHeader(nextIndex(index)) == EMPTY) {
+				// no probe sequence continues after this slot - it and the deleted slots before it can become empty again
+				writeHeader(index, EMPTY);
+				int previousIndex = previousIndex(index);
+				while (readHeader(previousIndex) == DELETED) {
+					writeHeader(previousIndex, EMPTY);
+					deletedCount--;
+					previousIndex = previousIndex(previousIndex);
+				}
+			} else {
+				writeHeader(index, DELETED);
+				deletedCount++;
+			}
+		}
+
+		void freeValues() {
+			for (int index = 0; index < capacity; index++) {
+				long header = readHeader(index);
+				if (header != EMPTY && header != DELETED && headerCount(header) > inlineCapacity) {
+					memoryManager.free(readSlotValue(index, 0));
+				}
+			}
+		}
+
+		void clear() {
+			// the pages are cleared again when they are written the next time
+			clearedPages.clear();
+			deletedCount = 0;
+			size = 0;
+		}
+
+		void free() {
+			for (int i = 0; i < pageAddresses.size(); i++) {
+				memoryManager.free(pageAddresses.get(i));
+			}
+		}
+
+		boolean isPageCleared(int index) {
+			return clearedPages.get(index >>> pageShift);
+		}
+
+		long readHeader(int index) {
+			if (!isPageCleared(index)) {
+				return EMPTY;
+			}
+			return memoryManager.readLong(pageAddresses.get(index >>> pageShift), (index & pageMask) * slotSize);
+		}
+
+		void writeHeader(int index, long header) {
+			memoryManager.writeLong(writablePageAddress(index), (index & pageMask) * slotSize, header);
+		}
+
+		long readSlotValue(int index, int valueIndex) {
+			return memoryManager.readLong(pageAddresses.get(index >>> pageShift), (index & pageMask) * slotSize + 8 + valueIndex * 8);
+		}
+
+		void writeSlotValue(int index, int valueIndex, long value) {
+			memoryManager.writeLong(writablePageAddress(index), (index & pageMask) * slotSize + 8 + valueIndex * 8, value);
+		}
+
+		private long writablePageAddress(int index) {
+			int page = index >>> pageShift;
+			long pageAddress = pageAddresses.get(page);
+			if (!clearedPages.get(page)) {
+				int pageLength = pageLength();
+				memoryManager.write(pageAddress, 0, new byte[pageLength], pageLength);
+				clearedPages.set(page);
+			}
+			return pageAddress;
+		}
+
+		private int pageLength() {
+			return (pageMask + 1) * slotSize;
+		}
+	}
+
+	private class MyIntIterator implements IntIterator {
+
+		private final Table iteratedTable = table;
+
+		private final Table iteratedOldTable = oldTable;
+
+		private final int endIndex;
+
+		private int nextIndex;
+
+		private int currentKey;
+
+		private boolean currentValid;
+
+		public MyIntIterator(int startIndex, int endIndex) {
+			this.endIndex = endIndex;
+			nextIndex = findOccupiedIndex(startIndex);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < endIndex;
+		}
+
+		@Override
+		public int next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			currentKey = headerKey(readHeader(nextIndex));
+			currentValid = true;
+			nextIndex = findOccupiedIndex(nextIndex + 1);
+			return currentKey;
+		}
+
+		@Override
+		public void remove() {
+			if (!currentValid) {
+				throw new IllegalStateException();
+			}
+
+			// removing never moves other entries, so the iteration is not disturbed
+			HugeOpenAddressingIntLongArrayMap.this.remove(currentKey);
+			currentValid = false;
+		}
+
+		/**
+		 * Reads the header of a slot, the indexes of the old table follow the indexes of the new table.
+		 * 
+		 * @param index the index of the slot
+		 * @return the header
+		 */
+		private long readHeader(int index) {
+			if (index < iteratedTable.capacity) {
+				return iteratedTable.readHeader(index);
+			}
+			return iteratedOldTable.readHeader(index - iteratedTable.capacity);
+		}
+
+		private int findOccupiedIndex(int startIndex) {
+			for (int index = startIndex; index < endIndex; index++) {
+				long header = readHeader(index);
+				if (header != EMPTY && header != DELETED) {
+					return index;
+				}
+			}
+			return endIndex;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "{currentKey=" + currentKey + ", currentValid=" + currentValid + ", nextIndex=" + nextIndex + "}";
+		}
+	}
+}
@@ -13,6 +13,15 @@ public interface IntLongArrayMap {
 	 */
 	void put(int key, long[] value);
 
+	/**
+	 * Ensures that the map can contain the specified number of keys without growing.
+	 * 
+	 * <p>Call this before putting many keys, so that the map grows at most once.</p>
+	 * 
+	 * @param capacity the number of keys
+	 */
+	void ensureCapacity(int capacity);
+
 	/**
 	 * Returns whether the map contains the specified key.
 	 * 
@@ -54,4 +63,49 @@ public interface IntLongArrayMap {
 	 * @return the {@link IntIterator} over the keys
 	 */
 	IntIterator keySet();
+
+	/**
+	 * Returns the number of slots of the map that can be iterated separately with {@link #keySet(int, int)}.
+	 * 
+	 * @return the number of slots
+	 */
+	int slotCount();
+
+	/**
+	 * Returns an iterator over the keys in the specified range of slots.
+	 * 
+	 * <p>Iterators over disjoint slot ranges return disjoint keys.
+	 * They may be used concurrently as long as the map is not modified.</p>
+	 * 
+	 * @param fromSlot the first slot to iterate (inclusive)
+	 * @param toSlot the last slot to iterate (exclusive)
+	 * @return the {@link IntIterator} over the keys in the slot range
+	 */
+	IntIterator keySet(int fromSlot, int toSlot);
+
+	/**
+	 * Returns the number of hash buckets that can be iterated efficiently with {@link #hashBucketKeySet(int, int, int)}.
+	 * 
+	 * <p>This is the capacity of the hash table, which never shrinks.</p>
+	 * 
+	 * @return the number of hash buckets, a power of 2
+	 */
+	int hashBucketCount();
+
+	/**
+	 * Returns an iterator over the keys in the specified range of hash buckets.
+	 * 
+	 * <p>The keys are divided into the specified number of buckets by their hash.
+	 * Unlike a slot the bucket of a key does not depend on the capacity of the map,
+	 * so iterating consecutive bucket ranges (one range at a time) returns every key that stays in the map exactly once,
+	 * even if the map grows or rehashes between the ranges.</p>
+	 * <p>The map must not be modified while the iterator is used, except by removing the current key with the iterator.</p>
+	 * 
+	 * @param bucketCount the number of buckets, a power of 2
+	 * @param fromBucket the first bucket to iterate (inclusive)
+	 * @param toBucket the last bucket to iterate (exclusive)
+	 * @return the {@link IntIterator} over the keys in the bucket range
+	 * @throws IllegalArgumentException if the number of buckets is not a power of 2
+	 */
+	IntIterator hashBucketKeySet(int bucketCount, int fromBucket, int toBucket);
 }
@@ -38,6 +38,17 @@ public interface LongArray {
 	 * @param value the value to insert
 	 */
 	void addAscending(long value);
+
+	/**
+	 * Adds a range of values from the specified array at the end.
+	 * 
+	 * <p>The capacity is grown at most once for all values.</p>
+	 * 
+	 * @param values the array containing the values to add
+	 * @param offset the offset in the array
+	 * @param length the number of values to add
+	 */
+	void addAll(long[] values, int offset, int length);
 	
 	/**
 	 * Returns the value at the specified index position.
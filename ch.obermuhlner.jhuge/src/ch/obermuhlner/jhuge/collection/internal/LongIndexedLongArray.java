@@ -0,0 +1,362 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import java.nio.ByteBuffer;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * An array of long values indexed by <code>long</code> that stores the values in a {@link MemoryManager}.
+ *
+ * <p>Unlike {@link LongArray} the size of this array is not limited to {@link Integer#MAX_VALUE} elements.</p>
+ *
+ * <p>The elements are stored in pages of a fixed capacity, each page is a separate memory block.
+ * The addresses of the pages are kept in a page directory on the Java heap,
+ * which is indexed by <code>int</code> and therefore limits the size of the array to
+ * {@link Integer#MAX_VALUE} pages.
+ * Growing the array only allocates additional pages and never copies the existing elements
+ * (as long as the array is smaller than a single page the page itself grows, which copies at most one page).</p>
+ * <p>The elements are accessed individually with {@link MemoryManager#readLong(long, int)} and {@link MemoryManager#writeLong(long, int, long)},
+ * so that accessing an element does not copy an entire page.</p>
+ * <p>{@link HugeLongArray} uses this class to implement a {@link LongArray}.</p>
+ */
+public class LongIndexedLongArray {
+
+	/**
+	 * The default number of elements in a page.
+	 */
+	public static final int DEFAULT_PAGE_CAPACITY = 1024;
+
+	private static final int ELEMENT_SIZE = 8;
+
+	private final MemoryManager memoryManager;
+
+	private final int pageShift;
+
+	private final int pageMask;
+
+	private final LongArray pageAddresses = new PrimitiveLongArray();
+
+	private long capacity;
+
+	private long size;
+
+	/**
+	 * Constructs a {@link LongIndexedLongArray}.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the values
+	 */
+	public LongIndexedLongArray(MemoryManager memoryManager) {
+		this(memoryManager, 8, DEFAULT_PAGE_CAPACITY);
+	}
+
+	/**
+	 * Constructs a {@link LongIndexedLongArray} with the specified initial capacity and page capacity.
+	 *
+	 * @param memoryManager the {@link MemoryManager} to store the values
+	 * @param capacity the initial capacity
+	 * @param pageCapacity the number of elements in a page, must be a power of 2
+	 * @throws IllegalArgumentException if the page capacity is not a power of 2
+	 */
+	public LongIndexedLongArray(MemoryManager memoryManager, long capacity, int pageCapacity) {
+		if (pageCapacity <= 0 || Integer.bitCount(pageCapacity) != 1) {
+			throw new IllegalArgumentException("pageCapacity=" + pageCapacity + " is not a power of 2");
+		}
+
+		this.memoryManager = memoryManager;
+		this.pageShift = Integer.numberOfTrailingZeros(pageCapacity);
+		this.pageMask = pageCapacity - 1;
+
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Returns the value at the specified index position.
+	 *
+	 * @param index the index position
+	 * @return the value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long get(long index) {
+		checkSize(index);
+
+		return memoryManager.readLong(pageAddress(index), pageOffset(index));
+	}
+
+	/**
+	 * Sets a value at the specified index position.
+	 *
+	 * @param index the index position to set
+	 * @param value the value to set
+	 * @return the old value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long set(long index, long value) {
+		checkSize(index);
+
+		long pageAddress = pageAddress(index);
+		int offset = pageOffset(index);
+		long oldValue = memoryManager.readLong(pageAddress, offset);
+		memoryManager.writeLong(pageAddress, offset, value);
+		return oldValue;
+	}
+
+	/**
+	 * Adds a value at the end.
+	 *
+	 * @param value the value to add
+	 */
+	public void add(long value) {
+		addInternal(size, value);
+	}
+
+	/**
+	 * Adds a value at the specified index position.
+	 *
+	 * <p>All values after the index position are moved, which is O(n).</p>
+	 *
+	 * @param index the index position to insert in
+	 * @param value the value to add
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public void add(long index, long value) {
+		checkSizeIncludingRightBound(index);
+
+		addInternal(index, value);
+	}
+
+	private void addInternal(long index, long value) {
+		ensureCapacity(size + 1);
+
+		moveElements(index, index + 1, size - index);
+		memoryManager.writeLong(pageAddress(index), pageOffset(index), value);
+
+		size++;
+	}
+
+	/**
+	 * Removes the value at the specified index position.
+	 *
+	 * <p>All values after the index position are moved, which is O(n).</p>
+	 *
+	 * @param index the index position to remove
+	 * @return the removed value
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long remove(long index) {
+		checkSize(index);
+
+		long oldValue = memoryManager.readLong(pageAddress(index), pageOffset(index));
+		moveElements(index + 1, index, size - index - 1);
+
+		size--;
+
+		return oldValue;
+	}
+
+	/**
+	 * Sets the size of the array.
+	 *
+	 * <p>Elements added by growing the array are 0.</p>
+	 *
+	 * @param newSize the new size
+	 */
+	public void setSize(long newSize) {
+		ensureCapacity(newSize);
+
+		// clear the added elements - the memory blocks might contain old data
+		long index = size;
+		while (index < newSize) {
+			int count = (int) Math.min(newSize - index, pageCapacity() - (index & pageMask));
+			int length = count * ELEMENT_SIZE;
+			memoryManager.write(pageAddress(index), pageOffset(index), new byte[length], length);
+			index += count;
+		}
+
+		size = newSize;
+	}
+
+	/**
+	 * Copies a range of values into the specified array.
+	 *
+	 * <p>The values are read page by page, which is much faster than reading them one by one.</p>
+	 *
+	 * @param index the index position of the first value to copy
+	 * @param values the array to copy the values into
+	 * @param offset the offset in the array
+	 * @param length the number of values to copy
+	 * @throws IndexOutOfBoundsException if the range is out of range
+	 */
+	public void get(long index, long[] values, int offset, int length) {
+		checkRange(index, length);
+
+		int pageCapacity = pageCapacity();
+		while (length > 0) {
+			int count = (int) Math.min(length, pageCapacity - (index & pageMask));
+			int byteLength = count * ELEMENT_SIZE;
+			byte[] data = new byte[byteLength];
+			memoryManager.read(pageAddress(index), pageOffset(index), data, byteLength);
+			ByteBuffer.wrap(data).asLongBuffer().get(values, offset, count);
+			index += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Adds a range of values from the specified array at the end.
+	 *
+	 * <p>The values are written page by page, which is much faster than adding them one by one.</p>
+	 *
+	 * @param values the array containing the values to add
+	 * @param offset the offset in the array
+	 * @param length the number of values to add
+	 */
+	public void addAll(long[] values, int offset, int length) {
+		ensureCapacity(size + length);
+
+		int pageCapacity = pageCapacity();
+		long index = size;
+		while (length > 0) {
+			int count = (int) Math.min(length, pageCapacity - (index & pageMask));
+			int byteLength = count * ELEMENT_SIZE;
+			byte[] data = new byte[byteLength];
+			ByteBuffer.wrap(data).asLongBuffer().put(values, offset, count);
+			memoryManager.write(pageAddress(index), pageOffset(index), data, byteLength);
+			index += count;
+			offset += count;
+			length -= count;
+		}
+
+		size = index;
+	}
+
+	/**
+	 * Removes all values.
+	 *
+	 * <p>The allocated pages are kept to be reused.</p>
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of values.
+	 *
+	 * @return the number of values
+	 */
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size + ", pages=" + pageAddresses.size() + "}";
+	}
+
+	private int pageCapacity() {
+		return pageMask + 1;
+	}
+
+	private long pageAddress(long index) {
+		return pageAddresses.get((int) (index >>> pageShift));
+	}
+
+	private int pageOffset(long index) {
+		return (int) (index & pageMask) * ELEMENT_SIZE;
+	}
+
+	/**
+	 * Ensures that the array has at least the specified capacity.
+	 *
+	 * <p>As long as the capacity is smaller than a single page, the first page grows by copying it.
+	 * Once the first page is full, new pages are appended.</p>
+	 *
+	 * @param minCapacity the minimum capacity
+	 */
+	private void ensureCapacity(long minCapacity) {
+		if (minCapacity <= capacity) {
+			return;
+		}
+
+		int pageCapacity = pageCapacity();
+		if (capacity < pageCapacity) {
+			int newCapacity = (int) Math.min(pageCapacity, Math.max(minCapacity, capacity == 0 ? 8 : capacity * 2));
+			long newPageAddress = memoryManager.allocate(newCapacity * ELEMENT_SIZE);
+			if (pageAddresses.size() == 0) {
+				pageAddresses.add(newPageAddress);
+			} else {
+				long oldPageAddress = pageAddresses.get(0);
+				int length = (int) size * ELEMENT_SIZE;
+				byte[] data = new byte[length];
+				memoryManager.read(oldPageAddress, 0, data, length);
+				memoryManager.write(newPageAddress, 0, data, length);
+				memoryManager.free(oldPageAddress);
+				pageAddresses.set(0, newPageAddress);
+			}
+			capacity = newCapacity;
+		}
+
+		while (capacity < minCapacity) {
+			pageAddresses.add(memoryManager.allocate(pageCapacity * ELEMENT_SIZE));
+			capacity += pageCapacity;
+		}
+	}
+
+	/**
+	 * Moves elements inside the array.
+	 *
+	 * <p>The elements are copied in chunks that do not cross a page boundary, neither at the source nor at the destination.</p>
+	 *
+	 * @param fromIndex the index of the first element to move
+	 * @param toIndex the index where the first element is moved to
+	 * @param count the number of elements to move
+	 */
+	private void moveElements(long fromIndex, long toIndex, long count) {
+		int pageCapacity = pageCapacity();
+		if (toIndex > fromIndex) {
+			// copy backwards, so that the source is not overwritten before it is copied
+			long end = count;
+			while (end > 0) {
+				int fromPageFill = (int) ((fromIndex + end - 1) & pageMask) + 1;
+				int toPageFill = (int) ((toIndex + end - 1) & pageMask) + 1;
+				int chunk = (int) Math.min(end, Math.min(fromPageFill, toPageFill));
+				copyElements(fromIndex + end - chunk, toIndex + end - chunk, chunk);
+				end -= chunk;
+			}
+		} else {
+			long start = 0;
+			while (start < count) {
+				int fromPageRemaining = pageCapacity - (int) ((fromIndex + start) & pageMask);
+				int toPageRemaining = pageCapacity - (int) ((toIndex + start) & pageMask);
+				int chunk = (int) Math.min(count - start, Math.min(fromPageRemaining, toPageRemaining));
+				copyElements(fromIndex + start, toIndex + start, chunk);
+				start += chunk;
+			}
+		}
+	}
+
+	private void copyElements(long fromIndex, long toIndex, int count) {
+		int length = count * ELEMENT_SIZE;
+		byte[] data = new byte[length];
+		memoryManager.read(pageAddress(fromIndex), pageOffset(fromIndex), data, length);
+		memoryManager.write(pageAddress(toIndex), pageOffset(toIndex), data, length);
+	}
+
+	private void checkSize(long index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+	}
+
+	private void checkRange(long index, int length) {
+		if (index < 0 || length < 0 || index + length > size) {
+			throw new IndexOutOfBoundsException("index=" + index + " length=" + length + " size=" + size);
+		}
+	}
+
+	private void checkSizeIncludingRightBound(long index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+	}
+}
@@ -57,6 +57,17 @@ public class PrimitiveLongArray extends AbstractLongArray {
 		add(size, value);
 	}
 
+	@Override
+	public void addAll(long[] values, int offset, int length) {
+		if (size + length > array.length) {
+			long[] newArray = new long[Math.max(array.length * 2, size + length)];
+			System.arraycopy(array, 0, newArray, 0, size);
+			array = newArray;
+		}
+		System.arraycopy(values, offset, array, size, length);
+		size += length;
+	}
+
 	@Override
 	public long get(int index) {
 		checkSize(index);
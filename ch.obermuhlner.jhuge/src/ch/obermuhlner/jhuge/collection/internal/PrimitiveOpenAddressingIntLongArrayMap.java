@@ -0,0 +1,435 @@
+package ch.obermuhlner.jhuge.collection.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A map where the keys are <code>int</code> and the values are <code>long[]</code>
+ * that uses an open addressing hash table with linear probing on primitive Java arrays.
+ *
+ * <p>The keys, the value lengths and the inline storage for short values are stored in parallel arrays,
+ * so that no objects are created per entry.
+ * Values that do not fit into the inline storage (typically caused by colliding hash codes) are stored in an overflow map.</p>
+ * <p>Removed entries are marked as deleted and the slots are reused by later insertions.</p>
+ */
+public class PrimitiveOpenAddressingIntLongArrayMap implements IntLongArrayMap {
+
+	/**
+	 * The default number of <code>long</code> values that are stored inline in a slot.
+	 */
+	public static final int DEFAULT_INLINE_CAPACITY = 2;
+
+	private static final int MIN_CAPACITY = 8;
+
+	private static final int EMPTY = 0;
+
+	private static final int DELETED = -1;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final Map<Integer, long[]> overflowValues = new HashMap<Integer, long[]>();
+
+	private final int inlineCapacity;
+
+	private int[] keys;
+
+	private int[] states;
+
+	private long[] inlineValues;
+
+	private int threshold;
+
+	private int size;
+
+	private int deletedCount;
+
+	/**
+	 * Construct a {@link PrimitiveOpenAddressingIntLongArrayMap}.
+	 */
+	public PrimitiveOpenAddressingIntLongArrayMap() {
+		this(8);
+	}
+
+	/**
+	 * Construct a {@link PrimitiveOpenAddressingIntLongArrayMap} with the specified capacity.
+	 *
+	 * @param capacity the initial capacity
+	 */
+	public PrimitiveOpenAddressingIntLongArrayMap(int capacity) {
+		this(capacity, DEFAULT_INLINE_CAPACITY);
+	}
+
+	/**
+	 * Construct a {@link PrimitiveOpenAddressingIntLongArrayMap} with the specified capacity and inline capacity.
+	 *
+	 * @param capacity the initial capacity
+	 * @param inlineCapacity the number of <code>long</code> values that are stored inline in a slot
+	 */
+	public PrimitiveOpenAddressingIntLongArrayMap(int capacity, int inlineCapacity) {
+		this.inlineCapacity = inlineCapacity;
+
+		initialize(tableCapacity(capacity));
+	}
+
+	private static int tableCapacity(int capacity) {
+		int tableCapacity = MIN_CAPACITY;
+		while (tableCapacity * LOAD_FACTOR < capacity) {
+			tableCapacity *= 2;
+		}
+		return tableCapacity;
+	}
+
+	private void initialize(int tableCapacity) {
+		keys = new int[tableCapacity];
+		states = new int[tableCapacity];
+		inlineValues = new long[tableCapacity * inlineCapacity];
+		threshold = (int) (tableCapacity * LOAD_FACTOR);
+		deletedCount = 0;
+	}
+
+	@Override
+	public void put(int key, long[] value) {
+		int index = hashIndex(key);
+		int deletedIndex = -1;
+		while (true) {
+			int state = states[index];
+			if (state == EMPTY) {
+				break;
+			}
+			if (state == DELETED) {
+				if (deletedIndex < 0) {
+					deletedIndex = index;
+				}
+			} else if (keys[index] == key) {
+				writeValue(index, key, value, state - 1);
+				return;
+			}
+			index = nextIndex(index);
+		}
+
+		if (deletedIndex >= 0) {
+			index = deletedIndex;
+			deletedCount--;
+		} else if (size + deletedCount >= threshold) {
+			// grow only if the table is really filled - otherwise getting rid of the deleted slots is enough
+			rehash(size >= threshold / 2 ? states.length * 2 : states.length);
+			index = findEmptyIndex(key);
+		}
+		writeValue(index, key, value, 0);
+		size++;
+	}
+
+	@Override
+	public boolean containsKey(int key) {
+		return findIndex(key) >= 0;
+	}
+
+	@Override
+	public long[] get(int key) {
+		int index = findIndex(key);
+		if (index < 0) {
+			return null;
+		}
+
+		int count = states[index] - 1;
+		if (count > inlineCapacity) {
+			return overflowValues.get(key);
+		}
+
+		long[] result = new long[count];
+		System.arraycopy(inlineValues, index * inlineCapacity, result, 0, count);
+		return result;
+	}
+
+	@Override
+	public void remove(int key) {
+		int index = findIndex(key);
+		if (index < 0) {
+			return;
+		}
+
+		if (states[index] - 1 > inlineCapacity) {
+			overflowValues.remove(key);
+		}
+		size--;
+
+		if (states[nextIndex(index)] == EMPTY) {
+			// no probe sequence continues after this slot - it and the deleted slots before it can become empty again
+			states[index] = EMPTY;
+			int previousIndex = previousIndex(index);
+			while (states[previousIndex] == DELETED) {
+				states[previousIndex] = EMPTY;
+				deletedCount--;
+				previousIndex = previousIndex(previousIndex);
+			}
+		} else {
+			states[index] = DELETED;
+			deletedCount++;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void ensureCapacity(int capacity) {
+		// the deleted slots are also counted, since they are only removed by a rehash
+		int tableCapacity = tableCapacity(capacity + deletedCount);
+		if (tableCapacity > states.length) {
+			rehash(tableCapacity(capacity));
+		}
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(states, EMPTY);
+		overflowValues.clear();
+		deletedCount = 0;
+		size = 0;
+	}
+
+	@Override
+	public IntIterator keySet() {
+		return new MyIntIterator(0, states.length);
+	}
+
+	@Override
+	public int slotCount() {
+		return states.length;
+	}
+
+	@Override
+	public IntIterator keySet(int fromSlot, int toSlot) {
+		return new MyIntIterator(Math.max(0, fromSlot), Math.min(states.length, toSlot));
+	}
+
+	@Override
+	public int hashBucketCount() {
+		return states.length;
+	}
+
+	@Override
+	public IntIterator hashBucketKeySet(int bucketCount, int fromBucket, int toBucket) {
+		return new AbstractHashBucketIntIterator(bucketCount, fromBucket, toBucket) {
+			@Override
+			protected int tableCount() {
+				return 1;
+			}
+
+			@Override
+			protected int tableCapacity(int table) {
+				return states.length;
+			}
+
+			@Override
+			protected int slotState(int table, int index) {
+				int state = states[index];
+				if (state == EMPTY) {
+					return EMPTY_SLOT;
+				}
+				return state == DELETED ? DELETED_SLOT : OCCUPIED_SLOT;
+			}
+
+			@Override
+			protected int slotKey(int table, int index) {
+				return keys[index];
+			}
+
+			@Override
+			protected int hash(int key) {
+				return PrimitiveOpenAddressingIntLongArrayMap.hash(key);
+			}
+
+			@Override
+			protected void removeKey(int key) {
+				PrimitiveOpenAddressingIntLongArrayMap.this.remove(key);
+			}
+		};
+	}
+
+	private int findIndex(int key) {
+		int index = hashIndex(key);
+		while (true) {
+			int state = states[index];
+			if (state == EMPTY) {
+				return -1;
+			}
+			if (state != DELETED && keys[index] == key) {
+				return index;
+			}
+			index = nextIndex(index);
+		}
+	}
+
+	/**
+	 * Finds the first empty slot in the probe sequence of the specified key.
+	 *
+	 * <p>May only be used if the key is not in the table and the table contains no deleted slots.</p>
+	 *
+	 * @param key the key
+	 * @return the index of the empty slot
+	 */
+	private int findEmptyIndex(int key) {
+		int index = hashIndex(key);
+		while (states[index] != EMPTY) {
+			index = nextIndex(index);
+		}
+		return index;
+	}
+
+	private void writeValue(int index, int key, long[] value, int oldCount) {
+		if (value.length <= inlineCapacity) {
+			if (oldCount > inlineCapacity) {
+				overflowValues.remove(key);
+			}
+			System.arraycopy(value, 0, inlineValues, index * inlineCapacity, value.length);
+		} else {
+			overflowValues.put(key, value);
+		}
+
+		keys[index] = key;
+		states[index] = value.length + 1;
+	}
+
+	private void rehash(int newCapacity) {
+		int[] oldKeys = keys;
+		int[] oldStates = states;
+		long[] oldInlineValues = inlineValues;
+
+		initialize(newCapacity);
+
+		for (int oldIndex = 0; oldIndex < oldStates.length; oldIndex++) {
+			int state = oldStates[oldIndex];
+			if (state != EMPTY && state != DELETED) {
+				int index = findEmptyIndex(oldKeys[oldIndex]);
+				keys[index] = oldKeys[oldIndex];
+				states[index] = state;
+				System.arraycopy(oldInlineValues, oldIndex * inlineCapacity, inlineValues, index * inlineCapacity, inlineCapacity);
+			}
+		}
+	}
+
+	private int hashIndex(int key) {
+		return hash(key) & (states.length - 1);
+	}
+
+	private static int hash(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private int nextIndex(int index) {
+		return (index + 1) & (states.length - 1);
+	}
+
+	private int previousIndex(int index) {
+		return (index - 1) & (states.length - 1);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{size=" + size() + ", tableSize=" + states.length + ", tableDeleted=" + deletedCount + ", overflow=" + overflowValues.size() + "}";
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = size();
+
+		IntIterator keySet = keySet();
+		while (keySet.hasNext()) {
+			int key = keySet.next();
+			long[] value = get(key);
+
+			int entryHash = key + Arrays.hashCode(value);
+			hash += entryHash; // not multiplied with factor - so hash does not depend in order in keySet
+		}
+
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object == this) {
+			return true;
+		}
+		if (!(object instanceof PrimitiveOpenAddressingIntLongArrayMap)) {
+			return false;
+		}
+
+		PrimitiveOpenAddressingIntLongArrayMap other = (PrimitiveOpenAddressingIntLongArrayMap) object;
+
+		if (size() != other.size()) {
+			return false;
+		}
+
+		IntIterator keySet = keySet();
+		while (keySet.hasNext()) {
+			int key = keySet.next();
+			if (!Arrays.equals(get(key), other.get(key))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private class MyIntIterator implements IntIterator {
+
+		private final int endIndex;
+
+		private int nextIndex;
+
+		private int currentIndex = -1;
+
+		public MyIntIterator(int startIndex, int endIndex) {
+			this.endIndex = endIndex;
+			nextIndex = findOccupiedIndex(startIndex);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < endIndex;
+		}
+
+		@Override
+		public int next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			currentIndex = nextIndex;
+			nextIndex = findOccupiedIndex(nextIndex + 1);
+			return keys[currentIndex];
+		}
+
+		@Override
+		public void remove() {
+			if (currentIndex < 0) {
+				throw new IllegalStateException();
+			}
+
+			// removing never moves other entries, so the iteration is not disturbed
+			PrimitiveOpenAddressingIntLongArrayMap.this.remove(keys[currentIndex]);
+			currentIndex = -1;
+		}
+
+		private int findOccupiedIndex(int startIndex) {
+			for (int index = startIndex; index < endIndex; index++) {
+				int state = states[index];
+				if (state != EMPTY && state != DELETED) {
+					return index;
+				}
+			}
+			return endIndex;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "{currentIndex=" + currentIndex + ", nextIndex=" + nextIndex + "}";
+		}
+	}
+}
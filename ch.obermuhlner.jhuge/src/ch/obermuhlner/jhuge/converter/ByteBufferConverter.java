@@ -0,0 +1,27 @@
+package ch.obermuhlner.jhuge.converter;
+
+import java.nio.ByteBuffer;
+
+import ch.obermuhlner.jhuge.memory.MemoryManager;
+
+/**
+ * A {@link Converter} that can also deserialize directly from a {@link ByteBuffer}.
+ * 
+ * <p>This allows to deserialize objects from a {@link MemoryManager#view(long) view} of a memory block
+ * without copying the memory block into a byte array first.</p>
+ *
+ * @param <T> the type of the object to convert
+ */
+public interface ByteBufferConverter<T> extends Converter<T> {
+
+	/**
+	 * Deserializes the content of a {@link ByteBuffer} into an object.
+	 * 
+	 * <p>The serialized representation starts at the position of the {@link ByteBuffer}.
+	 * The position of the {@link ByteBuffer} is not modified.</p>
+	 * 
+	 * @param data the {@link ByteBuffer} containing the serialized representation
+	 * @return the deserialized object, or <code>null</code>
+	 */
+	T deserialize(ByteBuffer data);
+}
@@ -0,0 +1,23 @@
+package ch.obermuhlner.jhuge.converter;
+
+/**
+ * A {@link Converter} that can declare that the serialized form of an object is canonical.
+ *
+ * <p>The serialized form of an object is canonical if all objects that are equal to it are serialized into exactly the same bytes
+ * and if the serialized form is not the prefix of the serialized form of another object.
+ * This allows to compare objects by comparing their serialized forms, without deserializing them.</p>
+ *
+ * @param <T> the type of the object to convert
+ */
+public interface CanonicalConverter<T> extends Converter<T> {
+
+	/**
+	 * Returns whether the serialized form of the specified object is canonical.
+	 *
+	 * <p>Returns <code>false</code> if the object is not of a type that this converter can serialize.</p>
+	 *
+	 * @param element the object to check (not <code>null</code>)
+	 * @return <code>true</code> if the serialized form is canonical, <code>false</code> if the objects must be compared with {@link Object#equals(Object)}
+	 */
+	boolean isCanonical(Object element);
+}
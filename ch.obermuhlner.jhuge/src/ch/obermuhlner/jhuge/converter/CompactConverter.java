@@ -18,7 +18,7 @@ import java.util.Date;
  *
  * @param <T> the type of the object to convert
  */
-public class CompactConverter<T extends Serializable> extends SerializableConverter<T> {
+public class CompactConverter<T extends Serializable> extends SerializableConverter<T> implements CanonicalConverter<T> {
 
 	private static final byte NULL = 0;
 	private static final byte SERIALIZED = 1;
@@ -63,6 +63,22 @@ public class CompactConverter<T extends Serializable> extends SerializableConver
 		super(classLoader);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The serialized form of {@link String}, {@link Integer}, {@link Long}, {@link Short}, {@link Byte} and {@link Character} is canonical.</p>
+	 */
+	@Override
+	public boolean isCanonical(Object element) {
+		Class<?> clazz = element.getClass();
+		return clazz == String.class
+				|| clazz == Integer.class
+				|| clazz == Long.class
+				|| clazz == Short.class
+				|| clazz == Byte.class
+				|| clazz == Character.class;
+	}
+
 	@Override
 	public byte[] serialize(T source) {
 		if (source == null) {
@@ -1,18 +1,24 @@
 package ch.obermuhlner.jhuge.converter;
 
+import java.nio.ByteBuffer;
 
 /**
  * Converts an {@link Integer} into a serialized form and from the serialized form back into an {@link Integer}.
  * 
  * <p>The serialized byte array always has a length of 4 bytes.</p>
  */
-public class IntegerConverter implements Converter<Integer> {
+public class IntegerConverter implements ByteBufferConverter<Integer>, CanonicalConverter<Integer>, OrderedConverter<Integer> {
 
 	@Override
 	public int serializedLength() {
 		return 4;
 	}
 	
+	@Override
+	public boolean isCanonical(Object element) {
+		return element instanceof Integer;
+	}
+
 	@Override
 	public byte[] serialize(Integer source) {
 		int value = source;
@@ -32,4 +38,16 @@ public class IntegerConverter implements Converter<Integer> {
 				(data[3] & 0xff));
 		return value;
 	}
+
+	@Override
+	public Integer deserialize(ByteBuffer data) {
+		return data.getInt(data.position());
+	}
+
+	@Override
+	public int compareSerialized(ByteBuffer data1, ByteBuffer data2) {
+		int value1 = data1.getInt(data1.position());
+		int value2 = data2.getInt(data2.position());
+		return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+	}
 }
@@ -1,18 +1,24 @@
 package ch.obermuhlner.jhuge.converter;
 
+import java.nio.ByteBuffer;
 
 /**
  * Converts an {@link Long} into a serialized form and from the serialized form back into an {@link Long}.
  * 
  * <p>The serialized byte array always has a length of 8 bytes.</p>
  */
-public class LongConverter implements Converter<Long> {
+public class LongConverter implements ByteBufferConverter<Long>, CanonicalConverter<Long>, OrderedConverter<Long> {
 
 	@Override
 	public int serializedLength() {
 		return 8;
 	}
 
+	@Override
+	public boolean isCanonical(Object element) {
+		return element instanceof Long;
+	}
+
 	@Override
 	public byte[] serialize(Long source) {
 		long value = source;
@@ -40,4 +46,16 @@ public class LongConverter implements Converter<Long> {
 				((long) (data[7] & 0xff) << 0));
 		return value;
 	}
+
+	@Override
+	public Long deserialize(ByteBuffer data) {
+		return data.getLong(data.position());
+	}
+
+	@Override
+	public int compareSerialized(ByteBuffer data1, ByteBuffer data2) {
+		long value1 = data1.getLong(data1.position());
+		long value2 = data2.getLong(data2.position());
+		return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+	}
 }
@@ -0,0 +1,25 @@
+package ch.obermuhlner.jhuge.converter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Converter} that can compare objects in their serialized form.
+ *
+ * <p>The comparison must be consistent with the natural ordering ({@link Comparable}) of the objects.
+ * This allows sorted collections to compare keys without deserializing them.</p>
+ *
+ * @param <T> the type of the object to convert
+ */
+public interface OrderedConverter<T> extends Converter<T> {
+
+	/**
+	 * Compares two serialized objects.
+	 *
+	 * <p>The positions of the buffers are not changed.</p>
+	 *
+	 * @param data1 the {@link ByteBuffer} containing the first serialized object from its position to its limit
+	 * @param data2 the {@link ByteBuffer} containing the second serialized object from its position to its limit
+	 * @return a negative integer, zero, or a positive integer as the first object is less than, equal to, or greater than the second object
+	 */
+	int compareSerialized(ByteBuffer data1, ByteBuffer data2);
+}
@@ -1,5 +1,7 @@
 package ch.obermuhlner.jhuge.memory;
 
+import java.nio.ByteBuffer;
+
 /**
  * Abstract base class to simplify the implementation of a {@link MemoryManager}.
  */
@@ -11,4 +13,108 @@ public abstract class AbstractMemoryManager implements MemoryManager {
 		write(address, data);
 		return address;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>This implementation calls {@link #allocate(byte[])} for every data array.
+	 * Subclasses should override this method if they can allocate the memory blocks more efficiently.</p>
+	 */
+	@Override
+	public long[] allocate(byte[][] data) {
+		long[] addresses = new long[data.length];
+		for (int i = 0; i < data.length; i++) {
+			addresses[i] = allocate(data[i]);
+		}
+		return addresses;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>This implementation wraps a copy of the memory block returned by {@link #read(long)}.
+	 * Subclasses should override this method if they can provide direct access to the memory block.</p>
+	 */
+	@Override
+	public ByteBuffer view(long address) {
+		return ByteBuffer.wrap(read(address)).asReadOnlyBuffer();
+	}
+
+	@Override
+	public void read(long address, int offset, byte[] data, int length) {
+		ByteBuffer view = view(address);
+		checkRange(offset, length, view.remaining());
+		view.position(offset);
+		view.get(data, 0, length);
+	}
+
+	@Override
+	public int readInt(long address, int offset) {
+		ByteBuffer view = view(address);
+		checkRange(offset, 4, view.remaining());
+		return view.getInt(offset);
+	}
+
+	@Override
+	public long readLong(long address, int offset) {
+		ByteBuffer view = view(address);
+		checkRange(offset, 8, view.remaining());
+		return view.getLong(offset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>This implementation reads the entire memory block, modifies it and writes it back.
+	 * Subclasses should override this method if they can modify the memory block directly.</p>
+	 */
+	@Override
+	public void write(long address, int offset, byte[] data, int length) {
+		byte[] block = read(address);
+		checkRange(offset, length, block.length);
+		System.arraycopy(data, 0, block, offset, length);
+		write(address, block);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>This implementation reads the entire memory block, modifies it and writes it back.
+	 * Subclasses should override this method if they can modify the memory block directly.</p>
+	 */
+	@Override
+	public void writeInt(long address, int offset, int value) {
+		byte[] block = read(address);
+		checkRange(offset, 4, block.length);
+		ByteBuffer.wrap(block).putInt(offset, value);
+		write(address, block);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>This implementation reads the entire memory block, modifies it and writes it back.
+	 * Subclasses should override this method if they can modify the memory block directly.</p>
+	 */
+	@Override
+	public void writeLong(long address, int offset, long value) {
+		byte[] block = read(address);
+		checkRange(offset, 8, block.length);
+		ByteBuffer.wrap(block).putLong(offset, value);
+		write(address, block);
+	}
+
+	/**
+	 * Checks that the specified range is inside of a memory block.
+	 * 
+	 * @param offset the offset of the range inside the memory block
+	 * @param length the length of the range
+	 * @param blockLength the length of the memory block
+	 * @throws IllegalArgumentException if the range is outside of the memory block
+	 */
+	protected static void checkRange(int offset, int length, int blockLength) {
+		if (offset < 0 || length < 0 || offset + length > blockLength) {
+			throw new IllegalArgumentException("offset=" + offset + " length=" + length + " block.length=" + blockLength);
+		}
+	}
 }
@@ -1,5 +1,6 @@
 package ch.obermuhlner.jhuge.memory;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,6 +47,56 @@ public class DummyMemoryManager extends AbstractMemoryManager {
 		return result;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException if the address has not been allocated
+	 */
+	@Override
+	public ByteBuffer view(long address) {
+		return ByteBuffer.wrap(getBlock(address)).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException if the address has not been allocated
+	 */
+	@Override
+	public void write(long address, int offset, byte[] data, int length) {
+		byte[] block = getBlock(address);
+		checkRange(offset, length, block.length);
+		System.arraycopy(data, 0, block, offset, length);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException if the address has not been allocated
+	 */
+	@Override
+	public void writeInt(long address, int offset, int value) {
+		byte[] block = getBlock(address);
+		checkRange(offset, 4, block.length);
+		ByteBuffer.wrap(block).putInt(offset, value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException if the address has not been allocated
+	 */
+	@Override
+	public void writeLong(long address, int offset, long value) {
+		byte[] block = getBlock(address);
+		checkRange(offset, 8, block.length);
+		ByteBuffer.wrap(block).putLong(offset, value);
+	}
+	
+	private byte[] getBlock(long address) {
+		byte[] block = blocks.get(address);
+		if (block == null) {
+			throw new IllegalArgumentException("Block not found: " + address);
+		}
+		return block;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @throws IllegalArgumentException if the address has not been allocated
@@ -1,5 +1,7 @@
 package ch.obermuhlner.jhuge.memory;
 
+import java.nio.ByteBuffer;
+
 /**
  * Manages memory blocks to read and write arbitrary content.
  * 
@@ -32,6 +34,18 @@ public interface MemoryManager {
 	 */
 	long allocate(byte[] data);
 
+	/**
+	 * Allocates a memory block for every specified data array and fills it with the data.
+	 * 
+	 * <p>This has the same behavior as calling {@link #allocate(byte[])} for every data array,
+	 * but allows the implementation to allocate and write the whole batch in a single pass.
+	 * Every memory block can be {@link #free(long) freed} individually.</p>
+	 * 
+	 * @param data the data arrays to write into the allocated memory blocks
+	 * @return the addresses of the allocated memory blocks, in the same order as the data arrays
+	 */
+	long[] allocate(byte[][] data);
+
 	/**
 	 * Returns the content of the memory block at the specified address.
 	 * 
@@ -44,6 +58,50 @@ public interface MemoryManager {
 	 */
 	byte[] read(long address);
 	
+	/**
+	 * Returns a read-only view of the content of the memory block at the specified address.
+	 * 
+	 * <p>Other than {@link #read(long)} this does not need to copy the content of the memory block,
+	 * if the implementation supports it the view accesses the memory block directly.
+	 * The position of the returned {@link ByteBuffer} is 0 and the remaining bytes are the content of the memory block.</p>
+	 * <p>The view may no longer be used after the memory block has been freed.</p>
+	 * 
+	 * @param address the address of the memory block to view
+	 * @return the read-only {@link ByteBuffer} view of the memory block
+	 */
+	ByteBuffer view(long address);
+	
+	/**
+	 * Reads part of the content of the memory block at the specified address into the specified byte array.
+	 * 
+	 * @param address the address of the memory block to read
+	 * @param offset the offset inside the memory block to start reading
+	 * @param data the byte array to fill, starting at index 0
+	 * @param length the number of bytes to read
+	 * @throws IllegalArgumentException if the specified range is outside of the memory block
+	 */
+	void read(long address, int offset, byte[] data, int length);
+	
+	/**
+	 * Reads an <code>int</code> at the specified offset inside the memory block at the specified address.
+	 * 
+	 * @param address the address of the memory block to read
+	 * @param offset the offset inside the memory block
+	 * @return the <code>int</code> value
+	 * @throws IllegalArgumentException if the specified offset is outside of the memory block
+	 */
+	int readInt(long address, int offset);
+	
+	/**
+	 * Reads a <code>long</code> at the specified offset inside the memory block at the specified address.
+	 * 
+	 * @param address the address of the memory block to read
+	 * @param offset the offset inside the memory block
+	 * @return the <code>long</code> value
+	 * @throws IllegalArgumentException if the specified offset is outside of the memory block
+	 */
+	long readLong(long address, int offset);
+	
 	/**
 	 * Writes the content of the specified byte array into the block at the specified address.
 	 * 
@@ -55,6 +113,39 @@ public interface MemoryManager {
 	 */
 	void write(long address, byte[] data);
 	
+	/**
+	 * Writes part of the content of the memory block at the specified address from the specified byte array.
+	 * 
+	 * <p>The rest of the memory block is not modified.</p>
+	 * 
+	 * @param address the address of the memory block to write
+	 * @param offset the offset inside the memory block to start writing
+	 * @param data the byte array to write, starting at index 0
+	 * @param length the number of bytes to write
+	 * @throws IllegalArgumentException if the specified range is outside of the memory block
+	 */
+	void write(long address, int offset, byte[] data, int length);
+	
+	/**
+	 * Writes an <code>int</code> at the specified offset inside the memory block at the specified address.
+	 * 
+	 * @param address the address of the memory block to write
+	 * @param offset the offset inside the memory block
+	 * @param value the <code>int</code> value to write
+	 * @throws IllegalArgumentException if the specified offset is outside of the memory block
+	 */
+	void writeInt(long address, int offset, int value);
+	
+	/**
+	 * Writes a <code>long</code> at the specified offset inside the memory block at the specified address.
+	 * 
+	 * @param address the address of the memory block to write
+	 * @param offset the offset inside the memory block
+	 * @param value the <code>long</code> value to write
+	 * @throws IllegalArgumentException if the specified offset is outside of the memory block
+	 */
+	void writeLong(long address, int offset, long value);
+	
 	/**
 	 * Frees the memory block at the specified address.
 	 * 
@@ -1,7 +1,13 @@
 package ch.obermuhlner.jhuge.memory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import ch.obermuhlner.jhuge.collection.internal.IntArray;
@@ -11,6 +17,22 @@ import ch.obermuhlner.jhuge.collection.internal.PrimitiveLongArray;
 
 /**
  * Uses {@link ByteBuffer#allocateDirect(int) direct mapped buffers} to store the managed memory blocks outside of the Java heap.
+ * 
+ * <p>If a directory is specified the buffers are {@link FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long) memory mapped}
+ * segment files in this directory instead.
+ * The operating system can then keep the frequently accessed pages in the page cache and leave the rest on disk,
+ * so that the stored data is no longer limited by the physical memory or the maximum direct memory of the JVM.</p>
+ * <p>The segment files are temporary and deleted immediately after they are mapped,
+ * the mapping stays valid and the operating system releases the disk space when the buffer is garbage collected.
+ * If the operating system does not allow to delete a mapped file (Windows), the segment files are deleted when the JVM exits.</p>
+ * 
+ * <p>Every block is surrounded by a header and a footer tag that contain the length of the block and whether it is free (boundary tags).
+ * This allows to coalesce a freed block immediately with its free neighbors in constant time,
+ * so that no separate {@link #compact()} pass over all free blocks is necessary.</p>
+ * 
+ * <p>Reading is thread-safe as long as no other thread modifies the memory manager at the same time,
+ * so any number of threads may read concurrently (for example from an immutable collection) without locking.
+ * The read operations never change the state of the shared buffers, they use absolute indexing or duplicated buffer views.</p>
  */
 public class MemoryMappedFileManager extends AbstractMemoryManager {
 
@@ -40,6 +62,36 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	 */
 	private static final long NO_ADDRESS = -1;
 
+	/**
+	 * The number of size classes of free blocks (one for every bit of a positive <code>int</code> length).
+	 */
+	private static final int SIZE_CLASS_COUNT = 31;
+
+	/**
+	 * The maximum number of free blocks in the matching size class that are inspected before a block from a larger size class is used.
+	 */
+	private static final int MAX_SIZE_CLASS_SCAN = 8;
+
+	/**
+	 * The number of bytes of the header and footer tag of every block.
+	 */
+	private static final int BLOCK_OVERHEAD = 8;
+
+	/**
+	 * The minimum length of a block, so that a free block can store its index in the list of its size class.
+	 */
+	private static final int MIN_BLOCK_LENGTH = 4;
+
+	/**
+	 * The bit in a header or footer tag that marks a free block.
+	 */
+	private static final int FREE_FLAG = 0x80000000;
+
+	/**
+	 * The maximum length of a region that is allocated at once by {@link #allocate(byte[][])}.
+	 */
+	private static final int MAX_BULK_REGION_LENGTH = 64 * KILOBYTES;
+
 	private static final boolean DEBUG = false;
 	private static final boolean DEBUG_TRACKING = false;
 	private static final boolean DEBUG_TRACKING_DETAILS = false;
@@ -57,14 +109,28 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	private final int bufferSize;
 	private final int blockSize;
 	private final int allowedBlockOversize;
-	private final boolean compactAfterFree;
+	private final File directory;
 	
 	/**
-	 * The list of free blocks.
+	 * The lists of free blocks, segregated by size class.
 	 * 
-	 * This list must be tracked in order for {@link #findFreeBlock2(int)} to find a free block.
+	 * The size class <code>i</code> contains the free blocks with a length in the range <code>[2^i, 2^(i+1))</code>,
+	 * size class 0 contains also the free blocks of length 0.
+	 * These lists must be tracked in order for {@link #findFreeBlock2(int)} to find a free block.
+	 * Every free block stores its index in the list at the start of its content,
+	 * so that it can be removed in constant time when it is coalesced with a neighbor.
+	 */
+	private final LongArray[] freeBlocksLists = new LongArray[SIZE_CLASS_COUNT];
+
+	/**
+	 * Bit mask of the size classes in {@link #freeBlocksLists} that contain at least one free block.
+	 */
+	private int nonEmptySizeClasses;
+
+	/**
+	 * The total number of free blocks in all {@link #freeBlocksLists}.
 	 */
-	private final LongArray freeBlocksList = new PrimitiveLongArray();
+	private int freeBlocksCount;
 	
 	/**
 	 * The list of allocated blocks, or <code>null</code>.
@@ -114,19 +180,48 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 		this(bufferSize, blockSize, 32, false);
 	}
 
+	/**
+	 * Constructs a {@link MemoryMappedFileManager} with the specified buffer and block size
+	 * that stores the buffers in memory mapped segment files in the specified directory.
+	 * 
+	 * @param bufferSize the buffer size 
+	 * @param blockSize the block size, or {@link #NO_BLOCK_SIZE} to use no block quantification
+	 * @param directory the directory to store the segment files, or <code>null</code> to use direct buffers
+	 */
+	public MemoryMappedFileManager(int bufferSize, int blockSize, File directory) {
+		this(bufferSize, blockSize, 32, false, directory);
+	}
+
 	/**
 	 * Constructs a {@link MemoryMappedFileManager} with the specified configuration.
 	 * 
 	 * @param bufferSize the buffer size 
 	 * @param blockSize the block size, or {@link #NO_BLOCK_SIZE} to use no block quantification
 	 * @param allowedBlockOversize the allowed block oversize when searching for a fitting free block
-	 * @param compactAfterFree compact after freeing a block
+	 * @param compactAfterFree ignored, freed blocks are always coalesced immediately with their free neighbors
 	 */
 	public MemoryMappedFileManager(int bufferSize, int blockSize, int allowedBlockOversize, boolean compactAfterFree) {
+		this(bufferSize, blockSize, allowedBlockOversize, compactAfterFree, null);
+	}
+
+	/**
+	 * Constructs a {@link MemoryMappedFileManager} with the specified configuration.
+	 * 
+	 * @param bufferSize the buffer size 
+	 * @param blockSize the block size, or {@link #NO_BLOCK_SIZE} to use no block quantification
+	 * @param allowedBlockOversize the allowed block oversize when searching for a fitting free block
+	 * @param compactAfterFree ignored, freed blocks are always coalesced immediately with their free neighbors
+	 * @param directory the directory to store the segment files, or <code>null</code> to use direct buffers
+	 */
+	public MemoryMappedFileManager(int bufferSize, int blockSize, int allowedBlockOversize, boolean compactAfterFree, File directory) {
 		this.bufferSize = bufferSize;
 		this.blockSize = blockSize;
 		this.allowedBlockOversize = allowedBlockOversize;
-		this.compactAfterFree = compactAfterFree;
+		this.directory = directory;
+		
+		for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+			freeBlocksLists[i] = new PrimitiveLongArray();
+		}
 	}
 	
 	/**
@@ -146,23 +241,32 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	public int getBlockSize() {
 		return blockSize;
 	}
+	
+	/**
+	 * Returns the directory where the segment files are stored.
+	 * 
+	 * @return the directory, or <code>null</code> if direct buffers are used
+	 */
+	public File getDirectory() {
+		return directory;
+	}
 
 	/**
 	 * {@inheritDoc}
-	 * @throws IllegalArgumentException if the specified length is greater than the buffer size
+	 * @throws IllegalArgumentException if the specified length plus the block overhead is greater than the buffer size
 	 */
 	@Override
 	public long allocate(int length) {
 		if (length == 0) {
 			if (emptyBlockAddress == NO_ADDRESS) {
-				emptyBlockAddress = findFreeBlock(0);
+				emptyBlockAddress = findFreeBlock(MIN_BLOCK_LENGTH);
 				allocatedBlocks++;
 			}
 			if (DEBUG_TRACKING) printTrackingInfo("allocate", length);
 			return emptyBlockAddress;
 		}
 		
-		long address = findFreeBlock(quantify(length));
+		long address = findFreeBlock(Math.max(MIN_BLOCK_LENGTH, quantify(length)));
 		if (DEBUG) allocatedBlocksList.add(address);
 		allocatedBlocks++;
 		
@@ -170,6 +274,74 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 		return address;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Consecutive memory blocks are carved out of a single free region.
+	 * Their tags and data are prepared on the heap and copied into the buffer with a single write.</p>
+	 * 
+	 * @throws IllegalArgumentException if the length of a data array plus the block overhead is greater than the buffer size
+	 */
+	@Override
+	public long[] allocate(byte[][] data) {
+		long[] addresses = new long[data.length];
+		int maxRegionLength = Math.min(MAX_BULK_REGION_LENGTH, bufferSize - BLOCK_OVERHEAD);
+
+		int start = 0;
+		while (start < data.length) {
+			if (data[start].length == 0) {
+				addresses[start] = allocate(0);
+				start++;
+				continue;
+			}
+
+			// collect the blocks that fit into one region, the first block is always taken
+			int end = start;
+			int regionLength = -BLOCK_OVERHEAD;
+			while (end < data.length && data[end].length > 0) {
+				int blockLength = Math.max(MIN_BLOCK_LENGTH, quantify(data[end].length));
+				if (end > start && regionLength + BLOCK_OVERHEAD + blockLength > maxRegionLength) {
+					break;
+				}
+				regionLength += BLOCK_OVERHEAD + blockLength;
+				end++;
+			}
+
+			allocateRegion(data, start, end, regionLength, addresses);
+			start = end;
+		}
+
+		return addresses;
+	}
+
+	private void allocateRegion(byte[][] data, int start, int end, int regionLength, long[] addresses) {
+		long regionAddress = findFreeBlock(regionLength);
+		// the found block may be larger than requested - the last block takes the rest
+		int foundLength = getLength(regionAddress);
+		usedBytes -= (end - start - 1) * BLOCK_OVERHEAD;
+		allocatedBlocks += end - start;
+
+		byte[] region = new byte[foundLength + BLOCK_OVERHEAD];
+		ByteBuffer regionBuffer = ByteBuffer.wrap(region);
+		int position = 0;
+		for (int i = start; i < end; i++) {
+			int blockLength = i == end - 1 ? foundLength - position : Math.max(MIN_BLOCK_LENGTH, quantify(data[i].length));
+			regionBuffer.putInt(position, blockLength);
+			System.arraycopy(data[i], 0, region, position + 4, data[i].length);
+			regionBuffer.putInt(position + 4 + blockLength, blockLength);
+
+			addresses[i] = regionAddress + position;
+			if (DEBUG) allocatedBlocksList.add(addresses[i]);
+			position += blockLength + BLOCK_OVERHEAD;
+		}
+
+		ByteBuffer buffer = getBuffer(regionAddress).duplicate();
+		buffer.position(getBufferPosition(regionAddress));
+		buffer.put(region);
+
+		if (DEBUG_TRACKING) printTrackingInfo("allocate", regionLength);
+	}
+
 	@Override
 	public byte[] read(long address) {
 		ByteBuffer byteBuffer = readByteBufferInternal(address);
@@ -182,16 +354,35 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 		return data;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>The view accesses the memory block directly, without copying it.</p>
+	 */
+	@Override
+	public ByteBuffer view(long address) {
+		if (address == emptyBlockAddress) {
+			return ByteBuffer.wrap(EMPTY_BLOCK_DATA, 0, 0).slice().asReadOnlyBuffer();
+		}
+
+		ByteBuffer buffer = getBuffer(address).asReadOnlyBuffer();
+		int bufferPos = getBufferPosition(address);
+		int length = buffer.getInt(bufferPos);
+		if (DEBUG) checkBlockLength(address, length);
+		
+		buffer.limit(bufferPos + 4 + length);
+		buffer.position(bufferPos + 4);
+		return buffer.slice();
+	}
+	
 	private ByteBuffer readByteBufferInternal(long address) {
 		if (address == emptyBlockAddress) {
 			return ByteBuffer.wrap(EMPTY_BLOCK_DATA);
 		}
 		
-		int bufferIndex = (int) (address / bufferSize);
-		int bufferPos = (int) (address % bufferSize);
-		
-		ByteBuffer buffer = buffers.get(bufferIndex);
-		buffer.position(bufferPos);
+		// the duplicate shares the content but has its own position, so that concurrent readers do not interfere
+		ByteBuffer buffer = getBuffer(address).duplicate();
+		buffer.position(getBufferPosition(address));
 		return buffer;
 	}
 
@@ -213,15 +404,61 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 			return ByteBuffer.wrap(EMPTY_BLOCK_DATA);
 		}
 
-		int bufferIndex = (int) (address / bufferSize);
-		int bufferPos = (int) (address % bufferSize);
-		
-		ByteBuffer buffer = buffers.get(bufferIndex);
-		buffer.position(bufferPos);
+		ByteBuffer buffer = getBuffer(address).duplicate();
+		buffer.position(getBufferPosition(address));
 		
 		return buffer;
 	}
 
+	@Override
+	public void read(long address, int offset, byte[] data, int length) {
+		ByteBuffer buffer = getBuffer(address).duplicate();
+		buffer.position(getDataPosition(address, offset, length));
+		buffer.get(data, 0, length);
+	}
+
+	@Override
+	public int readInt(long address, int offset) {
+		return getBuffer(address).getInt(getDataPosition(address, offset, 4));
+	}
+
+	@Override
+	public long readLong(long address, int offset) {
+		return getBuffer(address).getLong(getDataPosition(address, offset, 8));
+	}
+
+	@Override
+	public void write(long address, int offset, byte[] data, int length) {
+		ByteBuffer buffer = getBuffer(address).duplicate();
+		buffer.position(getDataPosition(address, offset, length));
+		buffer.put(data, 0, length);
+	}
+
+	@Override
+	public void writeInt(long address, int offset, int value) {
+		getBuffer(address).putInt(getDataPosition(address, offset, 4), value);
+	}
+
+	@Override
+	public void writeLong(long address, int offset, long value) {
+		getBuffer(address).putLong(getDataPosition(address, offset, 8), value);
+	}
+
+	/**
+	 * Returns the absolute position inside the buffer of the specified range of a memory block.
+	 * 
+	 * @param address the address of the memory block
+	 * @param offset the offset inside the memory block
+	 * @param length the length of the range
+	 * @return the position inside the buffer
+	 * @throws IllegalArgumentException if the range is outside of the memory block
+	 */
+	private int getDataPosition(long address, int offset, int length) {
+		int blockLength = address == emptyBlockAddress ? 0 : getLength(address);
+		checkRange(offset, length, blockLength);
+		return getBufferPosition(address) + 4 + offset;
+	}
+
 	@Override
 	public void free(long address) {
 		if (address == emptyBlockAddress) {
@@ -241,42 +478,50 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 		allocatedBlocks--;
 		freeBytes += length;
 		usedBytes -= length;
-		freeBlocksList.addAscending(address);
 		
-		if (compactAfterFree) {
-			compact();
+		ByteBuffer buffer = getBuffer(address);
+		int bufferPos = getBufferPosition(address);
+		long freeBlockAddress = address;
+		int freeBlockLength = length;
+		
+		// coalesce with the free block after this block
+		int rightBufferPos = bufferPos + BLOCK_OVERHEAD + length;
+		if (rightBufferPos < bufferSize) {
+			int rightTag = buffer.getInt(rightBufferPos);
+			if ((rightTag & FREE_FLAG) != 0) {
+				int rightLength = rightTag & ~FREE_FLAG;
+				removeFreeBlock(address + BLOCK_OVERHEAD + length, rightLength);
+				freeBlockLength += BLOCK_OVERHEAD + rightLength;
+				freeBytes += BLOCK_OVERHEAD;
+			}
 		}
+
+		// coalesce with the free block before this block (using its footer tag)
+		if (bufferPos > 0) {
+			int leftTag = buffer.getInt(bufferPos - 4);
+			if ((leftTag & FREE_FLAG) != 0) {
+				int leftLength = leftTag & ~FREE_FLAG;
+				freeBlockAddress = address - BLOCK_OVERHEAD - leftLength;
+				removeFreeBlock(freeBlockAddress, leftLength);
+				freeBlockLength += BLOCK_OVERHEAD + leftLength;
+				freeBytes += BLOCK_OVERHEAD;
+			}
+		}
+		
+		setTags(freeBlockAddress, freeBlockLength, true);
+		addFreeBlockToSizeClass(freeBlockAddress, freeBlockLength);
+		
 		if (DEBUG_TRACKING) printTrackingInfo("free", length);
 	}
 	
 	/**
 	 * Compacts the free memory blocks.
 	 * 
-	 * <p>This might lead to larger free memory blocks.</p>
+	 * <p>Freed blocks are already coalesced immediately with their free neighbors,
+	 * so this method does nothing and exists only for compatibility.</p>
 	 */
 	public void compact() {
-		int n = freeBlocksList.size();
-		for (int i = n-1; i > 0; i--) {
-			long leftAddress = freeBlocksList.get(i - 1);
-			long rightAddress = freeBlocksList.get(i);
-			
-			if (isSameBuffer(leftAddress, rightAddress)) {
-				int leftLength = getLengthOfFreeBlock(leftAddress);
-				int rightLength = getLengthOfFreeBlock(rightAddress);
-
-				long calulatedAddressAfterLeft = leftAddress + 4 + leftLength;
-				if (calulatedAddressAfterLeft == rightAddress) {
-					int combinedLength = leftLength + 4 + rightLength;
-					setLength(leftAddress, combinedLength);
-					freeBlocksList.remove(i);
-					freeBytes += 4;
-				} else {
-					if (calulatedAddressAfterLeft > rightAddress) {
-						throw new IllegalStateException("left " + leftAddress + "," + leftLength + " overlaps " + rightAddress + "," + rightLength);
-					}
-				}
-			}
-		}
+		// nothing to do - free blocks are never adjacent
 	}
 
 	@Override
@@ -286,7 +531,7 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 		allocatedBlocks = 0;
 		totalBytes = 0;
 
-		freeBlocksList.clear();
+		clearFreeBlocksLists();
 		emptyBlockAddress = NO_ADDRESS;
 		
 		for (int i = 0; i < buffers.size(); i++) {
@@ -336,21 +581,22 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	 * @return the number of free blocks
 	 */
 	public int getFreeBlocks() {
-		return freeBlocksList.size();
+		return freeBlocksCount;
 	}
 
 	private void printTrackingInfo(String method, int length) {
 		long overheadBytes = totalBytes-usedBytes-freeBytes;
 		
 		if (DEBUG_TRACKING) {
-			System.out.printf("Memory %-10s %6d : used=%10d free=%10d total=%10d overhead=%10d allocated blocks=%5d free blocks=%5d\n", method, length, usedBytes, freeBytes, totalBytes, overheadBytes, allocatedBlocks, freeBlocksList.size());
+			System.out.printf("Memory %-10s %6d : used=%10d free=%10d total=%10d overhead=%10d allocated blocks=%5d free blocks=%5d\n", method, length, usedBytes, freeBytes, totalBytes, overheadBytes, allocatedBlocks, freeBlocksCount);
 		}
 
 		if (DEBUG_TRACKING_DETAILS) {
 			long totalFreeBytes = 0;
 			System.out.println("Free blocks:");
-			for (int i = 0; i < freeBlocksList.size(); i++) {
-				long address = freeBlocksList.get(i);
+			long[] freeBlockAddresses = getFreeBlockAddresses();
+			for (int i = 0; i < freeBlockAddresses.length; i++) {
+				long address = freeBlockAddresses[i];
 				int blockLength = getLengthOfFreeBlock(address);
 				System.out.printf("   free block[%d] address=%10d length=%6d\n", i, address, blockLength);
 				totalFreeBytes += blockLength;
@@ -371,7 +617,7 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 		}
 
 		if (DEBUG) {
-			int expectedOverheadBytes = (allocatedBlocks + freeBlocksList.size()) * 4;
+			int expectedOverheadBytes = (allocatedBlocks + freeBlocksCount) * BLOCK_OVERHEAD;
 			if (expectedOverheadBytes != overheadBytes) {
 				throw new RuntimeException("expected overhead=" + expectedOverheadBytes + " actualOverhead=" + overheadBytes);
 			}
@@ -433,19 +679,42 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	 * @return a snapshot of the sizes of the the free memory blocks in ascending order (smallest blocks first)
 	 */
 	public int[] getFreeBlockSizes() {
-		int n = freeBlocksList.size();
-		
-		IntArray result = new PrimitiveIntArray(n);
-		for (int i = 0; i < n; i++) {
-			result.addAscending(getLengthOfFreeBlock(freeBlocksList.get(i)));
-		}	
+		IntArray result = new PrimitiveIntArray(Math.max(1, freeBlocksCount));
+		for (int sizeClass = 0; sizeClass < SIZE_CLASS_COUNT; sizeClass++) {
+			LongArray freeBlocksList = freeBlocksLists[sizeClass];
+			int n = freeBlocksList.size();
+			for (int i = 0; i < n; i++) {
+				result.addAscending(getLengthOfFreeBlock(freeBlocksList.get(i)));
+			}
+		}
 		
 		return result.toArray();
 	}
 	
+	private long[] getFreeBlockAddresses() {
+		long[] result = new long[freeBlocksCount];
+		int resultIndex = 0;
+		for (int sizeClass = 0; sizeClass < SIZE_CLASS_COUNT; sizeClass++) {
+			LongArray freeBlocksList = freeBlocksLists[sizeClass];
+			int n = freeBlocksList.size();
+			for (int i = 0; i < n; i++) {
+				result[resultIndex++] = freeBlocksList.get(i);
+			}
+		}
+		return result;
+	}
+	
 	@Override
 	public String toString() {
-		return getClass().getSimpleName() + "{buffers=" + buffers.size() + ", bufferSize=" + bufferSize + ", freeblocks=" + freeBlocksList.size() + "}";
+		return getClass().getSimpleName() + "{buffers=" + buffers.size() + ", bufferSize=" + bufferSize + ", freeblocks=" + freeBlocksCount + (directory == null ? "" : ", directory=" + directory) + "}";
+	}
+	
+	private ByteBuffer getBuffer(long address) {
+		return buffers.get((int) (address / bufferSize));
+	}
+	
+	private int getBufferPosition(long address) {
+		return (int) (address % bufferSize);
 	}
 	
 	private int getLengthOfFreeBlock(long address) {
@@ -453,26 +722,27 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	}
 	
 	private int getLength(long address) {
-		int bufferIndex = (int) (address / bufferSize);
-		int bufferPos = (int) (address % bufferSize);
-		
-		ByteBuffer buffer = buffers.get(bufferIndex);
-		buffer.position(bufferPos);
-		int length = buffer.getInt();
+		int length = getBuffer(address).getInt(getBufferPosition(address)) & ~FREE_FLAG;
 		if (DEBUG) checkBlockLength(address, length);
 		
 		return length;
 	}
 	
-	private void setLength(long address, int length) {
+	/**
+	 * Writes the header and footer tag of the block at the specified address.
+	 * 
+	 * @param address the address of the block
+	 * @param length the length of the block
+	 * @param free <code>true</code> to mark the block as free, <code>false</code> to mark it as allocated
+	 */
+	private void setTags(long address, int length, boolean free) {
 		if (DEBUG) checkBlockLength(address, length);
 
-		int bufferIndex = (int) (address / bufferSize);
-		int bufferPos = (int) (address % bufferSize);
-		
-		ByteBuffer buffer = buffers.get(bufferIndex);
-		buffer.position(bufferPos);
-		buffer.putInt(length);
+		ByteBuffer buffer = getBuffer(address);
+		int bufferPos = getBufferPosition(address);
+		int tag = free ? length | FREE_FLAG : length;
+		buffer.putInt(bufferPos, tag);
+		buffer.putInt(bufferPos + 4 + length, tag);
 	}
 
 	private int quantify(int length) {
@@ -488,17 +758,12 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	}
 	
 	private long findFreeBlock(int length) {
-		if (length > bufferSize) {
-			throw new IllegalArgumentException("block.length=" + length + " > " + "buffer.length=" + bufferSize);
+		if (length > bufferSize - BLOCK_OVERHEAD) {
+			throw new IllegalArgumentException("block.length=" + length + " + " + BLOCK_OVERHEAD + " > " + "buffer.length=" + bufferSize);
 		}
 
 		long freeBlock = findFreeBlock2(length);
 
-		if (freeBlock == NO_ADDRESS) {
-			compact();
-			freeBlock = findFreeBlock2(length);
-		}
-		
 		if (freeBlock == NO_ADDRESS) {
 			addMemoryMappedFile();
 			freeBlock = findFreeBlock2(length);
@@ -508,72 +773,182 @@ public class MemoryMappedFileManager extends AbstractMemoryManager {
 	}
 
 	private long findFreeBlock2(int length) {
-		int bestBlockIndex = -1;
-		long bestBlockAddress = NO_ADDRESS;
-		int bestBlockLength = -1;
-		final int n = freeBlocksList.size();
-		for (int i = 0; i < n; i++) {
-			long blockAddress = freeBlocksList.get(i);
-			int blockLength = getLengthOfFreeBlock(blockAddress);
-			if (blockLength >= length) {
-				if (blockLength - length <= allowedBlockOversize) {
-					bestBlockIndex = i;
-					bestBlockAddress = blockAddress;
-					bestBlockLength = blockLength;
-					break;
-				}
-				if (blockLength > bestBlockLength) {
-					bestBlockIndex = i;
-					bestBlockAddress = blockAddress;
-					bestBlockLength = blockLength;
-				}
+		int sizeClass = sizeClass(length);
+		
+		// look for a fitting block in the matching size class
+		int bestBlockIndex = findFittingBlockInSizeClass(sizeClass, length, MAX_SIZE_CLASS_SCAN);
+		
+		if (bestBlockIndex < 0) {
+			// any block in a larger size class is big enough
+			int largerSizeClasses = nonEmptySizeClasses & (-1 << (sizeClass + 1));
+			if (largerSizeClasses != 0) {
+				sizeClass = Integer.numberOfTrailingZeros(largerSizeClasses);
+				bestBlockIndex = freeBlocksLists[sizeClass].size() - 1;
 			}
 		}
+		
+		if (bestBlockIndex < 0) {
+			// last resort - look at all blocks in the matching size class
+			bestBlockIndex = findFittingBlockInSizeClass(sizeClass, length, Integer.MAX_VALUE);
+		}
 
 		if (bestBlockIndex < 0) {
 			return NO_ADDRESS;
 		}
 		
-		freeBlocksList.remove(bestBlockIndex);
+		long bestBlockAddress = removeFreeBlockFromSizeClass(sizeClass, bestBlockIndex);
+		int bestBlockLength = getLengthOfFreeBlock(bestBlockAddress);
 		freeBytes -= bestBlockLength;
 		usedBytes += bestBlockLength;
 		
-		if (bestBlockLength > length + Math.max(4, allowedBlockOversize)) {
-			long remainingBlockAddress = bestBlockAddress + length + 4;
-			int remainingBlockLength = bestBlockLength - length - 4;
-			setLength(remainingBlockAddress, remainingBlockLength);
+		int remainingBlockLength = bestBlockLength - length - BLOCK_OVERHEAD;
+		if (remainingBlockLength >= MIN_BLOCK_LENGTH && bestBlockLength - length > allowedBlockOversize) {
+			long remainingBlockAddress = bestBlockAddress + BLOCK_OVERHEAD + length;
+			setTags(remainingBlockAddress, remainingBlockLength, true);
 			addFreeBlock(remainingBlockAddress, remainingBlockLength);
 
 			bestBlockLength = length;
-			setLength(bestBlockAddress, bestBlockLength);
-			usedBytes -= 4;
+			usedBytes -= BLOCK_OVERHEAD;
 		}
+		setTags(bestBlockAddress, bestBlockLength, false);
 
 		return bestBlockAddress;
 	}
+	
+	/**
+	 * Finds a free block that is large enough in the specified size class.
+	 * 
+	 * <p>A block that fits within the {@link #allowedBlockOversize} is preferred,
+	 * otherwise the first block found that is large enough is returned.</p>
+	 * 
+	 * @param sizeClass the size class to search
+	 * @param length the minimum length of the block
+	 * @param maxScan the maximum number of blocks to inspect
+	 * @return the index of the found block in the list of the size class, or -1 if none was found
+	 */
+	private int findFittingBlockInSizeClass(int sizeClass, int length, int maxScan) {
+		LongArray freeBlocksList = freeBlocksLists[sizeClass];
+		int fittingBlockIndex = -1;
+		int n = freeBlocksList.size();
+		int end = Math.max(0, n - maxScan);
+		for (int i = n - 1; i >= end; i--) {
+			int blockLength = getLengthOfFreeBlock(freeBlocksList.get(i));
+			if (blockLength >= length) {
+				if (blockLength - length <= allowedBlockOversize) {
+					return i;
+				}
+				if (fittingBlockIndex < 0) {
+					fittingBlockIndex = i;
+				}
+			}
+		}
+		return fittingBlockIndex;
+	}
+	
+	private static int sizeClass(int length) {
+		return length == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(length);
+	}
+	
+	private void addFreeBlockToSizeClass(long address, int length) {
+		int sizeClass = sizeClass(length);
+		LongArray freeBlocksList = freeBlocksLists[sizeClass];
+		setFreeBlockIndex(address, freeBlocksList.size());
+		freeBlocksList.add(address);
+		nonEmptySizeClasses |= 1 << sizeClass;
+		freeBlocksCount++;
+	}
+	
+	private void removeFreeBlock(long address, int length) {
+		removeFreeBlockFromSizeClass(sizeClass(length), getFreeBlockIndex(address));
+	}
+	
+	private long removeFreeBlockFromSizeClass(int sizeClass, int index) {
+		LongArray freeBlocksList = freeBlocksLists[sizeClass];
+		
+		// order inside a size class is irrelevant - replace the removed block with the last one
+		int lastIndex = freeBlocksList.size() - 1;
+		long lastAddress = freeBlocksList.remove(lastIndex);
+		long address;
+		if (index == lastIndex) {
+			address = lastAddress;
+		} else {
+			address = freeBlocksList.set(index, lastAddress);
+			setFreeBlockIndex(lastAddress, index);
+		}
+		
+		if (lastIndex == 0) {
+			nonEmptySizeClasses &= ~(1 << sizeClass);
+		}
+		freeBlocksCount--;
+		return address;
+	}
+	
+	private int getFreeBlockIndex(long address) {
+		return getBuffer(address).getInt(getBufferPosition(address) + 4);
+	}
+	
+	private void setFreeBlockIndex(long address, int index) {
+		getBuffer(address).putInt(getBufferPosition(address) + 4, index);
+	}
+	
+	private void clearFreeBlocksLists() {
+		for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+			freeBlocksLists[i].clear();
+		}
+		nonEmptySizeClasses = 0;
+		freeBlocksCount = 0;
+	}
 
 	private void addMemoryMappedFile() {
-			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+			ByteBuffer buffer = directory == null ? ByteBuffer.allocateDirect(bufferSize) : mapSegmentFile();
 			assert buffer.capacity() == bufferSize;
-			initFreeBuffer(buffers.size(), buffer);
 			buffers.add(buffer);
+			initFreeBuffer(buffers.size() - 1, buffer);
+	}
+
+	private MappedByteBuffer mapSegmentFile() {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Failed to create directory: " + directory);
+		}
+
+		try {
+			File file = File.createTempFile("jhuge", ".segment", directory);
+
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			MappedByteBuffer buffer;
+			try {
+				randomAccessFile.setLength(bufferSize);
+				// the mapping stays valid after the file is closed
+				buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bufferSize);
+			} finally {
+				randomAccessFile.close();
+			}
+
+			// the mapping also stays valid after the file is deleted (except on systems that do not allow to delete a mapped file)
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+			return buffer;
+		} catch (IOException exception) {
+			throw new IllegalStateException("Failed to map segment file in directory: " + directory, exception);
+		}
 	}
 	
 	private void initFreeBuffer(int bufferIndex, ByteBuffer buffer) {
-			int bufferLength = bufferSize - 4;
+			int bufferLength = bufferSize - BLOCK_OVERHEAD;
 			buffer.clear();
-			buffer.putInt(bufferLength);
 
 			totalBytes += bufferSize;
 			usedBytes += bufferLength; // corrected in addFreeBlock()
 			
-			long blockAddress = bufferIndex * bufferSize;
+			long blockAddress = (long) bufferIndex * bufferSize;
+			setTags(blockAddress, bufferLength, true);
 			addFreeBlock(blockAddress, bufferLength);
 	}
 
 	private void addFreeBlock(long address, int length) {
 		if (DEBUG) checkBlockLength(address, length);
-		freeBlocksList.addAscending(address);
+		addFreeBlockToSizeClass(address, length);
 		
 		freeBytes += length;
 		usedBytes -= length;
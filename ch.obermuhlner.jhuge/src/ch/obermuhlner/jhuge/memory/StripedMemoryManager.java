@@ -0,0 +1,347 @@
+package ch.obermuhlner.jhuge.memory;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe {@link MemoryManager} that distributes the memory blocks over several independent arenas.
+ * 
+ * <p>Every arena is a separate (not thread-safe) {@link MemoryManager} with its own buffers and free blocks, protected by its own lock.
+ * Every thread is assigned to one arena and allocates only from this arena,
+ * so that threads that are assigned to different arenas never contend for the same lock.</p>
+ * <p>The arena of a memory block is encoded in its address.
+ * If a thread frees a block of another arena that is currently locked, the block is handed back asynchronously:
+ * it is queued and freed by the next thread that allocates from or frees into the owning arena.</p>
+ * <p>Reading and writing the content of blocks only needs shared access to the arena,
+ * so any number of threads may read and write different blocks concurrently.</p>
+ */
+public class StripedMemoryManager extends AbstractMemoryManager {
+
+	private final Arena[] arenas;
+
+	private final AtomicInteger nextArenaIndex = new AtomicInteger();
+
+	private final ThreadLocal<Arena> threadArena = new ThreadLocal<Arena>() {
+		@Override
+		protected Arena initialValue() {
+			return arenas[(nextArenaIndex.getAndIncrement() & Integer.MAX_VALUE) % arenas.length];
+		}
+	};
+
+	/**
+	 * Constructs a {@link StripedMemoryManager} with one arena per available processor
+	 * and a {@link MemoryMappedFileManager} with default configuration for every arena.
+	 */
+	public StripedMemoryManager() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a {@link StripedMemoryManager} with the specified number of arenas
+	 * and a {@link MemoryMappedFileManager} with default configuration for every arena.
+	 * 
+	 * @param arenaCount the number of arenas
+	 */
+	public StripedMemoryManager(int arenaCount) {
+		this(createMemoryMappedFileManagers(arenaCount, 100 * MemoryMappedFileManager.MEGABYTES, MemoryMappedFileManager.NO_BLOCK_SIZE));
+	}
+
+	/**
+	 * Constructs a {@link StripedMemoryManager} with the specified number of arenas
+	 * and a {@link MemoryMappedFileManager} with the specified buffer and block size for every arena.
+	 * 
+	 * @param arenaCount the number of arenas
+	 * @param bufferSize the buffer size of every arena
+	 * @param blockSize the block size, or {@link MemoryMappedFileManager#NO_BLOCK_SIZE} to use no block quantification
+	 */
+	public StripedMemoryManager(int arenaCount, int bufferSize, int blockSize) {
+		this(createMemoryMappedFileManagers(arenaCount, bufferSize, blockSize));
+	}
+
+	/**
+	 * Constructs a {@link StripedMemoryManager} using the specified {@link MemoryManager}s as arenas.
+	 * 
+	 * <p>The arenas do not need to be thread-safe, but may not be used directly anymore.</p>
+	 * 
+	 * @param arenaMemoryManagers the {@link MemoryManager}s to use as arenas
+	 * @throws IllegalArgumentException if no arena is specified
+	 */
+	public StripedMemoryManager(MemoryManager... arenaMemoryManagers) {
+		if (arenaMemoryManagers.length == 0) {
+			throw new IllegalArgumentException("arenaCount=0");
+		}
+
+		arenas = new Arena[arenaMemoryManagers.length];
+		for (int i = 0; i < arenas.length; i++) {
+			arenas[i] = new Arena(i, arenaMemoryManagers[i]);
+		}
+	}
+
+	private static MemoryManager[] createMemoryMappedFileManagers(int arenaCount, int bufferSize, int blockSize) {
+		MemoryManager[] result = new MemoryManager[arenaCount];
+		for (int i = 0; i < arenaCount; i++) {
+			result[i] = new MemoryMappedFileManager(bufferSize, blockSize);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of arenas.
+	 * 
+	 * @return the number of arenas
+	 */
+	public int getArenaCount() {
+		return arenas.length;
+	}
+
+	/**
+	 * Returns the {@link MemoryManager} of the arena that owns the block at the specified address.
+	 * 
+	 * <p>The returned {@link MemoryManager} is not thread-safe and may only be used to inspect it.</p>
+	 * 
+	 * @param address the address of a memory block
+	 * @return the {@link MemoryManager} of the arena
+	 */
+	public MemoryManager getArenaMemoryManager(long address) {
+		return arenas[arenaIndex(address)].memoryManager;
+	}
+
+	@Override
+	public long allocate(int length) {
+		Arena arena = threadArena.get();
+
+		long arenaAddress;
+		arena.lock.writeLock().lock();
+		try {
+			arena.freePendingBlocks();
+			arenaAddress = arena.memoryManager.allocate(length);
+		} finally {
+			arena.lock.writeLock().unlock();
+		}
+
+		return arenaAddress * arenas.length + arena.index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>All memory blocks are allocated in the arena of the current thread while holding its lock only once.</p>
+	 */
+	@Override
+	public long[] allocate(byte[][] data) {
+		Arena arena = threadArena.get();
+
+		long[] addresses;
+		arena.lock.writeLock().lock();
+		try {
+			arena.freePendingBlocks();
+			addresses = arena.memoryManager.allocate(data);
+		} finally {
+			arena.lock.writeLock().unlock();
+		}
+
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = addresses[i] * arenas.length + arena.index;
+		}
+		return addresses;
+	}
+
+	@Override
+	public byte[] read(long address) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			return arena.memoryManager.read(arenaAddress(address));
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public ByteBuffer view(long address) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			return arena.memoryManager.view(arenaAddress(address));
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void read(long address, int offset, byte[] data, int length) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			arena.memoryManager.read(arenaAddress(address), offset, data, length);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int readInt(long address, int offset) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			return arena.memoryManager.readInt(arenaAddress(address), offset);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long readLong(long address, int offset) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			return arena.memoryManager.readLong(arenaAddress(address), offset);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void write(long address, byte[] data) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			arena.memoryManager.write(arenaAddress(address), data);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void write(long address, int offset, byte[] data, int length) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			arena.memoryManager.write(arenaAddress(address), offset, data, length);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void writeInt(long address, int offset, int value) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			arena.memoryManager.writeInt(arenaAddress(address), offset, value);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void writeLong(long address, int offset, long value) {
+		Arena arena = arenas[arenaIndex(address)];
+
+		arena.lock.readLock().lock();
+		try {
+			arena.memoryManager.writeLong(arenaAddress(address), offset, value);
+		} finally {
+			arena.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>If the block belongs to the arena of another thread that is currently locked,
+	 * the block is queued and freed later by a thread that uses the owning arena.</p>
+	 */
+	@Override
+	public void free(long address) {
+		Arena arena = arenas[arenaIndex(address)];
+		long arenaAddress = arenaAddress(address);
+
+		if (arena != threadArena.get()) {
+			if (!arena.lock.writeLock().tryLock()) {
+				arena.pendingFreeAddresses.add(arenaAddress);
+				return;
+			}
+		} else {
+			arena.lock.writeLock().lock();
+		}
+
+		try {
+			arena.freePendingBlocks();
+			arena.memoryManager.free(arenaAddress);
+		} finally {
+			arena.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>This resets all arenas.</p>
+	 */
+	@Override
+	public void reset() {
+		for (Arena arena : arenas) {
+			arena.lock.writeLock().lock();
+			try {
+				arena.pendingFreeAddresses.clear();
+				arena.memoryManager.reset();
+			} finally {
+				arena.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	private int arenaIndex(long address) {
+		return (int) (address % arenas.length);
+	}
+
+	private long arenaAddress(long address) {
+		return address / arenas.length;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{arenas=" + arenas.length + "}";
+	}
+
+	/**
+	 * An arena with its own {@link MemoryManager}, lock and queue of blocks that were freed by other threads.
+	 */
+	private static class Arena {
+		final int index;
+		final MemoryManager memoryManager;
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+		final Queue<Long> pendingFreeAddresses = new ConcurrentLinkedQueue<Long>();
+
+		Arena(int index, MemoryManager memoryManager) {
+			this.index = index;
+			this.memoryManager = memoryManager;
+		}
+
+		/**
+		 * Frees the blocks that were handed back by other threads.
+		 * 
+		 * <p>The caller must hold the write lock of this arena.</p>
+		 */
+		void freePendingBlocks() {
+			Long pendingAddress = pendingFreeAddresses.poll();
+			while (pendingAddress != null) {
+				memoryManager.free(pendingAddress);
+				pendingAddress = pendingFreeAddresses.poll();
+			}
+		}
+	}
+}